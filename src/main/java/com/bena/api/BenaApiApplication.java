@@ -43,7 +43,13 @@ public class BenaApiApplication {
         defaults.put("spring.flyway.out-of-order", "true");
         defaults.put("spring.flyway.locations", "classpath:db/migration");
 
-        defaults.put("management.endpoints.web.exposure.include", "health,info");
+        // Tomcat يكتب الأجزاء فوق 64KB إلى القرص مباشرة؛ حدود كل نوع تُطبق أثناء النسخ (StreamingFileWriter)
+        // والملفات الأكبر من 100MB تُرفع مجزأة عبر /v1/upload/sessions
+        defaults.put("spring.servlet.multipart.max-file-size", "100MB");
+        defaults.put("spring.servlet.multipart.max-request-size", "110MB");
+        defaults.put("spring.servlet.multipart.file-size-threshold", "64KB");
+
+        defaults.put("management.endpoints.web.exposure.include", "health,info,metrics");
         app.setDefaultProperties(defaults);
 
         app.run(args);
@@ -0,0 +1,132 @@
+package com.bena.api.common.controller;
+
+import com.bena.api.common.service.BlobRef;
+import com.bena.api.common.service.BlobUrlSigner;
+import com.bena.api.common.service.FileStorageService;
+import com.bena.api.common.service.LegacyBlobSource;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.net.URI;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * تقديم المحتوى المخزن حسب SHA-256 (صور الطلبات، التصاميم، أغلفة الكتب).
+ * المحتوى لا يتغير لنفس الرابط، لذلك الـ ETag هو الـ hash والتخزين المؤقت دائم.
+ * المحتوى الخاص (صور طلبات العمل) يحتاج رابطاً موقعاً من الخدمة التي أعطت الرابط؛
+ * بدونه يُرد 404 حتى لا يُكشف وجود المحتوى.
+ */
+@RestController
+@RequestMapping("/v1/blobs")
+@RequiredArgsConstructor
+@Tag(name = "Blobs", description = "تقديم الملفات حسب المحتوى")
+public class BlobController {
+
+    private final FileStorageService fileStorageService;
+    private final BlobUrlSigner blobUrlSigner;
+
+    @GetMapping("/{sha256}")
+    @Operation(summary = "تحميل ملف", description = "تحميل ملف حسب SHA-256 مع دعم ETag و Range")
+    public ResponseEntity<Resource> getBlob(
+            @PathVariable String sha256,
+            @RequestParam(required = false) Long exp,
+            @RequestParam(required = false) String sig,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+
+        BlobRef blob = fileStorageService.findBlob(sha256).orElse(null);
+        if (blob == null || blob.privateAccess() && !blobUrlSigner.verify("/v1/blobs/" + sha256, exp, sig)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        // الخاص يُخزن في جهاز المستخدم فقط وحتى انتهاء الرابط
+        CacheControl cacheControl = blob.privateAccess()
+                ? CacheControl.maxAge(blobUrlSigner.remainingSeconds(exp), TimeUnit.SECONDS).cachePrivate()
+                : CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+
+        if (ifNoneMatch != null && (ifNoneMatch.contains(blob.etag()) || ifNoneMatch.trim().equals("*"))) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                    .eTag(blob.etag())
+                    .cacheControl(cacheControl)
+                    .build();
+        }
+
+        // أنواع المحتوى غير المعروضة مباشرة تُرسل كتحميل لتجنب تنفيذها في المتصفح
+        MediaType mediaType = safeMediaType(blob.contentType());
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .eTag(blob.etag())
+                .cacheControl(cacheControl)
+                .contentType(mediaType)
+                .header("X-Content-Type-Options", "nosniff");
+        if (MediaType.APPLICATION_OCTET_STREAM.equals(mediaType)) {
+            response.header(HttpHeaders.CONTENT_DISPOSITION, "attachment");
+        }
+
+        // الـ body يُكتب كـ stream (ويدعم Range تلقائياً)
+        return response.body(fileStorageService.openBlob(blob));
+    }
+
+    @GetMapping("/legacy/{source}/{id}")
+    @Operation(summary = "تحميل صورة قديمة", description = "صورة لم تُنقل بعد إلى مخزن الملفات")
+    public ResponseEntity<?> getLegacyBlob(
+            @PathVariable String source,
+            @PathVariable String id,
+            @RequestParam(required = false) Long exp,
+            @RequestParam(required = false) String sig) {
+
+        LegacyBlobSource legacySource = LegacyBlobSource.fromPath(source).orElse(null);
+        Object rowId = legacySource != null ? legacySource.parseId(id) : null;
+        if (rowId == null || legacySource.isPrivate()
+                && !blobUrlSigner.verify("/v1/blobs/legacy/" + source + "/" + id, exp, sig)) {
+            return ResponseEntity.notFound().build();
+        }
+
+        FileStorageService.LegacyBlob legacy = fileStorageService.loadLegacyBlob(legacySource, rowId).orElse(null);
+        if (legacy == null) {
+            return ResponseEntity.notFound().build();
+        }
+        // نُقل للمخزن بعد إنشاء الرابط
+        if (legacy.sha256() != null) {
+            return ResponseEntity.status(HttpStatus.FOUND)
+                    .location(URI.create(fileStorageService.getBlobUrl(legacy.sha256(), legacySource, rowId, false)))
+                    .build();
+        }
+
+        // الصف قد يُنقل أو يُستبدل، لذلك تخزين قصير بدل immutable
+        CacheControl cacheControl = legacySource.isPrivate()
+                ? CacheControl.maxAge(blobUrlSigner.remainingSeconds(exp), TimeUnit.SECONDS).cachePrivate()
+                : CacheControl.maxAge(1, TimeUnit.HOURS).cachePublic();
+        return ResponseEntity.ok()
+                .cacheControl(cacheControl)
+                .contentType(safeMediaType(legacy.contentType() != null ? legacy.contentType() : "image/jpeg"))
+                .header("X-Content-Type-Options", "nosniff")
+                .body(new ByteArrayResource(legacy.data()));
+    }
+
+    private static MediaType safeMediaType(String contentType) {
+        try {
+            MediaType mediaType = MediaType.parseMediaType(contentType);
+            if (mediaType.getType().equals("image") && !mediaType.getSubtype().contains("svg")
+                    || mediaType.getType().equals("video")
+                    || mediaType.equals(MediaType.APPLICATION_PDF)) {
+                return mediaType;
+            }
+        } catch (Exception e) {
+            // نوع غير صالح
+        }
+        return MediaType.APPLICATION_OCTET_STREAM;
+    }
+}
@@ -0,0 +1,100 @@
+package com.bena.api.common.controller;
+
+import com.bena.api.common.dto.ApiResponse;
+import com.bena.api.common.dto.CreateUploadSessionRequest;
+import com.bena.api.common.dto.UploadSessionDTO;
+import com.bena.api.common.service.UploadSessionService;
+import com.bena.api.module.user.entity.User;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.Valid;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.UUID;
+
+/**
+ * الرفع المجزأ القابل للاستكمال للملفات الكبيرة (PDF، فيديو):
+ * POST /sessions ثم PUT /sessions/{id}?offset=n لكل جزء (جسم الطلب هو البايتات مباشرة)
+ * ثم POST /sessions/{id}/complete، وبعدها يُمرر uploadId للـ endpoint المعني.
+ */
+@RestController
+@RequestMapping("/v1/upload/sessions")
+@RequiredArgsConstructor
+@Tag(name = "Chunked Upload", description = "الرفع المجزأ القابل للاستكمال")
+public class UploadSessionController {
+
+    private final UploadSessionService uploadSessionService;
+
+    @PostMapping
+    @Operation(summary = "بدء جلسة رفع")
+    public ResponseEntity<ApiResponse<UploadSessionDTO>> create(
+            @Valid @RequestBody CreateUploadSessionRequest request,
+            @AuthenticationPrincipal User currentUser) {
+        UploadSessionService.UploadSession session = uploadSessionService.create(
+                currentUser.getId(), request.getFilename(), request.getContentType(), request.getTotalSize());
+        return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(toDTO(session)));
+    }
+
+    @GetMapping("/{id}")
+    @Operation(summary = "حالة الجلسة (للاستكمال بعد الانقطاع)")
+    public ResponseEntity<ApiResponse<UploadSessionDTO>> get(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal User currentUser) {
+        return ResponseEntity.ok(ApiResponse.success(toDTO(uploadSessionService.get(id, currentUser.getId()))));
+    }
+
+    @PutMapping(value = "/{id}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    @Operation(summary = "رفع جزء عند الإزاحة المحددة")
+    public ResponseEntity<ApiResponse<UploadSessionDTO>> append(
+            @PathVariable UUID id,
+            @RequestParam long offset,
+            HttpServletRequest request,
+            @AuthenticationPrincipal User currentUser) throws IOException {
+        // قراءة الجسم مباشرة من الاتصال إلى الملف
+        try (InputStream body = request.getInputStream()) {
+            UploadSessionService.UploadSession session =
+                    uploadSessionService.append(id, currentUser.getId(), offset, body);
+            return ResponseEntity.ok(ApiResponse.success(toDTO(session)));
+        }
+    }
+
+    @PostMapping("/{id}/complete")
+    @Operation(summary = "إنهاء الرفع والتحقق من الملف")
+    public ResponseEntity<ApiResponse<UploadSessionDTO>> complete(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal User currentUser) throws IOException {
+        UploadSessionService.UploadSession session = uploadSessionService.complete(id, currentUser.getId());
+        return ResponseEntity.ok(ApiResponse.success(toDTO(session), "تم رفع الملف بنجاح"));
+    }
+
+    @DeleteMapping("/{id}")
+    @Operation(summary = "إلغاء الرفع")
+    public ResponseEntity<Void> abort(
+            @PathVariable UUID id,
+            @AuthenticationPrincipal User currentUser) throws IOException {
+        uploadSessionService.abort(id, currentUser.getId());
+        return ResponseEntity.noContent().build();
+    }
+
+    private UploadSessionDTO toDTO(UploadSessionService.UploadSession session) {
+        return UploadSessionDTO.builder()
+                .id(session.id())
+                .filename(session.filename())
+                .contentType(session.contentType())
+                .totalSize(session.totalSize())
+                .receivedBytes(session.receivedBytes())
+                .maxChunkSize(uploadSessionService.getMaxChunkSize())
+                .sha256(session.sha256())
+                .status(session.status().name())
+                .expiresAt(session.expiresAt())
+                .build();
+    }
+}
@@ -0,0 +1,24 @@
+package com.bena.api.common.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CreateUploadSessionRequest {
+
+    @NotBlank(message = "اسم الملف مطلوب")
+    private String filename;
+
+    @NotBlank(message = "نوع الملف مطلوب")
+    private String contentType;
+
+    @NotNull(message = "حجم الملف مطلوب")
+    @Positive(message = "حجم الملف غير صالح")
+    private Long totalSize;
+}
@@ -0,0 +1,20 @@
+package com.bena.api.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * نسخة مصغرة من صورة - يختار العميل أصغر عرض يناسب مكان العرض
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class ImageVariantDTO {
+    private String format;  // jpeg أو webp
+    private Integer width;
+    private Integer height;
+    private String url;
+}
@@ -0,0 +1,28 @@
+package com.bena.api.common.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.OffsetDateTime;
+import java.util.UUID;
+
+/**
+ * حالة جلسة رفع مجزأ - العميل يرسل الجزء التالي من receivedBytes
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class UploadSessionDTO {
+    private UUID id;
+    private String filename;
+    private String contentType;
+    private Long totalSize;
+    private Long receivedBytes;
+    private Long maxChunkSize;
+    private String sha256;  // بعد الاكتمال فقط
+    private String status;
+    private OffsetDateTime expiresAt;
+}
@@ -0,0 +1,105 @@
+package com.bena.api.common.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * نقل الصور القديمة (bytea داخل الصفوف) إلى مخزن الملفات على دفعات صغيرة في الخلفية.
+ * كل صف يُحدَّث بشرط hash IS NULL، لذلك تشغيله على أكثر من نسخة آمن (المحتوى نفسه لا يتكرر).
+ * الصفوف التي استُبدلت صورتها (hash جديد) تبقى فيها البيانات القديمة حتى يفرغها هذا الـ job،
+ * لأن الكيانات لا تحمل أعمدة bytea.
+ */
+@Component
+@Slf4j
+public class BlobMigrationJob {
+
+    private static final List<LegacyBlobSource> SOURCES = List.of(LegacyBlobSource.values());
+
+    private record PendingRow(Object id, byte[] data, String contentType) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final FileStorageService fileStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final boolean enabled;
+    private final int batchSize;
+
+    // الجداول التي انتهى نقلها منذ التشغيل
+    private final Set<String> completed = ConcurrentHashMap.newKeySet();
+
+    public BlobMigrationJob(
+            JdbcTemplate jdbcTemplate,
+            FileStorageService fileStorageService,
+            ImageDerivativeService imageDerivativeService,
+            @Value("${app.blob.migration.enabled:true}") boolean enabled,
+            @Value("${app.blob.migration.batch-size:20}") int batchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fileStorageService = fileStorageService;
+        this.imageDerivativeService = imageDerivativeService;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(initialDelay = 30000, fixedDelay = 10000)
+    public void migrateBatch() {
+        if (!enabled || completed.size() == SOURCES.size()) {
+            return;
+        }
+        for (LegacyBlobSource source : SOURCES) {
+            if (completed.contains(source.table())) {
+                continue;
+            }
+            try {
+                int moved = migrate(source);
+                if (moved == 0) {
+                    completed.add(source.table());
+                    log.info("✅ Blob migration finished for {}", source.table());
+                } else {
+                    log.info("📦 Moved {} {} rows to blob storage", moved, source.table());
+                }
+            } catch (Exception e) {
+                log.error("❌ Blob migration failed for {}: {}", source.table(), e.getMessage());
+            }
+        }
+    }
+
+    private int migrate(LegacyBlobSource source) throws Exception {
+        List<PendingRow> rows = jdbcTemplate.query(String.format(
+                        "SELECT id, %s, %s FROM %s WHERE %s IS NOT NULL AND %s IS NULL ORDER BY id LIMIT ?",
+                        source.dataColumn(), source.typeColumn(), source.table(),
+                        source.dataColumn(), source.hashColumn()),
+                (rs, i) -> new PendingRow(rs.getObject(1), rs.getBytes(2), rs.getString(3)),
+                batchSize);
+
+        for (PendingRow row : rows) {
+            ByteArrayInputStream content = new ByteArrayInputStream(row.data());
+            String hash = source.isPrivate()
+                    ? fileStorageService.storePrivateBlob(content, row.contentType()).sha256()
+                    : fileStorageService.storeBlob(content, row.contentType()).sha256();
+            jdbcTemplate.update(String.format(
+                            "UPDATE %s SET %s = ?, %s = NULL WHERE id = ? AND %s IS NULL",
+                            source.table(), source.hashColumn(), source.dataColumn(), source.hashColumn()),
+                    hash, row.id());
+            // النسخ المصغرة تُخزن كمحتوى عام، لذلك لا تُولد للمحتوى الخاص
+            if (!source.isPrivate()) {
+                imageDerivativeService.enqueue(hash);
+            }
+        }
+
+        // بيانات قديمة بقيت بعد استبدال الصورة
+        int cleared = jdbcTemplate.update(String.format(
+                        "UPDATE %s SET %s = NULL WHERE id IN (SELECT id FROM %s WHERE %s IS NOT NULL AND %s IS NOT NULL LIMIT ?)",
+                        source.table(), source.dataColumn(), source.table(), source.dataColumn(), source.hashColumn()),
+                batchSize);
+        return rows.size() + cleared;
+    }
+}
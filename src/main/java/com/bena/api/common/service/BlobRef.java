@@ -0,0 +1,12 @@
+package com.bena.api.common.service;
+
+/**
+ * مرجع لمحتوى مخزن حسب SHA-256 (نفس المحتوى = نفس المرجع).
+ * privateAccess: المحتوى لا يُقدم إلا برابط موقع (BlobUrlSigner)
+ */
+public record BlobRef(String sha256, String contentType, long size, boolean privateAccess) {
+
+    public String etag() {
+        return "\"" + sha256 + "\"";
+    }
+}
@@ -0,0 +1,83 @@
+package com.bena.api.common.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.util.Base64;
+
+/**
+ * توقيع روابط المحتوى الخاص (صور طلبات العمل): HMAC-SHA256 على المسار ووقت الانتهاء.
+ * الرابط يُعطى فقط لمن سمحت له الخدمة برؤية الطلب، و/v1/blobs يرفض المحتوى الخاص بدون توقيع صالح.
+ * وقت الانتهاء مقرب لبداية نافذة ttl حتى يبقى الرابط ثابتاً (ويُخزن مؤقتاً في التطبيق) خلال النافذة.
+ */
+@Component
+@Slf4j
+public class BlobUrlSigner {
+
+    private final byte[] secret;
+    private final long ttlSeconds;
+    private final Clock clock;
+
+    public BlobUrlSigner(
+            @Value("${app.blob.signing-secret:${jwt.secret:}}") String secret,
+            @Value("${app.blob.signed-url-ttl-seconds:3600}") long ttlSeconds) {
+        this(secret, ttlSeconds, Clock.systemUTC());
+    }
+
+    BlobUrlSigner(String secret, long ttlSeconds, Clock clock) {
+        if (secret == null || secret.isBlank()) {
+            // بدون سر مشترك تعمل الروابط على هذه النسخة فقط
+            log.warn("⚠️ app.blob.signing-secret is not set, signed blob URLs are valid on this node only");
+            this.secret = new byte[32];
+            new SecureRandom().nextBytes(this.secret);
+        } else {
+            this.secret = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.ttlSeconds = Math.max(60, ttlSeconds);
+        this.clock = clock;
+    }
+
+    /**
+     * معاملات الاستعلام للمسار (مثل ?exp=...&sig=...) - صالحة بين ttl و 2×ttl
+     */
+    public String sign(String path) {
+        long now = clock.instant().getEpochSecond();
+        long expires = (now / ttlSeconds + 2) * ttlSeconds;
+        return "?exp=" + expires + "&sig=" + signature(path, expires);
+    }
+
+    public boolean verify(String path, Long expires, String signature) {
+        if (expires == null || signature == null || expires < clock.instant().getEpochSecond()) {
+            return false;
+        }
+        return MessageDigest.isEqual(
+                signature(path, expires).getBytes(StandardCharsets.US_ASCII),
+                signature.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    /**
+     * الثواني المتبقية حتى انتهاء الرابط (لـ Cache-Control الخاص)
+     */
+    public long remainingSeconds(long expires) {
+        return Math.max(0, expires - clock.instant().getEpochSecond());
+    }
+
+    private String signature(String path, long expires) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret, "HmacSHA256"));
+            byte[] digest = mac.doFinal((path + "|" + expires).getBytes(StandardCharsets.UTF_8));
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(digest);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -1,8 +1,13 @@
 package com.bena.api.common.service;
 
+import org.springframework.core.io.Resource;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Optional;
 
 /*
  * واجهة عامة لخدمات تخزين الملفات.
@@ -14,9 +19,78 @@ public interface FileStorageService {
     
     String store(MultipartFile file, String folder) throws IOException;
     
+    /**
+     * نقل ملف مكتمل على القرص (مثل الرفع المجزأ) إلى المجلد بدل نسخه
+     */
+    String store(Path file, String folder, String originalFilename) throws IOException;
+    
     void delete(String filePath);
     
     String getUrl(String filePath);
     
     byte[] load(String filePath) throws IOException;
+
+    /**
+     * مسار الملف على القرص (مثل إعادة ملف الرفع المجزأ لجلسته إذا تراجع الـ transaction)
+     */
+    Path resolve(String filePath);
+
+    // ==================== المحتوى حسب SHA-256 ====================
+
+    /**
+     * حفظ المحتوى حسب الـ hash (بدون تكرار) - يقرأ الـ stream بدون تحميله كاملاً في الذاكرة
+     */
+    BlobRef storeBlob(InputStream content, String contentType) throws IOException;
+
+    /**
+     * مثل storeBlob مع حد للحجم يُطبق أثناء القراءة، وأنواع مسموحة حسب المحتوى الفعلي
+     */
+    BlobRef storeBlob(InputStream content, String contentType, long maxBytes,
+                      Collection<String> allowedTypes) throws IOException;
+
+    /**
+     * مثل storeBlob لكن المحتوى خاص: يُقدم برابط موقع فقط (getPrivateBlobUrl).
+     * إذا خُزن نفس المحتوى لاحقاً كعام يصبح عاماً (المحتوى نفسه منشور)
+     */
+    BlobRef storePrivateBlob(InputStream content, String contentType) throws IOException;
+
+    Optional<BlobRef> findBlob(String sha256);
+
+    Resource openBlob(BlobRef blob);
+
+    String getBlobUrl(String sha256);
+
+    /**
+     * رابط موقع ومؤقت للمحتوى الخاص
+     */
+    String getPrivateBlobUrl(String sha256);
+
+    // ==================== الصور القديمة (bytea داخل الصفوف) ====================
+
+    /**
+     * رابط الصف القديم الذي لم ينقله BlobMigrationJob بعد (موقع للمصادر الخاصة)
+     */
+    String getLegacyBlobUrl(LegacyBlobSource source, Object id);
+
+    /**
+     * قراءة صف قديم واحد (للرابط أعلاه فقط - الاستعلامات العادية لا تحمل أعمدة bytea)
+     */
+    Optional<LegacyBlob> loadLegacyBlob(LegacyBlobSource source, Object id);
+
+    /**
+     * رابط المحتوى للعرض: المخزن إذا نُقل، وإلا رابط الصف القديم. القراءة لا تكتب شيئاً،
+     * والنقل للمخزن مسؤولية BlobMigrationJob فقط
+     */
+    default String getBlobUrl(String sha256, LegacyBlobSource source, Object id, boolean hasLegacyData) {
+        if (sha256 != null) {
+            return source.isPrivate() ? getPrivateBlobUrl(sha256) : getBlobUrl(sha256);
+        }
+        return hasLegacyData ? getLegacyBlobUrl(source, id) : null;
+    }
+
+    /**
+     * محتوى الصف القديم، أو sha256 فقط إذا نُقل بعد إنشاء الرابط
+     */
+    record LegacyBlob(byte[] data, String contentType, String sha256) {
+    }
 }
@@ -1,5 +1,6 @@
 package com.bena.api.common.service;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
@@ -7,10 +8,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.List;
 import java.util.UUID;
@@ -19,10 +20,13 @@ import java.util.UUID;
  * خدمة رفع الملفات
  */
 @Service
+@RequiredArgsConstructor
 public class FileUploadService {
     
     private static final Logger logger = LoggerFactory.getLogger(FileUploadService.class);
     
+    private final ImageDerivativeService imageDerivativeService;
+    
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
     
@@ -44,11 +48,13 @@ public class FileUploadService {
     );
     
     /**
-     * رفع صورة
+     * رفع صورة (النسخ المصغرة تُولد في الخلفية)
      */
     public String uploadImage(MultipartFile file, String subFolder) throws IOException {
         validateFile(file, ALLOWED_IMAGE_TYPES);
-        return saveFile(file, subFolder);
+        String path = saveFile(file, subFolder, ALLOWED_IMAGE_TYPES);
+        imageDerivativeService.enqueue(path);
+        return path;
     }
     
     /**
@@ -56,7 +62,7 @@ public class FileUploadService {
      */
     public String uploadVideo(MultipartFile file, String subFolder) throws IOException {
         validateFile(file, ALLOWED_VIDEO_TYPES);
-        return saveFile(file, subFolder);
+        return saveFile(file, subFolder, ALLOWED_VIDEO_TYPES);
     }
     
     /**
@@ -67,7 +73,7 @@ public class FileUploadService {
         allAllowed.addAll(ALLOWED_VIDEO_TYPES);
         allAllowed.addAll(ALLOWED_DOCUMENT_TYPES);
         validateFile(file, allAllowed);
-        return saveFile(file, subFolder);
+        return saveFile(file, subFolder, allAllowed);
     }
     
     /**
@@ -88,7 +94,9 @@ public class FileUploadService {
                 return false;
             }
 
-            return Files.deleteIfExists(targetPath);
+            boolean deleted = Files.deleteIfExists(targetPath);
+            imageDerivativeService.delete(normalizedRelativePath);
+            return deleted;
         } catch (IOException e) {
             logger.error("Error deleting file: {}", filePath, e);
             return false;
@@ -141,15 +149,9 @@ public class FileUploadService {
     }
     
     /**
-     * حفظ الملف
+     * حفظ الملف عبر buffer ثابت مع التحقق من نوع المحتوى الفعلي والحجم أثناء النسخ
      */
-    private String saveFile(MultipartFile file, String subFolder) throws IOException {
-        // إنشاء المجلد إذا لم يكن موجوداً
-        Path uploadPath = Paths.get(uploadDir, subFolder);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
+    private String saveFile(MultipartFile file, String subFolder, List<String> allowedTypes) throws IOException {
         // إنشاء اسم فريد للملف
         String originalFilename = file.getOriginalFilename();
         String extension = "";
@@ -159,8 +161,10 @@ public class FileUploadService {
         String newFilename = UUID.randomUUID().toString() + extension;
         
         // حفظ الملف
-        Path filePath = uploadPath.resolve(newFilename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        Path filePath = Paths.get(uploadDir, subFolder).resolve(newFilename);
+        try (InputStream in = file.getInputStream()) {
+            StreamingFileWriter.write(in, filePath, maxFileSize, allowedTypes);
+        }
         
         logger.info("File uploaded: {}", filePath);
         
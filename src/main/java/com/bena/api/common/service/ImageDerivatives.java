@@ -0,0 +1,22 @@
+package com.bena.api.common.service;
+
+import com.bena.api.common.dto.ImageVariantDTO;
+
+import java.util.List;
+
+/**
+ * النسخ الجاهزة لصورة واحدة (مرتبة حسب العرض تصاعدياً) مع blurhash للعرض أثناء التحميل
+ */
+public record ImageDerivatives(int width, int height, String blurhash, List<ImageVariantDTO> variants) {
+
+    /**
+     * أصغر نسخة JPEG (مدعومة في كل العملاء)
+     */
+    public String thumbnailUrl() {
+        return variants.stream()
+                .filter(variant -> ImageDerivativeService.FORMAT_JPEG.equals(variant.getFormat()))
+                .findFirst()
+                .map(ImageVariantDTO::getUrl)
+                .orElse(null);
+    }
+}
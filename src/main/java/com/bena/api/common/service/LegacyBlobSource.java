@@ -0,0 +1,77 @@
+package com.bena.api.common.service;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * الجداول التي كانت تخزن الصور كـ bytea داخل الصف (قبل مخزن blobs).
+ * BlobMigrationJob ينقلها للمخزن، وحتى ذلك الحين تُقدم من /v1/blobs/legacy/{path}/{id}.
+ */
+public enum LegacyBlobSource {
+
+    // صور طلبات العمل خاصة بأطراف الطلب: روابطها موقعة ولا تُولد لها نسخ مصغرة
+    JOB_REQUEST_IMAGES("job-request-images", "job_request_images", "image_data", "content_type", "image_hash", true),
+    DESIGNS("designs", "designs", "image_data", "image_type", "image_hash", false),
+    EBOOK_COVERS("ebook-covers", "ebooks", "cover_data", "cover_type", "cover_hash", false);
+
+    private final String path;
+    private final String table;
+    private final String dataColumn;
+    private final String typeColumn;
+    private final String hashColumn;
+    private final boolean privateAccess;
+
+    LegacyBlobSource(String path, String table, String dataColumn, String typeColumn, String hashColumn,
+                     boolean privateAccess) {
+        this.path = path;
+        this.table = table;
+        this.dataColumn = dataColumn;
+        this.typeColumn = typeColumn;
+        this.hashColumn = hashColumn;
+        this.privateAccess = privateAccess;
+    }
+
+    public String path() {
+        return path;
+    }
+
+    public String table() {
+        return table;
+    }
+
+    public String dataColumn() {
+        return dataColumn;
+    }
+
+    public String typeColumn() {
+        return typeColumn;
+    }
+
+    public String hashColumn() {
+        return hashColumn;
+    }
+
+    public boolean isPrivate() {
+        return privateAccess;
+    }
+
+    /**
+     * المعرف من الرابط بنوع عمود id (UUID للكتب، رقم لغيرها) - null إذا كان غير صالح
+     */
+    public Object parseId(String raw) {
+        try {
+            return this == EBOOK_COVERS ? UUID.fromString(raw) : Long.valueOf(raw);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    public static Optional<LegacyBlobSource> fromPath(String path) {
+        for (LegacyBlobSource source : values()) {
+            if (source.path.equals(path)) {
+                return Optional.of(source);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -1,25 +1,47 @@
 package com.bena.api.common.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
 @Service
 @Profile("!production")
+@RequiredArgsConstructor
 @Slf4j
 public class LocalFileStorageService implements FileStorageService {
     
+    private static final Pattern SHA256_HEX = Pattern.compile("[0-9a-f]{64}");
+    
+    private final JdbcTemplate jdbcTemplate;
+    private final BlobUrlSigner blobUrlSigner;
+    
+    // النوع والحجم لا يتغيران لنفس الـ hash؛ الخصوصية قد تتغير (خاص -> عام) من نسخة أخرى، لذلك مدة محدودة
+    private final Cache<String, BlobRef> blobCache = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .build();
+    
     @Value("${app.upload.dir:uploads}")
     private String uploadDir;
     
@@ -37,20 +59,36 @@ public class LocalFileStorageService implements FileStorageService {
         ".mp4", ".webm", ".mov"
     );
     
+    // الأنواع المسموحة حسب المحتوى الفعلي (MimeSniffer)
+    private static final List<String> ALLOWED_CONTENT_TYPES = Arrays.asList(
+        "image/jpeg", "image/png", "image/gif", "image/webp",
+        "video/mp4", "video/webm", "video/quicktime",
+        "application/pdf"
+    );
+    
     @Override
     public String store(MultipartFile file, String folder) throws IOException {
         validateFile(file);
         
-        Path uploadPath = Paths.get(uploadDir, folder);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
-        }
-        
         String extension = getFileExtension(file.getOriginalFilename());
         String filename = UUID.randomUUID().toString() + extension;
+        Path filePath = Paths.get(uploadDir, folder).resolve(filename);
         
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
+        // الـ part موجود على القرص (Tomcat)؛ ننسخه عبر buffer ثابت مع التحقق من المحتوى الفعلي
+        try (InputStream in = file.getInputStream()) {
+            StreamingFileWriter.write(in, filePath, maxFileSize, ALLOWED_CONTENT_TYPES);
+        }
+        
+        log.info("File stored: {}", filePath);
+        
+        return folder + "/" + filename;
+    }
+    
+    @Override
+    public String store(Path file, String folder, String originalFilename) throws IOException {
+        String filename = UUID.randomUUID().toString() + getFileExtension(originalFilename).toLowerCase();
+        Path filePath = Paths.get(uploadDir, folder).resolve(filename);
+        StreamingFileWriter.move(file, filePath);
         
         log.info("File stored: {}", filePath);
         
@@ -79,6 +117,130 @@ public class LocalFileStorageService implements FileStorageService {
         return Files.readAllBytes(path);
     }
     
+    @Override
+    public Path resolve(String filePath) {
+        return Paths.get(uploadDir, filePath);
+    }
+    
+    // ==================== المحتوى حسب SHA-256 ====================
+    
+    /**
+     * يُكتب المحتوى إلى ملف مؤقت مع حساب الـ hash، ثم يُنقل إلى
+     * blobs/ab/cd/<sha256>. إذا كان المحتوى موجوداً يُحذف الملف المؤقت.
+     */
+    @Override
+    public BlobRef storeBlob(InputStream content, String contentType) throws IOException {
+        return storeBlob(content, contentType, Long.MAX_VALUE, null);
+    }
+    
+    @Override
+    public BlobRef storeBlob(InputStream content, String contentType, long maxBytes,
+                             Collection<String> allowedTypes) throws IOException {
+        return storeBlob(content, contentType, maxBytes, allowedTypes, false);
+    }
+    
+    @Override
+    public BlobRef storePrivateBlob(InputStream content, String contentType) throws IOException {
+        return storeBlob(content, contentType, Long.MAX_VALUE, null, true);
+    }
+    
+    private BlobRef storeBlob(InputStream content, String contentType, long maxBytes,
+                              Collection<String> allowedTypes, boolean privateAccess) throws IOException {
+        StreamingFileWriter.StreamedFile streamed =
+                StreamingFileWriter.writeTemp(content, Paths.get(uploadDir, "blobs"), maxBytes, allowedTypes);
+        Path temp = streamed.path();
+        try {
+            String sha256 = streamed.sha256();
+            long size = streamed.size();
+            
+            Path target = blobPath(sha256);
+            if (!Files.exists(target)) {
+                StreamingFileWriter.move(temp, target);
+            }
+            
+            // النوع المكتشف من المحتوى أدق من المُرسل (BlobController يرسله كما هو)
+            String sniffed = streamed.sniffedType();
+            if (sniffed != null && (sniffed.startsWith("image/") || sniffed.startsWith("video/")
+                    || sniffed.equals("application/pdf"))) {
+                contentType = sniffed;
+            }
+            String type = contentType != null && !contentType.isBlank() ? contentType : "application/octet-stream";
+            // يبقى خاصاً فقط إذا لم يُخزن نفس المحتوى كعام
+            jdbcTemplate.update(
+                    "INSERT INTO blobs (sha256, content_type, size_bytes, is_private) VALUES (?, ?, ?, ?) "
+                            + "ON CONFLICT (sha256) DO UPDATE SET is_private = FALSE "
+                            + "WHERE blobs.is_private AND NOT EXCLUDED.is_private",
+                    sha256, type.length() > 100 ? type.substring(0, 100) : type, size, privateAccess);
+            blobCache.invalidate(sha256);
+            
+            log.debug("Blob stored: {} ({} bytes)", sha256, size);
+            return findBlob(sha256).orElse(new BlobRef(sha256, type, size, privateAccess));
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+    
+    @Override
+    public Optional<BlobRef> findBlob(String sha256) {
+        if (sha256 == null || !SHA256_HEX.matcher(sha256).matches()) {
+            return Optional.empty();
+        }
+        BlobRef cached = blobCache.getIfPresent(sha256);
+        if (cached != null) {
+            return Optional.of(cached);
+        }
+        List<BlobRef> rows = jdbcTemplate.query(
+                "SELECT sha256, content_type, size_bytes, is_private FROM blobs WHERE sha256 = ?",
+                (rs, i) -> new BlobRef(rs.getString(1), rs.getString(2), rs.getLong(3), rs.getBoolean(4)),
+                sha256);
+        if (rows.isEmpty() || !Files.exists(blobPath(sha256))) {
+            return Optional.empty();
+        }
+        blobCache.put(sha256, rows.get(0));
+        return Optional.of(rows.get(0));
+    }
+    
+    @Override
+    public Resource openBlob(BlobRef blob) {
+        return new FileSystemResource(blobPath(blob.sha256()));
+    }
+    
+    @Override
+    public String getBlobUrl(String sha256) {
+        return sha256 != null ? baseUrl + "/v1/blobs/" + sha256 : null;
+    }
+    
+    @Override
+    public String getPrivateBlobUrl(String sha256) {
+        if (sha256 == null) {
+            return null;
+        }
+        String path = "/v1/blobs/" + sha256;
+        return baseUrl + path + blobUrlSigner.sign(path);
+    }
+    
+    @Override
+    public String getLegacyBlobUrl(LegacyBlobSource source, Object id) {
+        String path = "/v1/blobs/legacy/" + source.path() + "/" + id;
+        return baseUrl + path + (source.isPrivate() ? blobUrlSigner.sign(path) : "");
+    }
+    
+    @Override
+    public Optional<LegacyBlob> loadLegacyBlob(LegacyBlobSource source, Object id) {
+        List<LegacyBlob> rows = jdbcTemplate.query(String.format(
+                        "SELECT %s, %s, %s FROM %s WHERE id = ?",
+                        source.dataColumn(), source.typeColumn(), source.hashColumn(), source.table()),
+                (rs, i) -> new LegacyBlob(rs.getBytes(1), rs.getString(2), rs.getString(3)),
+                id);
+        return rows.stream()
+                .filter(row -> row.sha256() != null || (row.data() != null && row.data().length > 0))
+                .findFirst();
+    }
+    
+    private Path blobPath(String sha256) {
+        return Paths.get(uploadDir, "blobs", sha256.substring(0, 2), sha256.substring(2, 4), sha256);
+    }
+    
     private void validateFile(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new IllegalArgumentException("الملف فارغ");
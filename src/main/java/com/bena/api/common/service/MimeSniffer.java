@@ -0,0 +1,125 @@
+package com.bena.api.common.service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+
+/**
+ * تحديد نوع الملف من أول بايتات المحتوى (magic numbers) بدل الاعتماد على
+ * Content-Type الذي يرسله العميل
+ */
+public final class MimeSniffer {
+
+    /**
+     * عدد البايتات الكافية لكل الأنواع المدعومة
+     */
+    public static final int HEAD_SIZE = 16;
+
+    public static final String ZIP = "application/zip";
+    public static final String OLE = "application/x-ole-storage";
+
+    private static final String DOCX = "application/vnd.openxmlformats-officedocument.wordprocessingml.document";
+    private static final String DOC = "application/msword";
+
+    private MimeSniffer() {
+    }
+
+    /**
+     * النوع المكتشف أو null إذا لم يُعرف
+     */
+    public static String sniff(byte[] head, int length) {
+        if (startsWith(head, length, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(head, length, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(head, length, 'G', 'I', 'F', '8')) {
+            return "image/gif";
+        }
+        if (startsWith(head, length, 'R', 'I', 'F', 'F') && ascii(head, length, 8, "WEBP")) {
+            return "image/webp";
+        }
+        if (startsWith(head, length, '%', 'P', 'D', 'F', '-')) {
+            return "application/pdf";
+        }
+        if (ascii(head, length, 4, "ftyp")) {
+            return ascii(head, length, 8, "qt  ") ? "video/quicktime" : "video/mp4";
+        }
+        if (startsWith(head, length, 0x1A, 0x45, 0xDF, 0xA3)) {
+            return "video/webm";
+        }
+        if (startsWith(head, length, 'P', 'K', 0x03, 0x04)) {
+            return ZIP;
+        }
+        if (startsWith(head, length, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)) {
+            return OLE;
+        }
+        return null;
+    }
+
+    /**
+     * النوع المكتشف مسموح؟ (docx هو zip، و doc هو OLE، و mp4/mov يشتركان في ftyp)
+     */
+    public static boolean isAllowed(String sniffed, Collection<String> allowedTypes) {
+        if (sniffed == null) {
+            return false;
+        }
+        if (allowedTypes.contains(sniffed)) {
+            return true;
+        }
+        return switch (sniffed) {
+            case ZIP -> allowedTypes.contains(DOCX);
+            case OLE -> allowedTypes.contains(DOC);
+            case "video/mp4" -> allowedTypes.contains("video/quicktime");
+            case "video/quicktime" -> allowedTypes.contains("video/mp4");
+            default -> false;
+        };
+    }
+
+    /**
+     * هل يتوافق النوع المكتشف مع النوع المُعلن من العميل (نفس العائلة على الأقل)
+     */
+    public static boolean matchesDeclared(String sniffed, String declared) {
+        if (sniffed == null || declared == null) {
+            return false;
+        }
+        String normalized = declared.toLowerCase().trim();
+        if (normalized.equals(sniffed) || (normalized.equals("image/jpg") && sniffed.equals("image/jpeg"))) {
+            return true;
+        }
+        if (sniffed.equals(ZIP)) {
+            return normalized.equals(DOCX);
+        }
+        if (sniffed.equals(OLE)) {
+            return normalized.equals(DOC);
+        }
+        int slash = sniffed.indexOf('/');
+        String family = sniffed.substring(0, slash + 1);
+        return (family.equals("image/") || family.equals("video/")) && normalized.startsWith(family);
+    }
+
+    private static boolean startsWith(byte[] head, int length, int... signature) {
+        if (length < signature.length) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((head[i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean ascii(byte[] head, int length, int offset, String text) {
+        byte[] expected = text.getBytes(StandardCharsets.US_ASCII);
+        if (length < offset + expected.length) {
+            return false;
+        }
+        for (int i = 0; i < expected.length; i++) {
+            if (head[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
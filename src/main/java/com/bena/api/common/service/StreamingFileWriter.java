@@ -0,0 +1,157 @@
+package com.bena.api.common.service;
+
+import com.bena.api.common.exception.PayloadTooLargeException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Collection;
+import java.util.HexFormat;
+
+/**
+ * كتابة المحتوى المرفوع إلى القرص عبر buffer ثابت الحجم (64KB) مع:
+ * - حساب SHA-256 أثناء القراءة
+ * - تحديد النوع من أول البايتات (MimeSniffer) ورفض الأنواع غير المسموحة قبل ظهور الملف
+ * - إيقاف القراءة فور تجاوز الحد بدل انتظار نهاية الملف
+ * الملف يُكتب مؤقتاً بجانب الهدف ثم يُنقل (لا يظهر ملف ناقص أبداً).
+ */
+public final class StreamingFileWriter {
+
+    public static final int BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * @param sniffedType النوع المكتشف من المحتوى (null إذا لم يُعرف)
+     */
+    public record StreamedFile(Path path, long size, String sha256, String sniffedType) {
+    }
+
+    private StreamingFileWriter() {
+    }
+
+    /**
+     * كتابة المحتوى إلى target
+     *
+     * @param allowedTypes الأنواع المسموحة حسب المحتوى، أو null بدون تحقق
+     */
+    public static StreamedFile write(InputStream in, Path target, long maxBytes,
+                                     Collection<String> allowedTypes) throws IOException {
+        StreamedFile temp = writeTemp(in, target.toAbsolutePath().getParent(), maxBytes, allowedTypes);
+        try {
+            move(temp.path(), target);
+            return new StreamedFile(target, temp.size(), temp.sha256(), temp.sniffedType());
+        } finally {
+            Files.deleteIfExists(temp.path());
+        }
+    }
+
+    /**
+     * كتابة المحتوى إلى ملف مؤقت في directory - المستدعي مسؤول عن نقله أو حذفه
+     */
+    public static StreamedFile writeTemp(InputStream in, Path directory, long maxBytes,
+                                         Collection<String> allowedTypes) throws IOException {
+        Files.createDirectories(directory);
+        Path temp = Files.createTempFile(directory, ".upload-", ".part");
+        boolean success = false;
+        try {
+            StreamedFile streamed;
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                streamed = copy(in, out, temp, maxBytes);
+            }
+            if (allowedTypes != null && !MimeSniffer.isAllowed(streamed.sniffedType(), allowedTypes)) {
+                throw new IllegalArgumentException("محتوى الملف لا يطابق نوعاً مسموحاً");
+            }
+            success = true;
+            return streamed;
+        } finally {
+            if (!success) {
+                Files.deleteIfExists(temp);
+            }
+        }
+    }
+
+    /**
+     * حساب الـ hash والنوع لملف موجود على القرص (مثل الرفع المجزأ بعد اكتماله)
+     */
+    public static StreamedFile inspect(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return copy(in, OutputStream.nullOutputStream(), file, Long.MAX_VALUE);
+        }
+    }
+
+    /**
+     * إلحاق المحتوى بالقناة من موضعها الحالي (بدون hash)، ويرجع عدد البايتات المكتوبة
+     */
+    public static long append(InputStream in, FileChannel channel, long maxBytes) throws IOException {
+        byte[] buffer = new byte[BUFFER_SIZE];
+        ByteBuffer wrapper = ByteBuffer.wrap(buffer);
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new PayloadTooLargeException(tooLargeMessage(maxBytes));
+            }
+            wrapper.clear().limit(read);
+            while (wrapper.hasRemaining()) {
+                channel.write(wrapper);
+            }
+        }
+        return total;
+    }
+
+    /**
+     * نقل ذري داخل نفس نظام الملفات، مع بديل عادي إذا لم يكن مدعوماً
+     */
+    public static void move(Path source, Path target) throws IOException {
+        Files.createDirectories(target.toAbsolutePath().getParent());
+        try {
+            Files.move(source, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(source, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static StreamedFile copy(InputStream in, OutputStream out, Path path, long maxBytes) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[BUFFER_SIZE];
+        byte[] head = new byte[MimeSniffer.HEAD_SIZE];
+        int headLength = 0;
+        long total = 0;
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            total += read;
+            if (total > maxBytes) {
+                throw new PayloadTooLargeException(tooLargeMessage(maxBytes));
+            }
+            if (headLength < head.length) {
+                int n = Math.min(read, head.length - headLength);
+                System.arraycopy(buffer, 0, head, headLength, n);
+                headLength += n;
+            }
+            digest.update(buffer, 0, read);
+            out.write(buffer, 0, read);
+        }
+        return new StreamedFile(path, total, HexFormat.of().formatHex(digest.digest()),
+                MimeSniffer.sniff(head, headLength));
+    }
+
+    private static String tooLargeMessage(long maxBytes) {
+        return "حجم الملف أكبر من المسموح (" + Math.max(1, maxBytes / 1024 / 1024) + "MB)";
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,396 @@
+package com.bena.api.common.service;
+
+import com.bena.api.common.exception.InvalidOperationException;
+import com.bena.api.common.exception.PayloadTooLargeException;
+import com.bena.api.common.exception.ResourceNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * الرفع المجزأ القابل للاستكمال (ملفات PDF والفيديو الكبيرة):
+ * 1. create: إنشاء جلسة بالحجم الكلي والنوع المُعلن
+ * 2. append: كل جزء يُكتب مباشرة إلى ملف .part عند الإزاحة الحالية (بدون multipart ولا buffer في الذاكرة)
+ * 3. عند انقطاع الاتصال يسأل العميل عن receivedBytes ويكمل من هناك
+ * 4. complete: التحقق من الحجم والنوع الفعلي (MimeSniffer) وحساب SHA-256
+ * 5. consume: الخدمة المستخدمة (كتب، معرض العامل) تنقل الملف لمكانه النهائي بدون نسخ
+ * الجلسات غير المكتملة تُحذف بعد انتهاء صلاحيتها.
+ * لكل مستخدم حد لعدد الجلسات المفتوحة ومجموع أحجامها، وعمر الجلسة لا يتجاوز max-lifetime مهما تجدد.
+ * التزامن بين النسخ عبر قفل الصف (SELECT ... FOR UPDATE)، لذلك مجلد الرفع يجب أن يكون مشتركاً بينها.
+ */
+@Service
+@Slf4j
+public class UploadSessionService {
+
+    public enum Status {
+        UPLOADING,
+        COMPLETED
+    }
+
+    public record UploadSession(
+            UUID id,
+            UUID userId,
+            String filename,
+            String contentType,
+            long totalSize,
+            long receivedBytes,
+            String sha256,
+            Status status,
+            OffsetDateTime expiresAt
+    ) {
+    }
+
+    public static final List<String> ALLOWED_TYPES = List.of(
+            "application/pdf",
+            "video/mp4", "video/webm", "video/quicktime",
+            "image/jpeg", "image/png", "image/webp"
+    );
+
+    private static final String SELECT_SQL = """
+            SELECT id, user_id, filename, content_type, total_size, received_bytes, sha256, status, expires_at
+            FROM upload_sessions
+            WHERE id = ? AND user_id = ? AND expires_at > NOW()
+            """;
+
+    // قفل الصف حتى نهاية الـ transaction: طلبان على نفس الجلسة (من أي نسخة) لا يكتبان معاً
+    private static final String SELECT_FOR_UPDATE_SQL = SELECT_SQL + " FOR UPDATE";
+
+    // التجديد لا يتجاوز عمر الجلسة الأقصى
+    private static final String EXPIRY_SQL = "LEAST(?, created_at + ? * INTERVAL '1 second')";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final FileStorageService fileStorageService;
+    private final Path chunkDir;
+    private final long maxSize;
+    private final long maxChunkSize;
+    private final Duration ttl;
+    private final Duration maxLifetime;
+    private final int maxSessionsPerUser;
+    private final long maxBytesPerUser;
+
+    public UploadSessionService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            FileStorageService fileStorageService,
+            @Value("${app.upload.dir:uploads}") String uploadDir,
+            @Value("${app.upload.chunked.max-size:524288000}") long maxSize,
+            @Value("${app.upload.chunked.max-chunk-size:16777216}") long maxChunkSize,
+            @Value("${app.upload.chunked.ttl-hours:24}") long ttlHours,
+            @Value("${app.upload.chunked.max-lifetime-hours:72}") long maxLifetimeHours,
+            @Value("${app.upload.chunked.max-sessions-per-user:5}") int maxSessionsPerUser,
+            @Value("${app.upload.chunked.max-bytes-per-user:1073741824}") long maxBytesPerUser
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fileStorageService = fileStorageService;
+        this.chunkDir = Paths.get(uploadDir, "tmp", "chunks");
+        this.maxSize = maxSize;
+        this.maxChunkSize = maxChunkSize;
+        this.ttl = Duration.ofHours(ttlHours);
+        this.maxLifetime = Duration.ofHours(Math.max(ttlHours, maxLifetimeHours));
+        this.maxSessionsPerUser = Math.max(1, maxSessionsPerUser);
+        this.maxBytesPerUser = maxBytesPerUser;
+    }
+
+    public long getMaxChunkSize() {
+        return maxChunkSize;
+    }
+
+    public UploadSession create(UUID userId, String filename, String contentType, long totalSize) {
+        if (totalSize <= 0) {
+            throw new IllegalArgumentException("حجم الملف غير صالح");
+        }
+        if (totalSize > maxSize) {
+            throw new PayloadTooLargeException("حجم الملف أكبر من المسموح (" + (maxSize / 1024 / 1024) + "MB)");
+        }
+        if (contentType == null || !ALLOWED_TYPES.contains(contentType.toLowerCase())) {
+            throw new IllegalArgumentException("نوع الملف غير مسموح");
+        }
+
+        UUID id = UUID.randomUUID();
+        String safeName = filename != null ? Paths.get(filename).getFileName().toString() : "upload";
+        if (safeName.length() > 255) {
+            safeName = safeName.substring(safeName.length() - 255);
+        }
+        String name = safeName;
+        return transactionTemplate.execute(status -> {
+            // جلسات المستخدم تُعد تحت قفل واحد حتى لا يتجاوز طلبان متزامنان الحد
+            jdbcTemplate.query("SELECT pg_advisory_xact_lock(hashtext(?))", rs -> null, "upload_sessions:" + userId);
+            Map<String, Object> open = jdbcTemplate.queryForMap(
+                    "SELECT COUNT(*) AS sessions, COALESCE(SUM(total_size), 0) AS bytes "
+                            + "FROM upload_sessions WHERE user_id = ? AND expires_at > NOW()",
+                    userId);
+            if (((Number) open.get("sessions")).longValue() >= maxSessionsPerUser) {
+                throw new InvalidOperationException("لديك " + maxSessionsPerUser + " جلسات رفع مفتوحة، أكملها أو ألغها أولاً");
+            }
+            if (((Number) open.get("bytes")).longValue() + totalSize > maxBytesPerUser) {
+                throw new PayloadTooLargeException("مجموع الملفات قيد الرفع أكبر من المسموح ("
+                        + (maxBytesPerUser / 1024 / 1024) + "MB)");
+            }
+            jdbcTemplate.update("""
+                            INSERT INTO upload_sessions (id, user_id, filename, content_type, total_size, expires_at)
+                            VALUES (?, ?, ?, ?, ?, ?)
+                            """,
+                    id, userId, name, contentType.toLowerCase(), totalSize, expiry());
+            log.info("Upload session {} created: {} ({} bytes)", id, name, totalSize);
+            return get(id, userId);
+        });
+    }
+
+    public UploadSession get(UUID id, UUID userId) {
+        return query(SELECT_SQL, id, userId);
+    }
+
+    private UploadSession query(String sql, UUID id, UUID userId) {
+        List<UploadSession> rows = jdbcTemplate.query(sql, (rs, i) -> new UploadSession(
+                rs.getObject(1, UUID.class),
+                rs.getObject(2, UUID.class),
+                rs.getString(3),
+                rs.getString(4),
+                rs.getLong(5),
+                rs.getLong(6),
+                rs.getString(7),
+                Status.valueOf(rs.getString(8)),
+                rs.getObject(9, OffsetDateTime.class)
+        ), id, userId);
+        if (rows.isEmpty()) {
+            throw new ResourceNotFoundException("جلسة الرفع غير موجودة أو منتهية");
+        }
+        return rows.get(0);
+    }
+
+    /**
+     * كتابة جزء عند offset. إذا كان offset أقل من المستلم (إعادة إرسال بعد انقطاع)
+     * يُكتب فوق الجزء السابق؛ أكبر من المستلم = فجوة مرفوضة.
+     * الجزء يُقرأ من العميل أولاً إلى ملف مؤقت (بدون قفل ولا اتصال بقاعدة البيانات)، ثم يُنسخ
+     * إلى ملف الجلسة تحت قفل الصف، فالقفل لا ينتظر سرعة شبكة العميل.
+     */
+    public UploadSession append(UUID id, UUID userId, long offset, InputStream body) throws IOException {
+        UploadSession current = get(id, userId);
+        checkAppendable(current, offset);
+
+        long limit = Math.min(maxChunkSize, current.totalSize() - offset);
+        Files.createDirectories(chunkDir);
+        Path chunk = Files.createTempFile(chunkDir, id + ".", ".chunk");
+        try {
+            long written;
+            try (FileChannel channel = FileChannel.open(chunk, StandardOpenOption.WRITE)) {
+                written = StreamingFileWriter.append(body, channel, limit);
+            }
+            return inTransaction(() -> {
+                // الحالة قد تغيرت أثناء القراءة (جزء آخر من نسخة أخرى، أو complete)
+                UploadSession session = query(SELECT_FOR_UPDATE_SQL, id, userId);
+                checkAppendable(session, offset);
+                try (FileChannel source = FileChannel.open(chunk, StandardOpenOption.READ);
+                     FileChannel part = FileChannel.open(partPath(id), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+                    // بقايا جزء سابق انقطع في منتصفه، أو إعادة إرسال
+                    part.truncate(offset);
+                    long copied = 0;
+                    while (copied < written) {
+                        copied += part.transferFrom(source, offset + copied, written - copied);
+                    }
+                }
+                jdbcTemplate.update(
+                        "UPDATE upload_sessions SET received_bytes = ?, updated_at = NOW(), expires_at = "
+                                + EXPIRY_SQL + " WHERE id = ?",
+                        offset + written, expiry(), maxLifetime.toSeconds(), id);
+                return query(SELECT_SQL, id, userId);
+            });
+        } finally {
+            Files.deleteIfExists(chunk);
+        }
+    }
+
+    /**
+     * إنهاء الرفع: التحقق من الحجم والنوع الفعلي وحساب SHA-256
+     */
+    public UploadSession complete(UUID id, UUID userId) throws IOException {
+        boolean[] mismatch = new boolean[1];
+        UploadSession completed = inTransaction(() -> {
+            UploadSession session = query(SELECT_FOR_UPDATE_SQL, id, userId);
+            if (session.status() == Status.COMPLETED) {
+                return session;
+            }
+            if (session.receivedBytes() != session.totalSize()) {
+                throw new InvalidOperationException(
+                        "الملف لم يكتمل (" + session.receivedBytes() + " من " + session.totalSize() + ")");
+            }
+
+            StreamingFileWriter.StreamedFile file = StreamingFileWriter.inspect(partPath(id));
+            if (file.size() != session.totalSize()) {
+                throw new InvalidOperationException("حجم الملف على الخادم لا يطابق الجلسة، أعد الرفع");
+            }
+            if (!MimeSniffer.isAllowed(file.sniffedType(), ALLOWED_TYPES)
+                    || !MimeSniffer.matchesDeclared(file.sniffedType(), session.contentType())) {
+                Files.deleteIfExists(partPath(id));
+                jdbcTemplate.update("DELETE FROM upload_sessions WHERE id = ?", id);
+                mismatch[0] = true;
+                return null;
+            }
+
+            jdbcTemplate.update("UPDATE upload_sessions SET status = 'COMPLETED', sha256 = ?, content_type = ?, "
+                            + "updated_at = NOW(), expires_at = " + EXPIRY_SQL + " WHERE id = ?",
+                    file.sha256(), file.sniffedType(), expiry(), maxLifetime.toSeconds(), id);
+            log.info("✅ Upload session {} completed ({} bytes, {})", id, file.size(), file.sniffedType());
+            return query(SELECT_SQL, id, userId);
+        });
+        // الحذف يجب أن يُثبت، لذلك الاستثناء بعد الـ transaction
+        if (mismatch[0]) {
+            throw new IllegalArgumentException("محتوى الملف لا يطابق نوعه");
+        }
+        return completed;
+    }
+
+    /**
+     * نقل ملف جلسة مكتملة إلى المخزن (folder) وإنهاء الجلسة - يرجع المسار النسبي.
+     * يشارك في transaction المستدعي: حذف الجلسة يُثبت معه، وإذا تراجع يعود الملف للجلسة
+     * (تبقى مكتملة ويمكن استخدامها مرة أخرى) بدل أن يضيع الرفع ويبقى الملف يتيماً
+     */
+    public String consume(UUID id, UUID userId, String folder, List<String> expectedTypes) throws IOException {
+        return consume(id, userId, expectedTypes, (file, session) ->
+                fileStorageService.store(file, folder, session.filename()));
+    }
+
+    /**
+     * نقل ملف جلسة مكتملة إلى target (مسار كامل) وإنهاء الجلسة
+     */
+    public Path consumeTo(UUID id, UUID userId, Path target, List<String> expectedTypes) throws IOException {
+        return consume(id, userId, expectedTypes, (file, session) -> {
+            StreamingFileWriter.move(file, target);
+            return target;
+        });
+    }
+
+    public void abort(UUID id, UUID userId) throws IOException {
+        inTransaction(() -> {
+            query(SELECT_FOR_UPDATE_SQL, id, userId);
+            Files.deleteIfExists(partPath(id));
+            jdbcTemplate.update("DELETE FROM upload_sessions WHERE id = ?", id);
+            return null;
+        });
+    }
+
+    /**
+     * حذف الجلسات المنتهية وملفاتها كل ساعة
+     */
+    @Scheduled(fixedDelay = 3600000, initialDelay = 60000)
+    public void cleanupExpired() {
+        List<UUID> expired = jdbcTemplate.queryForList(
+                "SELECT id FROM upload_sessions WHERE expires_at <= NOW()", UUID.class);
+        for (UUID id : expired) {
+            try {
+                Files.deleteIfExists(partPath(id));
+                jdbcTemplate.update("DELETE FROM upload_sessions WHERE id = ?", id);
+            } catch (IOException e) {
+                log.warn("⚠️ Failed to delete expired upload {}: {}", id, e.getMessage());
+            }
+        }
+        if (!expired.isEmpty()) {
+            log.info("🧹 Removed {} expired upload sessions", expired.size());
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    @FunctionalInterface
+    private interface Mover<T> {
+        T move(Path file, UploadSession session) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface IoCallback<T> {
+        T run() throws IOException;
+    }
+
+    private <T> T consume(UUID id, UUID userId, List<String> expectedTypes, Mover<T> mover) throws IOException {
+        return inTransaction(() -> {
+            // القفل يبقى حتى ينتهي transaction المستدعي: لا تُستهلك الجلسة مرتين
+            UploadSession session = query(SELECT_FOR_UPDATE_SQL, id, userId);
+            if (session.status() != Status.COMPLETED) {
+                throw new InvalidOperationException("رفع الملف لم يكتمل");
+            }
+            if (!MimeSniffer.isAllowed(session.contentType(), expectedTypes)) {
+                throw new IllegalArgumentException("نوع الملف غير مسموح هنا");
+            }
+            Path part = partPath(id);
+            T result = mover.move(part, session);
+            Path moved = result instanceof Path path ? path : fileStorageService.resolve(result.toString());
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    if (status != STATUS_COMMITTED) {
+                        restore(moved, part, id);
+                    }
+                }
+            });
+            jdbcTemplate.update("DELETE FROM upload_sessions WHERE id = ?", id);
+            return result;
+        });
+    }
+
+    private void restore(Path moved, Path part, UUID id) {
+        try {
+            StreamingFileWriter.move(moved, part);
+            log.info("↩️ Upload session {} rolled back, file returned to the session", id);
+        } catch (IOException e) {
+            log.warn("⚠️ Failed to return file of upload session {} after rollback: {}", id, e.getMessage());
+        }
+    }
+
+    /**
+     * ينضم لـ transaction المستدعي إن وُجد (consume داخل @Transactional)، وإلا يبدأ واحداً
+     */
+    private <T> T inTransaction(IoCallback<T> callback) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return callback.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private Path partPath(UUID id) {
+        return chunkDir.resolve(id + ".part");
+    }
+
+    private void checkAppendable(UploadSession session, long offset) {
+        if (session.status() != Status.UPLOADING) {
+            throw new InvalidOperationException("اكتمل رفع هذا الملف");
+        }
+        if (offset < 0 || offset > session.receivedBytes()) {
+            throw new InvalidOperationException("الإزاحة غير صحيحة، المستلم: " + session.receivedBytes());
+        }
+    }
+
+    private Timestamp expiry() {
+        return Timestamp.from(OffsetDateTime.now(ZoneOffset.UTC).plus(ttl).toInstant());
+    }
+}
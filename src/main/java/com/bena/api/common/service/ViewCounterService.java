@@ -0,0 +1,196 @@
+package com.bena.api.common.service;
+
+import com.bena.api.module.user.entity.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * عدادات المشاهدات المجمعة في الذاكرة:
+ * - كل مشاهدة تزيد LongAdder خاص بالعنصر (بدون كتابة في قاعدة البيانات ولا قفل على الصف)
+ * - كل flush-interval-ms تُكتب المجاميع بـ UPDATE ... SET view_count = view_count + ? واحد لكل عنصر في batch
+ * - نفس المستخدم (أو نفس IP للزوار) يُحسب مرة واحدة خلال dedup-minutes، وزحف البوتات لا يُحسب
+ * view_count في الكيانات غير قابل للتحديث من JPA حتى لا يلغي حفظ الكيان الزيادات المجمعة.
+ * المشاهدة = computeIfAbsent (قراءة بدون قفل للعنصر الموجود) ثم increment، والتفريغ sumThenReset على نفس
+ * العداد فلا تضيع زيادة. العداد يبقى في الخريطة ولا يُحذف إلا بعد idle-evict-seconds بدون مشاهدات،
+ * ثم يُفرغ مرة أخيرة بعد الحذف.
+ */
+@Service
+@Slf4j
+public class ViewCounterService {
+
+    public enum Target {
+        OFFER("contractor_offers"),
+        DESIGN("designs");
+
+        private final String table;
+
+        Target(String table) {
+            this.table = table;
+        }
+    }
+
+    private static final Pattern BOT_AGENT = Pattern.compile("bot|crawl|spider|slurp|preview|headless|curl|wget");
+
+    private final Map<Target, Map<Object, LongAdder>> pending = new EnumMap<>(Target.class);
+    // آخر flush وجد مشاهدات لكل عنصر (يقرؤه ويكتبه flush فقط)
+    private final Map<Target, Map<Object, Long>> lastActive = new EnumMap<>(Target.class);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Cache<String, Boolean> recentViewers;
+    private final long idleEvictNanos;
+
+    private final Counter recorded;
+    private final Counter duplicates;
+    private final Counter bots;
+
+    public ViewCounterService(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.views.dedup-minutes:30}") long dedupMinutes,
+            @Value("${app.views.dedup-max-size:200000}") long dedupMaxSize,
+            @Value("${app.views.idle-evict-seconds:300}") long idleEvictSeconds
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.idleEvictNanos = Duration.ofSeconds(idleEvictSeconds).toNanos();
+        this.recentViewers = Caffeine.newBuilder()
+                .maximumSize(dedupMaxSize)
+                .expireAfterWrite(Duration.ofMinutes(dedupMinutes))
+                .build();
+        for (Target target : Target.values()) {
+            pending.put(target, new ConcurrentHashMap<>());
+            lastActive.put(target, new HashMap<>());
+        }
+        this.recorded = meterRegistry.counter("views", "result", "recorded");
+        this.duplicates = meterRegistry.counter("views", "result", "duplicate");
+        this.bots = meterRegistry.counter("views", "result", "bot");
+    }
+
+    /**
+     * تسجيل مشاهدة للطلب الحالي (المستخدم أو IP من سياق الطلب)
+     */
+    public void record(Target target, Object id) {
+        HttpServletRequest request = currentRequest();
+        if (request != null) {
+            String agent = request.getHeader("User-Agent");
+            if (agent != null && BOT_AGENT.matcher(agent.toLowerCase(Locale.ROOT)).find()) {
+                bots.increment();
+                return;
+            }
+        }
+
+        String viewer = viewerKey(request);
+        if (viewer != null && recentViewers.asMap().putIfAbsent(target + ":" + id + ":" + viewer, Boolean.TRUE) != null) {
+            duplicates.increment();
+            return;
+        }
+
+        pending.get(target).computeIfAbsent(id, k -> new LongAdder()).increment();
+        recorded.increment();
+    }
+
+    /**
+     * المشاهدات التي لم تُكتب بعد (لإضافتها للعدد المعروض)
+     */
+    public long pending(Target target, Object id) {
+        LongAdder adder = pending.get(target).get(id);
+        return adder != null ? adder.sum() : 0;
+    }
+
+    @Scheduled(fixedDelayString = "${app.views.flush-interval-ms:10000}", initialDelay = 10000)
+    public synchronized void flush() {
+        for (Target target : Target.values()) {
+            flush(target);
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    // ==================== Helpers ====================
+
+    private void flush(Target target) {
+        Map<Object, LongAdder> counters = pending.get(target);
+        Map<Object, Long> active = lastActive.get(target);
+        long now = System.nanoTime();
+        List<Object[]> batch = new ArrayList<>();
+        for (Map.Entry<Object, LongAdder> entry : counters.entrySet()) {
+            Object id = entry.getKey();
+            LongAdder adder = entry.getValue();
+            // كل خلية تُصفّر ذرياً، فالزيادة المتزامنة إما هنا أو في الـ flush القادم
+            long count = adder.sumThenReset();
+            if (count > 0) {
+                active.put(id, now);
+            } else if (now - active.computeIfAbsent(id, k -> now) >= idleEvictNanos && counters.remove(id, adder)) {
+                active.remove(id);
+                // زيادة وصلت بين sumThenReset والحذف
+                count = adder.sumThenReset();
+            }
+            if (count > 0) {
+                batch.add(new Object[]{count, id});
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE " + target.table + " SET view_count = COALESCE(view_count, 0) + ? WHERE id = ?", batch);
+            log.debug("Flushed {} view counters for {}", batch.size(), target.table);
+        } catch (Exception e) {
+            // إعادة المجاميع لمحاولة الـ flush القادم
+            for (Object[] row : batch) {
+                counters.computeIfAbsent(row[1], k -> new LongAdder()).add((Long) row[0]);
+            }
+            log.warn("⚠️ Failed to flush {} view counters for {}: {}", batch.size(), target.table, e.getMessage());
+        }
+    }
+
+    private String viewerKey(HttpServletRequest request) {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            return "u:" + user.getId();
+        }
+        if (request == null) {
+            return null;
+        }
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            return "ip:" + xForwardedFor.split(",")[0].trim();
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private HttpServletRequest currentRequest() {
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs) {
+            return attrs.getRequest();
+        }
+        return null;
+    }
+}
@@ -1,6 +1,7 @@
 package com.bena.api.config;
 
 import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.internal.database.postgresql.PostgreSQLConfigurationExtension;
 import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -17,6 +18,11 @@ public class FlywayPermanentConfig {
                         .outOfOrder(true)
                         .baselineOnMigrate(true)
                         .validateOnMigrate(false);
+                // قفل جلسة بدل قفل المعاملة: قفل المعاملة يبقي اتصالاً "idle in transaction"
+                // فينتظره CREATE INDEX CONCURRENTLY في الترحيلات غير المعاملاتية إلى الأبد (V113)
+                configuration.getPluginRegister()
+                        .getPlugin(PostgreSQLConfigurationExtension.class)
+                        .setTransactionalLock(false);
             }
         };
     }
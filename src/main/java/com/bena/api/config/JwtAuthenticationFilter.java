@@ -1,8 +1,8 @@
 package com.bena.api.config;
 
 import com.bena.api.module.auth.service.JwtService;
+import com.bena.api.module.auth.service.PrincipalCache;
 import com.bena.api.module.user.entity.User;
-import com.bena.api.module.user.repository.UserRepository;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
@@ -26,7 +26,7 @@ import java.util.UUID;
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
     private final JwtService jwtService;
-    private final UserRepository userRepository;
+    private final PrincipalCache principalCache;
 
     @Override
     protected void doFilterInternal(
@@ -48,23 +48,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
                 filterChain.doFilter(request, response);
                 return;
             }
-            final String userId = jwtService.extractUserId(jwt);
+            // تحليل واحد فقط: التوقيع والصلاحية يتم التحقق منهما هنا (ومخزنة مؤقتاً حتى exp)
+            final String userId = jwtService.verify(jwt).getSubject();
 
             if (userId != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                User user = userRepository.findById(UUID.fromString(userId))
+                User user = principalCache.get(UUID.fromString(userId))
                         .orElseThrow(() -> new UsernameNotFoundException("User not found: " + userId));
 
-                if (jwtService.isTokenValid(jwt, user.getId().toString())) {
-                    UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
-                            user,
-                            null,
-                            user.getAuthorities()
-                    );
-                    authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
-                    SecurityContextHolder.getContext().setAuthentication(authToken);
-                    
-                    log.debug("User authenticated: {}", userId);
-                }
+                UsernamePasswordAuthenticationToken authToken = new UsernamePasswordAuthenticationToken(
+                        user,
+                        null,
+                        user.getAuthorities()
+                );
+                authToken.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
+                SecurityContextHolder.getContext().setAuthentication(authToken);
+
+                log.debug("User authenticated: {}", userId);
             }
         } catch (Exception e) {
             log.error("JWT authentication failed: {}", e.getMessage());
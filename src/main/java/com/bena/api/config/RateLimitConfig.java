@@ -1,8 +1,11 @@
 package com.bena.api.config;
 
-import com.bena.api.module.audit.entity.AuditLog.AuditAction;
-import com.bena.api.module.audit.entity.AuditLog.AuditTargetType;
+import com.bena.api.config.ratelimit.EndpointClass;
+import com.bena.api.config.ratelimit.RateLimitDecision;
+import com.bena.api.config.ratelimit.RateLimitPolicies;
+import com.bena.api.config.ratelimit.RateLimitStore;
 import com.bena.api.module.audit.service.AuditLogService;
+import io.micrometer.core.instrument.MeterRegistry;
 import jakarta.servlet.*;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -12,66 +15,37 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.http.HttpStatus;
 
 import java.io.IOException;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Rate Limiting Filter المُحسَّن
  * يطبق حدود مختلفة على أنواع مختلفة من الـ endpoints
  * 
- * التحسينات:
- * - Auth endpoints: 10 طلبات/دقيقة (للحماية من brute force)
- * - Admin endpoints: 60 طلبات/دقيقة (للسماح بالعمل الطبيعي)
- * - Upload endpoints: 20 طلبات/دقيقة (للحماية من spam)
- * - Search endpoints: 30 طلبات/دقيقة
- * - General API: 120 طلبات/دقيقة
+ * - الخوارزمية: Token Bucket بدون أقفال (راجع ratelimit.InMemoryRateLimitStore)
+ * - الحدود لكل صنف في جدول السياسات (app.rate-limit.<صنف>.per-minute)
+ * - التخزين قابل للتبديل عبر RateLimitStore (memory أو jdbc للمشاركة بين النسخ)
+ * - التصنيف عبر RouteClassifier (trie مبني من الـ controllers عند التشغيل)
+ * - كل استجابة تحمل X-RateLimit-Limit و X-RateLimit-Remaining، والرفض يحمل Retry-After الفعلي
+ * - الرفض يُعد في http.rate_limit{class, route} حيث route هو نمط المسار (مثل /v1/workers/{id}) وليس المسار الخام
  */
 @org.springframework.stereotype.Component
-@org.springframework.scheduling.annotation.EnableScheduling
 @Slf4j
 public class RateLimitConfig implements Filter {
     
-    // Rate limits لكل نوع من الـ endpoints
-    private static final int AUTH_LIMIT = 10;           // صارم للحماية من brute force
-    private static final int ADMIN_LIMIT = 60;          // مرن للعمل الإداري
-    private static final int UPLOAD_LIMIT = 20;         // محدود لمنع spam الملفات
-    private static final int SEARCH_LIMIT = 30;         // محدود لمنع scraping
-    private static final int GENERAL_LIMIT = 120;       // عام للتصفح الطبيعي
-    
-    private static final long WINDOW_SIZE_MS = 60 * 1000; // دقيقة واحدة
-    
-    // Buckets منفصلة لكل نوع endpoint
-    private final Map<String, RateLimitBucket> authBuckets = new ConcurrentHashMap<>();
-    private final Map<String, RateLimitBucket> adminBuckets = new ConcurrentHashMap<>();
-    private final Map<String, RateLimitBucket> uploadBuckets = new ConcurrentHashMap<>();
-    private final Map<String, RateLimitBucket> searchBuckets = new ConcurrentHashMap<>();
-    private final Map<String, RateLimitBucket> generalBuckets = new ConcurrentHashMap<>();
+    private final RateLimitStore rateLimitStore;
+    private final RateLimitPolicies policies;
+    private final RouteClassifier routeClassifier;
+    private final MeterRegistry meterRegistry;
     
     @Autowired
     @Lazy  // Lazy لتجنب circular dependency
     private AuditLogService auditLogService;
     
-    /**
-     * تنظيف دوري للسجلات القديمة كل ساعة لمنع تسرب الذاكرة
-     */
-    @org.springframework.scheduling.annotation.Scheduled(fixedRate = 3600000)
-    public void cleanupStoredBuckets() {
-        long now = System.currentTimeMillis();
-        long cutoff = 3600000; // ساعة واحدة
-        
-        cleanupBucketMap(authBuckets, now, cutoff);
-        cleanupBucketMap(adminBuckets, now, cutoff);
-        cleanupBucketMap(uploadBuckets, now, cutoff);
-        cleanupBucketMap(searchBuckets, now, cutoff);
-        cleanupBucketMap(generalBuckets, now, cutoff);
-        
-        log.debug("🧹 Rate limit buckets cleanup completed");
-    }
-    
-    private void cleanupBucketMap(Map<String, RateLimitBucket> map, long now, long cutoff) {
-        map.entrySet().removeIf(entry -> now - entry.getValue().getLastAccessed() > cutoff);
+    public RateLimitConfig(RateLimitStore rateLimitStore, RateLimitPolicies policies, RouteClassifier routeClassifier,
+                           MeterRegistry meterRegistry) {
+        this.rateLimitStore = rateLimitStore;
+        this.policies = policies;
+        this.routeClassifier = routeClassifier;
+        this.meterRegistry = meterRegistry;
     }
     
     @Override
@@ -81,110 +55,69 @@ public class RateLimitConfig implements Filter {
         HttpServletRequest httpRequest = (HttpServletRequest) request;
         HttpServletResponse httpResponse = (HttpServletResponse) response;
         
-        String path = httpRequest.getRequestURI();
+        String path = httpRequest.getRequestURI().substring(httpRequest.getContextPath().length());
         String clientIP = getClientIP(httpRequest);
         
         // تحديد نوع الـ endpoint والحد المناسب
-        RateLimitResult result = checkRateLimit(path, clientIP);
+        RateLimitResult result = checkRateLimit(httpRequest, path, clientIP);
+        RateLimitDecision decision = result.decision;
+        
+        httpResponse.setHeader("X-RateLimit-Limit", String.valueOf(decision.limit()));
+        httpResponse.setHeader("X-RateLimit-Remaining", String.valueOf(decision.remaining()));
         
-        if (result.allowed) {
+        if (decision.allowed()) {
             chain.doFilter(request, response);
         } else {
             // تسجيل تجاوز الحد
             logRateLimitExceeded(clientIP, path, result.endpointType);
             
+            long retryAfter = decision.retryAfterSeconds();
             httpResponse.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
             httpResponse.setContentType("application/json;charset=UTF-8");
-            httpResponse.setHeader("Retry-After", "60");
+            httpResponse.setHeader("Retry-After", String.valueOf(retryAfter));
             httpResponse.setHeader("X-RateLimit-Type", result.endpointType);
             httpResponse.getWriter().write(
-                "{\"success\":false,\"message\":\"طلبات كثيرة جداً. يرجى الانتظار دقيقة واحدة.\",\"retryAfter\":60}"
+                "{\"success\":false,\"message\":\"طلبات كثيرة جداً. يرجى الانتظار قليلاً.\",\"retryAfter\":" + retryAfter + "}"
             );
         }
     }
     
-    private RateLimitResult checkRateLimit(String path, String clientIP) {
-        // Auth endpoints - أكثر صرامة
-        if (path.startsWith("/v1/auth/")) {
-            return new RateLimitResult(
-                checkBucket(authBuckets, clientIP, AUTH_LIMIT),
-                "AUTH"
-            );
-        }
+    private RateLimitResult checkRateLimit(HttpServletRequest request, String path, String clientIP) {
+        EndpointClass endpointClass = routeClassifier.classify(path);
         
-        // Admin endpoints
-        if (path.startsWith("/v1/admin/") || path.startsWith("/admin/")) {
-            return new RateLimitResult(
-                checkBucket(adminBuckets, clientIP, ADMIN_LIMIT),
-                "ADMIN"
-            );
-        }
-        
-        // Upload endpoints
-        if (path.contains("/upload") || path.contains("/media")) {
-            return new RateLimitResult(
-                checkBucket(uploadBuckets, clientIP, UPLOAD_LIMIT),
-                "UPLOAD"
-            );
+        // معاملات البحث تجعل القراءة العامة/العادية طلب بحث
+        if (RouteClassifier.isSearchParamSensitive(endpointClass) && hasSearchParam(request)) {
+            endpointClass = EndpointClass.SEARCH;
         }
         
-        // Search endpoints
-        if (path.contains("search") || path.contains("filter") || 
-            (httpRequestHasSearchParam())) {
-            return new RateLimitResult(
-                checkBucket(searchBuckets, clientIP, SEARCH_LIMIT),
-                "SEARCH"
-            );
-        }
-        
-        // Sensitive operations (delete, update on critical resources)
-        if (path.matches(".*/users/.*") || path.matches(".*/workers/.*")) {
-            return new RateLimitResult(
-                checkBucket(generalBuckets, clientIP, GENERAL_LIMIT),
-                "GENERAL"
-            );
-        }
-        
-        // Public read endpoints - no strict limit, but still track
-        if (path.startsWith("/v1/workers") || path.startsWith("/v1/designs") || 
-            path.startsWith("/v1/building-steps") || path.startsWith("/v1/cost")) {
-            return new RateLimitResult(
-                checkBucket(generalBuckets, clientIP, GENERAL_LIMIT * 2), // أكثر سماحية للقراءة
-                "PUBLIC_READ"
-            );
-        }
-        
-        // Default general limit
-        return new RateLimitResult(
-            checkBucket(generalBuckets, clientIP, GENERAL_LIMIT),
-            "GENERAL"
-        );
+        return consume(endpointClass, clientIP);
     }
     
-    private boolean checkBucket(Map<String, RateLimitBucket> buckets, String clientIP, int limit) {
-        RateLimitBucket bucket = buckets.computeIfAbsent(clientIP, k -> new RateLimitBucket());
-        return bucket.tryConsume(limit);
+    private RateLimitResult consume(EndpointClass endpointClass, String clientIP) {
+        RateLimitDecision decision = rateLimitStore.tryConsume(
+            endpointClass.name() + ":" + clientIP,
+            policies.forClass(endpointClass)
+        );
+        return new RateLimitResult(decision, endpointClass.name());
     }
     
-    private boolean httpRequestHasSearchParam() {
-        try {
-            jakarta.servlet.http.HttpServletRequest request = 
-                ((org.springframework.web.context.request.ServletRequestAttributes) 
-                 org.springframework.web.context.request.RequestContextHolder.getRequestAttributes())
-                .getRequest();
-            return request.getParameter("search") != null || request.getParameter("query") != null;
-        } catch (Exception e) {
-            return false;
-        }
+    private boolean hasSearchParam(HttpServletRequest request) {
+        return request.getParameter("search") != null || request.getParameter("query") != null;
     }
     
     private void logRateLimitExceeded(String clientIP, String path, String endpointType) {
-        log.warn("🚫 Rate limit exceeded: IP={}, path={}, type={}", clientIP, path, endpointType);
+        // نمط المسار بدل المسار الخام حتى لا تنفجر قيم الـ tag بعدد المعرفات
+        String route = routeClassifier.routePattern(path);
+        if (route == null) {
+            route = "UNMATCHED";
+        }
+        meterRegistry.counter("http.rate_limit", "result", "rejected", "class", endpointType, "route", route).increment();
+        log.warn("🚫 Rate limit exceeded: IP={}, path={}, route={}, type={}", clientIP, path, route, endpointType);
         
         try {
             if (auditLogService != null) {
                 auditLogService.logSecurityAlert(
-                    "Rate limit exceeded: " + endpointType + " - Path: " + path,
+                    "Rate limit exceeded: " + endpointType + " - Route: " + route + " - Path: " + path,
                     clientIP
                 );
             }
@@ -209,45 +142,12 @@ public class RateLimitConfig implements Filter {
      * Result object لنتيجة فحص Rate Limit
      */
     private static class RateLimitResult {
-        final boolean allowed;
+        final RateLimitDecision decision;
         final String endpointType;
         
-        RateLimitResult(boolean allowed, String endpointType) {
-            this.allowed = allowed;
+        RateLimitResult(RateLimitDecision decision, String endpointType) {
+            this.decision = decision;
             this.endpointType = endpointType;
         }
     }
-    
-    /**
-     * Rate Limit Bucket مُحسَّن
-     */
-    private static class RateLimitBucket {
-        private final AtomicInteger requestCount = new AtomicInteger(0);
-        private final AtomicLong windowStart = new AtomicLong(System.currentTimeMillis());
-        private final AtomicLong lastAccessed = new AtomicLong(System.currentTimeMillis());
-        
-        public synchronized boolean tryConsume(int limit) {
-            long now = System.currentTimeMillis();
-            lastAccessed.set(now);
-            long windowStartTime = windowStart.get();
-            
-            // إذا انتهت النافذة الزمنية، أعد التعيين
-            if (now - windowStartTime >= WINDOW_SIZE_MS) {
-                requestCount.set(0);
-                windowStart.set(now);
-            }
-            
-            // تحقق من الحد
-            if (requestCount.get() < limit) {
-                requestCount.incrementAndGet();
-                return true;
-            }
-            
-            return false;
-        }
-        
-        public long getLastAccessed() {
-            return lastAccessed.get();
-        }
-    }
 }
@@ -0,0 +1,243 @@
+package com.bena.api.config;
+
+import com.bena.api.config.ratelimit.EndpointClass;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.RequestMappingInfo;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * مصنِّف المسارات: يحدد صنف الـ endpoint ونمط المسار المطابق.
+ * يُبنى مرة واحدة عند التشغيل من RequestMappingHandlerMapping على شكل prefix trie
+ * (مقطع لكل عقدة)، والمطابقة تمر على المسار مرة واحدة بدون regex وبدون إنشاء كائنات.
+ * يستخدمه RateLimitConfig للتصنيف، ولوسم عدادات الرفض وتنبيهات الـ audit بنمط المسار.
+ */
+@Component
+@Slf4j
+public class RouteClassifier {
+
+    private final ObjectProvider<RequestMappingHandlerMapping> handlerMappings;
+
+    // يُستبدل بالكامل عند البناء - القراءة بدون أقفال
+    private volatile Node root;
+
+    public RouteClassifier(ObjectProvider<RequestMappingHandlerMapping> handlerMappings) {
+        this.handlerMappings = handlerMappings;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void build() {
+        Node newRoot = new Node();
+        int count = 0;
+        for (RequestMappingHandlerMapping mapping : handlerMappings) {
+            for (RequestMappingInfo info : mapping.getHandlerMethods().keySet()) {
+                for (String pattern : patternsOf(info)) {
+                    insert(newRoot, pattern);
+                    count++;
+                }
+            }
+        }
+        newRoot.freeze();
+        root = newRoot;
+        log.info("✅ Route classifier built from {} mapped patterns", count);
+    }
+
+    /**
+     * صنف الـ endpoint للمسار (بدون query string)
+     */
+    public EndpointClass classify(String path) {
+        Node match = match(path);
+        return match != null ? match.endpointClass : classifyByRules(path);
+    }
+
+    /**
+     * هل يمكن أن يصبح الطلب SEARCH بسبب معاملات مثل search/query؟
+     * (فقط الأصناف الأقل أولوية من SEARCH في القواعد)
+     */
+    public static boolean isSearchParamSensitive(EndpointClass endpointClass) {
+        return endpointClass == EndpointClass.GENERAL || endpointClass == EndpointClass.PUBLIC_READ;
+    }
+
+    /**
+     * نمط المسار المسجل (مثل /v1/workers/{id}) أو null إذا لم يطابق أي controller
+     */
+    public String routePattern(String path) {
+        Node match = match(path);
+        return match != null ? match.pattern : null;
+    }
+
+    /**
+     * القواعد الأصلية للتصنيف، تُطبق على أنماط الـ controllers عند البناء
+     * وعلى المسارات غير المسجلة (مثل /uploads/**) وقت الطلب
+     */
+    static EndpointClass classifyByRules(String path) {
+        if (path.startsWith("/v1/auth/")) {
+            return EndpointClass.AUTH;
+        }
+        if (path.startsWith("/v1/admin/") || path.startsWith("/admin/")) {
+            return EndpointClass.ADMIN;
+        }
+        if (path.contains("/upload") || path.contains("/media")) {
+            return EndpointClass.UPLOAD;
+        }
+        if (path.contains("search") || path.contains("filter")) {
+            return EndpointClass.SEARCH;
+        }
+        // يعادل path.matches(".*/users/.*") || path.matches(".*/workers/.*")
+        if (path.contains("/users/") || path.contains("/workers/")) {
+            return EndpointClass.GENERAL;
+        }
+        if (path.startsWith("/v1/workers") || path.startsWith("/v1/designs")
+                || path.startsWith("/v1/building-steps") || path.startsWith("/v1/cost")) {
+            return EndpointClass.PUBLIC_READ;
+        }
+        return EndpointClass.GENERAL;
+    }
+
+    // ==================== الـ Trie ====================
+
+    private Node match(String path) {
+        Node current = root;
+        if (current == null || path == null || path.isEmpty() || path.charAt(0) != '/') {
+            return null;
+        }
+        return match(current, path, 1);
+    }
+
+    /**
+     * مطابقة المقطع الذي يبدأ عند start: المقاطع الثابتة أولاً ثم المتغيرات ثم catch-all
+     */
+    private static Node match(Node node, String path, int start) {
+        int length = path.length();
+        if (start >= length) {
+            if (node.endpointClass != null) {
+                return node;
+            }
+            return node.catchAll;
+        }
+
+        int end = path.indexOf('/', start);
+        if (end < 0) {
+            end = length;
+        }
+        int segmentLength = end - start;
+        int next = end < length ? end + 1 : length;
+
+        // "/v1/workers/" تُعامل مثل "/v1/workers"
+        if (segmentLength == 0 && next >= length) {
+            return match(node, path, length);
+        }
+
+        String[] keys = node.literalKeys;
+        for (int i = 0; i < keys.length; i++) {
+            String key = keys[i];
+            if (key.length() == segmentLength && path.regionMatches(start, key, 0, segmentLength)) {
+                Node found = match(node.literalChildren[i], path, next);
+                if (found != null) {
+                    return found;
+                }
+                break;
+            }
+        }
+
+        if (node.variable != null && segmentLength > 0) {
+            Node found = match(node.variable, path, next);
+            if (found != null) {
+                return found;
+            }
+        }
+
+        return node.catchAll;
+    }
+
+    private static void insert(Node root, String pattern) {
+        Node node = root;
+        String[] segments = Arrays.stream(pattern.split("/"))
+                .filter(s -> !s.isEmpty())
+                .toArray(String[]::new);
+
+        for (String segment : segments) {
+            if (segment.equals("**") || segment.startsWith("{*")) {
+                if (node.catchAll == null) {
+                    node.catchAll = new Node();
+                    node.catchAll.setTarget(pattern);
+                }
+                return;
+            }
+            if (segment.contains("{") || segment.contains("*")) {
+                if (node.variable == null) {
+                    node.variable = new Node();
+                }
+                node = node.variable;
+            } else {
+                node = node.literal(segment);
+            }
+        }
+        if (node.endpointClass == null) {
+            node.setTarget(pattern);
+        }
+    }
+
+    private static Set<String> patternsOf(RequestMappingInfo info) {
+        if (info.getPathPatternsCondition() != null) {
+            return info.getPathPatternsCondition().getPatternValues();
+        }
+        if (info.getPatternsCondition() != null) {
+            return info.getPatternsCondition().getPatterns();
+        }
+        return Set.of();
+    }
+
+    private static final class Node {
+        private final List<String> pendingKeys = new ArrayList<>();
+        private final List<Node> pendingChildren = new ArrayList<>();
+
+        private String[] literalKeys = new String[0];
+        private Node[] literalChildren = new Node[0];
+        private Node variable;
+        private Node catchAll;
+
+        private EndpointClass endpointClass;
+        private String pattern;
+
+        Node literal(String segment) {
+            int index = pendingKeys.indexOf(segment);
+            if (index >= 0) {
+                return pendingChildren.get(index);
+            }
+            Node child = new Node();
+            pendingKeys.add(segment);
+            pendingChildren.add(child);
+            return child;
+        }
+
+        void setTarget(String pattern) {
+            this.pattern = pattern;
+            // المتغيرات تُستبدل حتى لا تؤثر أسماؤها (مثل {searchId}) على التصنيف
+            this.endpointClass = classifyByRules(pattern.replaceAll("\\{[^}]*}", "*"));
+        }
+
+        // تحويل القوائم إلى مصفوفات للقراءة السريعة بعد البناء
+        void freeze() {
+            literalKeys = pendingKeys.toArray(new String[0]);
+            literalChildren = pendingChildren.toArray(new Node[0]);
+            for (Node child : literalChildren) {
+                child.freeze();
+            }
+            if (variable != null) {
+                variable.freeze();
+            }
+            if (catchAll != null) {
+                catchAll.freeze();
+            }
+        }
+    }
+}
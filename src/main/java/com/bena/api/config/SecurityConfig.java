@@ -86,6 +86,7 @@ public class SecurityConfig {
                                                 .requestMatchers(HttpMethod.GET, "/v1/designs/**").permitAll()
                                                 .requestMatchers(HttpMethod.GET, "/v1/images/**").permitAll()
                                                 .requestMatchers(HttpMethod.GET, "/uploads/**").permitAll()
+                                                .requestMatchers(HttpMethod.GET, "/v1/blobs/**").permitAll()
                                                 .requestMatchers(HttpMethod.GET, "/v1/ads/**").permitAll()
 
                                                 // Public endpoints - Contractor Offers (GET is public)
@@ -99,6 +100,10 @@ public class SecurityConfig {
                                                 .requestMatchers(HttpMethod.POST, "/v1/ai/generate-text").permitAll()
                                                 .requestMatchers(HttpMethod.POST, "/v1/ai/generate-image").permitAll()
 
+                                                // Actuator metrics - ADMIN only
+                                                .requestMatchers("/actuator/**")
+                                                .hasAnyRole("ADMIN", "SUPER_ADMIN")
+
                                                 // Admin endpoints - ADMIN role required
                                                 .requestMatchers("/v1/admin/**", "/admin/**", "/api/admin/**")
                                                 .hasAnyRole("ADMIN", "SUPER_ADMIN")
@@ -1,5 +1,6 @@
 package com.bena.api.config;
 
+import com.bena.api.config.cluster.ClusterStompRelay;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -19,6 +20,7 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
 
     private final WebSocketAuthChannelInterceptor webSocketAuthChannelInterceptor;
     private final JwtHandshakeHandler jwtHandshakeHandler;
+    private final ClusterStompRelay clusterStompRelay;
 
     @Bean
     public TaskScheduler webSocketHeartbeatScheduler() {
@@ -51,6 +53,8 @@ public class WebSocketConfig implements WebSocketMessageBrokerConfigurer {
                 .setHeartbeatValue(new long[]{10000, 10000}) // heartbeat كل 10 ثواني
                 .setTaskScheduler(webSocketHeartbeatScheduler());
         registry.setUserDestinationPrefix("/user");
+        // نشر الرسائل الصادرة لباقي النسخ (app.cluster.bus=postgres)
+        registry.configureBrokerChannel().interceptors(clusterStompRelay);
     }
 
     @Override
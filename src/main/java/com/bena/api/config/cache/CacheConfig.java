@@ -0,0 +1,57 @@
+package com.bena.api.config.cache;
+
+import com.bena.api.config.cluster.ClusterBus;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * كاش القراءة للبيانات المرجعية (@Cacheable / @CacheEvict):
+ * - منطقة Caffeine مستقلة لكل نوع بيانات بحد أقصى وTTL (CacheRegions)
+ * - الإحصائيات لكل منطقة عبر /actuator/metrics/cache.gets?tag=cache:&lt;name&gt;
+ * - مسح المنطقة يصل للنسخ الأخرى عبر ClusterBus عند app.cluster.bus=postgres
+ */
+@Configuration
+@EnableCaching
+@Slf4j
+public class CacheConfig {
+
+    @Bean
+    public CacheManager cacheManager(Environment environment, MeterRegistry meterRegistry, ClusterBus clusterBus) {
+        List<ClusterAwareCache> caches = new ArrayList<>();
+        for (CacheRegions.Region region : CacheRegions.DEFAULTS) {
+            String prefix = "app.cache.regions." + region.name() + ".";
+            long maxSize = environment.getProperty(prefix + "max-size", Long.class, region.maxSize());
+            long ttlSeconds = environment.getProperty(prefix + "ttl-seconds", Long.class, region.ttlSeconds());
+
+            com.github.benmanes.caffeine.cache.Cache<Object, Object> nativeCache = Caffeine.newBuilder()
+                    .maximumSize(maxSize)
+                    .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                    .recordStats()
+                    .build();
+            CaffeineCacheMetrics.monitor(meterRegistry, nativeCache, region.name());
+            caches.add(new ClusterAwareCache(new CaffeineCache(region.name(), nativeCache), clusterBus));
+            log.info("✅ Cache region {}: maxSize={}, ttl={}s", region.name(), maxSize, ttlSeconds);
+        }
+
+        clusterBus.subscribe(ClusterAwareCache.TOPIC, name -> caches.stream()
+                .filter(cache -> cache.getName().equals(name))
+                .forEach(ClusterAwareCache::clearLocal));
+
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(caches);
+        return cacheManager;
+    }
+}
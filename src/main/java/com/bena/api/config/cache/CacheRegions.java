@@ -0,0 +1,33 @@
+package com.bena.api.config.cache;
+
+import java.util.List;
+
+/**
+ * مناطق الكاش للبيانات المرجعية (تتغير من لوحة الإدارة فقط).
+ * لكل منطقة حد أقصى وTTL افتراضي، ويمكن تغييرهما عبر
+ * app.cache.regions.&lt;name&gt;.max-size و app.cache.regions.&lt;name&gt;.ttl-seconds
+ */
+public final class CacheRegions {
+
+    public static final String BUILDING_STEPS = "building-steps";
+    public static final String MATERIALS = "materials";
+    public static final String FEATURED_WORKERS = "featured-workers";
+    public static final String EBOOK_CATEGORIES = "ebook-categories";
+    public static final String ADS_BY_SECTION = "ads-by-section";
+    public static final String DESIGN_LISTS = "design-lists";
+
+    record Region(String name, long maxSize, long ttlSeconds) {
+    }
+
+    static final List<Region> DEFAULTS = List.of(
+            new Region(BUILDING_STEPS, 2000, 3600),
+            new Region(MATERIALS, 2000, 3600),
+            new Region(FEATURED_WORKERS, 10, 300),
+            new Region(EBOOK_CATEGORIES, 10, 3600),
+            new Region(ADS_BY_SECTION, 50, 60),
+            new Region(DESIGN_LISTS, 10, 300)
+    );
+
+    private CacheRegions() {
+    }
+}
@@ -0,0 +1,114 @@
+package com.bena.api.config.cache;
+
+import com.bena.api.config.cluster.ClusterBus;
+import org.springframework.cache.Cache;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.Callable;
+
+/**
+ * كاش منطقة يغلف CaffeineCache ويضيف:
+ * - داخل معاملة يُعاد المسح بعد انتهائها حتى لا يعيد طلب متزامن تحميل النسخة القديمة قبل الـ commit
+ * - إبلاغ النسخ الأخرى عبر ClusterBus لتمسح نفس المنطقة (المنطقة كاملة، لأن المفتاح لا يُنقل)
+ */
+class ClusterAwareCache implements Cache {
+
+    static final String TOPIC = "cache.invalidate";
+
+    private final Cache delegate;
+    private final ClusterBus clusterBus;
+
+    ClusterAwareCache(Cache delegate, ClusterBus clusterBus) {
+        this.delegate = delegate;
+        this.clusterBus = clusterBus;
+    }
+
+    @Override
+    public String getName() {
+        return delegate.getName();
+    }
+
+    @Override
+    public Object getNativeCache() {
+        return delegate.getNativeCache();
+    }
+
+    @Override
+    public ValueWrapper get(Object key) {
+        return delegate.get(key);
+    }
+
+    @Override
+    public <T> T get(Object key, Class<T> type) {
+        return delegate.get(key, type);
+    }
+
+    @Override
+    public <T> T get(Object key, Callable<T> valueLoader) {
+        return delegate.get(key, valueLoader);
+    }
+
+    @Override
+    public void put(Object key, Object value) {
+        delegate.put(key, value);
+    }
+
+    @Override
+    public ValueWrapper putIfAbsent(Object key, Object value) {
+        return delegate.putIfAbsent(key, value);
+    }
+
+    @Override
+    public void evict(Object key) {
+        delegate.evict(key);
+        afterWrite(() -> delegate.evict(key));
+    }
+
+    @Override
+    public boolean evictIfPresent(Object key) {
+        boolean present = delegate.evictIfPresent(key);
+        afterWrite(() -> delegate.evict(key));
+        return present;
+    }
+
+    @Override
+    public void clear() {
+        delegate.clear();
+        afterWrite(delegate::clear);
+    }
+
+    @Override
+    public boolean invalidate() {
+        boolean present = delegate.invalidate();
+        afterWrite(delegate::clear);
+        return present;
+    }
+
+    /**
+     * مسح محلي فقط (رسالة من نسخة أخرى)
+     */
+    void clearLocal() {
+        delegate.clear();
+    }
+
+    private void afterWrite(Runnable localEviction) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    localEviction.run();
+                    broadcast();
+                }
+            });
+        } else {
+            broadcast();
+        }
+    }
+
+    private void broadcast() {
+        if (clusterBus.isClustered()) {
+            clusterBus.publish(TOPIC, getName());
+        }
+    }
+}
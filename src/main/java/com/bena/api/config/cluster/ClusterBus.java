@@ -0,0 +1,32 @@
+package com.bena.api.config.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * ناقل رسائل بين نسخ التطبيق (nodes) خلف الـ load balancer
+ * - local: نسخة واحدة، لا شيء يُرسل للخارج (الافتراضي)
+ * - postgres: عبر LISTEN/NOTIFY بدون بنية تحتية إضافية
+ * الاختيار عبر app.cluster.bus
+ */
+public interface ClusterBus {
+
+    /**
+     * معرف هذه النسخة (لتجاهل الرسائل الصادرة منها)
+     */
+    String nodeId();
+
+    /**
+     * هل توجد نسخ أخرى محتملة؟ (false للـ local)
+     */
+    boolean isClustered();
+
+    /**
+     * نشر رسالة لكل النسخ الأخرى على الموضوع المحدد
+     */
+    void publish(String topic, String payload);
+
+    /**
+     * الاشتراك في رسائل النسخ الأخرى. المعالج يُستدعى من thread الناقل
+     */
+    void subscribe(String topic, Consumer<String> handler);
+}
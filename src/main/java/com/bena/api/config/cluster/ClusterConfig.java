@@ -0,0 +1,37 @@
+package com.bena.api.config.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+/**
+ * اختيار ناقل النسخ: app.cluster.bus=local (افتراضي) أو postgres
+ */
+@Configuration
+@Slf4j
+public class ClusterConfig {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    @ConditionalOnProperty(name = "app.cluster.bus", havingValue = "postgres")
+    public PostgresClusterBus postgresClusterBus(
+            DataSource dataSource,
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.cluster.node-id:}") String nodeId
+    ) {
+        String id = nodeId == null || nodeId.isBlank() ? UUID.randomUUID().toString() : nodeId;
+        return new PostgresClusterBus(id, dataSource, jdbcTemplate);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.cluster.bus", havingValue = "local", matchIfMissing = true)
+    public LocalClusterBus localClusterBus() {
+        log.info("✅ Cluster bus: local (single node)");
+        return new LocalClusterBus();
+    }
+}
@@ -0,0 +1,159 @@
+package com.bena.api.config.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.support.ChannelInterceptor;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeType;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * نقل رسائل STOMP الصادرة بين النسخ.
+ *
+ * كل رسالة تُرسل لـ /user/** أو /topic/** على هذه النسخة (convertAndSendToUser وغيرها)
+ * تُنشر على الناقل، والنسخ الأخرى تعيد حقنها في brokerChannel الخاص بها فتصل
+ * لجلسات المستخدم المتصلة بها. الرسائل المُعاد حقنها تحمل header حتى لا تُنشر مرة ثانية.
+ *
+ * النشر (pg_notify) يتم في خيط واحد خلفي بطابور محدود حتى لا ينتظر خيط الإرسال رحلة لقاعدة البيانات،
+ * وبنفس ترتيب الإرسال. عند امتلاء الطابور تُسقط الرسالة للنسخ الأخرى فقط وتُعد في cluster.stomp_relay.
+ */
+@Component
+@Slf4j
+public class ClusterStompRelay implements ChannelInterceptor {
+
+    static final String TOPIC = "stomp";
+    private static final String RELAYED_HEADER = "x-cluster-relayed";
+
+    private final ClusterBus clusterBus;
+    private final ObjectMapper objectMapper;
+    private final ObjectProvider<MessageChannel> brokerChannel;
+    private final ThreadPoolExecutor publisher;
+
+    private final Counter published;
+    private final Counter dropped;
+
+    public ClusterStompRelay(
+            ClusterBus clusterBus,
+            ObjectMapper objectMapper,
+            @Qualifier("brokerChannel") ObjectProvider<MessageChannel> brokerChannel,
+            MeterRegistry meterRegistry,
+            @Value("${app.cluster.stomp-relay.queue-capacity:10000}") int queueCapacity
+    ) {
+        this.clusterBus = clusterBus;
+        this.objectMapper = objectMapper;
+        this.brokerChannel = brokerChannel;
+        this.publisher = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "cluster-stomp-relay");
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        this.published = meterRegistry.counter("cluster.stomp_relay", "result", "published");
+        this.dropped = meterRegistry.counter("cluster.stomp_relay", "result", "dropped");
+        meterRegistry.gauge("cluster.stomp_relay.queue", publisher, e -> e.getQueue().size());
+        clusterBus.subscribe(TOPIC, this::onRemoteMessage);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        publisher.shutdown();
+        try {
+            if (!publisher.awaitTermination(5, TimeUnit.SECONDS)) {
+                log.warn("⚠️ Cluster STOMP relay stopped with {} unpublished messages", publisher.shutdownNow().size());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record RelayedFrame(String destination, String contentType, String payload) {
+    }
+
+    @Override
+    public Message<?> preSend(Message<?> message, MessageChannel channel) {
+        if (!clusterBus.isClustered()) {
+            return message;
+        }
+
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.wrap(message);
+        if (accessor.getMessageType() != SimpMessageType.MESSAGE
+                || message.getHeaders().containsKey(RELAYED_HEADER)) {
+            return message;
+        }
+
+        String destination = accessor.getDestination();
+        if (destination == null || !(destination.startsWith("/user/") || destination.startsWith("/topic/"))) {
+            return message;
+        }
+        if (!(message.getPayload() instanceof byte[] bytes)) {
+            return message;
+        }
+
+        String body;
+        try {
+            MimeType contentType = accessor.getContentType();
+            RelayedFrame frame = new RelayedFrame(
+                    destination,
+                    contentType != null ? contentType.toString() : null,
+                    Base64.getEncoder().encodeToString(bytes));
+            body = objectMapper.writeValueAsString(frame);
+        } catch (Exception e) {
+            log.warn("Failed to relay STOMP message to cluster: {}", e.getMessage());
+            return message;
+        }
+
+        try {
+            publisher.execute(() -> publish(body));
+        } catch (RejectedExecutionException e) {
+            dropped.increment();
+            log.warn("⚠️ Cluster STOMP relay queue full, message to {} not relayed", destination);
+        }
+        return message;
+    }
+
+    private void publish(String body) {
+        try {
+            clusterBus.publish(TOPIC, body);
+            published.increment();
+        } catch (Exception e) {
+            log.warn("Failed to relay STOMP message to cluster: {}", e.getMessage());
+        }
+    }
+
+    private void onRemoteMessage(String body) {
+        try {
+            RelayedFrame frame = objectMapper.readValue(body, RelayedFrame.class);
+
+            SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+            accessor.setDestination(frame.destination());
+            if (frame.contentType() != null) {
+                accessor.setContentType(MimeType.valueOf(frame.contentType()));
+            }
+            accessor.setHeader(RELAYED_HEADER, Boolean.TRUE);
+            accessor.setLeaveMutable(true);
+
+            byte[] payload = Base64.getDecoder().decode(frame.payload().getBytes(StandardCharsets.US_ASCII));
+            brokerChannel.getObject().send(MessageBuilder.createMessage(payload, accessor.getMessageHeaders()));
+        } catch (Exception e) {
+            log.warn("Failed to deliver relayed STOMP message: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,32 @@
+package com.bena.api.config.cluster;
+
+import java.util.UUID;
+import java.util.function.Consumer;
+
+/**
+ * ناقل لنسخة واحدة: التوصيل المحلي يتم مسبقاً فلا حاجة للنشر
+ */
+public class LocalClusterBus implements ClusterBus {
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public boolean isClustered() {
+        return false;
+    }
+
+    @Override
+    public void publish(String topic, String payload) {
+        // لا توجد نسخ أخرى
+    }
+
+    @Override
+    public void subscribe(String topic, Consumer<String> handler) {
+        // لا توجد نسخ أخرى
+    }
+}
@@ -0,0 +1,238 @@
+package com.bena.api.config.cluster;
+
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * ناقل بين النسخ عبر PostgreSQL LISTEN/NOTIFY
+ *
+ * - النشر: pg_notify من اتصال عادي من الـ pool
+ * - الاستقبال: اتصال مخصص واحد يبقى مفتوحاً في thread مستقل مع إعادة الاتصال تلقائياً
+ * - الرسائل الأكبر من حد NOTIFY (8000 بايت) تُحفظ في cluster_bus_messages (V100)
+ *   ويُرسل معرفها فقط
+ * - subscribe ينتظر حتى ينفذ اتصال الاستقبال LISTEN، فالرد على رسالة تُنشر بعده مباشرة لا يضيع
+ */
+@Slf4j
+public class PostgresClusterBus implements ClusterBus {
+
+    private static final String CHANNEL_PREFIX = "bena_";
+    private static final int MAX_INLINE_BYTES = 7000;
+    private static final char SEPARATOR = '|';
+    private static final char STORED_MARKER = '@';
+    private static final long POLL_MS = 250;
+
+    private final String nodeId;
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+
+    // كل اشتراك يرفع requested، واتصال الاستقبال يرفع listened بعد تنفيذ LISTEN لكل المواضيع
+    private final Object listenMonitor = new Object();
+    private long requestedGeneration;
+    private long listenedGeneration;
+
+    private final long subscribeTimeoutMs;
+    private volatile boolean running = true;
+    private volatile Thread listenerThread;
+
+    public PostgresClusterBus(String nodeId, DataSource dataSource, JdbcTemplate jdbcTemplate) {
+        this(nodeId, dataSource, jdbcTemplate, 10000);
+    }
+
+    public PostgresClusterBus(String nodeId, DataSource dataSource, JdbcTemplate jdbcTemplate, long subscribeTimeoutMs) {
+        this.nodeId = nodeId;
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.subscribeTimeoutMs = subscribeTimeoutMs;
+    }
+
+    public void start() {
+        listenerThread = new Thread(this::listenLoop, "cluster-bus-listener");
+        listenerThread.setDaemon(true);
+        listenerThread.start();
+        log.info("✅ Postgres cluster bus started: nodeId={}", nodeId);
+    }
+
+    public void stop() {
+        running = false;
+        synchronized (listenMonitor) {
+            listenMonitor.notifyAll();
+        }
+        if (listenerThread != null) {
+            listenerThread.interrupt();
+        }
+    }
+
+    @Override
+    public String nodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public boolean isClustered() {
+        return true;
+    }
+
+    @Override
+    public void publish(String topic, String payload) {
+        String body = payload;
+        if (payload.getBytes(StandardCharsets.UTF_8).length > MAX_INLINE_BYTES) {
+            Long id = jdbcTemplate.queryForObject(
+                    "INSERT INTO cluster_bus_messages (payload) VALUES (?) RETURNING id", Long.class, payload);
+            body = STORED_MARKER + String.valueOf(id);
+        }
+        try {
+            jdbcTemplate.queryForObject("SELECT pg_notify(?, ?)", Object.class,
+                    CHANNEL_PREFIX + topic, nodeId + SEPARATOR + body);
+        } catch (Exception e) {
+            log.warn("Cluster bus publish failed on topic {}: {}", topic, e.getMessage());
+        }
+    }
+
+    /**
+     * يعود بعد تنفيذ LISTEN على اتصال الاستقبال (أو بعد subscribe-timeout إذا كانت القاعدة غير متاحة،
+     * وعندها يُنفذ LISTEN عند نجاح الاتصال)
+     */
+    @Override
+    public void subscribe(String topic, Consumer<String> handler) {
+        handlers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(handler);
+        long deadline = System.currentTimeMillis() + subscribeTimeoutMs;
+        synchronized (listenMonitor) {
+            long generation = ++requestedGeneration;
+            while (listenedGeneration < generation && running) {
+                if (listenerThread == null) {
+                    // قبل start: LISTEN يُنفذ مع أول اتصال
+                    return;
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    log.warn("⚠️ Cluster bus LISTEN on topic {} not confirmed yet", topic);
+                    return;
+                }
+                try {
+                    listenMonitor.wait(remaining);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * حذف الرسائل الكبيرة القديمة (كل النسخ قرأتها خلال ثوانٍ)
+     */
+    @Scheduled(fixedRate = 300000)
+    public void cleanupStoredMessages() {
+        try {
+            jdbcTemplate.update("DELETE FROM cluster_bus_messages WHERE created_at < NOW() - INTERVAL '5 minutes'");
+        } catch (Exception e) {
+            log.debug("Cluster bus cleanup failed: {}", e.getMessage());
+        }
+    }
+
+    private void listenLoop() {
+        long backoffMs = 1000;
+        while (running) {
+            try (Connection connection = dataSource.getConnection()) {
+                connection.setAutoCommit(true);
+                PGConnection pgConnection = connection.unwrap(PGConnection.class);
+                listenAll(connection);
+                backoffMs = 1000;
+
+                while (running) {
+                    if (hasNewSubscriptions()) {
+                        listenAll(connection);
+                    }
+                    PGNotification[] notifications = pgConnection.getNotifications((int) POLL_MS);
+                    if (notifications == null) {
+                        continue;
+                    }
+                    for (PGNotification notification : notifications) {
+                        dispatch(notification.getName(), notification.getParameter());
+                    }
+                }
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Cluster bus listener disconnected, retrying in {}ms: {}", backoffMs, e.getMessage());
+                try {
+                    Thread.sleep(backoffMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                backoffMs = Math.min(backoffMs * 2, 30000);
+            }
+        }
+    }
+
+    private boolean hasNewSubscriptions() {
+        synchronized (listenMonitor) {
+            return listenedGeneration < requestedGeneration;
+        }
+    }
+
+    private void listenAll(Connection connection) throws SQLException {
+        long generation;
+        synchronized (listenMonitor) {
+            generation = requestedGeneration;
+        }
+        try (Statement statement = connection.createStatement()) {
+            for (String topic : handlers.keySet()) {
+                // أسماء المواضيع ثابتة في الكود (بدون مدخلات المستخدم)
+                statement.execute("LISTEN " + CHANNEL_PREFIX + topic);
+            }
+        }
+        synchronized (listenMonitor) {
+            listenedGeneration = Math.max(listenedGeneration, generation);
+            listenMonitor.notifyAll();
+        }
+    }
+
+    private void dispatch(String channel, String message) {
+        if (channel == null || !channel.startsWith(CHANNEL_PREFIX) || message == null) {
+            return;
+        }
+        int separator = message.indexOf(SEPARATOR);
+        if (separator < 0 || message.substring(0, separator).equals(nodeId)) {
+            return;
+        }
+
+        String body = message.substring(separator + 1);
+        try {
+            if (!body.isEmpty() && body.charAt(0) == STORED_MARKER) {
+                body = jdbcTemplate.queryForObject(
+                        "SELECT payload FROM cluster_bus_messages WHERE id = ?", String.class,
+                        Long.parseLong(body.substring(1)));
+            }
+        } catch (Exception e) {
+            log.warn("Cluster bus could not load stored message {}: {}", body, e.getMessage());
+            return;
+        }
+
+        String topic = channel.substring(CHANNEL_PREFIX.length());
+        for (Consumer<String> handler : handlers.getOrDefault(topic, List.of())) {
+            try {
+                handler.accept(body);
+            } catch (Exception e) {
+                log.warn("Cluster bus handler failed on topic {}: {}", topic, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.bena.api.config.ratelimit;
+
+/**
+ * أصناف الـ endpoints مع الحد الافتراضي (طلب/دقيقة) لكل صنف
+ * يمكن تغيير أي حد عبر app.rate-limit.<صنف>.per-minute
+ */
+public enum EndpointClass {
+    AUTH(10),           // صارم للحماية من brute force
+    ADMIN(60),          // مرن للعمل الإداري
+    UPLOAD(20),         // محدود لمنع spam الملفات
+    SEARCH(30),         // محدود لمنع scraping
+    PUBLIC_READ(240),   // أكثر سماحية للقراءة العامة
+    GENERAL(120);       // عام للتصفح الطبيعي
+
+    private final int defaultPerMinute;
+
+    EndpointClass(int defaultPerMinute) {
+        this.defaultPerMinute = defaultPerMinute;
+    }
+
+    public int getDefaultPerMinute() {
+        return defaultPerMinute;
+    }
+
+    /**
+     * اسم الخاصية في الإعدادات (مثال: public-read)
+     */
+    public String propertyName() {
+        return name().toLowerCase().replace('_', '-');
+    }
+}
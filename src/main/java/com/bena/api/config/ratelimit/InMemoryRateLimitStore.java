@@ -0,0 +1,59 @@
+package com.bena.api.config.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * تخزين محلي بدون أقفال (CAS على حالة غير قابلة للتعديل)
+ * الدلاء الخاملة تُحذف تلقائياً بعد ساعة بدون الحاجة لتنظيف دوري
+ */
+public class InMemoryRateLimitStore implements RateLimitStore {
+
+    private final Cache<String, TokenBucket> buckets;
+
+    public InMemoryRateLimitStore(long maxBuckets) {
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxBuckets)
+                .expireAfterAccess(Duration.ofHours(1))
+                .build();
+    }
+
+    @Override
+    public RateLimitDecision tryConsume(String key, RateLimitPolicy policy) {
+        TokenBucket bucket = buckets.get(key, k -> new TokenBucket(policy.capacity(), System.currentTimeMillis()));
+        return bucket.tryConsume(policy, System.currentTimeMillis());
+    }
+
+    static final class TokenBucket {
+
+        private record State(double tokens, long refilledAt) {
+        }
+
+        private final AtomicReference<State> state;
+
+        TokenBucket(double tokens, long now) {
+            this.state = new AtomicReference<>(new State(tokens, now));
+        }
+
+        RateLimitDecision tryConsume(RateLimitPolicy policy, long now) {
+            while (true) {
+                State current = state.get();
+                long elapsed = Math.max(0, now - current.refilledAt());
+                double available = Math.min(policy.capacity(), current.tokens() + elapsed * policy.refillPerMs());
+
+                if (available < 1) {
+                    // لا نكتب الحالة عند الرفض - إعادة التعبئة تُحسب من refilledAt في المحاولة القادمة
+                    return RateLimitDecision.of(false, available, policy);
+                }
+
+                State next = new State(available - 1, Math.max(now, current.refilledAt()));
+                if (state.compareAndSet(current, next)) {
+                    return RateLimitDecision.of(true, next.tokens(), policy);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.bena.api.config.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+
+/**
+ * تخزين مشترك في PostgreSQL (جدول rate_limit_buckets - V99)
+ * كل محاولة = عبارة upsert ذرية واحدة، وإعادة التعبئة تُحسب بساعة قاعدة البيانات
+ * حتى لا يؤثر اختلاف الساعات بين النسخ.
+ * عند فشل قاعدة البيانات نرجع للتخزين المحلي بدلاً من رفض الطلبات.
+ */
+@Slf4j
+public class JdbcRateLimitStore implements RateLimitStore {
+
+    private static final String CONSUME_SQL =
+            "WITH now_ms AS (SELECT (EXTRACT(EPOCH FROM clock_timestamp()) * 1000)::BIGINT AS t) " +
+            "INSERT INTO rate_limit_buckets AS b (bucket_key, tokens, refilled_at_ms, last_allowed) " +
+            "SELECT :key, :capacity - 1, t, true FROM now_ms " +
+            "ON CONFLICT (bucket_key) DO UPDATE SET " +
+            "tokens = CASE " +
+            "    WHEN LEAST(:capacity, b.tokens + (EXCLUDED.refilled_at_ms - b.refilled_at_ms) * :rate) >= 1 " +
+            "    THEN LEAST(:capacity, b.tokens + (EXCLUDED.refilled_at_ms - b.refilled_at_ms) * :rate) - 1 " +
+            "    ELSE LEAST(:capacity, b.tokens + (EXCLUDED.refilled_at_ms - b.refilled_at_ms) * :rate) END, " +
+            "last_allowed = LEAST(:capacity, b.tokens + (EXCLUDED.refilled_at_ms - b.refilled_at_ms) * :rate) >= 1, " +
+            "refilled_at_ms = EXCLUDED.refilled_at_ms " +
+            "RETURNING tokens, last_allowed";
+
+    private static final String CLEANUP_SQL =
+            "DELETE FROM rate_limit_buckets " +
+            "WHERE refilled_at_ms < (EXTRACT(EPOCH FROM clock_timestamp()) * 1000)::BIGINT - 3600000";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final RateLimitStore fallback;
+
+    public JdbcRateLimitStore(NamedParameterJdbcTemplate jdbcTemplate, RateLimitStore fallback) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.fallback = fallback;
+    }
+
+    @Override
+    public RateLimitDecision tryConsume(String key, RateLimitPolicy policy) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("key", key)
+                .addValue("capacity", (double) policy.capacity())
+                .addValue("rate", policy.refillPerMs());
+        try {
+            return jdbcTemplate.queryForObject(CONSUME_SQL, params, (rs, rowNum) ->
+                    RateLimitDecision.of(rs.getBoolean("last_allowed"), rs.getDouble("tokens"), policy));
+        } catch (Exception e) {
+            log.warn("Shared rate limit store unavailable, using local buckets: {}", e.getMessage());
+            return fallback.tryConsume(key, policy);
+        }
+    }
+
+    /**
+     * حذف الدلاء الخاملة لأكثر من ساعة
+     */
+    @Scheduled(fixedRate = 3600000)
+    public void cleanupIdleBuckets() {
+        try {
+            int deleted = jdbcTemplate.getJdbcTemplate().update(CLEANUP_SQL);
+            log.debug("🧹 Removed {} idle rate limit buckets", deleted);
+        } catch (Exception e) {
+            log.warn("Rate limit bucket cleanup failed: {}", e.getMessage());
+        }
+    }
+}
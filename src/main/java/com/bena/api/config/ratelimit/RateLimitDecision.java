@@ -0,0 +1,17 @@
+package com.bena.api.config.ratelimit;
+
+/**
+ * نتيجة محاولة استهلاك توكن
+ */
+public record RateLimitDecision(boolean allowed, int limit, int remaining, long retryAfterMs) {
+
+    public static RateLimitDecision of(boolean allowed, double tokensLeft, RateLimitPolicy policy) {
+        int remaining = (int) Math.max(0, Math.floor(tokensLeft));
+        long retryAfter = allowed ? 0 : policy.millisUntilToken(tokensLeft);
+        return new RateLimitDecision(allowed, policy.capacity(), remaining, retryAfter);
+    }
+
+    public long retryAfterSeconds() {
+        return Math.max(1, (retryAfterMs + 999) / 1000);
+    }
+}
@@ -0,0 +1,13 @@
+package com.bena.api.config.ratelimit;
+
+import java.util.Map;
+
+/**
+ * جدول السياسات لكل صنف endpoint (يُبنى مرة واحدة عند التشغيل)
+ */
+public record RateLimitPolicies(Map<EndpointClass, RateLimitPolicy> table) {
+
+    public RateLimitPolicy forClass(EndpointClass endpointClass) {
+        return table.get(endpointClass);
+    }
+}
@@ -0,0 +1,21 @@
+package com.bena.api.config.ratelimit;
+
+/**
+ * سياسة Token Bucket: سعة الدلو ومعدل إعادة التعبئة (توكن لكل مللي ثانية)
+ */
+public record RateLimitPolicy(int capacity, double refillPerMs) {
+
+    public static RateLimitPolicy perMinute(int limit) {
+        return new RateLimitPolicy(limit, limit / 60_000.0);
+    }
+
+    /**
+     * الوقت اللازم (بالمللي ثانية) حتى يتوفر توكن واحد
+     */
+    public long millisUntilToken(double tokens) {
+        if (tokens >= 1) {
+            return 0;
+        }
+        return (long) Math.ceil((1 - tokens) / refillPerMs);
+    }
+}
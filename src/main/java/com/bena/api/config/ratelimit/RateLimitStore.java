@@ -0,0 +1,15 @@
+package com.bena.api.config.ratelimit;
+
+/**
+ * SPI لتخزين حالة الـ Token Buckets
+ * - memory: لكل JVM (الافتراضي)
+ * - jdbc: مشترك بين كل النسخ عبر PostgreSQL
+ * الاختيار عبر app.rate-limit.store
+ */
+public interface RateLimitStore {
+
+    /**
+     * محاولة استهلاك توكن واحد من الدلو المحدد بالمفتاح
+     */
+    RateLimitDecision tryConsume(String key, RateLimitPolicy policy);
+}
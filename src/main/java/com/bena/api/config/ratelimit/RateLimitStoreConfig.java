@@ -0,0 +1,54 @@
+package com.bena.api.config.ratelimit;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * تكوين محرك Rate Limiting: جدول السياسات لكل صنف + التخزين المختار
+ */
+@Configuration
+@Slf4j
+public class RateLimitStoreConfig {
+
+    @Value("${app.rate-limit.max-local-buckets:100000}")
+    private long maxLocalBuckets;
+
+    /**
+     * جدول السياسات: app.rate-limit.<صنف>.per-minute وإلا القيمة الافتراضية في EndpointClass
+     */
+    @Bean
+    public RateLimitPolicies rateLimitPolicies(Environment environment) {
+        Map<EndpointClass, RateLimitPolicy> policies = new EnumMap<>(EndpointClass.class);
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            int perMinute = environment.getProperty(
+                    "app.rate-limit." + endpointClass.propertyName() + ".per-minute",
+                    Integer.class,
+                    endpointClass.getDefaultPerMinute());
+            policies.put(endpointClass, RateLimitPolicy.perMinute(perMinute));
+        }
+        log.info("✅ Rate limit policies (per minute): {}", policies);
+        return new RateLimitPolicies(policies);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.rate-limit.store", havingValue = "jdbc")
+    public RateLimitStore jdbcRateLimitStore(NamedParameterJdbcTemplate jdbcTemplate) {
+        log.info("✅ Rate limit store: jdbc (shared across nodes)");
+        return new JdbcRateLimitStore(jdbcTemplate, new InMemoryRateLimitStore(maxLocalBuckets));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "app.rate-limit.store", havingValue = "memory", matchIfMissing = true)
+    public RateLimitStore inMemoryRateLimitStore() {
+        log.info("✅ Rate limit store: memory (per node)");
+        return new InMemoryRateLimitStore(maxLocalBuckets);
+    }
+}
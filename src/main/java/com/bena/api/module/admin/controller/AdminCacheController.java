@@ -0,0 +1,73 @@
+package com.bena.api.module.admin.controller;
+
+import com.bena.api.common.dto.ApiResponse;
+import com.bena.api.common.exception.ResourceNotFoundException;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+
+/**
+ * حالة مناطق الكاش ومسحها يدوياً (مثلاً بعد تعديل البيانات مباشرة في قاعدة البيانات).
+ * المسح يصل للنسخ الأخرى عبر ClusterBus.
+ */
+@RestController
+@RequestMapping("/v1/admin/caches")
+@RequiredArgsConstructor
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Admin", description = "لوحة التحكم الرئيسية")
+public class AdminCacheController {
+
+    private final CacheManager cacheManager;
+
+    public record CacheRegionStats(String name, long size, long hits, long misses, double hitRate, long evictions) {
+    }
+
+    @GetMapping
+    @Operation(summary = "إحصائيات مناطق الكاش")
+    public ResponseEntity<ApiResponse<List<CacheRegionStats>>> getCaches() {
+        List<CacheRegionStats> regions = cacheManager.getCacheNames().stream()
+                .map(this::stats)
+                .toList();
+        return ResponseEntity.ok(ApiResponse.success(regions));
+    }
+
+    @DeleteMapping("/{name}")
+    @Operation(summary = "مسح منطقة كاش")
+    public ResponseEntity<ApiResponse<Void>> clear(@PathVariable String name) {
+        cache(name).clear();
+        return ResponseEntity.ok(ApiResponse.success(null, "تم مسح الكاش"));
+    }
+
+    @DeleteMapping
+    @Operation(summary = "مسح كل مناطق الكاش")
+    public ResponseEntity<ApiResponse<Void>> clearAll() {
+        cacheManager.getCacheNames().forEach(name -> cache(name).clear());
+        return ResponseEntity.ok(ApiResponse.success(null, "تم مسح الكاش"));
+    }
+
+    private CacheRegionStats stats(String name) {
+        Cache cache = cache(name);
+        if (cache.getNativeCache() instanceof com.github.benmanes.caffeine.cache.Cache<?, ?> caffeine) {
+            CacheStats stats = caffeine.stats();
+            return new CacheRegionStats(name, caffeine.estimatedSize(), stats.hitCount(), stats.missCount(),
+                    stats.hitRate(), stats.evictionCount());
+        }
+        return new CacheRegionStats(name, 0, 0, 0, 0, 0);
+    }
+
+    private Cache cache(String name) {
+        Cache cache = cacheManager.getCache(name);
+        if (cache == null) {
+            throw new ResourceNotFoundException("منطقة الكاش غير موجودة: " + name);
+        }
+        return cache;
+    }
+}
@@ -15,17 +15,11 @@ import java.util.*;
 @RequestMapping("/v1/public/governorates")
 public class GovernoratesController {
 
+    // قائمة ثابتة في الكود (IraqGovernorates) - تُبنى مرة واحدة بدل كل طلب
+    private final List<GovernorateResponse> governorates = buildGovernorates();
+
     @GetMapping
     public ResponseEntity<ApiResponse<List<GovernorateResponse>>> getAllGovernorates() {
-        List<GovernorateResponse> governorates = new ArrayList<>();
-        
-        for (String govName : IraqGovernorates.getAllGovernorates()) {
-            GovernorateResponse gov = new GovernorateResponse();
-            gov.setName(govName);
-            gov.setCities(IraqGovernorates.getCitiesByGovernorate(govName));
-            governorates.add(gov);
-        }
-        
         return ResponseEntity.ok(ApiResponse.success(governorates));
     }
 
@@ -37,6 +31,17 @@ public class GovernoratesController {
         }
         return ResponseEntity.ok(ApiResponse.success(cities));
     }
+
+    private static List<GovernorateResponse> buildGovernorates() {
+        List<GovernorateResponse> governorates = new ArrayList<>();
+        for (String govName : IraqGovernorates.getAllGovernorates()) {
+            GovernorateResponse gov = new GovernorateResponse();
+            gov.setName(govName);
+            gov.setCities(List.copyOf(IraqGovernorates.getCitiesByGovernorate(govName)));
+            governorates.add(gov);
+        }
+        return List.copyOf(governorates);
+    }
 }
 
 @Data
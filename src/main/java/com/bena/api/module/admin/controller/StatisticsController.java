@@ -1,6 +1,7 @@
 package com.bena.api.module.admin.controller;
 
 import com.bena.api.common.dto.ApiResponse;
+import com.bena.api.module.admin.service.StatisticsService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -18,41 +19,40 @@ import java.util.Map;
 @PreAuthorize("hasRole('ADMIN')")
 public class StatisticsController {
 
-    private final com.bena.api.module.user.repository.UserRepository userRepository;
-    private final com.bena.api.module.project.repository.ContractRepository contractRepository;
-    private final com.bena.api.module.worker.repository.JobRequestRepository jobRequestRepository;
-    private final com.bena.api.module.worker.repository.ReportRepository reportRepository;
-    private final com.bena.api.module.design.repository.DesignRepository designRepository;
+    private final StatisticsService statisticsService;
+    private final com.bena.api.module.cost.service.CalculationLogService calculationLogService;
 
     @GetMapping("/dashboard")
     public ResponseEntity<ApiResponse<Map<String, Object>>> getDashboardStats() {
+        // كل العدادات باستعلام واحد من admin_stat_counters
+        Map<String, Long> counters = statisticsService.counters();
         Map<String, Object> stats = new HashMap<>();
 
         // إحصائيات المستخدمين
-        stats.put("totalUsers", userRepository.count());
-        stats.put("activeUsers", userRepository.countByIsActiveTrue());
+        stats.put("totalUsers", counter(counters, StatisticsService.total(StatisticsService.USERS)));
+        stats.put("activeUsers", counter(counters, StatisticsService.USERS_ACTIVE));
 
         // إحصائيات العقود
-        stats.put("totalContracts", contractRepository.count());
-        stats.put("activeContracts", contractRepository.countByStatus(
-            com.bena.api.module.project.entity.Contract.ContractStatus.ACTIVE));
-        stats.put("pendingContracts", contractRepository.countByStatus(
-            com.bena.api.module.project.entity.Contract.ContractStatus.PENDING_SIGNATURE));
+        stats.put("totalContracts", counter(counters, StatisticsService.total(StatisticsService.CONTRACTS)));
+        stats.put("activeContracts", counter(counters, StatisticsService.status(StatisticsService.CONTRACTS,
+            com.bena.api.module.project.entity.Contract.ContractStatus.ACTIVE.name())));
+        stats.put("pendingContracts", counter(counters, StatisticsService.status(StatisticsService.CONTRACTS,
+            com.bena.api.module.project.entity.Contract.ContractStatus.PENDING_SIGNATURE.name())));
 
         // إحصائيات طلبات العمل
-        stats.put("totalJobRequests", jobRequestRepository.count());
-        stats.put("pendingRequests", jobRequestRepository.countByStatus(
-            com.bena.api.module.worker.entity.JobRequest.JobStatus.PENDING));
-        stats.put("completedRequests", jobRequestRepository.countByStatus(
-            com.bena.api.module.worker.entity.JobRequest.JobStatus.COMPLETED));
+        stats.put("totalJobRequests", counter(counters, StatisticsService.total(StatisticsService.JOB_REQUESTS)));
+        stats.put("pendingRequests", counter(counters, StatisticsService.status(StatisticsService.JOB_REQUESTS,
+            com.bena.api.module.worker.entity.JobRequest.JobStatus.PENDING.name())));
+        stats.put("completedRequests", counter(counters, StatisticsService.status(StatisticsService.JOB_REQUESTS,
+            com.bena.api.module.worker.entity.JobRequest.JobStatus.COMPLETED.name())));
 
         // إحصائيات البلاغات
-        stats.put("totalReports", reportRepository.count());
-        stats.put("pendingReports", reportRepository.countByStatus(
-            com.bena.api.module.worker.entity.Report.ReportStatus.PENDING));
+        stats.put("totalReports", counter(counters, StatisticsService.total(StatisticsService.REPORTS)));
+        stats.put("pendingReports", counter(counters, StatisticsService.status(StatisticsService.REPORTS,
+            com.bena.api.module.worker.entity.Report.ReportStatus.PENDING.name())));
 
         // إحصائيات التصاميم
-        stats.put("totalDesigns", designRepository.count());
+        stats.put("totalDesigns", counter(counters, StatisticsService.total(StatisticsService.DESIGNS)));
 
         return ResponseEntity.ok(ApiResponse.success(stats));
     }
@@ -61,46 +61,40 @@ public class StatisticsController {
     public ResponseEntity<ApiResponse<java.util.List<Map<String, Object>>>> getUserGrowth(
             @RequestParam(defaultValue = "7") int days
     ) {
-        java.util.List<Map<String, Object>> growth = new java.util.ArrayList<>();
-        
-        java.time.LocalDate today = java.time.LocalDate.now();
-        for (int i = days - 1; i >= 0; i--) {
-            java.time.LocalDate date = today.minusDays(i);
-            java.time.OffsetDateTime startOfDay = date.atStartOfDay().atOffset(java.time.ZoneOffset.UTC);
-            java.time.OffsetDateTime endOfDay = date.plusDays(1).atStartOfDay().atOffset(java.time.ZoneOffset.UTC);
-            
-            long count = userRepository.countByCreatedAtBetween(startOfDay, endOfDay);
-            
-            Map<String, Object> dataPoint = new HashMap<>();
-            dataPoint.put("date", date.toString());
-            dataPoint.put("count", count);
-            growth.add(dataPoint);
-        }
-        
-        return ResponseEntity.ok(ApiResponse.success(growth));
+        return ResponseEntity.ok(ApiResponse.success(
+            statisticsService.dailySeries(StatisticsService.USERS_CREATED, days)));
+    }
+
+    @GetMapping("/calculations")
+    public ResponseEntity<ApiResponse<com.bena.api.module.cost.service.CalculationLogService.CalculationStats>> getCalculationStats(
+            @RequestParam(defaultValue = "30") int days
+    ) {
+        // من الجدول اليومي calculation_daily_stats وليس من سجل الحسابات الخام
+        java.time.LocalDate today = java.time.LocalDate.now(java.time.ZoneOffset.UTC);
+        java.time.LocalDate from = today.minusDays(Math.max(1, Math.min(days, 366)) - 1);
+        return ResponseEntity.ok(ApiResponse.success(calculationLogService.getStats(from, today)));
     }
 
     @GetMapping("/contracts/status-distribution")
     public ResponseEntity<ApiResponse<Map<String, Long>>> getContractStatusDistribution() {
-        Map<String, Long> distribution = new HashMap<>();
-        
-        for (com.bena.api.module.project.entity.Contract.ContractStatus status : 
-             com.bena.api.module.project.entity.Contract.ContractStatus.values()) {
-            distribution.put(status.name(), contractRepository.countByStatus(status));
-        }
-        
-        return ResponseEntity.ok(ApiResponse.success(distribution));
+        return ResponseEntity.ok(ApiResponse.success(statisticsService.statusDistribution(
+            StatisticsService.CONTRACTS, com.bena.api.module.project.entity.Contract.ContractStatus.values())));
     }
 
     @GetMapping("/job-requests/status-distribution")
     public ResponseEntity<ApiResponse<Map<String, Long>>> getJobRequestStatusDistribution() {
-        Map<String, Long> distribution = new HashMap<>();
-        
-        for (com.bena.api.module.worker.entity.JobRequest.JobStatus status : 
-             com.bena.api.module.worker.entity.JobRequest.JobStatus.values()) {
-            distribution.put(status.name(), jobRequestRepository.countByStatus(status));
-        }
-        
-        return ResponseEntity.ok(ApiResponse.success(distribution));
+        return ResponseEntity.ok(ApiResponse.success(statisticsService.statusDistribution(
+            StatisticsService.JOB_REQUESTS, com.bena.api.module.worker.entity.JobRequest.JobStatus.values())));
+    }
+
+    @PostMapping("/reconcile")
+    public ResponseEntity<ApiResponse<Void>> reconcile() {
+        // إعادة حساب جداول التجميع من الجداول الأصلية (بعد تعديل البيانات مباشرة في قاعدة البيانات)
+        statisticsService.reconcile();
+        return ResponseEntity.ok(ApiResponse.success(null, "تمت إعادة حساب الإحصائيات"));
+    }
+
+    private static long counter(Map<String, Long> counters, String metric) {
+        return counters.getOrDefault(metric, 0L);
     }
 }
@@ -0,0 +1,147 @@
+package com.bena.api.module.admin.service;
+
+import com.bena.api.module.design.entity.Design;
+import com.bena.api.module.project.entity.Contract;
+import com.bena.api.module.user.entity.User;
+import com.bena.api.module.worker.entity.JobRequest;
+import com.bena.api.module.worker.entity.Report;
+import jakarta.annotation.PostConstruct;
+import jakarta.persistence.EntityManagerFactory;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventSource;
+import org.hibernate.event.spi.EventType;
+import org.hibernate.event.spi.PostDeleteEvent;
+import org.hibernate.event.spi.PostDeleteEventListener;
+import org.hibernate.event.spi.PostInsertEvent;
+import org.hibernate.event.spi.PostInsertEventListener;
+import org.hibernate.event.spi.PostUpdateEvent;
+import org.hibernate.event.spi.PostUpdateEventListener;
+import org.hibernate.persister.entity.EntityPersister;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * يغذي StatisticsService من أحداث Hibernate داخل نفس المعاملة: الفروقات تُكتب في admin_stat_deltas على
+ * نفس الاتصال، فتُلغى مع المعاملة إذا تراجعت وتظهر مع التغيير نفسه للمطابقة في كل النسخ.
+ * التحديث يقارن الحالة القديمة بالجديدة لنقل العد بين الحالات.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatisticsEventListener implements PostInsertEventListener, PostUpdateEventListener,
+        PostDeleteEventListener {
+
+    // الكيان ← بادئة المقياس (اسم الجدول)
+    private static final Map<Class<?>, String> TRACKED = Map.of(
+            User.class, StatisticsService.USERS,
+            Contract.class, StatisticsService.CONTRACTS,
+            JobRequest.class, StatisticsService.JOB_REQUESTS,
+            Report.class, StatisticsService.REPORTS,
+            Design.class, StatisticsService.DESIGNS
+    );
+
+    private final EntityManagerFactory entityManagerFactory;
+    private final StatisticsService statisticsService;
+
+    @PostConstruct
+    public void register() {
+        EventListenerRegistry registry = entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class);
+        registry.appendListeners(EventType.POST_INSERT, this);
+        registry.appendListeners(EventType.POST_UPDATE, this);
+        registry.appendListeners(EventType.POST_DELETE, this);
+    }
+
+    @Override
+    public boolean requiresPostCommitHandling(EntityPersister persister) {
+        return false;
+    }
+
+    @Override
+    public void onPostInsert(PostInsertEvent event) {
+        record(event.getSession(), apply(event.getPersister(), event.getState(), 1));
+    }
+
+    @Override
+    public void onPostDelete(PostDeleteEvent event) {
+        record(event.getSession(), apply(event.getPersister(), event.getDeletedState(), -1));
+    }
+
+    @Override
+    public void onPostUpdate(PostUpdateEvent event) {
+        String entity = TRACKED.get(event.getPersister().getMappedClass());
+        Object[] oldState = event.getOldState();
+        if (entity == null || oldState == null) {
+            // بدون الحالة القديمة لا يمكن معرفة الفرق، المطابقة الدورية تصححه
+            return;
+        }
+        EntityPersister persister = event.getPersister();
+        Object[] state = event.getState();
+        List<StatisticsService.Delta> deltas = new ArrayList<>();
+
+        if (User.class.equals(persister.getMappedClass())) {
+            boolean wasActive = Boolean.TRUE.equals(value(persister, oldState, "isActive"));
+            boolean isActive = Boolean.TRUE.equals(value(persister, state, "isActive"));
+            if (wasActive != isActive) {
+                deltas.add(StatisticsService.Delta.counter(StatisticsService.USERS_ACTIVE, isActive ? 1 : -1));
+            }
+        } else if (StatisticsService.hasStatus(entity)) {
+            Object oldStatus = value(persister, oldState, "status");
+            Object newStatus = value(persister, state, "status");
+            if (!Objects.equals(oldStatus, newStatus)) {
+                if (oldStatus instanceof Enum<?> status) {
+                    deltas.add(StatisticsService.Delta.counter(StatisticsService.status(entity, status.name()), -1));
+                }
+                if (newStatus instanceof Enum<?> status) {
+                    deltas.add(StatisticsService.Delta.counter(StatisticsService.status(entity, status.name()), 1));
+                }
+            }
+        }
+        record(event.getSession(), deltas);
+    }
+
+    // ==================== Helpers ====================
+
+    private static List<StatisticsService.Delta> apply(EntityPersister persister, Object[] state, int delta) {
+        String entity = TRACKED.get(persister.getMappedClass());
+        List<StatisticsService.Delta> deltas = new ArrayList<>();
+        if (entity == null || state == null) {
+            return deltas;
+        }
+        deltas.add(StatisticsService.Delta.counter(StatisticsService.total(entity), delta));
+
+        if (User.class.equals(persister.getMappedClass())) {
+            if (Boolean.TRUE.equals(value(persister, state, "isActive"))) {
+                deltas.add(StatisticsService.Delta.counter(StatisticsService.USERS_ACTIVE, delta));
+            }
+            Object createdAt = value(persister, state, "createdAt");
+            deltas.add(StatisticsService.Delta.daily(StatisticsService.USERS_CREATED,
+                    StatisticsService.utcDay(createdAt instanceof OffsetDateTime time ? time : null), delta));
+            return deltas;
+        }
+
+        if (StatisticsService.hasStatus(entity) && value(persister, state, "status") instanceof Enum<?> status) {
+            deltas.add(StatisticsService.Delta.counter(StatisticsService.status(entity, status.name()), delta));
+        }
+        return deltas;
+    }
+
+    // نفس اتصال الـ flush الجاري داخل المعاملة
+    private void record(EventSource session, List<StatisticsService.Delta> deltas) {
+        if (!deltas.isEmpty()) {
+            session.doWork(connection -> statisticsService.record(connection, deltas));
+        }
+    }
+
+    private static Object value(EntityPersister persister, Object[] state, String property) {
+        Integer index = persister.getEntityMetamodel().getPropertyIndexOrNull(property);
+        return index != null && index < state.length ? state[index] : null;
+    }
+}
@@ -0,0 +1,358 @@
+package com.bena.api.module.admin.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * إحصائيات لوحة التحكم من جداول تجميع بدل count() على الجداول الكبيرة:
+ * - admin_stat_counters: العدادات الحالية (users.total، contracts.status.ACTIVE ...)
+ * - admin_daily_stats: السلاسل اليومية (users.created)
+ * - الفروقات يكتبها StatisticsEventListener في admin_stat_deltas داخل نفس معاملة التغيير (V111)،
+ *   وأي نسخة تنقلها إلى الجداول أعلاه كل flush-interval-ms
+ * - المطابقة (reconcile) تعيد حساب كل العدادات باستعلام GROUP BY واحد لكل نوع، دورياً وعند أول تشغيل،
+ *   لتصحيح أي تغيير تم خارج JPA (SQL مباشر). تعمل في نسخة واحدة فقط (advisory lock) وفي معاملة
+ *   REPEATABLE READ تحذف الفروقات المرئية في الـ snapshot فقط: التغيير وفرقه يظهران معاً أو يغيبان معاً،
+ *   فما قبل الـ snapshot محسوب في إعادة العد، وما بعده يبقى للـ flush، مهما كانت النسخة التي سجلته.
+ *   الـ flush والمطابقة لا يتداخلان (advisory lock مشترك)
+ * قراءة كل رسم بياني = استعلام واحد على جدول صغير، مهما كبرت الجداول الأصلية.
+ */
+@Service
+@Slf4j
+public class StatisticsService {
+
+    public static final String USERS = "users";
+    public static final String CONTRACTS = "contracts";
+    public static final String JOB_REQUESTS = "job_requests";
+    public static final String REPORTS = "reports";
+    public static final String DESIGNS = "designs";
+
+    public static final String USERS_ACTIVE = "users.active";
+    public static final String USERS_CREATED = "users.created";
+
+    // الجداول التي لها عمود status (نفس اسم الجدول هو بادئة المقياس)
+    private static final List<String> STATUS_TABLES = List.of(CONTRACTS, JOB_REQUESTS, REPORTS);
+
+    private static final String RECONCILE_COUNTERS_SQL = """
+            SELECT 'users.total', COUNT(*) FROM users
+            UNION ALL SELECT 'users.active', COUNT(*) FROM users WHERE is_active = TRUE
+            UNION ALL SELECT 'designs.total', COUNT(*) FROM designs
+            UNION ALL SELECT 'contracts.total', COUNT(*) FROM contracts
+            UNION ALL SELECT 'contracts.status.' || status, COUNT(*) FROM contracts WHERE status IS NOT NULL GROUP BY status
+            UNION ALL SELECT 'job_requests.total', COUNT(*) FROM job_requests
+            UNION ALL SELECT 'job_requests.status.' || status, COUNT(*) FROM job_requests WHERE status IS NOT NULL GROUP BY status
+            UNION ALL SELECT 'reports.total', COUNT(*) FROM reports
+            UNION ALL SELECT 'reports.status.' || status, COUNT(*) FROM reports WHERE status IS NOT NULL GROUP BY status
+            """;
+
+    private static final String RECONCILE_USERS_DAILY_SQL = """
+            SELECT (created_at AT TIME ZONE 'UTC')::date AS day, COUNT(*)
+            FROM users
+            WHERE created_at >= ?
+            GROUP BY 1
+            """;
+
+    private static final String SET_COUNTER_SQL = """
+            INSERT INTO admin_stat_counters (metric, value) VALUES (?, ?)
+            ON CONFLICT (metric) DO UPDATE SET value = EXCLUDED.value, updated_at = NOW()
+            """;
+
+    private static final String ADD_DAILY_SQL = """
+            INSERT INTO admin_daily_stats (metric, day, value) VALUES (?, ?, ?)
+            ON CONFLICT (metric, day) DO UPDATE SET value = admin_daily_stats.value + EXCLUDED.value, updated_at = NOW()
+            """;
+
+    private static final String TRY_ROLLUPS_LOCK_SQL = "SELECT pg_try_advisory_xact_lock(hashtext('admin_statistics_rollups'))";
+
+    private static final String INSERT_DELTA_SQL = "INSERT INTO admin_stat_deltas (metric, day, delta) VALUES (?, ?, ?)";
+
+    // ينقل دفعة من الفروقات ويجمعها في استعلام واحد
+    private static final String FLUSH_DELTAS_SQL = """
+            WITH drained AS (
+                DELETE FROM admin_stat_deltas
+                WHERE id IN (SELECT id FROM admin_stat_deltas ORDER BY id LIMIT ?)
+                RETURNING metric, day, delta
+            ), counters AS (
+                INSERT INTO admin_stat_counters (metric, value)
+                SELECT metric, SUM(delta) FROM drained WHERE day IS NULL GROUP BY metric
+                ON CONFLICT (metric) DO UPDATE SET value = admin_stat_counters.value + EXCLUDED.value, updated_at = NOW()
+                RETURNING 1
+            ), daily AS (
+                INSERT INTO admin_daily_stats (metric, day, value)
+                SELECT metric, day, SUM(delta) FROM drained WHERE day IS NOT NULL GROUP BY metric, day
+                ON CONFLICT (metric, day) DO UPDATE SET value = admin_daily_stats.value + EXCLUDED.value, updated_at = NOW()
+                RETURNING 1
+            )
+            SELECT COUNT(*) FROM drained
+            """;
+
+    /**
+     * فرق واحد: day = null لعداد حالي، أو يوم UTC لسلسلة يومية
+     */
+    public record Delta(String metric, LocalDate day, long value) {
+
+        public static Delta counter(String metric, long value) {
+            return new Delta(metric, null, value);
+        }
+
+        public static Delta daily(String metric, LocalDate day, long value) {
+            return new Delta(metric, day, value);
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate reconcileTemplate;
+    private final Executor reconcileExecutor;
+    private final AtomicBoolean reconcileRequested = new AtomicBoolean();
+    private final int dailyDays;
+    private final int flushBatchSize;
+
+    public StatisticsService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Qualifier("taskExecutor") Executor reconcileExecutor,
+            @Value("${app.statistics.daily-days:400}") int dailyDays,
+            @Value("${app.statistics.flush-batch-size:10000}") int flushBatchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // معاملة منفصلة عن معاملة الأقفال (REQUIRES_NEW) حتى يؤخذ الـ snapshot بعد انتهاء أي flush جارٍ
+        this.reconcileTemplate = new TransactionTemplate(transactionManager);
+        this.reconcileTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.reconcileTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+        this.reconcileExecutor = reconcileExecutor;
+        this.dailyDays = Math.max(1, dailyDays);
+        this.flushBatchSize = Math.max(1, flushBatchSize);
+    }
+
+    public static String total(String entity) {
+        return entity + ".total";
+    }
+
+    public static boolean hasStatus(String entity) {
+        return STATUS_TABLES.contains(entity);
+    }
+
+    public static String status(String entity, String status) {
+        return entity + ".status." + status;
+    }
+
+    // ==================== التحديث التدريجي ====================
+
+    /**
+     * كتابة الفروقات على اتصال المعاملة الجارية، فتُلغى مع التغيير إذا تراجعت المعاملة
+     */
+    public void record(Connection connection, List<Delta> deltas) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement statement = connection.prepareStatement(INSERT_DELTA_SQL)) {
+            for (Delta delta : deltas) {
+                statement.setString(1, delta.metric());
+                if (delta.day() != null) {
+                    statement.setDate(2, Date.valueOf(delta.day()));
+                } else {
+                    statement.setNull(2, Types.DATE);
+                }
+                statement.setLong(3, delta.value());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+        }
+    }
+
+    /**
+     * نقل الفروقات المسجلة (من كل النسخ) إلى جداول التجميع. إذا كانت نسخة أخرى تنقلها أو المطابقة تعمل
+     * نتخطى هذه الدورة بدل الانتظار
+     */
+    @Scheduled(fixedDelayString = "${app.statistics.flush-interval-ms:5000}", initialDelay = 5000)
+    public void flush() {
+        try {
+            Long moved;
+            do {
+                moved = transactionTemplate.execute(status -> {
+                    if (!Boolean.TRUE.equals(jdbcTemplate.queryForObject(TRY_ROLLUPS_LOCK_SQL, Boolean.class))) {
+                        log.debug("Statistics flush skipped: rollups locked by another node");
+                        return null;
+                    }
+                    return jdbcTemplate.queryForObject(FLUSH_DELTAS_SQL, Long.class, flushBatchSize);
+                });
+            } while (moved != null && moved >= flushBatchSize);
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to flush statistics rollups: {}", e.getMessage());
+        }
+    }
+
+    // ==================== المطابقة ====================
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void initialize() {
+        try {
+            Integer existing = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM admin_stat_counters", Integer.class);
+            if (existing == null || existing == 0) {
+                reconcile();
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Statistics rollups initialization failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * إعادة حساب كل العدادات من الجداول الأصلية. false إذا كانت نسخة أخرى تطابق الآن
+     */
+    @Scheduled(cron = "${app.statistics.reconcile-cron:0 17 * * * *}")
+    public boolean reconcile() {
+        long start = System.currentTimeMillis();
+        LocalDate since = LocalDate.now(ZoneOffset.UTC).minusDays(dailyDays - 1L);
+        Boolean reconciled = transactionTemplate.execute(lockStatus -> {
+            Boolean locked = jdbcTemplate.queryForObject(
+                    "SELECT pg_try_advisory_xact_lock(hashtext('admin_statistics_reconcile'))", Boolean.class);
+            if (!Boolean.TRUE.equals(locked)) {
+                return false;
+            }
+            // ينتظر أي flush جارٍ، ويمنع الجديد حتى نهاية المطابقة
+            jdbcTemplate.queryForObject("SELECT pg_advisory_xact_lock(hashtext('admin_statistics_rollups'))", Object.class);
+            reconcileTemplate.executeWithoutResult(status -> {
+                Map<String, Long> counters = new LinkedHashMap<>();
+                jdbcTemplate.query(RECONCILE_COUNTERS_SQL, rs -> {
+                    counters.put(rs.getString(1), rs.getLong(2));
+                });
+                // الفروقات المرئية هنا لتغييرات داخل الـ snapshot (نفس المعاملة)، وما بعده لا يُرى فيبقى للـ flush.
+                // تبقى فقط فروقات الأيام الأقدم من نافذة إعادة الحساب اليومية.
+                jdbcTemplate.update("DELETE FROM admin_stat_deltas WHERE day IS NULL OR day >= ?", since);
+
+                // الحالات التي لم يعد لها صفوف تصبح صفراً بدل أن تبقى بقيمتها القديمة
+                jdbcTemplate.queryForList("SELECT metric FROM admin_stat_counters", String.class)
+                        .forEach(metric -> counters.putIfAbsent(metric, 0L));
+                jdbcTemplate.batchUpdate(SET_COUNTER_SQL, counters.entrySet().stream()
+                        .map(entry -> new Object[]{entry.getKey(), entry.getValue()})
+                        .toList());
+
+                List<Object[]> daily = new ArrayList<>();
+                jdbcTemplate.query(RECONCILE_USERS_DAILY_SQL, rs -> {
+                    daily.add(new Object[]{USERS_CREATED, rs.getObject(1, LocalDate.class), rs.getLong(2)});
+                }, since.atStartOfDay().atOffset(ZoneOffset.UTC));
+                jdbcTemplate.update("DELETE FROM admin_daily_stats WHERE metric = ? AND day >= ?", USERS_CREATED, since);
+                jdbcTemplate.batchUpdate(ADD_DAILY_SQL, daily);
+            });
+            return true;
+        });
+        if (!Boolean.TRUE.equals(reconciled)) {
+            log.debug("Statistics reconcile running on another node");
+            return false;
+        }
+        log.info("✅ Statistics rollups reconciled in {}ms", System.currentTimeMillis() - start);
+        return true;
+    }
+
+    /**
+     * مطابقة في الخلفية (مرة واحدة في نفس الوقت) بدل حجب خيط الطلب
+     */
+    private void reconcileInBackground() {
+        if (!reconcileRequested.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            reconcileExecutor.execute(() -> {
+                try {
+                    reconcile();
+                } catch (Exception e) {
+                    log.warn("⚠️ Statistics reconcile failed: {}", e.getMessage());
+                } finally {
+                    reconcileRequested.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            reconcileRequested.set(false);
+        }
+    }
+
+    // ==================== القراءة ====================
+
+    /**
+     * كل العدادات الحالية باستعلام واحد
+     */
+    public Map<String, Long> counters() {
+        Map<String, Long> counters = new HashMap<>();
+        jdbcTemplate.query("SELECT metric, value FROM admin_stat_counters", rs -> {
+            counters.put(rs.getString(1), rs.getLong(2));
+        });
+        if (counters.isEmpty()) {
+            // أول طلب قبل اكتمال المطابقة الأولى: أصفار حتى تنتهي في الخلفية
+            reconcileInBackground();
+        }
+        return counters;
+    }
+
+    /**
+     * توزيع الحالات لكيان (كل قيم الـ enum موجودة، الغائبة = 0)
+     */
+    public Map<String, Long> statusDistribution(String entity, Enum<?>[] statuses) {
+        if (!hasStatus(entity)) {
+            throw new IllegalArgumentException("Unknown status entity: " + entity);
+        }
+        Map<String, Long> counters = new HashMap<>();
+        jdbcTemplate.query("SELECT metric, value FROM admin_stat_counters WHERE metric LIKE ?", rs -> {
+            counters.put(rs.getString(1), rs.getLong(2));
+        }, entity + ".status.%");
+
+        Map<String, Long> distribution = new LinkedHashMap<>();
+        for (Enum<?> status : statuses) {
+            distribution.put(status.name(), counters.getOrDefault(status(entity, status.name()), 0L));
+        }
+        return distribution;
+    }
+
+    /**
+     * سلسلة يومية (UTC) لآخر days يوم، الأيام بدون قيمة = 0
+     */
+    public List<Map<String, Object>> dailySeries(String metric, int days) {
+        int window = Math.max(1, Math.min(days, dailyDays));
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        LocalDate from = today.minusDays(window - 1L);
+
+        Map<LocalDate, Long> values = new HashMap<>();
+        jdbcTemplate.query("SELECT day, value FROM admin_daily_stats WHERE metric = ? AND day BETWEEN ? AND ?", rs -> {
+            values.put(rs.getObject(1, LocalDate.class), rs.getLong(2));
+        }, metric, from, today);
+
+        List<Map<String, Object>> series = new ArrayList<>(window);
+        for (LocalDate date = from; !date.isAfter(today); date = date.plusDays(1)) {
+            Map<String, Object> dataPoint = new HashMap<>();
+            dataPoint.put("date", date.toString());
+            dataPoint.put("count", values.getOrDefault(date, 0L));
+            series.add(dataPoint);
+        }
+        return series;
+    }
+
+    public static LocalDate utcDay(OffsetDateTime timestamp) {
+        return timestamp != null ? timestamp.atZoneSameInstant(ZoneOffset.UTC).toLocalDate() : LocalDate.now(ZoneOffset.UTC);
+    }
+}
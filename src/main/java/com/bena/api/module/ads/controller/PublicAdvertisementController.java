@@ -1,6 +1,9 @@
 package com.bena.api.module.ads.controller;
 
 import com.bena.api.common.dto.ApiResponse;
+import com.bena.api.common.service.ImageDerivativeService;
+import com.bena.api.common.service.ImageDerivatives;
+import com.bena.api.module.ads.dto.ActiveAdvertisement;
 import com.bena.api.module.ads.dto.AdvertisementResponse;
 import com.bena.api.module.ads.enums.AdSection;
 import com.bena.api.module.ads.mapper.AdvertisementMapper;
@@ -13,6 +16,7 @@ import org.springframework.web.bind.annotation.*;
 
 import java.time.OffsetDateTime;
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/v1/ads")
@@ -21,15 +25,23 @@ import java.util.List;
 public class PublicAdvertisementController {
 
     private final AdvertisementService advertisementService;
+    private final ImageDerivativeService imageDerivativeService;
     private final AdvertisementMapper mapper = new AdvertisementMapper();
 
     @GetMapping
     @Operation(summary = "الإعلانات النشطة حسب القسم", description = "يرجع فقط الإعلانات النشطة ضمن وقت العرض وبحسب القسم")
     public ResponseEntity<ApiResponse<List<AdvertisementResponse>>> getActiveAdsBySection(@RequestParam AdSection section) {
-        List<AdvertisementResponse> ads = advertisementService
-                .getActiveAdsBySection(section, OffsetDateTime.now())
-                .stream()
-                .map(mapper::toPublicResponse)
+        OffsetDateTime now = OffsetDateTime.now();
+        // الكاش حسب القسم فقط، فوقت العرض يُفلتر هنا عند كل طلب
+        List<ActiveAdvertisement> active = advertisementService.getActiveAdsBySection(section).stream()
+                .filter(ad -> ad.isShowing(now))
+                .toList();
+        Map<String, ImageDerivatives> derivatives = imageDerivativeService.findAll(active.stream()
+                .map(ad -> ImageDerivativeService.sourceOf(ad.getImageUrl()))
+                .toList());
+
+        List<AdvertisementResponse> ads = active.stream()
+                .map(ad -> mapper.toPublicResponse(ad, derivatives.get(ImageDerivativeService.sourceOf(ad.getImageUrl()))))
                 .toList();
 
         return ResponseEntity.ok(ApiResponse.success(ads));
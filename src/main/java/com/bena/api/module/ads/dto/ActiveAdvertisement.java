@@ -0,0 +1,52 @@
+package com.bena.api.module.ads.dto;
+
+import com.bena.api.module.ads.entity.Advertisement;
+import com.bena.api.module.ads.enums.AdSection;
+import com.bena.api.module.ads.enums.AdTargetType;
+import lombok.Builder;
+import lombok.Value;
+
+import java.time.OffsetDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * إعلان نشط كما يُحفظ في كاش الأقسام. غير قابل للتعديل لأنه يُشارك بين الطلبات،
+ * ويحمل وقت العرض ليُفلتر عند كل طلب (الكاش حسب القسم فقط).
+ */
+@Value
+@Builder
+public class ActiveAdvertisement {
+    UUID id;
+    String title;
+    String imageUrl;
+    AdTargetType targetType;
+    String targetValue;
+    Set<AdSection> sections;
+    Boolean active;
+    Integer priority;
+    OffsetDateTime startAt;
+    OffsetDateTime endAt;
+    OffsetDateTime createdAt;
+
+    public static ActiveAdvertisement from(Advertisement ad) {
+        return ActiveAdvertisement.builder()
+                .id(ad.getId())
+                .title(ad.getTitle())
+                .imageUrl(ad.getImageUrl())
+                .targetType(ad.getTargetType())
+                .targetValue(ad.getTargetValue())
+                .sections(ad.getSections() != null ? Set.copyOf(ad.getSections()) : Set.of())
+                .active(ad.getActive())
+                .priority(ad.getPriority())
+                .startAt(ad.getStartAt())
+                .endAt(ad.getEndAt())
+                .createdAt(ad.getCreatedAt())
+                .build();
+    }
+
+    public boolean isShowing(OffsetDateTime now) {
+        return (startAt == null || !startAt.isAfter(now))
+                && (endAt == null || !endAt.isBefore(now));
+    }
+}
@@ -1,11 +1,13 @@
 package com.bena.api.module.ads.dto;
 
+import com.bena.api.common.dto.ImageVariantDTO;
 import com.bena.api.module.ads.enums.AdSection;
 import com.bena.api.module.ads.enums.AdTargetType;
 import lombok.Builder;
 import lombok.Data;
 
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
@@ -15,6 +17,9 @@ public class AdvertisementResponse {
     private UUID id;
     private String title;
     private String imageUrl;
+    private String thumbnailUrl;
+    private String blurhash;
+    private List<ImageVariantDTO> imageVariants;
     private AdTargetType targetType;
     private String targetValue;
     private Set<AdSection> sections;
@@ -1,5 +1,7 @@
 package com.bena.api.module.ads.mapper;
 
+import com.bena.api.common.service.ImageDerivatives;
+import com.bena.api.module.ads.dto.ActiveAdvertisement;
 import com.bena.api.module.ads.dto.AdminAdvertisementResponse;
 import com.bena.api.module.ads.dto.AdvertisementResponse;
 import com.bena.api.module.ads.entity.Advertisement;
@@ -7,10 +9,36 @@ import com.bena.api.module.ads.entity.Advertisement;
 public class AdvertisementMapper {
 
     public AdvertisementResponse toPublicResponse(Advertisement ad) {
+        return toPublicResponse(ad, null);
+    }
+
+    public AdvertisementResponse toPublicResponse(Advertisement ad, ImageDerivatives derivatives) {
+        return AdvertisementResponse.builder()
+                .id(ad.getId())
+                .title(ad.getTitle())
+                .imageUrl(ad.getImageUrl())
+                .thumbnailUrl(derivatives != null ? derivatives.thumbnailUrl() : null)
+                .blurhash(derivatives != null ? derivatives.blurhash() : null)
+                .imageVariants(derivatives != null ? derivatives.variants() : null)
+                .targetType(ad.getTargetType())
+                .targetValue(ad.getTargetValue())
+                .sections(ad.getSections())
+                .active(ad.getActive())
+                .priority(ad.getPriority())
+                .startAt(ad.getStartAt())
+                .endAt(ad.getEndAt())
+                .createdAt(ad.getCreatedAt())
+                .build();
+    }
+
+    public AdvertisementResponse toPublicResponse(ActiveAdvertisement ad, ImageDerivatives derivatives) {
         return AdvertisementResponse.builder()
                 .id(ad.getId())
                 .title(ad.getTitle())
                 .imageUrl(ad.getImageUrl())
+                .thumbnailUrl(derivatives != null ? derivatives.thumbnailUrl() : null)
+                .blurhash(derivatives != null ? derivatives.blurhash() : null)
+                .imageVariants(derivatives != null ? derivatives.variants() : null)
                 .targetType(ad.getTargetType())
                 .targetValue(ad.getTargetValue())
                 .sections(ad.getSections())
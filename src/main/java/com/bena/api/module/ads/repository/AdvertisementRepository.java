@@ -13,12 +13,14 @@ import java.util.UUID;
 
 public interface AdvertisementRepository extends JpaRepository<Advertisement, UUID> {
 
+    /**
+     * الإعلانات النشطة للقسم التي لم ينتهِ وقت عرضها، بما فيها التي لم يبدأ عرضها بعد
+     */
     @EntityGraph(attributePaths = {"sections"})
     @Query("select distinct a from Advertisement a join a.sections s " +
             "where a.active = true " +
             "and s = :section " +
-            "and (a.startAt is null or a.startAt <= :now) " +
             "and (a.endAt is null or a.endAt >= :now) " +
             "order by a.priority asc, a.createdAt desc")
-    List<Advertisement> findActiveAdsBySection(@Param("section") AdSection section, @Param("now") OffsetDateTime now);
+    List<Advertisement> findActiveAdsBySectionNotEndedBy(@Param("section") AdSection section, @Param("now") OffsetDateTime now);
 }
@@ -3,6 +3,8 @@ package com.bena.api.module.ads.service;
 import com.bena.api.common.exception.InvalidOperationException;
 import com.bena.api.common.exception.ResourceNotFoundException;
 import com.bena.api.common.service.FileUploadService;
+import com.bena.api.config.cache.CacheRegions;
+import com.bena.api.module.ads.dto.ActiveAdvertisement;
 import com.bena.api.module.ads.dto.CreateAdvertisementRequest;
 import com.bena.api.module.ads.dto.UpdateAdvertisementRequest;
 import com.bena.api.module.ads.entity.Advertisement;
@@ -11,6 +13,8 @@ import com.bena.api.module.ads.repository.AdvertisementRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
@@ -33,9 +37,16 @@ public class AdvertisementService {
     @Value("${app.ads.upload-folder:ads}")
     private String adsUploadFolder;
 
+    /**
+     * الإعلانات النشطة للقسم، مخزنة في الكاش حسب القسم فقط كـ ActiveAdvertisement غير قابلة للتعديل.
+     * تشمل الإعلانات التي لم يبدأ عرضها بعد، والمستدعي يفلتر وقت العرض بـ isShowing عند كل طلب
+     */
     @Transactional(readOnly = true)
-    public List<Advertisement> getActiveAdsBySection(AdSection section, OffsetDateTime now) {
-        return advertisementRepository.findActiveAdsBySection(section, now);
+    @Cacheable(value = CacheRegions.ADS_BY_SECTION, key = "#section")
+    public List<ActiveAdvertisement> getActiveAdsBySection(AdSection section) {
+        return advertisementRepository.findActiveAdsBySectionNotEndedBy(section, OffsetDateTime.now()).stream()
+                .map(ActiveAdvertisement::from)
+                .toList();
     }
 
     @Transactional(readOnly = true)
@@ -44,6 +55,7 @@ public class AdvertisementService {
     }
 
     @Transactional
+    @CacheEvict(value = CacheRegions.ADS_BY_SECTION, allEntries = true)
     public Advertisement create(CreateAdvertisementRequest request) {
         validateTimeWindow(request.getStartAt(), request.getEndAt());
 
@@ -63,6 +75,7 @@ public class AdvertisementService {
     }
 
     @Transactional
+    @CacheEvict(value = CacheRegions.ADS_BY_SECTION, allEntries = true)
     public Advertisement update(UUID id, UpdateAdvertisementRequest request) {
         Advertisement ad = advertisementRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("الإعلان غير موجود"));
@@ -86,6 +99,7 @@ public class AdvertisementService {
     }
 
     @Transactional
+    @CacheEvict(value = CacheRegions.ADS_BY_SECTION, allEntries = true)
     public void delete(UUID id) {
         if (!advertisementRepository.existsById(id)) {
             throw new ResourceNotFoundException("الإعلان غير موجود");
@@ -113,7 +113,8 @@ public interface AuditLogRepository extends JpaRepository<AuditLog, Long> {
     AuditLog findLastActivityByUserId(@Param("userId") UUID userId);
 
     /**
-     * حذف السجلات القديمة (للتنظيف الدوري)
+     * عدد السجلات منذ تاريخ معين (يقرأ أقسام الفترة فقط)
      */
-    void deleteByCreatedAtBefore(OffsetDateTime beforeDate);
+    @Query("SELECT COUNT(a) FROM AuditLog a WHERE a.createdAt >= :since")
+    long countSince(@Param("since") OffsetDateTime since);
 }
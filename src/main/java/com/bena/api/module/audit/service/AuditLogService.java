@@ -13,7 +13,6 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Service;
@@ -31,6 +30,7 @@ import java.util.UUID;
 /**
  * خدمة تسجيل التدقيق (Audit Log Service)
  * تسجل جميع العمليات الحساسة في النظام بشكل غير متزامن
+ * (السجلات تُبنى في خيط الطلب ثم تُحفظ على دفعات عبر AuditLogWriter)
  */
 @Service
 @RequiredArgsConstructor
@@ -38,6 +38,8 @@ import java.util.UUID;
 public class AuditLogService {
 
     private final AuditLogRepository auditLogRepository;
+    private final AuditLogWriter auditLogWriter;
+    private final AuditPartitionMaintenance partitionMaintenance;
     private final ObjectMapper objectMapper;
 
     // ==================== Logging Methods ====================
@@ -45,12 +47,10 @@ public class AuditLogService {
     /**
      * تسجيل عملية بشكل غير متزامن (لا تؤثر على أداء العملية الأصلية)
      */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logAsync(AuditAction action, AuditTargetType targetType, String targetId, String description) {
         try {
             AuditLog auditLog = buildAuditLog(action, targetType, targetId, description, null, null, AuditStatus.SUCCESS, null);
-            auditLogRepository.save(auditLog);
+            auditLogWriter.enqueue(auditLog);
             log.debug("📝 Audit logged: {} on {} ({})", action, targetType, targetId);
         } catch (Exception e) {
             log.error("❌ Failed to save audit log: {}", e.getMessage());
@@ -74,15 +74,13 @@ public class AuditLogService {
     /**
      * تسجيل عملية مع القيم القديمة والجديدة
      */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logWithChanges(AuditAction action, AuditTargetType targetType, String targetId, 
                                 String description, Object oldValue, Object newValue) {
         try {
             String oldJson = toJson(oldValue);
             String newJson = toJson(newValue);
             AuditLog auditLog = buildAuditLog(action, targetType, targetId, description, oldJson, newJson, AuditStatus.SUCCESS, null);
-            auditLogRepository.save(auditLog);
+            auditLogWriter.enqueue(auditLog);
             log.debug("📝 Audit logged with changes: {} on {} ({})", action, targetType, targetId);
         } catch (Exception e) {
             log.error("❌ Failed to save audit log: {}", e.getMessage());
@@ -92,12 +90,10 @@ public class AuditLogService {
     /**
      * تسجيل عملية فاشلة
      */
-    @Async
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logFailure(AuditAction action, AuditTargetType targetType, String targetId, String errorMessage) {
         try {
             AuditLog auditLog = buildAuditLog(action, targetType, targetId, "Operation failed", null, null, AuditStatus.FAILURE, errorMessage);
-            auditLogRepository.save(auditLog);
+            auditLogWriter.enqueue(auditLog);
             log.debug("📝 Audit failure logged: {} on {} ({}): {}", action, targetType, targetId, errorMessage);
         } catch (Exception e) {
             log.error("❌ Failed to save audit log: {}", e.getMessage());
@@ -107,7 +103,6 @@ public class AuditLogService {
     /**
      * تسجيل تنبيه أمني
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
     public void logSecurityAlert(String description, String ipAddress) {
         try {
             AuditLog auditLog = AuditLog.builder()
@@ -116,9 +111,10 @@ public class AuditLogService {
                     .description(description)
                     .ipAddress(ipAddress)
                     .status(AuditStatus.SUCCESS)
+                    .createdAt(OffsetDateTime.now())
                     .build();
             populateRequestInfo(auditLog);
-            auditLogRepository.save(auditLog);
+            auditLogWriter.enqueue(auditLog);
             log.warn("🚨 Security alert: {}", description);
         } catch (Exception e) {
             log.error("❌ Failed to save security alert: {}", e.getMessage());
@@ -140,9 +136,10 @@ public class AuditLogService {
                     .targetId(userId.toString())
                     .description("User logged in successfully")
                     .status(AuditStatus.SUCCESS)
+                    .createdAt(OffsetDateTime.now())
                     .build();
             populateRequestInfo(auditLog);
-            auditLogRepository.save(auditLog);
+            auditLogWriter.enqueue(auditLog);
         } catch (Exception e) {
             log.error("❌ Failed to log login: {}", e.getMessage());
         }
@@ -160,9 +157,10 @@ public class AuditLogService {
                     .description("Login failed: " + reason)
                     .status(AuditStatus.FAILURE)
                     .errorMessage(reason)
+                    .createdAt(OffsetDateTime.now())
                     .build();
             populateRequestInfo(auditLog);
-            auditLogRepository.save(auditLog);
+            auditLogWriter.enqueue(auditLog);
         } catch (Exception e) {
             log.error("❌ Failed to log failed login: {}", e.getMessage());
         }
@@ -252,8 +250,9 @@ public class AuditLogService {
         List<Object[]> userActivity = auditLogRepository.getUserActivitySince(since, Pageable.ofSize(10));
         stats.put("topActiveUsers", userActivity);
         
-        // إجمالي العمليات
-        stats.put("totalLogs", auditLogRepository.count());
+        // إجمالي العمليات (تقدير من إحصائيات الأقسام) وعدد عمليات الفترة
+        stats.put("totalLogs", partitionMaintenance.estimatedRowCount());
+        stats.put("periodLogs", auditLogRepository.countSince(since));
         stats.put("period", days + " days");
         
         return stats;
@@ -282,6 +281,7 @@ public class AuditLogService {
                 .newValue(newValue)
                 .status(status)
                 .errorMessage(errorMessage)
+                .createdAt(OffsetDateTime.now())
                 .build();
 
         // استخراج معلومات المستخدم الحالي
@@ -336,16 +336,4 @@ public class AuditLogService {
             return obj.toString();
         }
     }
-
-    // ==================== Cleanup ====================
-
-    /**
-     * حذف السجلات القديمة (يُنفذ بشكل دوري)
-     */
-    @Transactional
-    public void cleanupOldLogs(int retentionDays) {
-        OffsetDateTime cutoff = OffsetDateTime.now().minusDays(retentionDays);
-        auditLogRepository.deleteByCreatedAtBefore(cutoff);
-        log.info("🧹 Cleaned up audit logs older than {} days", retentionDays);
-    }
 }
@@ -0,0 +1,259 @@
+package com.bena.api.module.audit.service;
+
+import com.bena.api.module.audit.entity.AuditLog;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * كاتب سجلات التدقيق (write-behind):
+ * - ring buffer بدون أقفال (عدة منتجين، مستهلك واحد)
+ * - خيط كتابة واحد يحفظ بـ JDBC batch عند امتلاء الدفعة أو انتهاء المهلة
+ * - عند امتلاء الـ buffer: BLOCK (انتظار محدود ثم إسقاط) أو DROP (إسقاط فوري)
+ * - تفريغ الـ buffer عند الإيقاف
+ * الإحصائيات: /actuator/metrics/audit.events
+ */
+@Component
+@Slf4j
+public class AuditLogWriter {
+
+    public enum OverflowPolicy {
+        BLOCK,
+        DROP
+    }
+
+    private static final String INSERT_SQL = """
+            INSERT INTO audit_logs (user_id, user_email, action, target_type, target_id, description,
+                                    old_value, new_value, ip_address, user_agent, request_path,
+                                    request_method, status, error_message, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final int capacity;
+    private final int mask;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final OverflowPolicy overflowPolicy;
+    private final long blockTimeoutNanos;
+
+    // Ring buffer: المنتجون يحجزون tail بـ CAS، والمستهلك وحده يحرك head
+    private final AtomicReferenceArray<AuditLog> slots;
+    private final AtomicLong tail = new AtomicLong();
+    private volatile long head;
+
+    private final Counter accepted;
+    private final Counter dropped;
+    private final Counter written;
+    private final Counter failed;
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AuditLogWriter(
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.audit.buffer-size:8192}") int bufferSize,
+            @Value("${app.audit.batch-size:200}") int batchSize,
+            @Value("${app.audit.flush-interval-ms:500}") long flushIntervalMs,
+            @Value("${app.audit.overflow-policy:BLOCK}") OverflowPolicy overflowPolicy,
+            @Value("${app.audit.block-timeout-ms:20}") long blockTimeoutMs
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        // أقرب قوة للعدد 2 لاستخدام mask بدلاً من باقي القسمة
+        this.capacity = Integer.highestOneBit(Math.max(2, bufferSize - 1)) << 1;
+        this.mask = capacity - 1;
+        this.batchSize = Math.max(1, Math.min(batchSize, capacity));
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+        this.overflowPolicy = overflowPolicy;
+        this.blockTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(blockTimeoutMs);
+        this.slots = new AtomicReferenceArray<>(capacity);
+
+        this.accepted = meterRegistry.counter("audit.events", "result", "accepted");
+        this.dropped = meterRegistry.counter("audit.events", "result", "dropped");
+        this.written = meterRegistry.counter("audit.events", "result", "written");
+        this.failed = meterRegistry.counter("audit.events", "result", "failed");
+        meterRegistry.gauge("audit.buffer.size", this, AuditLogWriter::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        writer = new Thread(this::run, "audit-writer");
+        writer.setDaemon(true);
+        writer.start();
+        log.info("✅ Audit writer started: buffer={}, batch={}, policy={}", capacity, batchSize, overflowPolicy);
+    }
+
+    /**
+     * إيقاف الخيط بعد تفريغ كل السجلات المتبقية
+     */
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (writer != null) {
+            LockSupport.unpark(writer);
+            try {
+                writer.join(10000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        int remaining = size();
+        if (remaining > 0) {
+            log.warn("⚠️ Audit writer stopped with {} unsaved logs", remaining);
+        } else {
+            log.info("🛑 Audit writer drained and stopped");
+        }
+    }
+
+    /**
+     * إضافة سجل للـ buffer. يرجع false إذا أُسقط السجل.
+     */
+    public boolean enqueue(AuditLog auditLog) {
+        if (tryOffer(auditLog)) {
+            accepted.increment();
+            return true;
+        }
+
+        if (overflowPolicy == OverflowPolicy.BLOCK && running) {
+            long deadline = System.nanoTime() + blockTimeoutNanos;
+            LockSupport.unpark(writer);
+            while (System.nanoTime() < deadline) {
+                LockSupport.parkNanos(50_000);
+                if (tryOffer(auditLog)) {
+                    accepted.increment();
+                    return true;
+                }
+            }
+        }
+
+        dropped.increment();
+        log.warn("⚠️ Audit buffer full, dropping {} log", auditLog.getAction());
+        return false;
+    }
+
+    public int size() {
+        return (int) (tail.get() - head);
+    }
+
+    private boolean tryOffer(AuditLog auditLog) {
+        while (true) {
+            long t = tail.get();
+            if (t - head >= capacity) {
+                return false;
+            }
+            if (tail.compareAndSet(t, t + 1)) {
+                slots.set((int) (t & mask), auditLog);
+                if (t + 1 - head >= batchSize) {
+                    LockSupport.unpark(writer);
+                }
+                return true;
+            }
+        }
+    }
+
+    // ==================== خيط الكتابة ====================
+
+    private void run() {
+        List<AuditLog> batch = new ArrayList<>(batchSize);
+        long batchStartedAt = 0;
+
+        while (true) {
+            AuditLog next = poll();
+            if (next != null) {
+                if (batch.isEmpty()) {
+                    batchStartedAt = System.nanoTime();
+                }
+                batch.add(next);
+                if (batch.size() >= batchSize) {
+                    flush(batch);
+                }
+                continue;
+            }
+
+            boolean stopping = !running;
+            if (!batch.isEmpty() && (stopping || System.nanoTime() - batchStartedAt >= flushIntervalNanos)) {
+                flush(batch);
+                continue;
+            }
+            if (stopping && size() == 0) {
+                return;
+            }
+
+            // المنتج حجز المكان لكن لم يكتب السجل بعد، أو الـ buffer فارغ
+            LockSupport.parkNanos(size() > 0 ? 10_000 : Math.min(flushIntervalNanos, 50_000_000L));
+        }
+    }
+
+    private AuditLog poll() {
+        long h = head;
+        int index = (int) (h & mask);
+        AuditLog auditLog = slots.get(index);
+        if (auditLog == null) {
+            return null;
+        }
+        slots.set(index, null);
+        head = h + 1;
+        return auditLog;
+    }
+
+    private void flush(List<AuditLog> batch) {
+        try {
+            jdbcTemplate.batchUpdate(INSERT_SQL, batch, batch.size(), AuditLogWriter::bind);
+            written.increment(batch.size());
+        } catch (Exception e) {
+            log.error("❌ Audit batch of {} failed, retrying row by row: {}", batch.size(), e.getMessage());
+            for (AuditLog auditLog : batch) {
+                try {
+                    jdbcTemplate.update(INSERT_SQL, ps -> bind(ps, auditLog));
+                    written.increment();
+                } catch (Exception rowError) {
+                    failed.increment();
+                    log.error("❌ Failed to save audit log {}: {}", auditLog.getAction(), rowError.getMessage());
+                }
+            }
+        } finally {
+            batch.clear();
+        }
+    }
+
+    private static void bind(PreparedStatement ps, AuditLog auditLog) throws SQLException {
+        ps.setObject(1, auditLog.getUserId(), Types.OTHER);
+        ps.setString(2, truncate(auditLog.getUserEmail(), 100));
+        ps.setString(3, auditLog.getAction().name());
+        ps.setString(4, auditLog.getTargetType().name());
+        ps.setString(5, truncate(auditLog.getTargetId(), 50));
+        ps.setString(6, auditLog.getDescription());
+        ps.setString(7, auditLog.getOldValue());
+        ps.setString(8, auditLog.getNewValue());
+        ps.setString(9, truncate(auditLog.getIpAddress(), 45));
+        ps.setString(10, truncate(auditLog.getUserAgent(), 500));
+        ps.setString(11, truncate(auditLog.getRequestPath(), 200));
+        ps.setString(12, truncate(auditLog.getRequestMethod(), 10));
+        ps.setString(13, auditLog.getStatus() != null ? auditLog.getStatus().name() : AuditLog.AuditStatus.SUCCESS.name());
+        ps.setString(14, auditLog.getErrorMessage());
+        ps.setTimestamp(15, Timestamp.from(auditLog.getCreatedAt().toInstant()));
+    }
+
+    private static String truncate(String value, int maxLength) {
+        return value != null && value.length() > maxLength ? value.substring(0, maxLength) : value;
+    }
+}
@@ -0,0 +1,198 @@
+package com.bena.api.module.audit.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * صيانة أقسام audit_logs الشهرية (V101):
+ * - إنشاء أقسام الأشهر القادمة مسبقاً
+ * - الاحتفاظ (اختياري، معطل افتراضياً): فصل (DETACH) ثم حذف الأقسام الأقدم من مدة الاحتفاظ
+ * حدود الأقسام بتوقيت UTC واسم القسم audit_logs_yYYYYmMM
+ *
+ * إنشاء القسم وفصله يأخذان قفل ACCESS EXCLUSIVE على audit_logs (وجود audit_logs_default يمنع
+ * DETACH ... CONCURRENTLY)، لذلك كل قسم في معاملة قصيرة خاصة به مع lock_timeout:
+ * إذا كانت هناك معاملة طويلة على الجدول نتخطى القسم بدل الانتظار وحجب كل عمليات الإدراج خلفنا.
+ */
+@Component
+@Slf4j
+public class AuditPartitionMaintenance {
+
+    private static final String PARENT_TABLE = "audit_logs";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.ofPattern("'y'yyyy'm'MM");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int monthsAhead;
+    private final int retentionMonths;
+    private final boolean dropEnabled;
+    private final long lockTimeoutMs;
+
+    public AuditPartitionMaintenance(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.audit.partitions-ahead:3}") int monthsAhead,
+            @Value("${app.audit.retention-months:12}") int retentionMonths,
+            @Value("${app.audit.drop-partitions.enabled:false}") boolean dropEnabled,
+            @Value("${app.audit.partition-lock-timeout-ms:2000}") long lockTimeoutMs
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.monthsAhead = monthsAhead;
+        this.retentionMonths = retentionMonths;
+        this.dropEnabled = dropEnabled;
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    /**
+     * يومياً الساعة 3:30 صباحاً
+     */
+    @Scheduled(cron = "0 30 3 * * *")
+    public void maintain() {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        int created = createPartitions(current, current.plusMonths(monthsAhead));
+        int dropped = dropEnabled && retentionMonths > 0
+                ? dropPartitionsBefore(current.minusMonths(retentionMonths))
+                : 0;
+        log.info("🗂️ Audit partitions maintained: {} created, {} dropped", created, dropped);
+    }
+
+    /**
+     * إنشاء الأقسام من الشهر from حتى to (شاملة)، كل قسم في معاملة مستقلة
+     */
+    public int createPartitions(YearMonth from, YearMonth to) {
+        List<String> existing = partitionNames();
+        int created = 0;
+        for (YearMonth month = from; !month.isAfter(to); month = month.plusMonths(1)) {
+            String name = partitionName(month);
+            if (existing.contains(name)) {
+                continue;
+            }
+            YearMonth partitionMonth = month;
+            Boolean done = inShortTransaction("create " + name, () -> {
+                jdbcTemplate.execute(String.format(
+                        "CREATE TABLE IF NOT EXISTS %s PARTITION OF %s FOR VALUES FROM ('%s') TO ('%s')",
+                        name, PARENT_TABLE, startOf(partitionMonth), startOf(partitionMonth.plusMonths(1))));
+                return true;
+            });
+            if (done == null) {
+                break; // نسخة أخرى تعمل الآن
+            }
+            if (done) {
+                created++;
+            }
+        }
+        return created;
+    }
+
+    /**
+     * فصل وحذف كل قسم ينتهي قبل بداية الشهر cutoff، كل قسم في معاملة مستقلة
+     */
+    public int dropPartitionsBefore(YearMonth cutoff) {
+        int dropped = 0;
+        for (String name : partitionNames()) {
+            YearMonth month = monthOf(name);
+            if (month == null || !month.isBefore(cutoff)) {
+                continue;
+            }
+            Boolean done = inShortTransaction("drop " + name, () -> {
+                if (!partitionNames().contains(name)) {
+                    return false;
+                }
+                jdbcTemplate.execute("ALTER TABLE " + PARENT_TABLE + " DETACH PARTITION " + name);
+                jdbcTemplate.execute("DROP TABLE " + name);
+                return true;
+            });
+            if (done == null) {
+                break;
+            }
+            if (done) {
+                log.info("🧹 Dropped audit partition {}", name);
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    /**
+     * تقدير عدد كل السجلات من إحصائيات الأقسام (بدون COUNT على الجدول كاملاً)
+     */
+    public long estimatedRowCount() {
+        Long estimate = jdbcTemplate.queryForObject("""
+                SELECT COALESCE(SUM(GREATEST(c.reltuples, 0)), 0)::BIGINT
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'audit_logs'::regclass
+                """, Long.class);
+        return estimate != null ? estimate : 0;
+    }
+
+    static String partitionName(YearMonth month) {
+        return PARENT_TABLE + "_" + PARTITION_SUFFIX.format(month.atDay(1));
+    }
+
+    static YearMonth monthOf(String partitionName) {
+        String prefix = PARENT_TABLE + "_y";
+        if (!partitionName.startsWith(prefix) || partitionName.length() != prefix.length() + 7) {
+            return null; // audit_logs_default
+        }
+        try {
+            int year = Integer.parseInt(partitionName.substring(prefix.length(), prefix.length() + 4));
+            int month = Integer.parseInt(partitionName.substring(prefix.length() + 5));
+            return YearMonth.of(year, month);
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    private List<String> partitionNames() {
+        return new ArrayList<>(jdbcTemplate.queryForList("""
+                SELECT c.relname
+                FROM pg_inherits i
+                JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'audit_logs'::regclass
+                ORDER BY c.relname
+                """, String.class));
+    }
+
+    private static OffsetDateTime startOf(YearMonth month) {
+        LocalDate firstDay = month.atDay(1);
+        return firstDay.atStartOfDay().atOffset(ZoneOffset.UTC);
+    }
+
+    /**
+     * معاملة قصيرة: قفل advisory على مستوى المعاملة حتى لا تعمل عدة نسخ في نفس الوقت، ثم lock_timeout
+     * للتغيير نفسه. null = نسخة أخرى تملك القفل، false = تُخطي (انتهت مهلة القفل أو لا شيء لعمله)
+     */
+    private Boolean inShortTransaction(String operation, Supplier<Boolean> work) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Boolean locked = jdbcTemplate.queryForObject(
+                        "SELECT pg_try_advisory_xact_lock(hashtext('audit_partition_maintenance'))", Boolean.class);
+                if (!Boolean.TRUE.equals(locked)) {
+                    log.debug("Audit partition maintenance running on another node");
+                    return null;
+                }
+                jdbcTemplate.execute("SET LOCAL lock_timeout = '" + lockTimeoutMs + "ms'");
+                return work.get();
+            });
+        } catch (DataAccessException e) {
+            log.warn("⚠️ Audit partition {} skipped: {}", operation, e.getMostSpecificCause().getMessage());
+            return false;
+        }
+    }
+}
@@ -42,6 +42,7 @@ public class AuthService {
     private final EmailVerificationTokenRepository emailVerificationTokenRepository;
     private final EmailService emailService;
     private final AuditLogService auditLogService;
+    private final PrincipalCache principalCache;
 
     private Long resolveWorkerId(User user) {
         return workerRepository.findByUserId(user.getId())
@@ -145,6 +146,7 @@ public class AuthService {
                 user.setLockTime(java.time.OffsetDateTime.now().plusMinutes(15)); // قفل لمدة 15 دقيقة
             }
             userRepository.save(user);
+            principalCache.evict(user.getId());
             
             // ✅ تسجيل محاولة الدخول الفاشلة
             auditLogService.logFailedLogin(request.getEmail(), "Invalid password");
@@ -157,6 +159,7 @@ public class AuthService {
             user.setFailedLoginAttempts(0);
             user.setLockTime(null);
             userRepository.save(user); // Save resetting of attempts
+            principalCache.evict(user.getId());
         }
 
         // التحقق من أن الحساب نشط
@@ -288,6 +291,7 @@ public class AuthService {
         // تحديث كلمة المرور
         user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        principalCache.evict(user.getId());
         
         // تحديث الـ token كمستخدم
         resetToken.setUsedAt(LocalDateTime.now());
@@ -376,6 +380,7 @@ public class AuthService {
         // تحديث حالة المستخدم
         user.setEmailVerified(true);
         userRepository.save(user);
+        principalCache.evict(user.getId());
         
         // تحديث الـ token
         verificationToken.setVerifiedAt(java.time.LocalDateTime.now());
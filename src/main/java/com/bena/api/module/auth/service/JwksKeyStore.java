@@ -0,0 +1,230 @@
+package com.bena.api.module.auth.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.jsonwebtoken.JwsHeader;
+import io.jsonwebtoken.Locator;
+import io.jsonwebtoken.LocatorAdapter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.Key;
+import java.security.KeyFactory;
+import java.security.PublicKey;
+import java.security.spec.RSAPublicKeySpec;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * مخزن مفاتيح JWKS لتسجيل الدخول الاجتماعي (Apple, Google):
+ * - المفاتيح تُحلل مرة واحدة وتُحفظ حسب kid لكل رابط JWKS
+ * - مدة الصلاحية من Cache-Control (max-age) وتُجدد في الخلفية قبل انتهائها بدون انتظار الطلب
+ * - kid غير معروف (تدوير مفاتيح) يسبب جلباً فورياً، بحد أدنى للفاصل حتى لا يُستغل بتوكنات عشوائية
+ * - طلب جلب واحد فقط لكل رابط في نفس الوقت (single-flight)، والباقي ينتظر نفس النتيجة
+ * الرابط يمرره المستدعي، لذلك يمكن توجيهه لخادم محلي في الاختبار.
+ */
+@Component
+@Slf4j
+public class JwksKeyStore {
+
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private record KeySet(Map<String, PublicKey> keys, Instant fetchedAt, Instant refreshAt, Instant staleUntil) {
+    }
+
+    private final Map<String, KeySet> keySets = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<KeySet>> inFlight = new ConcurrentHashMap<>();
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final Duration defaultTtl;
+    private final Duration maxTtl;
+    private final Duration maxStale;
+    private final Duration minRefetchInterval;
+
+    private final Counter hits;
+    private final Counter fetched;
+    private final Counter failed;
+    private final Counter unknownKid;
+
+    public JwksKeyStore(
+            MeterRegistry meterRegistry,
+            @Value("${app.auth.jwks.timeout-ms:5000}") long timeoutMs,
+            @Value("${app.auth.jwks.default-ttl-seconds:3600}") long defaultTtlSeconds,
+            @Value("${app.auth.jwks.max-ttl-seconds:86400}") long maxTtlSeconds,
+            @Value("${app.auth.jwks.max-stale-seconds:86400}") long maxStaleSeconds,
+            @Value("${app.auth.jwks.min-refetch-seconds:30}") long minRefetchSeconds
+    ) {
+        this.requestTimeout = Duration.ofMillis(timeoutMs);
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(requestTimeout)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.defaultTtl = Duration.ofSeconds(defaultTtlSeconds);
+        this.maxTtl = Duration.ofSeconds(maxTtlSeconds);
+        this.maxStale = Duration.ofSeconds(maxStaleSeconds);
+        this.minRefetchInterval = Duration.ofSeconds(minRefetchSeconds);
+        this.hits = meterRegistry.counter("auth.jwks", "result", "hit");
+        this.fetched = meterRegistry.counter("auth.jwks", "result", "fetched");
+        this.failed = meterRegistry.counter("auth.jwks", "result", "failed");
+        this.unknownKid = meterRegistry.counter("auth.jwks", "result", "unknown_kid");
+    }
+
+    /**
+     * Locator لـ jjwt يختار المفتاح من kid في header التوكن
+     */
+    public Locator<Key> locator(String jwksUrl) {
+        return new LocatorAdapter<>() {
+            @Override
+            protected Key locate(JwsHeader header) {
+                return getKey(jwksUrl, header.getKeyId());
+            }
+        };
+    }
+
+    /**
+     * المفتاح العام لـ kid من رابط JWKS
+     */
+    public PublicKey getKey(String jwksUrl, String kid) {
+        if (kid == null || kid.isBlank()) {
+            throw new IllegalArgumentException("التوكن لا يحتوي على kid");
+        }
+
+        Instant now = Instant.now();
+        KeySet current = keySets.get(jwksUrl);
+        if (current != null && now.isBefore(current.staleUntil())) {
+            if (!now.isBefore(current.refreshAt())) {
+                refreshInBackground(jwksUrl);
+            }
+            PublicKey key = current.keys().get(kid);
+            if (key != null) {
+                hits.increment();
+                return key;
+            }
+            // kid جديد: إما تدوير مفاتيح أو توكن مزيف - لا نعيد الجلب أكثر من مرة في الفاصل الأدنى
+            if (now.isBefore(current.fetchedAt().plus(minRefetchInterval))) {
+                unknownKid.increment();
+                throw new IllegalArgumentException("مفتاح التوقيع غير معروف");
+            }
+        }
+
+        PublicKey key = await(jwksUrl).keys().get(kid);
+        if (key == null) {
+            unknownKid.increment();
+            throw new IllegalArgumentException("مفتاح التوقيع غير معروف");
+        }
+        return key;
+    }
+
+    // ==================== Helpers ====================
+
+    private void refreshInBackground(String jwksUrl) {
+        fetch(jwksUrl).exceptionally(e -> {
+            log.warn("⚠️ JWKS background refresh failed for {}: {}", jwksUrl, e.getMessage());
+            return null;
+        });
+    }
+
+    private KeySet await(String jwksUrl) {
+        try {
+            return fetch(jwksUrl).get(requestTimeout.toMillis() * 2, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("تعذر جلب مفاتيح التحقق", e);
+        } catch (ExecutionException | TimeoutException e) {
+            throw new IllegalStateException("تعذر جلب مفاتيح التحقق", e);
+        }
+    }
+
+    /**
+     * جلب واحد لكل رابط في نفس الوقت - الطلبات المتزامنة تشترك في نفس الـ future
+     */
+    private CompletableFuture<KeySet> fetch(String jwksUrl) {
+        CompletableFuture<KeySet> future = inFlight.computeIfAbsent(jwksUrl, this::load);
+        future.whenComplete((set, e) -> inFlight.remove(jwksUrl, future));
+        return future;
+    }
+
+    private CompletableFuture<KeySet> load(String jwksUrl) {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(jwksUrl))
+                .timeout(requestTimeout)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        throw new IllegalStateException("JWKS HTTP " + response.statusCode());
+                    }
+                    KeySet set = parse(response.body(), ttlOf(response));
+                    keySets.put(jwksUrl, set);
+                    fetched.increment();
+                    log.debug("JWKS refreshed from {}: {} keys", jwksUrl, set.keys().size());
+                    return set;
+                })
+                .whenComplete((set, e) -> {
+                    if (e != null) {
+                        failed.increment();
+                    }
+                });
+    }
+
+    private Duration ttlOf(HttpResponse<?> response) {
+        return response.headers().firstValue("Cache-Control")
+                .map(MAX_AGE::matcher)
+                .filter(Matcher::find)
+                .map(m -> Duration.ofSeconds(Long.parseLong(m.group(1))))
+                .map(ttl -> ttl.compareTo(maxTtl) > 0 ? maxTtl : ttl)
+                .orElse(defaultTtl);
+    }
+
+    private KeySet parse(String body, Duration ttl) {
+        Map<String, PublicKey> keys = new HashMap<>();
+        try {
+            for (JsonNode node : objectMapper.readTree(body).path("keys")) {
+                String kid = node.path("kid").asText(null);
+                // Apple و Google يستخدمان RSA فقط
+                if (kid == null || !"RSA".equals(node.path("kty").asText())
+                        || (node.hasNonNull("use") && !"sig".equals(node.get("use").asText()))) {
+                    continue;
+                }
+                keys.put(kid, rsaKey(node.path("n").asText(), node.path("e").asText()));
+            }
+        } catch (Exception e) {
+            throw new IllegalStateException("JWKS غير صالح: " + e.getMessage(), e);
+        }
+        if (keys.isEmpty()) {
+            throw new IllegalStateException("JWKS لا يحتوي على مفاتيح RSA");
+        }
+
+        Instant now = Instant.now();
+        Instant expiresAt = now.plus(ttl);
+        // التجديد في الخلفية بعد 80% من المدة، والمفاتيح القديمة تبقى صالحة إذا فشل التجديد
+        return new KeySet(Map.copyOf(keys), now, now.plus(ttl.multipliedBy(4).dividedBy(5)), expiresAt.plus(maxStale));
+    }
+
+    private static PublicKey rsaKey(String n, String e) throws Exception {
+        BigInteger modulus = new BigInteger(1, Base64.getUrlDecoder().decode(n));
+        BigInteger exponent = new BigInteger(1, Base64.getUrlDecoder().decode(e));
+        return KeyFactory.getInstance("RSA").generatePublic(new RSAPublicKeySpec(modulus, exponent));
+    }
+}
@@ -1,8 +1,16 @@
 package com.bena.api.module.auth.service;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.ExpiredJwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.security.Keys;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
@@ -10,7 +18,9 @@ import org.springframework.stereotype.Service;
 import javax.crypto.SecretKey;
 import java.nio.charset.StandardCharsets;
 import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.security.SecureRandom;
+import java.util.Base64;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -18,18 +28,56 @@ import java.util.UUID;
 import java.util.function.Function;
 
 @Service
+@RequiredArgsConstructor
 @Slf4j
 public class JwtService {
 
+    public static final String CLAIMS_CACHE_NAME = "auth.jwt-claims";
+
+    private final MeterRegistry meterRegistry;
+
     @Value("${jwt.secret:}")
     private String secretKey;
 
     @Value("${jwt.expiration:86400000}")
     private Long jwtExpiration;
 
+    @Value("${jwt.claims-cache.max-size:20000}")
+    private long claimsCacheMaxSize;
+
     private volatile SecretKey cachedSigningKey;
     private volatile boolean warnedAboutBlankSecret;
 
+    // Claims تم التحقق من توقيعها، مفتاحها SHA-256 للتوكن وتنتهي عند exp الخاص بالتوكن
+    private Cache<String, Claims> verifiedClaims;
+
+    @PostConstruct
+    void initClaimsCache() {
+        verifiedClaims = Caffeine.newBuilder()
+                .maximumSize(claimsCacheMaxSize)
+                .expireAfter(new Expiry<String, Claims>() {
+                    @Override
+                    public long expireAfterCreate(String key, Claims claims, long currentTime) {
+                        Date exp = claims.getExpiration();
+                        long remainingMs = exp != null ? exp.getTime() - System.currentTimeMillis() : 0;
+                        return Math.max(0, remainingMs) * 1_000_000L;
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+
+                    @Override
+                    public long expireAfterRead(String key, Claims claims, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, verifiedClaims, CLAIMS_CACHE_NAME);
+    }
+
     public String generateToken(UUID userId, String role) {
         Map<String, Object> claims = new HashMap<>();
         claims.put("role", role);
@@ -52,6 +100,14 @@ public class JwtService {
                 .compact();
     }
 
+    /**
+     * تحليل التوكن والتحقق من توقيعه وصلاحيته مرة واحدة فقط طوال عمره.
+     * يرمي JwtException إذا كان التوكن غير صالح أو منتهي.
+     */
+    public Claims verify(String token) {
+        return extractAllClaims(token);
+    }
+
     public boolean isTokenValid(String token, String userId) {
         final String tokenUserId = extractUserId(token);
         return (tokenUserId.equals(userId)) && !isTokenExpired(token);
@@ -79,11 +135,35 @@ public class JwtService {
     }
 
     private Claims extractAllClaims(String token) {
-        return Jwts.parser()
+        String key = digest(token);
+        Claims cached = verifiedClaims.getIfPresent(key);
+        if (cached != null) {
+            // حماية إضافية في حال لم يُطرد المدخل بعد
+            if (cached.getExpiration() != null && cached.getExpiration().before(new Date())) {
+                verifiedClaims.invalidate(key);
+                throw new ExpiredJwtException(null, cached, "JWT expired");
+            }
+            return cached;
+        }
+
+        Claims claims = Jwts.parser()
                 .verifyWith(getSigningKey())
                 .build()
                 .parseSignedClaims(token)
                 .getPayload();
+        if (claims.getExpiration() != null) {
+            verifiedClaims.put(key, claims);
+        }
+        return claims;
+    }
+
+    private String digest(String token) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8));
+            return Base64.getEncoder().encodeToString(hash);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
     }
 
     private SecretKey getSigningKey() {
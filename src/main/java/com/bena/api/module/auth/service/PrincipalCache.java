@@ -0,0 +1,79 @@
+package com.bena.api.module.auth.service;
+
+import com.bena.api.module.user.entity.User;
+import com.bena.api.module.user.repository.UserRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * كاش المستخدم المصادق عليه (principal) لتجنب جلب users من قاعدة البيانات في كل طلب.
+ * يُمسح المدخل عند تغيير الدور/كلمة المرور/القفل/التفعيل، والإحصائيات متاحة عبر
+ * /actuator/metrics/cache.gets?tag=cache:auth.principals
+ */
+@Component
+@Slf4j
+public class PrincipalCache {
+
+    public static final String CACHE_NAME = "auth.principals";
+
+    private final UserRepository userRepository;
+    private final Cache<UUID, User> cache;
+
+    public PrincipalCache(
+            UserRepository userRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.security.principal-cache.max-size:10000}") long maxSize,
+            @Value("${app.security.principal-cache.ttl-seconds:60}") long ttlSeconds
+    ) {
+        this.userRepository = userRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+        log.info("✅ Principal cache configured: maxSize={}, ttl={}s", maxSize, ttlSeconds);
+    }
+
+    /**
+     * نسخة خاصة بالطلب الحالي من المستخدم (لا نشارك نفس الكائن بين الطلبات)
+     */
+    public Optional<User> get(UUID userId) {
+        User cached = cache.get(userId, id -> userRepository.findById(id).orElse(null));
+        return Optional.ofNullable(cached).map(user -> user.toBuilder().build());
+    }
+
+    /**
+     * مسح المستخدم من الكاش. داخل معاملة يُمسح مرة ثانية بعد الـ commit
+     * حتى لا يعيد طلب متزامن تحميل النسخة القديمة قبل حفظ التغيير.
+     */
+    public void evict(UUID userId) {
+        if (userId == null) {
+            return;
+        }
+        cache.invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    cache.invalidate(userId);
+                }
+            });
+        }
+    }
+
+    public void evictAll() {
+        cache.invalidateAll();
+    }
+}
@@ -22,19 +22,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.math.BigInteger;
-import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.security.KeyFactory;
-import java.security.interfaces.RSAPublicKey;
-import java.security.spec.RSAPublicKeySpec;
 import java.util.*;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-
 /**
  * خدمة المصادقة الاجتماعية (Google و Apple)
  * Social Authentication Service
@@ -49,12 +38,15 @@ public class SocialAuthService {
     private final WorkerRepository workerRepository;
     private final JwtService jwtService;
     private final AuditLogService auditLogService;
+    private final JwksKeyStore jwksKeyStore;
 
     @Value("${apple.client-id:com.bena.app}")
     private String appleClientId;
 
-    private static final String APPLE_KEYS_URL = "https://appleid.apple.com/auth/keys";
-    private static final ObjectMapper objectMapper = new ObjectMapper();
+    @Value("${app.auth.apple.jwks-url:https://appleid.apple.com/auth/keys}")
+    private String appleJwksUrl;
+
+    private static final String APPLE_ISSUER = "https://appleid.apple.com";
 
     private Long resolveWorkerId(User user) {
         return workerRepository.findByUserId(user.getId())
@@ -296,60 +288,14 @@ public class SocialAuthService {
     }
 
     /**
-     * التحقق من Apple Identity Token
+     * التحقق من Apple Identity Token (المفاتيح من JwksKeyStore بدون طلب خارجي لكل تسجيل دخول)
      */
-    private Claims verifyAppleToken(String identityToken) throws Exception {
-        // جلب مفاتيح Apple العامة
-        HttpClient client = HttpClient.newHttpClient();
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(APPLE_KEYS_URL))
-                .GET()
-                .build();
-
-        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        JsonNode keysNode = objectMapper.readTree(response.body()).get("keys");
-
-        // فك تشفير التوكن للحصول على header
-        String[] parts = identityToken.split("\\.");
-        String header = new String(Base64.getUrlDecoder().decode(parts[0]));
-        JsonNode headerJson = objectMapper.readTree(header);
-        String kid = headerJson.get("kid").asText();
-
-        // البحث عن المفتاح المناسب
-        RSAPublicKey publicKey = null;
-        for (JsonNode keyNode : keysNode) {
-            if (kid.equals(keyNode.get("kid").asText())) {
-                String n = keyNode.get("n").asText();
-                String e = keyNode.get("e").asText();
-                publicKey = buildRSAPublicKey(n, e);
-                break;
-            }
-        }
-
-        if (publicKey == null) {
-            throw new IllegalArgumentException("لم يتم العثور على مفتاح Apple المناسب");
-        }
-
-        // التحقق من التوكن
+    private Claims verifyAppleToken(String identityToken) {
         return Jwts.parser()
-                .verifyWith(publicKey)
+                .keyLocator(jwksKeyStore.locator(appleJwksUrl))
+                .requireIssuer(APPLE_ISSUER)
                 .build()
                 .parseSignedClaims(identityToken)
                 .getPayload();
     }
-
-    /**
-     * بناء مفتاح RSA العام من n و e
-     */
-    private RSAPublicKey buildRSAPublicKey(String n, String e) throws Exception {
-        byte[] nBytes = Base64.getUrlDecoder().decode(n);
-        byte[] eBytes = Base64.getUrlDecoder().decode(e);
-
-        BigInteger modulus = new BigInteger(1, nBytes);
-        BigInteger exponent = new BigInteger(1, eBytes);
-
-        RSAPublicKeySpec spec = new RSAPublicKeySpec(modulus, exponent);
-        KeyFactory factory = KeyFactory.getInstance("RSA");
-        return (RSAPublicKey) factory.generatePublic(spec);
-    }
 }
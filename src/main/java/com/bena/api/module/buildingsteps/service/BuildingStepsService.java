@@ -1,18 +1,20 @@
 package com.bena.api.module.buildingsteps.service;
 
 import com.bena.api.common.service.FileUploadService;
+import com.bena.api.config.cache.CacheRegions;
 import com.bena.api.module.buildingsteps.dto.*;
 import com.bena.api.module.buildingsteps.entity.*;
 import com.bena.api.module.buildingsteps.repository.*;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -38,13 +40,15 @@ public class BuildingStepsService {
     
     // ==================== Categories ====================
     
+    @Cacheable(value = CacheRegions.BUILDING_STEPS, key = "'categories'")
     public List<StepCategoryDto> getAllCategories() {
         return stepCategoryRepository.findByIsActiveTrueOrderByCategoryOrderAsc()
                 .stream()
                 .map(this::mapCategoryToDto)
-                .collect(Collectors.toList());
+                .toList();
     }
     
+    @Cacheable(value = CacheRegions.BUILDING_STEPS, key = "'category:' + #id")
     public StepCategoryDto getCategoryById(Long id) {
         return stepCategoryRepository.findById(id)
                 .map(this::mapCategoryToDto)
@@ -52,6 +56,7 @@ public class BuildingStepsService {
     }
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public StepCategoryDto createCategory(StepCategoryDto dto) {
         StepCategory category = new StepCategory();
         category.setName(dto.getName());
@@ -65,6 +70,7 @@ public class BuildingStepsService {
     }
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public StepCategoryDto updateCategory(Long id, StepCategoryDto dto) {
         StepCategory category = stepCategoryRepository.findById(id).orElse(null);
         if (category == null) return null;
@@ -79,6 +85,7 @@ public class BuildingStepsService {
     }
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public void deleteCategory(Long id) {
         stepCategoryRepository.findById(id).ifPresent(category -> {
             category.setIsActive(false);
@@ -88,27 +95,31 @@ public class BuildingStepsService {
     
     // ==================== Building Steps ====================
     
+    @Cacheable(value = CacheRegions.BUILDING_STEPS, key = "'steps'")
     public List<BuildingStepDto> getAllSteps() {
         return buildingStepRepository.findByIsActiveTrueOrderByStepOrderAsc()
                 .stream()
                 .map(this::mapStepToDto)
-                .collect(Collectors.toList());
+                .toList();
     }
     
     /**
      * جلب عدد الخطوات الإجمالي
      */
+    @Cacheable(value = CacheRegions.BUILDING_STEPS, key = "'count'")
     public long getTotalStepsCount() {
         return buildingStepRepository.countByIsActiveTrue();
     }
     
+    @Cacheable(value = CacheRegions.BUILDING_STEPS, key = "'category-steps:' + #categoryId")
     public List<BuildingStepDto> getStepsByCategory(Long categoryId) {
         return buildingStepRepository.findByCategoryIdAndIsActiveTrueOrderByStepOrderAsc(categoryId)
                 .stream()
                 .map(this::mapStepToDto)
-                .collect(Collectors.toList());
+                .toList();
     }
     
+    @Cacheable(value = CacheRegions.BUILDING_STEPS, key = "'step:' + #id")
     public BuildingStepDto getStepById(Long id) {
         return buildingStepRepository.findById(id)
                 .map(this::mapStepToDto)
@@ -116,6 +127,7 @@ public class BuildingStepsService {
     }
     
     @Transactional(readOnly = true)
+    @Cacheable(value = CacheRegions.BUILDING_STEPS, key = "'details:' + #id")
     public BuildingStepDto getStepWithDetails(Long id) {
         try {
             // استخدام query يجلب كل البيانات مرة واحدة لتجنب LazyInitializationException
@@ -131,7 +143,7 @@ public class BuildingStepsService {
             if (step.getMediaList() != null && !step.getMediaList().isEmpty()) {
                 dto.setMediaList(step.getMediaList().stream()
                         .map(this::mapMediaToDto)
-                        .collect(Collectors.toList()));
+                        .toList());
             }
             
             // تحويل الخطوات الفرعية النشطة فقط
@@ -139,7 +151,7 @@ public class BuildingStepsService {
                 dto.setSubSteps(step.getSubSteps().stream()
                         .filter(s -> s.getIsActive() != null && s.getIsActive())
                         .map(this::mapSubStepToDto)
-                        .collect(Collectors.toList()));
+                        .toList());
             }
             
             log.debug("Successfully fetched building step details for id: {}", id);
@@ -167,6 +179,7 @@ public class BuildingStepsService {
     }
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public BuildingStepDto createStep(BuildingStepDto dto) {
         BuildingStep step = new BuildingStep();
         step.setTitle(dto.getTitle());
@@ -182,6 +195,7 @@ public class BuildingStepsService {
     }
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public BuildingStepDto updateStep(Long id, BuildingStepDto dto) {
         BuildingStep step = buildingStepRepository.findById(id).orElse(null);
         if (step == null) return null;
@@ -198,6 +212,7 @@ public class BuildingStepsService {
     }
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public void deleteStep(Long id) {
         buildingStepRepository.findById(id).ifPresent(step -> {
             step.setIsActive(false);
@@ -208,6 +223,7 @@ public class BuildingStepsService {
     // ==================== Sub Steps ====================
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public SubStepDto createSubStep(Long stepId, SubStepDto dto) {
         BuildingStep step = buildingStepRepository.findById(stepId).orElse(null);
         if (step == null) return null;
@@ -225,6 +241,7 @@ public class BuildingStepsService {
     }
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public SubStepDto updateSubStep(Long id, SubStepDto dto) {
         SubStep subStep = subStepRepository.findById(id).orElse(null);
         if (subStep == null) return null;
@@ -239,6 +256,7 @@ public class BuildingStepsService {
     }
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public void deleteSubStep(Long id) {
         subStepRepository.findById(id).ifPresent(subStep -> {
             subStep.setIsActive(false);
@@ -249,6 +267,7 @@ public class BuildingStepsService {
     // ==================== Media Upload ====================
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public StepMediaDto uploadMedia(Long stepId, Long subStepId, MultipartFile file, 
                                      String mediaType, String title, String caption) throws IOException {
         BuildingStep step = buildingStepRepository.findById(stepId).orElse(null);
@@ -290,6 +309,7 @@ public class BuildingStepsService {
     }
     
     @Transactional
+    @CacheEvict(value = CacheRegions.BUILDING_STEPS, allEntries = true)
     public void deleteMedia(Long mediaId) {
         stepMediaRepository.findById(mediaId).ifPresent(media -> {
             try {
@@ -344,7 +364,7 @@ public class BuildingStepsService {
         dto.setWarnings(subStep.getWarnings());
         dto.setMediaList(subStep.getMediaList().stream()
                 .map(this::mapMediaToDto)
-                .collect(Collectors.toList()));
+                .toList());
         return dto;
     }
     
@@ -2,6 +2,7 @@ package com.bena.api.module.chat.controller;
 
 import com.bena.api.module.chat.entity.Message;
 import com.bena.api.module.chat.service.ChatService;
+import com.bena.api.module.chat.service.WebSocketPresenceService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.messaging.handler.annotation.MessageMapping;
@@ -21,6 +22,7 @@ import java.util.Map;
 public class ChatWebSocketController {
 
     private final ChatService chatService;
+    private final WebSocketPresenceService presenceService;
 
     /**
      * إرسال رسالة جديدة عبر WebSocket
@@ -112,12 +114,13 @@ public class ChatWebSocketController {
     }
 
     /**
-     * Ping للحفاظ على الاتصال
+     * Ping للحفاظ على الاتصال (heartbeat لحالة الاتصال: الجلسة تنتهي إذا توقف)
      * العميل يرسل إلى: /app/ping
      */
     @MessageMapping("/ping")
-    public void ping(Principal principal) {
+    public void ping(Principal principal, SimpMessageHeaderAccessor headerAccessor) {
         if (principal != null) {
+            presenceService.heartbeat(principal.getName(), headerAccessor.getSessionId());
             log.debug("WS ping from userId={}", principal.getName());
         }
     }
@@ -37,20 +37,27 @@ public class Conversation {
     @JoinColumn(name = "job_request_id")
     private JobRequest jobRequest;
 
-    @Column(name = "last_message", columnDefinition = "TEXT")
+    // آخر رسالة والعدادات ومؤشرات القراءة تُحدّث بـ UPDATE ذري فقط (ConversationRepository) وليس بحفظ الكيان
+    @Column(name = "last_message", columnDefinition = "TEXT", updatable = false)
     private String lastMessage;
 
-    @Column(name = "last_message_at")
+    @Column(name = "last_message_at", updatable = false)
     private LocalDateTime lastMessageAt;
 
-    @Column(name = "user_unread_count")
+    @Column(name = "user_unread_count", updatable = false)
     @Builder.Default
     private Integer userUnreadCount = 0;
 
-    @Column(name = "worker_unread_count")
+    @Column(name = "worker_unread_count", updatable = false)
     @Builder.Default
     private Integer workerUnreadCount = 0;
 
+    @Column(name = "user_last_read_message_id", updatable = false)
+    private Long userLastReadMessageId;
+
+    @Column(name = "worker_last_read_message_id", updatable = false)
+    private Long workerLastReadMessageId;
+
     @Column(name = "is_active")
     @Builder.Default
     private Boolean isActive = true;
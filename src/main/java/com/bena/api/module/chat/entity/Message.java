@@ -1,6 +1,7 @@
 package com.bena.api.module.chat.entity;
 
 import jakarta.persistence.*;
+import com.bena.api.module.chat.service.ChatSearchText;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
 
@@ -33,6 +34,10 @@ public class Message {
     @Column(columnDefinition = "TEXT", nullable = false)
     private String content;
 
+    // نص البحث الموحد (فهرس idx_messages_search)
+    @Column(name = "search_text", columnDefinition = "TEXT")
+    private String searchText;
+
     @Enumerated(EnumType.STRING)
     @Column(name = "message_type", length = 20)
     @Builder.Default
@@ -77,6 +82,12 @@ public class Message {
     @Column(name = "created_at")
     private LocalDateTime createdAt;
 
+    @PrePersist
+    @PreUpdate
+    void updateSearchText() {
+        searchText = Boolean.TRUE.equals(isDeleted) ? null : ChatSearchText.normalize(content);
+    }
+
     public enum SenderType {
         USER,
         WORKER
@@ -5,14 +5,24 @@ import com.bena.api.module.chat.entity.Message;
 import java.util.UUID;
 
 public record ChatMessageCreatedEvent(
-        Long messageId,
+        ChatMessageSnapshot message,
         Long conversationId,
         UUID recipientUserId,
         UUID senderUserId,
         String senderName,
         String contentPreview,
-        Message.SenderType senderType,
-        String senderId,
         String clientMessageId
 ) {
+
+    public Long messageId() {
+        return message.id();
+    }
+
+    public Message.SenderType senderType() {
+        return message.senderType();
+    }
+
+    public String senderId() {
+        return message.senderId();
+    }
 }
@@ -1,18 +1,25 @@
 package com.bena.api.module.chat.event;
 
-import com.bena.api.module.chat.entity.Message;
-import com.bena.api.module.chat.repository.MessageRepository;
 import com.bena.api.module.chat.service.WebSocketPresenceService;
 import com.bena.api.module.fcm.service.FcmNotificationSender;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.support.MessageBuilder;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.util.MimeTypeUtils;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @Component
 @RequiredArgsConstructor
@@ -20,7 +27,7 @@ import java.util.Map;
 public class ChatMessageCreatedListener {
 
     private final SimpMessagingTemplate messagingTemplate;
-    private final MessageRepository messageRepository;
+    private final ObjectMapper objectMapper;
     private final WebSocketPresenceService presenceService;
     private final FcmNotificationSender fcmNotificationSender;
 
@@ -35,29 +42,21 @@ public class ChatMessageCreatedListener {
 
     private void sendWebSocketNotification(ChatMessageCreatedEvent event) {
         try {
-            Message message = messageRepository.findById(event.messageId()).orElse(null);
+            ChatMessageSnapshot message = event.message();
 
-            Map<String, Object> payload = new HashMap<>();
+            Map<String, Object> payload = new LinkedHashMap<>();
             payload.put("conversationId", event.conversationId());
             payload.put("type", "NEW_MESSAGE");
-
-            if (message != null) {
-                payload.put("id", message.getId());
-                payload.put("senderType", message.getSenderType() != null ? message.getSenderType().name() : null);
-                payload.put("senderId", message.getSenderId());
-                payload.put("content", message.getContent());
-                payload.put("messageType", message.getMessageType() != null ? message.getMessageType().name() : null);
-                payload.put("attachmentUrl", message.getAttachmentUrl());
-                payload.put("attachmentName", message.getAttachmentName());
-                payload.put("isRead", message.getIsRead());
-                payload.put("isDelivered", message.getIsDelivered());
-                payload.put("createdAt", message.getCreatedAt() != null ? message.getCreatedAt().toString() : null);
-            } else {
-                payload.put("id", event.messageId());
-                payload.put("senderType", event.senderType() != null ? event.senderType().name() : null);
-                payload.put("senderId", event.senderId());
-                payload.put("content", event.contentPreview());
-            }
+            payload.put("id", message.id());
+            payload.put("senderType", message.senderType() != null ? message.senderType().name() : null);
+            payload.put("senderId", message.senderId());
+            payload.put("content", message.content());
+            payload.put("messageType", message.messageType() != null ? message.messageType().name() : null);
+            payload.put("attachmentUrl", message.attachmentUrl());
+            payload.put("attachmentName", message.attachmentName());
+            payload.put("isRead", message.isRead());
+            payload.put("isDelivered", message.isDelivered());
+            payload.put("createdAt", message.createdAt() != null ? message.createdAt().toString() : null);
 
             if (event.clientMessageId() != null && !event.clientMessageId().isBlank()) {
                 payload.put("clientMessageId", event.clientMessageId());
@@ -71,28 +70,35 @@ public class ChatMessageCreatedListener {
                     event.senderUserId()
             );
 
+            // تحويل الـ payload إلى JSON مرة واحدة واستخدام نفس الإطار للمستلم والمرسل
+            Message<byte[]> frame = toJsonFrame(payload);
+
             // 1) إرسال للمستلم
             if (event.recipientUserId() != null) {
-                messagingTemplate.convertAndSendToUser(
-                        event.recipientUserId().toString(),
-                        "/queue/messages",
-                        payload
-                );
+                messagingTemplate.send(userQueue(event.recipientUserId()), frame);
             }
 
             // 2) Echo للمرسل (لإزالة pending عند الإرسال عبر WebSocket)
             if (event.senderUserId() != null && (event.recipientUserId() == null || !event.senderUserId().equals(event.recipientUserId()))) {
-                messagingTemplate.convertAndSendToUser(
-                        event.senderUserId().toString(),
-                        "/queue/messages",
-                        payload
-                );
+                messagingTemplate.send(userQueue(event.senderUserId()), frame);
             }
         } catch (Exception e) {
             log.warn("Failed to push chat message over WebSocket: {}", e.getMessage());
         }
     }
 
+    private Message<byte[]> toJsonFrame(Map<String, Object> payload)
+            throws JsonProcessingException {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setContentType(MimeTypeUtils.APPLICATION_JSON);
+        return MessageBuilder.createMessage(objectMapper.writeValueAsBytes(payload), accessor.getMessageHeaders());
+    }
+
+    // نفس الوجهة التي يبنيها convertAndSendToUser
+    private String userQueue(UUID userId) {
+        return messagingTemplate.getUserDestinationPrefix() + userId + "/queue/messages";
+    }
+
     private void sendPushNotification(ChatMessageCreatedEvent event) {
         try {
             String title = "رسالة جديدة من " + event.senderName() + " 💬";
@@ -0,0 +1,37 @@
+package com.bena.api.module.chat.event;
+
+import com.bena.api.module.chat.entity.Message;
+
+import java.time.LocalDateTime;
+
+/**
+ * نسخة ثابتة من الرسالة كما حُفظت، تُنقل مع الحدث حتى لا يعيد المستمع قراءتها بعد الـ commit
+ */
+public record ChatMessageSnapshot(
+        Long id,
+        Message.SenderType senderType,
+        String senderId,
+        String content,
+        Message.MessageType messageType,
+        String attachmentUrl,
+        String attachmentName,
+        Boolean isRead,
+        Boolean isDelivered,
+        LocalDateTime createdAt
+) {
+
+    public static ChatMessageSnapshot of(Message message) {
+        return new ChatMessageSnapshot(
+                message.getId(),
+                message.getSenderType(),
+                message.getSenderId(),
+                message.getContent(),
+                message.getMessageType(),
+                message.getAttachmentUrl(),
+                message.getAttachmentName(),
+                message.getIsRead(),
+                message.getIsDelivered(),
+                message.getCreatedAt()
+        );
+    }
+}
@@ -32,7 +32,7 @@ public class WebSocketPresenceListener {
         }
 
         if (userId != null && !userId.isBlank()) {
-            presenceService.markConnected(userId);
+            presenceService.markConnected(userId, sha.getSessionId());
         }
     }
 
@@ -52,7 +52,7 @@ public class WebSocketPresenceListener {
         }
 
         if (userId != null && !userId.isBlank()) {
-            presenceService.markDisconnected(userId);
+            presenceService.markDisconnected(userId, sha.getSessionId());
         }
     }
 }
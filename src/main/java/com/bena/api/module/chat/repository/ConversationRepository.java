@@ -4,10 +4,12 @@ import com.bena.api.module.chat.entity.Conversation;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -34,4 +36,62 @@ public interface ConversationRepository extends JpaRepository<Conversation, Long
 
     @Query("SELECT CASE WHEN c.user.id = :currentUserId THEN c.worker.userId ELSE c.user.id END FROM ChatConversation c WHERE c.id = :conversationId AND (c.user.id = :currentUserId OR c.worker.userId = :currentUserId)")
     UUID getOtherPartyUserId(@Param("conversationId") Long conversationId, @Param("currentUserId") UUID currentUserId);
+
+    // أطراف المحادثة بدون تحميل الكيانات (كاش TypingIndicatorService)
+    @Query("SELECT c.user.id AS userId, c.user.fullName AS userName, w.userId AS workerUserId, wu.fullName AS workerUserName " +
+            "FROM ChatConversation c JOIN c.worker w LEFT JOIN User wu ON wu.id = w.userId WHERE c.id = :conversationId")
+    Optional<ParticipantsView> findParticipants(@Param("conversationId") Long conversationId);
+
+    interface ParticipantsView {
+        UUID getUserId();
+
+        String getUserName();
+
+        UUID getWorkerUserId();
+
+        String getWorkerUserName();
+    }
+
+    // ==================== العدادات ومؤشرات القراءة (UPDATE ذري بدون قراءة ثم حفظ) ====================
+
+    // آخر رسالة لا تُستبدل برسالة أقدم إذا انتهت معاملتها بعد معاملة أحدث
+    @Modifying
+    @Query(value = "UPDATE conversations SET worker_unread_count = COALESCE(worker_unread_count, 0) + 1, " +
+            "last_message = CASE WHEN last_message_at IS NULL OR last_message_at <= :sentAt THEN :preview ELSE last_message END, " +
+            "last_message_at = GREATEST(COALESCE(last_message_at, :sentAt), :sentAt), updated_at = :sentAt " +
+            "WHERE id = :conversationId", nativeQuery = true)
+    int recordMessageFromUser(@Param("conversationId") Long conversationId, @Param("preview") String preview,
+                              @Param("sentAt") LocalDateTime sentAt);
+
+    @Modifying
+    @Query(value = "UPDATE conversations SET user_unread_count = COALESCE(user_unread_count, 0) + 1, " +
+            "last_message = CASE WHEN last_message_at IS NULL OR last_message_at <= :sentAt THEN :preview ELSE last_message END, " +
+            "last_message_at = GREATEST(COALESCE(last_message_at, :sentAt), :sentAt), updated_at = :sentAt " +
+            "WHERE id = :conversationId", nativeQuery = true)
+    int recordMessageFromWorker(@Param("conversationId") Long conversationId, @Param("preview") String preview,
+                                @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * قفل صف المحادثة حتى نهاية المعاملة (null إذا لم تكن موجودة)
+     */
+    @Query(value = "SELECT id FROM conversations WHERE id = :conversationId FOR UPDATE", nativeQuery = true)
+    Long lockById(@Param("conversationId") Long conversationId);
+
+    @Modifying
+    @Query(value = "UPDATE conversations SET user_unread_count = 0, " +
+            "user_last_read_message_id = GREATEST(COALESCE(user_last_read_message_id, 0), COALESCE(" +
+            "(SELECT MAX(m.id) FROM messages m WHERE m.conversation_id = :conversationId AND m.sender_type = 'WORKER'), 0)) " +
+            "WHERE id = :conversationId", nativeQuery = true)
+    int markReadByUser(@Param("conversationId") Long conversationId);
+
+    @Modifying
+    @Query(value = "UPDATE conversations SET worker_unread_count = 0, " +
+            "worker_last_read_message_id = GREATEST(COALESCE(worker_last_read_message_id, 0), COALESCE(" +
+            "(SELECT MAX(m.id) FROM messages m WHERE m.conversation_id = :conversationId AND m.sender_type = 'USER'), 0)) " +
+            "WHERE id = :conversationId", nativeQuery = true)
+    int markReadByWorker(@Param("conversationId") Long conversationId);
+
+    @Query(value = "SELECT CASE WHEN :readerType = 'USER' THEN user_last_read_message_id ELSE worker_last_read_message_id END " +
+            "FROM conversations WHERE id = :conversationId", nativeQuery = true)
+    Long getLastReadMessageId(@Param("conversationId") Long conversationId, @Param("readerType") String readerType);
 }
@@ -18,25 +18,46 @@ public interface MessageRepository extends JpaRepository<Message, Long> {
     
     Page<Message> findByConversation_IdOrderByCreatedAtDesc(Long conversationId, Pageable pageable);
     
-    @Modifying
-    @Query("UPDATE ChatMessage m SET m.isRead = true WHERE m.conversation.id = :conversationId AND m.senderType = :senderType")
-    void markAsReadBySenderType(@Param("conversationId") Long conversationId, @Param("senderType") Message.SenderType senderType);
-
     @Modifying
     @Query("UPDATE ChatMessage m SET m.isDelivered = true WHERE m.conversation.id = :conversationId AND m.isDelivered = false")
     void markAsDelivered(@Param("conversationId") Long conversationId);
 
-    // البحث في الرسائل
-    @Query("SELECT m FROM ChatMessage m WHERE m.conversation.id = :conversationId AND m.isDeleted = false AND LOWER(m.content) LIKE LOWER(CONCAT('%', :query, '%')) ORDER BY m.createdAt DESC")
-    Page<Message> searchMessages(@Param("conversationId") Long conversationId, @Param("query") String query, Pageable pageable);
+    // البحث في الرسائل (الأعلى صلة ثم الأحدث) - :tsQuery من ChatSearchText.toTsQuery
+    @Query(value = "SELECT m.id AS id, ts_rank(to_tsvector('simple', COALESCE(m.search_text, '')), q)::float8 AS rank " +
+            "FROM messages m, to_tsquery('simple', :tsQuery) q " +
+            "WHERE m.conversation_id = :conversationId AND m.is_deleted = FALSE " +
+            "AND to_tsvector('simple', COALESCE(m.search_text, '')) @@ q " +
+            "ORDER BY rank DESC, m.created_at DESC LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<SearchHit> searchMessages(@Param("conversationId") Long conversationId, @Param("tsQuery") String tsQuery,
+                                   @Param("limit") int limit, @Param("offset") long offset);
+
+    @Query(value = "SELECT COUNT(*) FROM messages m " +
+            "WHERE m.conversation_id = :conversationId AND m.is_deleted = FALSE " +
+            "AND to_tsvector('simple', COALESCE(m.search_text, '')) @@ to_tsquery('simple', :tsQuery)", nativeQuery = true)
+    long countSearchMessages(@Param("conversationId") Long conversationId, @Param("tsQuery") String tsQuery);
 
     // البحث في جميع محادثات المستخدم
-    @Query("SELECT m FROM ChatMessage m WHERE m.conversation.user.id = :userId AND m.isDeleted = false AND LOWER(m.content) LIKE LOWER(CONCAT('%', :query, '%')) ORDER BY m.createdAt DESC")
-    Page<Message> searchUserMessages(@Param("userId") java.util.UUID userId, @Param("query") String query, Pageable pageable);
+    @Query(value = "SELECT m.id AS id, ts_rank(to_tsvector('simple', COALESCE(m.search_text, '')), q)::float8 AS rank " +
+            "FROM messages m JOIN conversations c ON c.id = m.conversation_id, to_tsquery('simple', :tsQuery) q " +
+            "WHERE c.user_id = :userId AND m.is_deleted = FALSE " +
+            "AND to_tsvector('simple', COALESCE(m.search_text, '')) @@ q " +
+            "ORDER BY rank DESC, m.created_at DESC LIMIT :limit OFFSET :offset", nativeQuery = true)
+    List<SearchHit> searchUserMessages(@Param("userId") java.util.UUID userId, @Param("tsQuery") String tsQuery,
+                                       @Param("limit") int limit, @Param("offset") long offset);
+
+    @Query(value = "SELECT COUNT(*) FROM messages m JOIN conversations c ON c.id = m.conversation_id " +
+            "WHERE c.user_id = :userId AND m.is_deleted = FALSE " +
+            "AND to_tsvector('simple', COALESCE(m.search_text, '')) @@ to_tsquery('simple', :tsQuery)", nativeQuery = true)
+    long countSearchUserMessages(@Param("userId") java.util.UUID userId, @Param("tsQuery") String tsQuery);
+
+    @Query("SELECT m FROM ChatMessage m JOIN FETCH m.conversation WHERE m.id IN :ids")
+    List<Message> findAllWithConversationByIdIn(@Param("ids") java.util.Collection<Long> ids);
+
+    interface SearchHit {
+        Long getId();
 
-    // الرسائل غير المقروءة
-    @Query("SELECT COUNT(m) FROM ChatMessage m WHERE m.conversation.id = :conversationId AND m.isRead = false AND m.senderType = :senderType")
-    long countUnreadMessages(@Param("conversationId") Long conversationId, @Param("senderType") Message.SenderType senderType);
+        Double getRank();
+    }
 
     // جلب الردود على رسالة معينة
     List<Message> findByReplyTo_IdAndIsDeletedFalse(Long replyToId);
@@ -2,17 +2,17 @@ package com.bena.api.module.chat.service;
 
 import com.bena.api.module.chat.entity.Conversation;
 import com.bena.api.module.chat.entity.Message;
-import com.bena.api.module.chat.entity.UserPresence;
 import org.springframework.stereotype.Component;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 @Component
 public class ChatMapper {
 
-    public Map<String, Object> toConversationResponse(Conversation conversation, Map<UUID, UserPresence> presenceByUserId) {
+    public Map<String, Object> toConversationResponse(Conversation conversation, Set<UUID> onlineUserIds) {
         Map<String, Object> response = new HashMap<>();
         response.put("id", conversation.getId());
         response.put("userId", conversation.getUser().getId().toString());
@@ -26,12 +26,9 @@ public class ChatMapper {
         response.put("isActive", conversation.getIsActive());
         response.put("createdAt", conversation.getCreatedAt());
 
-        UserPresence userPresence = presenceByUserId.get(conversation.getUser().getId());
         UUID workerUserId = conversation.getWorker().getUserId();
-        UserPresence workerPresence = workerUserId != null ? presenceByUserId.get(workerUserId) : null;
-
-        response.put("userOnline", userPresence != null && Boolean.TRUE.equals(userPresence.getIsOnline()));
-        response.put("workerOnline", workerPresence != null && Boolean.TRUE.equals(workerPresence.getIsOnline()));
+        response.put("userOnline", onlineUserIds.contains(conversation.getUser().getId()));
+        response.put("workerOnline", workerUserId != null && onlineUserIds.contains(workerUserId));
 
         return response;
     }
@@ -47,7 +44,7 @@ public class ChatMapper {
         response.put("attachmentUrl", message.getAttachmentUrl());
         response.put("attachmentName", message.getAttachmentName());
         response.put("attachmentSize", message.getAttachmentSize());
-        response.put("isRead", message.getIsRead());
+        response.put("isRead", isRead(message));
         response.put("isDelivered", message.getIsDelivered());
         response.put("isEdited", message.getIsEdited());
         response.put("editedAt", message.getEditedAt());
@@ -66,4 +63,19 @@ public class ChatMapper {
 
         return response;
     }
+
+    /**
+     * الرسالة مقروءة إذا كانت ضمن مؤشر قراءة المستلم (الطرف المقابل للمرسل).
+     * is_read يبقى للرسائل القديمة قبل مؤشرات القراءة.
+     */
+    private boolean isRead(Message message) {
+        if (Boolean.TRUE.equals(message.getIsRead())) {
+            return true;
+        }
+        Conversation conversation = message.getConversation();
+        Long lastReadMessageId = message.getSenderType() == Message.SenderType.USER
+                ? conversation.getWorkerLastReadMessageId()
+                : conversation.getUserLastReadMessageId();
+        return lastReadMessageId != null && message.getId() != null && message.getId() <= lastReadMessageId;
+    }
 }
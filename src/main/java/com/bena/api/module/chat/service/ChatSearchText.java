@@ -0,0 +1,174 @@
+package com.bena.api.module.chat.service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * توحيد نص الرسائل للبحث:
+ * - حذف التشكيل والتطويل
+ * - أ/إ/آ/ٱ ← ا، ة ← ه، ى ← ي، ؤ ← و، ئ ← ي
+ * - الأرقام العربية والفارسية ← 0-9، والأحرف اللاتينية صغيرة
+ * نفس القواعد مكررة في V109__add_chat_message_search.sql لتعبئة الرسائل القديمة.
+ */
+public final class ChatSearchText {
+
+    private static final int MAX_TOKENS = 8;
+    // البادئة الأقصر من حرفين تطابق نسبة كبيرة من الفهرس ولا تفيد في البحث
+    private static final int MIN_TOKEN_LENGTH = 2;
+    private static final int MAX_TOKEN_LENGTH = 50;
+
+    public record Highlight(int start, int end) {
+    }
+
+    public record Snippet(String text, List<Highlight> highlights) {
+    }
+
+    private ChatSearchText() {
+    }
+
+    public static String normalize(String text) {
+        if (text == null) {
+            return null;
+        }
+        StringBuilder normalized = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = normalize(text.charAt(i));
+            if (c != 0) {
+                normalized.append(c);
+            }
+        }
+        return normalized.toString();
+    }
+
+    /**
+     * كلمات البحث بعد التوحيد (أحرف وأرقام فقط، بدون تكرار)، والكلمات الأقصر من MIN_TOKEN_LENGTH تُهمل
+     */
+    public static List<String> tokens(String query) {
+        Set<String> tokens = new LinkedHashSet<>();
+        String normalized = normalize(query);
+        if (normalized == null) {
+            return List.of();
+        }
+        StringBuilder token = new StringBuilder();
+        for (int i = 0; i <= normalized.length() && tokens.size() < MAX_TOKENS; i++) {
+            char c = i < normalized.length() ? normalized.charAt(i) : ' ';
+            if (Character.isLetterOrDigit(c)) {
+                if (token.length() < MAX_TOKEN_LENGTH) {
+                    token.append(c);
+                }
+            } else if (!token.isEmpty()) {
+                if (token.length() >= MIN_TOKEN_LENGTH) {
+                    tokens.add(token.toString());
+                }
+                token.setLength(0);
+            }
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * صيغة to_tsquery: كل كلمة كبادئة والكلمات كلها مطلوبة (null إذا لم تبق كلمات)
+     */
+    public static String toTsQuery(List<String> tokens) {
+        if (tokens.isEmpty()) {
+            return null;
+        }
+        return String.join(" & ", tokens.stream().map(token -> token + ":*").toList());
+    }
+
+    /**
+     * مقتطف من النص الأصلي حول أول تطابق، مع مواضع الكلمات المطابقة داخل المقتطف
+     */
+    public static Snippet snippet(String content, List<String> tokens, int maxLength) {
+        if (content == null) {
+            return new Snippet("", List.of());
+        }
+
+        // النص الموحد مع موضع كل حرف في النص الأصلي
+        StringBuilder normalized = new StringBuilder(content.length());
+        int[] origin = new int[content.length()];
+        for (int i = 0; i < content.length(); i++) {
+            char c = normalize(content.charAt(i));
+            if (c != 0) {
+                origin[normalized.length()] = i;
+                normalized.append(c);
+            }
+        }
+
+        List<Highlight> matches = new ArrayList<>();
+        String text = normalized.toString();
+        for (String token : tokens) {
+            int from = 0;
+            int index;
+            while ((index = text.indexOf(token, from)) >= 0) {
+                // تطابق من بداية الكلمة فقط كما في البحث
+                if (index == 0 || !Character.isLetterOrDigit(text.charAt(index - 1))) {
+                    matches.add(new Highlight(origin[index], origin[index + token.length() - 1] + 1));
+                }
+                from = index + 1;
+            }
+        }
+        List<Highlight> merged = merge(matches);
+
+        int start = 0;
+        if (content.length() > maxLength && !merged.isEmpty()) {
+            start = Math.max(0, Math.min(merged.get(0).start() - maxLength / 3, content.length() - maxLength));
+        }
+        int end = Math.min(content.length(), start + maxLength);
+        String prefix = start > 0 ? "…" : "";
+        String suffix = end < content.length() ? "…" : "";
+
+        List<Highlight> highlights = new ArrayList<>();
+        for (Highlight match : merged) {
+            if (match.start() >= start && match.end() <= end) {
+                int shift = prefix.length() - start;
+                highlights.add(new Highlight(match.start() + shift, match.end() + shift));
+            }
+        }
+        return new Snippet(prefix + content.substring(start, end) + suffix, highlights);
+    }
+
+    // ==================== Helpers ====================
+
+    // 0 = حرف يُحذف
+    private static char normalize(char c) {
+        if ((c >= '\u064B' && c <= '\u065F') || c == '\u0670' || c == '\u0640') {
+            return 0;
+        }
+        switch (c) {
+            case 'أ', 'إ', 'آ', 'ٱ':
+                return 'ا';
+            case 'ة':
+                return 'ه';
+            case 'ى', 'ئ':
+                return 'ي';
+            case 'ؤ':
+                return 'و';
+            default:
+                break;
+        }
+        if (c >= '٠' && c <= '٩') {
+            return (char) ('0' + (c - '٠'));
+        }
+        if (c >= '۰' && c <= '۹') {
+            return (char) ('0' + (c - '۰'));
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static List<Highlight> merge(List<Highlight> matches) {
+        matches.sort((a, b) -> Integer.compare(a.start(), b.start()));
+        List<Highlight> merged = new ArrayList<>();
+        for (Highlight match : matches) {
+            Highlight last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && match.start() <= last.end()) {
+                merged.set(merged.size() - 1, new Highlight(last.start(), Math.max(last.end(), match.end())));
+            } else {
+                merged.add(match);
+            }
+        }
+        return merged;
+    }
+}
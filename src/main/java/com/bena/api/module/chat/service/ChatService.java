@@ -6,27 +6,30 @@ import com.bena.api.module.worker.entity.Worker;
 import com.bena.api.module.worker.repository.WorkerRepository;
 import com.bena.api.module.chat.entity.Conversation;
 import com.bena.api.module.chat.entity.Message;
-import com.bena.api.module.chat.entity.TypingIndicator;
 import com.bena.api.module.chat.entity.UserPresence;
 import com.bena.api.module.chat.event.ChatMessageCreatedEvent;
+import com.bena.api.module.chat.event.ChatMessageSnapshot;
 import com.bena.api.module.chat.repository.ConversationRepository;
 import com.bena.api.module.chat.repository.MessageRepository;
-import com.bena.api.module.chat.repository.TypingIndicatorRepository;
 import com.bena.api.module.chat.repository.UserPresenceRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.messaging.simp.SimpMessagingTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
 
 @Service
@@ -34,12 +37,15 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ChatService {
 
+    private static final int SEARCH_SNIPPET_LENGTH = 120;
+
     private final ConversationRepository conversationRepository;
     private final MessageRepository messageRepository;
     private final UserRepository userRepository;
     private final WorkerRepository workerRepository;
     private final UserPresenceRepository presenceRepository;
-    private final TypingIndicatorRepository typingRepository;
+    private final TypingIndicatorService typingIndicatorService;
+    private final WebSocketPresenceService presenceService;
     private final ApplicationEventPublisher eventPublisher;
     private final SimpMessagingTemplate messagingTemplate;
     private final ChatMapper chatMapper;
@@ -131,20 +137,18 @@ public class ChatService {
             }
         }
 
-        Message message = messageBuilder.build();
-        message = messageRepository.save(message);
-
-        // تحديث المحادثة
-        conversation.setLastMessage(content.length() > 100 ? content.substring(0, 100) + "..." : content);
-        conversation.setLastMessageAt(LocalDateTime.now());
-
+        // تحديث المحادثة بـ UPDATE ذري: الرسائل المتزامنة لا تضيع زيادات العداد.
+        // يسبق حفظ الرسالة حتى يُحجز id الرسالة وقفل الصف مأخوذ، فلا تُحفظ رسالة بـ id أقل من
+        // مؤشر قراءة تقدّم أثناء معاملتها (markAsRead يأخذ نفس القفل)
+        String preview = content.length() > 100 ? content.substring(0, 100) + "..." : content;
         if (type == Message.SenderType.USER) {
-            conversation.setWorkerUnreadCount(conversation.getWorkerUnreadCount() + 1);
+            conversationRepository.recordMessageFromUser(conversationId, preview, LocalDateTime.now());
         } else {
-            conversation.setUserUnreadCount(conversation.getUserUnreadCount() + 1);
+            conversationRepository.recordMessageFromWorker(conversationId, preview, LocalDateTime.now());
         }
 
-        conversationRepository.save(conversation);
+        Message message = messageBuilder.build();
+        message = messageRepository.save(message);
 
         // تحديد المستلم
         UUID recipientId;
@@ -165,14 +169,12 @@ public class ChatService {
 
         // نشر الحدث
         eventPublisher.publishEvent(new ChatMessageCreatedEvent(
-                message.getId(),
+                ChatMessageSnapshot.of(message),
                 conversationId,
                 recipientId,
                 senderUserId,
                 senderName,
-                content.length() > 100 ? content.substring(0, 100) + "..." : content,
-                type,
-                senderId,
+                preview,
                 clientMessageId
         ));
 
@@ -266,12 +268,18 @@ public class ChatService {
     }
 
     /**
-     * البحث في الرسائل
+     * البحث في الرسائل (فهرس نصي، ترتيب حسب الصلة، مع مقتطف مميز)
      */
     @Transactional(readOnly = true)
     public Page<Map<String, Object>> searchMessages(Long conversationId, String query, Pageable pageable) {
-        return messageRepository.searchMessages(conversationId, query, pageable)
-                .map(this::toMessageResponse);
+        List<String> tokens = ChatSearchText.tokens(query);
+        String tsQuery = ChatSearchText.toTsQuery(tokens);
+        if (tsQuery == null) {
+            return Page.empty(pageable);
+        }
+        List<MessageRepository.SearchHit> hits = messageRepository.searchMessages(
+                conversationId, tsQuery, pageable.getPageSize(), pageable.getOffset());
+        return toSearchPage(hits, tokens, pageable, () -> messageRepository.countSearchMessages(conversationId, tsQuery));
     }
 
     /**
@@ -279,8 +287,38 @@ public class ChatService {
      */
     @Transactional(readOnly = true)
     public Page<Map<String, Object>> searchUserMessages(UUID userId, String query, Pageable pageable) {
-        return messageRepository.searchUserMessages(userId, query, pageable)
-                .map(this::toMessageResponse);
+        List<String> tokens = ChatSearchText.tokens(query);
+        String tsQuery = ChatSearchText.toTsQuery(tokens);
+        if (tsQuery == null) {
+            return Page.empty(pageable);
+        }
+        List<MessageRepository.SearchHit> hits = messageRepository.searchUserMessages(
+                userId, tsQuery, pageable.getPageSize(), pageable.getOffset());
+        return toSearchPage(hits, tokens, pageable, () -> messageRepository.countSearchUserMessages(userId, tsQuery));
+    }
+
+    private Page<Map<String, Object>> toSearchPage(List<MessageRepository.SearchHit> hits, List<String> tokens,
+                                                   Pageable pageable, LongSupplier total) {
+        Map<Long, Message> messagesById = messageRepository.findAllWithConversationByIdIn(
+                        hits.stream().map(MessageRepository.SearchHit::getId).toList())
+                .stream()
+                .collect(Collectors.toMap(Message::getId, m -> m));
+
+        List<Map<String, Object>> content = new ArrayList<>(hits.size());
+        for (MessageRepository.SearchHit hit : hits) {
+            Message message = messagesById.get(hit.getId());
+            if (message == null) {
+                continue;
+            }
+            Map<String, Object> response = toMessageResponse(message);
+            ChatSearchText.Snippet snippet = ChatSearchText.snippet(message.getContent(), tokens, SEARCH_SNIPPET_LENGTH);
+            response.put("rank", hit.getRank());
+            response.put("snippet", snippet.text());
+            response.put("highlights", snippet.highlights());
+            content.add(response);
+        }
+        // PageableExecutionUtils لا يحسب العدد إذا كانت الصفحة الأولى غير ممتلئة
+        return PageableExecutionUtils.getPage(content, pageable, total);
     }
 
     /**
@@ -298,8 +336,8 @@ public class ChatService {
     @Transactional(readOnly = true)
     public Page<Map<String, Object>> getUserConversations(UUID userId, Pageable pageable) {
         Page<Conversation> page = conversationRepository.findByUser_IdOrderByLastMessageAtDesc(userId, pageable);
-        Map<UUID, UserPresence> presenceByUserId = loadPresenceForConversations(page.getContent());
-        return page.map(c -> toConversationResponse(c, presenceByUserId));
+        Set<UUID> onlineUserIds = loadPresenceForConversations(page.getContent());
+        return page.map(c -> toConversationResponse(c, onlineUserIds));
     }
 
     /**
@@ -308,8 +346,8 @@ public class ChatService {
     @Transactional(readOnly = true)
     public Page<Map<String, Object>> getWorkerConversations(Long workerId, Pageable pageable) {
         Page<Conversation> page = conversationRepository.findByWorker_IdOrderByLastMessageAtDesc(workerId, pageable);
-        Map<UUID, UserPresence> presenceByUserId = loadPresenceForConversations(page.getContent());
-        return page.map(c -> toConversationResponse(c, presenceByUserId));
+        Set<UUID> onlineUserIds = loadPresenceForConversations(page.getContent());
+        return page.map(c -> toConversationResponse(c, onlineUserIds));
     }
 
     /**
@@ -317,21 +355,22 @@ public class ChatService {
      */
     @Transactional
     public void markAsRead(Long conversationId, String readerType) {
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("المحادثة غير موجودة"));
-
-        Message.SenderType senderType = readerType.equalsIgnoreCase("USER")
-                ? Message.SenderType.WORKER
-                : Message.SenderType.USER;
-
-        messageRepository.markAsReadBySenderType(conversationId, senderType);
+        // القفل أولاً حتى يرى استعلام آخر رسالة كل الرسائل المحفوظة قبل تصفير العداد
+        if (conversationRepository.lockById(conversationId) == null) {
+            throw new RuntimeException("المحادثة غير موجودة");
+        }
 
+        // مؤشر القراءة يتقدم لآخر رسالة من الطرف الآخر بدل تحديث is_read لكل رسالة
         if (readerType.equalsIgnoreCase("USER")) {
-            conversation.setUserUnreadCount(0);
+            conversationRepository.markReadByUser(conversationId);
         } else {
-            conversation.setWorkerUnreadCount(0);
+            conversationRepository.markReadByWorker(conversationId);
         }
-        conversationRepository.save(conversation);
+        Long lastReadMessageId = conversationRepository.getLastReadMessageId(
+                conversationId, readerType.equalsIgnoreCase("USER") ? "USER" : "WORKER");
+
+        Conversation conversation = conversationRepository.findById(conversationId)
+                .orElseThrow(() -> new RuntimeException("المحادثة غير موجودة"));
 
         // إرسال تحديث حالة القراءة للطرف الآخر عبر WebSocket
         try {
@@ -348,6 +387,7 @@ public class ChatService {
                 Map<String, Object> payload = new HashMap<>();
                 payload.put("conversationId", conversationId);
                 payload.put("readerType", readerType);
+                payload.put("lastReadMessageId", lastReadMessageId);
                 payload.put("type", "READ_STATUS");
 
                 messagingTemplate.convertAndSendToUser(
@@ -380,93 +420,26 @@ public class ChatService {
     // ==================== مؤشر الكتابة ====================
 
     /**
-     * تحديث حالة الكتابة
+     * تحديث حالة الكتابة (في الذاكرة، بدون قاعدة البيانات)
      */
-    @Transactional
     public void setTyping(Long conversationId, UUID userId, boolean isTyping) {
-        User user = userRepository.findById(userId)
-                .orElseThrow(() -> new RuntimeException("المستخدم غير موجود"));
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("المحادثة غير موجودة"));
-
-        TypingIndicator indicator = typingRepository.findByConversation_IdAndUser_Id(conversationId, userId)
-                .orElseGet(() -> TypingIndicator.builder()
-                        .conversation(conversation)
-                        .user(user)
-                        .build());
-
-        indicator.setIsTyping(isTyping);
-        indicator.setStartedAt(isTyping ? LocalDateTime.now() : null);
-        typingRepository.save(indicator);
-
-        // إرسال عبر WebSocket
-        UUID recipientId = conversation.getUser().getId().equals(userId)
-                ? conversation.getWorker().getUserId()
-                : conversation.getUser().getId();
-
-        Map<String, Object> payload = new HashMap<>();
-        payload.put("conversationId", conversationId);
-        payload.put("userId", userId.toString());
-        payload.put("userName", user.getFullName());
-        payload.put("isTyping", isTyping);
-
-        messagingTemplate.convertAndSendToUser(
-                recipientId.toString(),
-                "/queue/typing",
-                payload
-        );
+        typingIndicatorService.setTyping(conversationId, userId, isTyping);
     }
 
     /**
      * جلب المستخدمين الذين يكتبون في محادثة
      */
     public List<Map<String, Object>> getTypingUsers(Long conversationId) {
-        return typingRepository.findByConversation_IdAndIsTypingTrue(conversationId)
-                .stream()
-                .map(t -> {
-                    Map<String, Object> map = new HashMap<>();
-                    map.put("userId", t.getUser().getId().toString());
-                    map.put("userName", t.getUser().getFullName());
-                    return map;
-                })
-                .collect(Collectors.toList());
+        return typingIndicatorService.getTypingUsers(conversationId);
     }
 
     // ==================== حالة الاتصال ====================
 
     /**
-     * تحديث حالة الاتصال
+     * تحديث حالة الاتصال (في الذاكرة، وuser_presence يُكتب على دفعات)
      */
-    @Transactional
     public void updatePresence(UUID userId, boolean isOnline, Long currentConversationId) {
-        UserPresence presence = presenceRepository.findByUser_Id(userId)
-                .orElseGet(() -> {
-                    User user = userRepository.findById(userId)
-                            .orElseThrow(() -> new RuntimeException("المستخدم غير موجود"));
-                    return UserPresence.builder()
-                            .user(user)
-                            .build();
-                });
-
-        presence.setIsOnline(isOnline);
-        presence.setLastSeenAt(LocalDateTime.now());
-        if (currentConversationId != null) {
-            presence.setCurrentConversationId(currentConversationId);
-        }
-        presenceRepository.save(presence);
-
-        // إرسال تحديث الحالة للأصدقاء/المحادثات النشطة (Broadcast)
-        // للإختصار، سنرسل تنبيه عام للمستخدم (يمكن تحسينه لإرساله فقط للمهتمين)
-        // لكن هنا، العميل (Flutter) يستمع لـ /user/queue/messages بشكل عام
-        // سنرسل رسالة "نظام" خفية
-        /*
-        Map<String, Object> presencePayload = new HashMap<>();
-        presencePayload.put("type", "PRESENCE");
-        presencePayload.put("userId", userId.toString());
-        presencePayload.put("isOnline", isOnline);
-        // هذا يتطلب معرفة من يجب إبلاغه (المحادثات المفتوحة مع هذا المستخدم)
-        // سيتم الاعتماد على الـ Polling عند فتح المحادثة حالياً لتبسيط الـ Traffic
-        */
+        presenceService.updateFromRest(userId, isOnline, currentConversationId);
     }
 
     /**
@@ -475,22 +448,21 @@ public class ChatService {
     public Map<String, Object> getUserPresence(UUID userId) {
         Map<String, Object> result = new HashMap<>();
         result.put("userId", userId.toString());
+        result.put("isOnline", presenceService.isOnline(userId));
 
-        UserPresence presence = presenceRepository.findByUser_Id(userId).orElse(null);
-        if (presence != null) {
-            result.put("isOnline", presence.getIsOnline());
-            result.put("lastSeenAt", presence.getLastSeenAt());
-        } else {
-            result.put("isOnline", false);
-            result.put("lastSeenAt", null);
+        // آخر ظهور: ما لم يُكتب بعد، وإلا من user_presence
+        LocalDateTime lastSeenAt = presenceService.pendingLastSeenAt(userId);
+        if (lastSeenAt == null) {
+            lastSeenAt = presenceRepository.findByUser_Id(userId).map(UserPresence::getLastSeenAt).orElse(null);
         }
+        result.put("lastSeenAt", lastSeenAt);
 
         return result;
     }
 
-    private Map<UUID, UserPresence> loadPresenceForConversations(List<Conversation> conversations) {
+    private Set<UUID> loadPresenceForConversations(List<Conversation> conversations) {
         if (conversations == null || conversations.isEmpty()) {
-            return java.util.Map.of();
+            return Set.of();
         }
 
         List<UUID> userIds = conversations.stream()
@@ -502,27 +474,17 @@ public class ChatService {
                 .distinct()
                 .toList();
 
-        if (userIds.isEmpty()) {
-            return java.util.Map.of();
-        }
-
-        return presenceRepository.findAllByUser_IdIn(userIds)
-                .stream()
-                .filter(p -> p.getUser() != null && p.getUser().getId() != null)
-                .collect(java.util.stream.Collectors.toMap(p -> p.getUser().getId(), p -> p, (a, b) -> a));
+        return presenceService.isOnline(userIds);
     }
 
     /**
      * جلب حالة الطرف الآخر في المحادثة
      */
     public Map<String, Object> getOtherPartyPresence(Long conversationId, UUID currentUserId) {
-        Conversation conversation = conversationRepository.findById(conversationId)
-                .orElseThrow(() -> new RuntimeException("المحادثة غير موجودة"));
-
-        UUID otherUserId = conversation.getUser().getId().equals(currentUserId)
-                ? conversation.getWorker().getUserId()
-                : conversation.getUser().getId();
-
+        UUID otherUserId = conversationRepository.getOtherPartyUserId(conversationId, currentUserId);
+        if (otherUserId == null) {
+            throw new RuntimeException("المحادثة غير موجودة");
+        }
         return getUserPresence(otherUserId);
     }
 
@@ -550,12 +512,11 @@ public class ChatService {
     }
 
     public Map<String, Object> toConversationResponse(Conversation conversation) {
-        Map<UUID, UserPresence> presenceByUserId = java.util.Map.of();
-        return toConversationResponse(conversation, presenceByUserId);
+        return toConversationResponse(conversation, loadPresenceForConversations(List.of(conversation)));
     }
 
-    public Map<String, Object> toConversationResponse(Conversation conversation, Map<UUID, UserPresence> presenceByUserId) {
-        return chatMapper.toConversationResponse(conversation, presenceByUserId);
+    public Map<String, Object> toConversationResponse(Conversation conversation, Set<UUID> onlineUserIds) {
+        return chatMapper.toConversationResponse(conversation, onlineUserIds);
     }
 
     public Map<String, Object> toMessageResponse(Message message) {
@@ -0,0 +1,280 @@
+package com.bena.api.module.chat.service;
+
+import com.bena.api.config.cluster.ClusterBus;
+import com.bena.api.module.chat.repository.ConversationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+
+/**
+ * مؤشر الكتابة في الذاكرة بدل جدول typing_indicators:
+ * - الحالة لكل (محادثة، مستخدم) تنتهي بعد ttl-ms بدون تحديث، وعند انتهائها يُرسل "توقف عن الكتابة"
+ * - الإطارات المتكررة تُدمج: "يكتب" لا يُعاد إرساله قبل throttle-ms، و"توقف" لا يُرسل إلا بعد "يكتب"
+ * - أطراف المحادثة (المستلم والأسماء) من كاش بدل تحميل User وConversation في كل إطار
+ * - حالة النسخ الأخرى تصل عبر ClusterBus حتى تعيد getTypingUsers نفس النتيجة من أي نسخة
+ * - الحالات مفهرسة بالمحادثة: getTypingUsers يقرأ محادثة واحدة بدل المرور على كل الحالات
+ * الإحصائيات: /actuator/metrics/chat.typing
+ */
+@Service
+@Slf4j
+public class TypingIndicatorService {
+
+    public static final String PARTICIPANTS_CACHE_NAME = "chat.participants";
+
+    private static final String TOPIC = "typing";
+
+    private final ConversationRepository conversationRepository;
+    private final SimpMessagingTemplate messagingTemplate;
+    private final ClusterBus clusterBus;
+    private final ObjectMapper objectMapper;
+    private final long ttlMs;
+    private final long throttleMs;
+
+    private final Cache<Long, Optional<Participants>> participants;
+    // conversationId -> (userId -> الحالة). الخريطة الداخلية تُعدّل فقط داخل compute الخارجي للمحادثة
+    private final Map<Long, Map<UUID, State>> states = new ConcurrentHashMap<>();
+
+    private final Counter sent;
+    private final Counter coalesced;
+    private final Counter expired;
+    private final Counter rejected;
+
+    // remote = الحالة من نسخة أخرى (تلك النسخة ترسل الإطارات لمستلمها)
+    private record State(long expiresAt, long lastSentAt, boolean remote) {
+    }
+
+    private record TypingEvent(String nodeId, Long conversationId, UUID userId, boolean typing) {
+    }
+
+    public record Participants(UUID userId, String userName, UUID workerUserId, String workerUserName) {
+
+        UUID recipientOf(UUID senderId) {
+            if (senderId.equals(userId)) {
+                return workerUserId;
+            }
+            return senderId.equals(workerUserId) ? userId : null;
+        }
+
+        String nameOf(UUID id) {
+            return id.equals(userId) ? userName : workerUserName;
+        }
+    }
+
+    public TypingIndicatorService(
+            ConversationRepository conversationRepository,
+            SimpMessagingTemplate messagingTemplate,
+            ClusterBus clusterBus,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.chat.typing.ttl-ms:6000}") long ttlMs,
+            @Value("${app.chat.typing.throttle-ms:2000}") long throttleMs,
+            @Value("${app.chat.participants-cache.max-size:20000}") long participantsMaxSize,
+            @Value("${app.chat.participants-cache.ttl-seconds:600}") long participantsTtlSeconds
+    ) {
+        this.conversationRepository = conversationRepository;
+        this.messagingTemplate = messagingTemplate;
+        this.clusterBus = clusterBus;
+        this.objectMapper = objectMapper;
+        this.ttlMs = ttlMs;
+        this.throttleMs = throttleMs;
+        this.participants = Caffeine.newBuilder()
+                .maximumSize(participantsMaxSize)
+                .expireAfterWrite(Duration.ofSeconds(participantsTtlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, participants, PARTICIPANTS_CACHE_NAME);
+
+        this.sent = meterRegistry.counter("chat.typing", "result", "sent");
+        this.coalesced = meterRegistry.counter("chat.typing", "result", "coalesced");
+        this.expired = meterRegistry.counter("chat.typing", "result", "expired");
+        this.rejected = meterRegistry.counter("chat.typing", "result", "rejected");
+        meterRegistry.gauge("chat.typing.active", states,
+                s -> s.values().stream().mapToInt(Map::size).sum());
+
+        clusterBus.subscribe(TOPIC, this::onRemoteEvent);
+    }
+
+    /**
+     * تحديث حالة الكتابة (المستخدم يجب أن يكون طرفاً في المحادثة)
+     */
+    public void setTyping(Long conversationId, UUID userId, boolean isTyping) {
+        Participants conversation = participants(conversationId);
+        UUID recipientId = conversation != null ? conversation.recipientOf(userId) : null;
+        if (recipientId == null) {
+            rejected.increment();
+            throw new RuntimeException("المحادثة غير موجودة");
+        }
+
+        long now = System.currentTimeMillis();
+        if (isTyping) {
+            boolean[] send = {false};
+            update(conversationId, userId, (id, state) -> {
+                send[0] = state == null || state.remote() || now - state.lastSentAt() >= throttleMs;
+                return new State(now + ttlMs, send[0] ? now : state.lastSentAt(), false);
+            });
+            if (!send[0]) {
+                coalesced.increment();
+                return;
+            }
+        } else if (!remove(conversationId, userId, null)) {
+            // لم يكن يكتب (أو انتهت المدة وأُرسل التوقف)
+            coalesced.increment();
+            return;
+        }
+
+        send(conversation, conversationId, userId, recipientId, isTyping);
+        publish(new TypingEvent(clusterBus.nodeId(), conversationId, userId, isTyping));
+    }
+
+    /**
+     * المستخدمون الذين يكتبون الآن في محادثة
+     */
+    public List<Map<String, Object>> getTypingUsers(Long conversationId) {
+        Map<UUID, State> users = states.get(conversationId);
+        if (users == null) {
+            return List.of();
+        }
+        long now = System.currentTimeMillis();
+        List<Map<String, Object>> result = new ArrayList<>();
+        Participants conversation = null;
+        for (Map.Entry<UUID, State> entry : users.entrySet()) {
+            if (entry.getValue().expiresAt() <= now) {
+                continue;
+            }
+            if (conversation == null) {
+                conversation = participants(conversationId);
+                if (conversation == null) {
+                    return List.of();
+                }
+            }
+            UUID userId = entry.getKey();
+            Map<String, Object> map = new HashMap<>();
+            map.put("userId", userId.toString());
+            map.put("userName", conversation.nameOf(userId));
+            result.add(map);
+        }
+        return result;
+    }
+
+    /**
+     * إنهاء الحالات المنتهية وإرسال "توقف عن الكتابة" للحالات المحلية
+     */
+    @Scheduled(fixedDelayString = "${app.chat.typing.sweep-ms:1000}", initialDelay = 5000)
+    public void expire() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<Long, Map<UUID, State>> conversationStates : states.entrySet()) {
+            Long conversationId = conversationStates.getKey();
+            for (Map.Entry<UUID, State> entry : conversationStates.getValue().entrySet()) {
+                State state = entry.getValue();
+                UUID userId = entry.getKey();
+                if (state.expiresAt() > now || !remove(conversationId, userId, state)) {
+                    continue;
+                }
+                if (state.remote()) {
+                    continue;
+                }
+                expired.increment();
+                try {
+                    Participants conversation = participants(conversationId);
+                    UUID recipientId = conversation != null ? conversation.recipientOf(userId) : null;
+                    if (recipientId != null) {
+                        send(conversation, conversationId, userId, recipientId, false);
+                    }
+                } catch (Exception e) {
+                    log.warn("⚠️ Failed to send typing stop for conversation {}: {}", conversationId, e.getMessage());
+                }
+            }
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * تعديل حالة مستخدم تحت قفل المحادثة، وحذف المحادثة من الفهرس عند خلوها
+     */
+    private void update(Long conversationId, UUID userId, BiFunction<UUID, State, State> change) {
+        states.compute(conversationId, (id, users) -> {
+            Map<UUID, State> next = users != null ? users : new ConcurrentHashMap<>();
+            next.compute(userId, change);
+            return next.isEmpty() ? null : next;
+        });
+    }
+
+    /**
+     * حذف الحالة (أو الحالة المتوقعة فقط إن مُررت). true إن حُذف شيء
+     */
+    private boolean remove(Long conversationId, UUID userId, State expected) {
+        boolean[] removed = {false};
+        update(conversationId, userId, (id, state) -> {
+            if (state == null || (expected != null && !expected.equals(state))) {
+                return state;
+            }
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    private Participants participants(Long conversationId) {
+        return participants.get(conversationId, id -> conversationRepository.findParticipants(id)
+                .map(p -> new Participants(p.getUserId(), p.getUserName(), p.getWorkerUserId(), p.getWorkerUserName())))
+                .orElse(null);
+    }
+
+    private void send(Participants conversation, Long conversationId, UUID userId, UUID recipientId, boolean isTyping) {
+        Map<String, Object> payload = new HashMap<>();
+        payload.put("conversationId", conversationId);
+        payload.put("userId", userId.toString());
+        payload.put("userName", conversation.nameOf(userId));
+        payload.put("isTyping", isTyping);
+
+        messagingTemplate.convertAndSendToUser(recipientId.toString(), "/queue/typing", payload);
+        sent.increment();
+    }
+
+    private void onRemoteEvent(String body) {
+        TypingEvent event;
+        try {
+            event = objectMapper.readValue(body, TypingEvent.class);
+        } catch (Exception e) {
+            log.warn("Invalid typing event: {}", e.getMessage());
+            return;
+        }
+        if (clusterBus.nodeId().equals(event.nodeId())) {
+            return;
+        }
+        if (event.typing()) {
+            long now = System.currentTimeMillis();
+            update(event.conversationId(), event.userId(), (id, state) -> new State(now + ttlMs, now, true));
+        } else {
+            remove(event.conversationId(), event.userId(), null);
+        }
+    }
+
+    private void publish(TypingEvent event) {
+        if (!clusterBus.isClustered()) return;
+        try {
+            clusterBus.publish(TOPIC, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            log.warn("Failed to publish typing event: {}", e.getMessage());
+        }
+    }
+}
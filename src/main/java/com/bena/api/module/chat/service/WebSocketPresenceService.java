@@ -1,32 +1,430 @@
 package com.bena.api.module.chat.service;
 
+import com.bena.api.config.cluster.ClusterBus;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * حالة اتصال المستخدمين (المصدر الوحيد لـ isOnline):
+ * - الجلسات المحلية لكل مستخدم في الذاكرة (عدة أجهزة/تبويبات = عدة جلسات)، والمستخدم متصل ما دامت له جلسة
+ * - الجلسة التي ترسل /app/ping تنتهي إذا توقف الـ ping لمدة session-timeout-ms؛
+ *   الجلسات التي لا ترسل ping تنتهي بحدث الانقطاع فقط. POST /presence يعمل كجلسة REST تنتهي بعد rest-ttl-ms
+ * - جلسات النسخ الأخرى تصل عبر ClusterBus (أحداث اتصال/انقطاع عند التغير فقط + heartbeat لكل نسخة)
+ * - كل انتقال (اتصال/انقطاع) يأخذ رقماً تسلسلياً داخل compute() مع الانتقال نفسه، والمستقبل يرفض
+ *   الرقم الأقدم من آخر رقم وصله لنفس المستخدم من نفس النسخة: أحداث نُشرت بترتيب مختلف لا تعكس الحالة
+ * - user_presence (is_online, last_seen_at) يُكتب على دفعات كل flush-interval-ms، ويُحدّث last_seen_at
+ *   للمتصلين كل touch-interval-ms، فالصفوف التي لم تُلمس منذ 3 دورات تُعتبر غير متصلة (نسخة توقفت فجأة)
+ */
 @Service
 @Slf4j
 public class WebSocketPresenceService {
 
-    private final Set<String> connectedUsers = ConcurrentHashMap.newKeySet();
+    private static final String TOPIC = "presence";
+    private static final long NODE_TIMEOUT_MS = 90_000;
+    private static final int SNAPSHOT_CHUNK = 200;
+    private static final String REST_SESSION = "rest";
 
-    public void markConnected(String userId) {
+    // بدون ping لا تنتهي الجلسة إلا بحدث الانقطاع
+    private static final long NO_EXPIRY = Long.MAX_VALUE;
+
+    // المستخدم يجب أن يكون موجوداً، والمحادثة غير الموجودة تُحفظ null بدل إفشال الدفعة
+    private static final String UPSERT_SQL = """
+            INSERT INTO user_presence (user_id, is_online, last_seen_at, current_conversation_id)
+            SELECT u.id, ?, ?, (SELECT c.id FROM conversations c WHERE c.id = ?)
+            FROM users u WHERE u.id = ?
+            ON CONFLICT (user_id) DO UPDATE SET
+                is_online = EXCLUDED.is_online,
+                last_seen_at = GREATEST(user_presence.last_seen_at, EXCLUDED.last_seen_at),
+                current_conversation_id = COALESCE(EXCLUDED.current_conversation_id, user_presence.current_conversation_id)
+            """;
+
+    private static final String EXPIRE_STALE_SQL =
+            "UPDATE user_presence SET is_online = FALSE WHERE is_online = TRUE AND last_seen_at < ?";
+
+    // userId -> (sessionId -> وقت الانتهاء)
+    private final Map<String, Map<String, Long>> localSessions = new ConcurrentHashMap<>();
+    private final Map<String, Long> currentConversations = new ConcurrentHashMap<>();
+
+    // أرقام الانتقالات لهذه النسخة. تبدأ من الوقت حتى تبقى أكبر من أرقام تشغيل سابق بنفس app.cluster.node-id
+    private final AtomicLong sequence = new AtomicLong(System.currentTimeMillis() * 1000);
+
+    // nodeId -> (userId -> آخر انتقال وصل من تلك النسخة). الانقطاع يبقى علامة لمدة NODE_TIMEOUT_MS
+    // حتى يُرفض اتصال أقدم منه يصل متأخراً
+    private final Map<String, Map<String, RemoteState>> remoteUsers = new ConcurrentHashMap<>();
+    private final Map<String, Long> remoteHeartbeats = new ConcurrentHashMap<>();
+
+    // userId -> آخر ظهور لم يُكتب بعد
+    private final Map<String, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    private final ClusterBus clusterBus;
+    private final ObjectMapper objectMapper;
+    private final JdbcTemplate jdbcTemplate;
+    private final long sessionTimeoutMs;
+    private final long restTtlMs;
+    private final long touchIntervalMs;
+    private final int batchSize;
+    private final Counter stale;
+
+    public WebSocketPresenceService(
+            ClusterBus clusterBus,
+            ObjectMapper objectMapper,
+            JdbcTemplate jdbcTemplate,
+            MeterRegistry meterRegistry,
+            @Value("${app.chat.presence.session-timeout-ms:90000}") long sessionTimeoutMs,
+            @Value("${app.chat.presence.rest-ttl-ms:300000}") long restTtlMs,
+            @Value("${app.chat.presence.touch-interval-ms:60000}") long touchIntervalMs,
+            @Value("${app.chat.presence.batch-size:500}") int batchSize
+    ) {
+        this.clusterBus = clusterBus;
+        this.objectMapper = objectMapper;
+        this.jdbcTemplate = jdbcTemplate;
+        this.sessionTimeoutMs = sessionTimeoutMs;
+        this.restTtlMs = restTtlMs;
+        this.touchIntervalMs = touchIntervalMs;
+        this.batchSize = Math.max(1, batchSize);
+
+        meterRegistry.gauge("chat.presence.users", localSessions, Map::size);
+        meterRegistry.gauge("chat.presence.sessions", localSessions,
+                sessions -> sessions.values().stream().mapToInt(Map::size).sum());
+        meterRegistry.gauge("chat.presence.pending", pending, Map::size);
+        this.stale = meterRegistry.counter("chat.presence.remote", "result", "stale");
+
+        clusterBus.subscribe(TOPIC, this::onRemoteEvent);
+    }
+
+    private record RemoteState(long seq, boolean online, long receivedAt) {
+    }
+
+    // users: userId -> رقم الانتقال (فارغ لـ SYNC و HEARTBEAT)
+    private record PresenceEvent(String type, String nodeId, Map<String, Long> users) {
+        static final String CONNECTED = "CONNECTED";
+        static final String DISCONNECTED = "DISCONNECTED";
+        static final String SNAPSHOT = "SNAPSHOT";
+        static final String HEARTBEAT = "HEARTBEAT";
+        static final String SYNC = "SYNC";
+    }
+
+    /**
+     * طلب لقطة من النسخ الأخرى بعد اكتمال التشغيل (الاستماع للموضوع فعال، فالردود لا تضيع)
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void requestSnapshot() {
+        publish(new PresenceEvent(PresenceEvent.SYNC, clusterBus.nodeId(), Map.of()));
+    }
+
+    public void markConnected(String userId, String sessionId) {
         if (userId == null || userId.isBlank()) return;
-        connectedUsers.add(userId);
-        log.debug("WS presence connected userId={}", userId);
+        putSession(userId, sessionId != null ? sessionId : userId, NO_EXPIRY);
+        log.debug("WS presence connected userId={} sessionId={}", userId, sessionId);
     }
 
-    public void markDisconnected(String userId) {
+    public void markDisconnected(String userId, String sessionId) {
         if (userId == null || userId.isBlank()) return;
-        connectedUsers.remove(userId);
-        log.debug("WS presence disconnected userId={}", userId);
+        removeSession(userId, sessionId != null ? sessionId : userId);
+        log.debug("WS presence disconnected userId={} sessionId={}", userId, sessionId);
+    }
+
+    /**
+     * /app/ping: يمدد الجلسة، ويعيدها إذا انتهت (أو فات حدث الاتصال)
+     */
+    public void heartbeat(String userId, String sessionId) {
+        if (userId == null || userId.isBlank() || sessionId == null) return;
+        putSession(userId, sessionId, System.currentTimeMillis() + sessionTimeoutMs);
+    }
+
+    /**
+     * حالة من REST (التطبيق في المقدمة/الخلفية)؛ اتصالات WebSocket المفتوحة تبقى تُحسب
+     */
+    public void updateFromRest(UUID userId, boolean isOnline, Long currentConversationId) {
+        String id = userId.toString();
+        if (currentConversationId != null) {
+            currentConversations.put(id, currentConversationId);
+        }
+        if (isOnline) {
+            putSession(id, REST_SESSION, System.currentTimeMillis() + restTtlMs);
+        } else {
+            removeSession(id, REST_SESSION);
+        }
+        pending.put(id, LocalDateTime.now());
     }
 
     public boolean isOnline(UUID userId) {
-        if (userId == null) return false;
-        return connectedUsers.contains(userId.toString());
+        return userId != null && isOnline(userId.toString());
+    }
+
+    /**
+     * المتصلون من مجموعة مستخدمين (لقوائم المحادثات) - بدون قاعدة البيانات
+     */
+    public Set<UUID> isOnline(Collection<UUID> userIds) {
+        Set<UUID> online = new HashSet<>();
+        for (UUID userId : userIds) {
+            if (isOnline(userId)) {
+                online.add(userId);
+            }
+        }
+        return online;
+    }
+
+    /**
+     * آخر ظهور لم يُكتب بعد في user_presence (null إذا لا يوجد)
+     */
+    public LocalDateTime pendingLastSeenAt(UUID userId) {
+        return userId != null ? pending.get(userId.toString()) : null;
+    }
+
+    /**
+     * إنهاء الجلسات التي توقف الـ ping فيها
+     */
+    @Scheduled(fixedDelayString = "${app.chat.presence.sweep-ms:15000}", initialDelay = 15000)
+    public void expireSessions() {
+        long now = System.currentTimeMillis();
+        for (Map.Entry<String, Map<String, Long>> entry : localSessions.entrySet()) {
+            List<String> expired = new ArrayList<>();
+            entry.getValue().forEach((sessionId, expiresAt) -> {
+                if (expiresAt < now) {
+                    expired.add(sessionId);
+                }
+            });
+            for (String sessionId : expired) {
+                removeSession(entry.getKey(), sessionId);
+                log.debug("WS presence session expired userId={} sessionId={}", entry.getKey(), sessionId);
+            }
+        }
+    }
+
+    /**
+     * heartbeat لهذه النسخة وحذف النسخ التي توقفت عن الإرسال
+     */
+    @Scheduled(fixedRate = 30000)
+    public void heartbeat() {
+        if (!clusterBus.isClustered()) return;
+
+        publish(new PresenceEvent(PresenceEvent.HEARTBEAT, clusterBus.nodeId(), Map.of()));
+
+        long cutoff = System.currentTimeMillis() - NODE_TIMEOUT_MS;
+        remoteHeartbeats.entrySet().removeIf(entry -> {
+            if (entry.getValue() < cutoff) {
+                Map<String, RemoteState> users = remoteUsers.remove(entry.getKey());
+                if (users != null) {
+                    LocalDateTime now = LocalDateTime.now();
+                    users.forEach((userId, state) -> {
+                        if (state.online()) {
+                            pending.put(userId, now);
+                        }
+                    });
+                }
+                log.info("WS presence dropped stale node {}", entry.getKey());
+                return true;
+            }
+            return false;
+        });
+        // علامات الانقطاع القديمة: لا حدث متأخر بهذا القدر
+        remoteUsers.values().forEach(users ->
+                users.values().removeIf(state -> !state.online() && state.receivedAt() < cutoff));
+    }
+
+    /**
+     * تحديث last_seen_at للمتصلين بهذه النسخة، وإنهاء صفوف is_online التي لم تلمسها أي نسخة
+     */
+    @Scheduled(fixedDelayString = "${app.chat.presence.touch-interval-ms:60000}", initialDelay = 60000)
+    public void touchOnline() {
+        LocalDateTime now = LocalDateTime.now();
+        localSessions.keySet().forEach(userId -> pending.put(userId, now));
+        try {
+            int expired = jdbcTemplate.update(EXPIRE_STALE_SQL, now.minus(Duration.ofMillis(touchIntervalMs * 3)));
+            if (expired > 0) {
+                log.info("🧹 Marked {} stale presence rows offline", expired);
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Failed to expire stale presence rows: {}", e.getMessage());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.chat.presence.flush-interval-ms:10000}", initialDelay = 10000)
+    public void flush() {
+        while (writeBatch() == batchSize) {
+            // دفعة كاملة أخرى
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        LocalDateTime now = LocalDateTime.now();
+        for (String userId : List.copyOf(localSessions.keySet())) {
+            localSessions.remove(userId);
+            pending.put(userId, now);
+        }
+        flush();
+    }
+
+    // ==================== Helpers ====================
+
+    private boolean isOnline(String userId) {
+        if (localSessions.containsKey(userId)) {
+            return true;
+        }
+        for (Map<String, RemoteState> users : remoteUsers.values()) {
+            RemoteState state = users.get(userId);
+            if (state != null && state.online()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * الانتقال ورقمه يُحددان معاً تحت قفل المستخدم؛ النشر بعده قد يسبقه نشر انتقال أحدث والمستقبل يرتبهما بالرقم
+     */
+    private void putSession(String userId, String sessionId, long expiresAt) {
+        long[] seq = {0};
+        localSessions.compute(userId, (id, sessions) -> {
+            if (sessions == null) {
+                sessions = new ConcurrentHashMap<>();
+                seq[0] = sequence.incrementAndGet();
+            }
+            sessions.put(sessionId, expiresAt);
+            return sessions;
+        });
+        if (seq[0] != 0) {
+            pending.put(userId, LocalDateTime.now());
+            publish(new PresenceEvent(PresenceEvent.CONNECTED, clusterBus.nodeId(), Map.of(userId, seq[0])));
+        }
+    }
+
+    private void removeSession(String userId, String sessionId) {
+        long[] seq = {0};
+        localSessions.computeIfPresent(userId, (id, sessions) -> {
+            sessions.remove(sessionId);
+            if (!sessions.isEmpty()) {
+                return sessions;
+            }
+            seq[0] = sequence.incrementAndGet();
+            return null;
+        });
+        if (seq[0] != 0) {
+            pending.put(userId, LocalDateTime.now());
+            publish(new PresenceEvent(PresenceEvent.DISCONNECTED, clusterBus.nodeId(), Map.of(userId, seq[0])));
+        }
+    }
+
+    private synchronized int writeBatch() {
+        List<Map.Entry<String, LocalDateTime>> batch = new ArrayList<>(batchSize);
+        for (String userId : pending.keySet()) {
+            LocalDateTime lastSeenAt = pending.remove(userId);
+            if (lastSeenAt != null) {
+                batch.add(Map.entry(userId, lastSeenAt));
+                if (batch.size() == batchSize) {
+                    break;
+                }
+            }
+        }
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        // is_online حسب حالة الكتلة وقت الكتابة وليس وقت الحدث
+        List<Object[]> rows = new ArrayList<>(batch.size());
+        for (Map.Entry<String, LocalDateTime> entry : batch) {
+            String userId = entry.getKey();
+            try {
+                rows.add(new Object[]{isOnline(userId), entry.getValue(), currentConversations.get(userId), UUID.fromString(userId)});
+            } catch (IllegalArgumentException e) {
+                log.warn("⚠️ Invalid presence userId {}", userId);
+            }
+        }
+        try {
+            jdbcTemplate.batchUpdate(UPSERT_SQL, rows);
+            log.debug("Flushed {} presence rows", rows.size());
+        } catch (Exception e) {
+            // إعادة الإضافة بدون تجاوز قيمة أحدث وصلت أثناء الكتابة
+            batch.forEach(entry -> pending.merge(entry.getKey(), entry.getValue(),
+                    (current, failed) -> current.isAfter(failed) ? current : failed));
+            log.warn("⚠️ Failed to flush {} presence rows: {}", rows.size(), e.getMessage());
+        }
+        return batch.size();
+    }
+
+    private void onRemoteEvent(String body) {
+        PresenceEvent event;
+        try {
+            event = objectMapper.readValue(body, PresenceEvent.class);
+        } catch (Exception e) {
+            log.warn("Invalid presence event: {}", e.getMessage());
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        remoteHeartbeats.put(event.nodeId(), now);
+        Map<String, RemoteState> users = remoteUsers.computeIfAbsent(event.nodeId(), n -> new ConcurrentHashMap<>());
+
+        switch (event.type()) {
+            case PresenceEvent.CONNECTED, PresenceEvent.SNAPSHOT -> apply(users, event, true, now);
+            case PresenceEvent.DISCONNECTED -> apply(users, event, false, now);
+            case PresenceEvent.SYNC -> publishSnapshot();
+            default -> {
+                // HEARTBEAT: يكفي تحديث الوقت
+            }
+        }
+    }
+
+    private void apply(Map<String, RemoteState> users, PresenceEvent event, boolean online, long now) {
+        event.users().forEach((userId, seq) -> users.compute(userId, (id, current) -> {
+            if (current != null && current.seq() >= seq) {
+                stale.increment();
+                log.debug("WS presence dropped stale {} userId={} node={} seq={} < {}",
+                        event.type(), userId, event.nodeId(), seq, current.seq());
+                return current;
+            }
+            return new RemoteState(seq, online, now);
+        }));
+    }
+
+    /**
+     * كل مستخدم في اللقطة يأخذ رقماً جديداً تحت قفله وهو متصل، فأي انقطاع بعدها يحمل رقماً أكبر
+     */
+    private void publishSnapshot() {
+        Map<String, Long> chunk = new HashMap<>();
+        for (String userId : localSessions.keySet()) {
+            localSessions.computeIfPresent(userId, (id, sessions) -> {
+                chunk.put(id, sequence.incrementAndGet());
+                return sessions;
+            });
+            if (chunk.size() == SNAPSHOT_CHUNK) {
+                publish(new PresenceEvent(PresenceEvent.SNAPSHOT, clusterBus.nodeId(), Map.copyOf(chunk)));
+                chunk.clear();
+            }
+        }
+        publish(new PresenceEvent(PresenceEvent.SNAPSHOT, clusterBus.nodeId(), Map.copyOf(chunk)));
+    }
+
+    private void publish(PresenceEvent event) {
+        if (!clusterBus.isClustered()) return;
+        try {
+            clusterBus.publish(TOPIC, objectMapper.writeValueAsString(event));
+        } catch (Exception e) {
+            log.warn("Failed to publish presence event: {}", e.getMessage());
+        }
     }
 }
@@ -9,6 +9,8 @@ import com.bena.api.module.cost.dto.concrete.ConcreteCostRequest;
 import com.bena.api.module.cost.dto.concrete.ConcreteCostResponse;
 import com.bena.api.module.cost.dto.electrical.ElectricalCostRequest;
 import com.bena.api.module.cost.dto.electrical.ElectricalCostResponse;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateRequest;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateResponse;
 import com.bena.api.module.cost.dto.foundation.FoundationCostRequest;
 import com.bena.api.module.cost.dto.foundation.FoundationCostResponse;
 import com.bena.api.module.cost.dto.plumbing.PlumbingCostRequest;
@@ -43,6 +45,8 @@ public class CostController {
     private final TilesCostService tilesCostService;
     private final ElectricalCostService electricalCostService;
     private final PlumbingCostService plumbingCostService;
+    private final HouseEstimateService houseEstimateService;
+    private final CalculationLogService calculationLogService;
 
     // ==================== حساب كلفة الطابوق ====================
 
@@ -55,6 +59,7 @@ public class CostController {
             @Valid @RequestBody BrickCostRequest request) {
         
         BrickCostResponse result = brickCostService.calculate(request);
+        calculationLogService.record("brick", request, result, result.getTotalCost(), result.getCurrency());
         return ResponseEntity.ok(ApiResponse.success(result, "تم حساب كلفة الطابوق بنجاح"));
     }
 
@@ -69,6 +74,7 @@ public class CostController {
             @Valid @RequestBody CementCostRequest request) {
         
         CementCostResponse result = cementCostService.calculate(request);
+        calculationLogService.record("cement", request, result, result.getTotalCost(), result.getCurrency());
         return ResponseEntity.ok(ApiResponse.success(result, "تم حساب كلفة السمنت بنجاح"));
     }
 
@@ -83,6 +89,7 @@ public class CostController {
             @Valid @RequestBody SteelCostRequest request) {
         
         SteelCostResponse result = steelCostService.calculate(request);
+        calculationLogService.record("steel", request, result, result.getTotalCost(), result.getCurrency());
         return ResponseEntity.ok(ApiResponse.success(result, "تم حساب كلفة الحديد بنجاح"));
     }
 
@@ -97,6 +104,7 @@ public class CostController {
             @Valid @RequestBody ConcreteCostRequest request) {
         
         ConcreteCostResponse result = concreteCostService.calculate(request);
+        calculationLogService.record("concrete", request, result, result.getTotalCost(), result.getCurrency());
         return ResponseEntity.ok(ApiResponse.success(result, "تم حساب كلفة الصبة بنجاح"));
     }
 
@@ -111,6 +119,7 @@ public class CostController {
             @Valid @RequestBody FoundationCostRequest request) {
         
         FoundationCostResponse result = foundationCostService.calculate(request);
+        calculationLogService.record("foundation", request, result, result.getTotalCost(), result.getCurrency());
         return ResponseEntity.ok(ApiResponse.success(result, "تم حساب كلفة الأساس بنجاح"));
     }
 
@@ -125,6 +134,7 @@ public class CostController {
             @Valid @RequestBody TilesCostRequest request) {
         
         TilesCostResponse result = tilesCostService.calculate(request);
+        calculationLogService.record("tiles", request, result, result.getTotalCost(), result.getCurrency());
         return ResponseEntity.ok(ApiResponse.success(result, "تم حساب كلفة الكاشي بنجاح"));
     }
 
@@ -139,6 +149,7 @@ public class CostController {
             @Valid @RequestBody ElectricalCostRequest request) {
         
         ElectricalCostResponse result = electricalCostService.calculate(request);
+        calculationLogService.record("electrical", request, result, result.getTotalCost(), result.getCurrency());
         return ResponseEntity.ok(ApiResponse.success(result, "تم حساب كلفة الكهرباء بنجاح"));
     }
 
@@ -153,9 +164,27 @@ public class CostController {
             @Valid @RequestBody PlumbingCostRequest request) {
         
         PlumbingCostResponse result = plumbingCostService.calculate(request);
+        calculationLogService.record("plumbing", request, result, result.getTotalCost(), result.getCurrency());
         return ResponseEntity.ok(ApiResponse.success(result, "تم حساب كلفة السباكة بنجاح"));
     }
 
+    // ==================== تقدير كلفة بيت كامل ====================
+
+    @PostMapping("/estimate")
+    @Operation(
+            summary = "تقدير كلفة بيت كامل",
+            description = "يحسب كل البنود (أساس، صبة، حديد، طابوق، سمنت، كاشي، كهرباء، سباكة) بطلب واحد ويعيد جدول كميات بمجموع لكل صنعة. البند الذي يفشل يظهر بحالة failed ولا يُفشل التقدير"
+    )
+    public ResponseEntity<ApiResponse<HouseEstimateResponse>> estimateHouse(
+            @Valid @RequestBody HouseEstimateRequest request) {
+
+        HouseEstimateResponse result = houseEstimateService.estimate(request);
+        calculationLogService.record("estimate", request, result, result.getGrandTotal(), result.getCurrency());
+        String message = result.isComplete() ?
+                "تم تقدير الكلفة بنجاح" : "تم تقدير الكلفة مع تعذر حساب بعض البنود";
+        return ResponseEntity.ok(ApiResponse.success(result, message));
+    }
+
     // ==================== قائمة أنواع الحسابات المتاحة ====================
 
     @GetMapping("/types")
@@ -212,6 +241,12 @@ public class CostController {
                         "nameAr", "حساب كلفة السباكة (الماء والمجاري)",
                         "nameEn", "Plumbing Cost",
                         "endpoint", "/v1/cost/plumbing"
+                ),
+                java.util.Map.of(
+                        "code", "estimate",
+                        "nameAr", "تقدير كلفة بيت كامل",
+                        "nameEn", "Whole-House Estimate",
+                        "endpoint", "/v1/cost/estimate"
                 )
         );
         
@@ -2,12 +2,11 @@ package com.bena.api.module.cost.controller;
 
 import com.bena.api.common.dto.ApiResponse;
 import com.bena.api.common.dto.PageResponse;
-import com.bena.api.module.cost.entity.Material;
-import com.bena.api.module.cost.repository.MaterialRepository;
+import com.bena.api.module.cost.dto.material.MaterialResponse;
+import com.bena.api.module.cost.service.MaterialService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import lombok.RequiredArgsConstructor;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
 import org.springframework.http.ResponseEntity;
@@ -26,56 +25,48 @@ import java.util.UUID;
 @Tag(name = "Materials", description = "إدارة المواد وأسعارها")
 public class MaterialController {
 
-    private final MaterialRepository materialRepository;
+    private final MaterialService materialService;
 
     @GetMapping
     @Operation(summary = "جلب جميع المواد", description = "يعرض قائمة المواد مع دعم الترقيم والبحث")
-    public ResponseEntity<ApiResponse<PageResponse<Material>>> getAllMaterials(
+    public ResponseEntity<ApiResponse<PageResponse<MaterialResponse>>> getAllMaterials(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
             @RequestParam(required = false) String search) {
         
         PageRequest pageRequest = PageRequest.of(page, size, Sort.by("category", "nameAr"));
-        
-        Page<Material> materials;
-        if (search != null && !search.isBlank()) {
-            materials = materialRepository.searchMaterials(search.trim(), pageRequest);
-        } else {
-            materials = materialRepository.findAllActive(pageRequest);
-        }
-        
-        return ResponseEntity.ok(ApiResponse.success(PageResponse.from(materials)));
+        return ResponseEntity.ok(ApiResponse.success(PageResponse.from(materialService.getActiveMaterials(search, pageRequest))));
     }
 
     @GetMapping("/{id}")
     @Operation(summary = "جلب مادة بالمعرف", description = "يعرض تفاصيل مادة محددة")
-    public ResponseEntity<ApiResponse<Material>> getMaterialById(@PathVariable UUID id) {
-        return materialRepository.findById(id)
+    public ResponseEntity<ApiResponse<MaterialResponse>> getMaterialById(@PathVariable UUID id) {
+        return materialService.getById(id)
                 .map(material -> ResponseEntity.ok(ApiResponse.success(material)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/code/{code}")
     @Operation(summary = "جلب مادة بالكود", description = "يعرض تفاصيل مادة بناءً على كودها")
-    public ResponseEntity<ApiResponse<Material>> getMaterialByCode(@PathVariable String code) {
-        return materialRepository.findByCode(code)
+    public ResponseEntity<ApiResponse<MaterialResponse>> getMaterialByCode(@PathVariable String code) {
+        return materialService.getByCode(code)
                 .map(material -> ResponseEntity.ok(ApiResponse.success(material)))
                 .orElse(ResponseEntity.notFound().build());
     }
 
     @GetMapping("/category/{category}")
     @Operation(summary = "جلب المواد حسب الفئة", description = "يعرض قائمة المواد في فئة محددة")
-    public ResponseEntity<ApiResponse<List<Material>>> getMaterialsByCategory(
+    public ResponseEntity<ApiResponse<List<MaterialResponse>>> getMaterialsByCategory(
             @PathVariable String category) {
         
-        List<Material> materials = materialRepository.findActiveByCategoryOrderByNameAr(category);
+        List<MaterialResponse> materials = materialService.getActiveByCategory(category);
         return ResponseEntity.ok(ApiResponse.success(materials));
     }
 
     @GetMapping("/categories")
     @Operation(summary = "جلب فئات المواد", description = "يعرض قائمة بجميع فئات المواد المتاحة")
     public ResponseEntity<ApiResponse<List<String>>> getAllCategories() {
-        List<String> categories = materialRepository.findAllActiveCategories();
+        List<String> categories = materialService.getActiveCategories();
         return ResponseEntity.ok(ApiResponse.success(categories));
     }
 }
@@ -93,4 +93,9 @@ public class BrickCostResponse {
      * ملخص المدخلات
      */
     private BrickCostRequest inputSummary;
+
+    /**
+     * إصدار أسعار المواد المستخدم في الحساب
+     */
+    private String priceVersion;
 }
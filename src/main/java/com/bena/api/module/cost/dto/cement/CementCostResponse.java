@@ -99,4 +99,9 @@ public class CementCostResponse {
      * ملخص المدخلات
      */
     private CementCostRequest inputSummary;
+
+    /**
+     * إصدار أسعار المواد المستخدم في الحساب
+     */
+    private String priceVersion;
 }
@@ -114,4 +114,9 @@ public class ConcreteCostResponse {
      * ملخص المدخلات
      */
     private ConcreteCostRequest inputSummary;
+
+    /**
+     * إصدار أسعار المواد المستخدم في الحساب
+     */
+    private String priceVersion;
 }
@@ -122,4 +122,9 @@ public class ElectricalCostResponse {
      * ملخص المدخلات
      */
     private ElectricalCostRequest inputSummary;
+
+    /**
+     * إصدار أسعار المواد المستخدم في الحساب
+     */
+    private String priceVersion;
 }
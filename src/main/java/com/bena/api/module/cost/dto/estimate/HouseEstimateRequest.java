@@ -0,0 +1,106 @@
+package com.bena.api.module.cost.dto.estimate;
+
+import com.bena.api.module.cost.dto.brick.BrickCostRequest;
+import com.bena.api.module.cost.dto.cement.CementCostRequest;
+import com.bena.api.module.cost.dto.concrete.ConcreteCostRequest;
+import com.bena.api.module.cost.dto.electrical.ElectricalCostRequest;
+import com.bena.api.module.cost.dto.foundation.FoundationCostRequest;
+import com.bena.api.module.cost.dto.plumbing.PlumbingCostRequest;
+import com.bena.api.module.cost.dto.steel.SteelCostRequest;
+import com.bena.api.module.cost.dto.tiles.TilesCostRequest;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * طلب تقدير كلفة بيت كامل بطلب واحد بدل استدعاء كل حاسبة على حدة.
+ * كل قسم اختياري ويقبل أكثر من بند (مثلاً سقف + أعمدة في الصبة، أو أرضيات + حمامات في الكاشي).
+ * Whole-House Cost Estimate Request
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class HouseEstimateRequest {
+
+    /**
+     * وصف المشروع (اختياري)
+     */
+    @Size(max = 200, message = "الوصف يجب ألا يتجاوز 200 حرف")
+    private String title;
+
+    /**
+     * وصف البناء (اختياري): الكهرباء والسباكة تُقدّر منه إذا لم تُدخل بنودها
+     */
+    @Valid
+    private Building building;
+
+    @Valid
+    @Builder.Default
+    @Size(max = 10, message = "عدد بنود الأساس يجب ألا يتجاوز 10")
+    private List<FoundationCostRequest> foundation = new ArrayList<>();
+
+    @Valid
+    @Builder.Default
+    @Size(max = 20, message = "عدد بنود الصبة يجب ألا يتجاوز 20")
+    private List<ConcreteCostRequest> concrete = new ArrayList<>();
+
+    @Valid
+    @Builder.Default
+    @Size(max = 20, message = "عدد بنود الحديد يجب ألا يتجاوز 20")
+    private List<SteelCostRequest> steel = new ArrayList<>();
+
+    @Valid
+    @Builder.Default
+    @Size(max = 20, message = "عدد بنود الطابوق يجب ألا يتجاوز 20")
+    private List<BrickCostRequest> brick = new ArrayList<>();
+
+    @Valid
+    @Builder.Default
+    @Size(max = 20, message = "عدد بنود السمنت يجب ألا يتجاوز 20")
+    private List<CementCostRequest> cement = new ArrayList<>();
+
+    @Valid
+    @Builder.Default
+    @Size(max = 20, message = "عدد بنود الكاشي يجب ألا يتجاوز 20")
+    private List<TilesCostRequest> tiles = new ArrayList<>();
+
+    @Valid
+    @Builder.Default
+    @Size(max = 10, message = "عدد بنود الكهرباء يجب ألا يتجاوز 10")
+    private List<ElectricalCostRequest> electrical = new ArrayList<>();
+
+    @Valid
+    @Builder.Default
+    @Size(max = 10, message = "عدد بنود السباكة يجب ألا يتجاوز 10")
+    private List<PlumbingCostRequest> plumbing = new ArrayList<>();
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class Building {
+
+        /**
+         * مساحة الطابق الواحد (م²)
+         */
+        @NotNull(message = "مساحة البناء مطلوبة")
+        @Positive(message = "المساحة يجب أن تكون أكبر من صفر")
+        private BigDecimal buildingArea;
+
+        /**
+         * عدد الطوابق
+         */
+        @Positive(message = "عدد الطوابق يجب أن يكون أكبر من صفر")
+        private Integer floors;
+    }
+}
@@ -0,0 +1,97 @@
+package com.bena.api.module.cost.dto.estimate;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * نتيجة تقدير كلفة البيت: جدول كميات (BOQ) بمجموع فرعي لكل صنعة.
+ * البند الذي يفشل لا يُفشل التقدير كله، بل يُعلَّم بـ status=failed ولا يدخل في المجموع.
+ * Whole-House Cost Estimate Response
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class HouseEstimateResponse {
+
+    private String title;
+
+    /**
+     * المجموع الكلي للبنود الناجحة
+     */
+    private BigDecimal grandTotal;
+
+    private String currency;
+
+    /**
+     * true إذا نجحت كل البنود
+     */
+    private boolean complete;
+
+    private int failedItems;
+
+    /**
+     * المجموع الفرعي لكل صنعة بترتيب مراحل البناء
+     */
+    private List<TradeSubtotal> trades;
+
+    /**
+     * كل بنود التقدير مع نتيجة الحاسبة الكاملة لكل بند
+     */
+    private List<EstimateItem> items;
+
+    /**
+     * إصدار أسعار المواد (أكثر من إصدار مفصولة بفاصلة إذا تغيرت الأسعار أثناء الحساب)
+     */
+    private String priceVersion;
+
+    private long durationMs;
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class TradeSubtotal {
+        private String trade;
+        private String nameAr;
+        private int itemCount;
+        private int failedCount;
+        private BigDecimal subtotal;
+        /**
+         * نسبة الصنعة من المجموع الكلي (%)
+         */
+        private BigDecimal percentage;
+    }
+
+    @Data
+    @Builder
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    public static class EstimateItem {
+        private String trade;
+        /**
+         * ترتيب البند داخل قسمه في الطلب
+         */
+        private int index;
+        /**
+         * ok أو failed
+         */
+        private String status;
+        private BigDecimal totalCost;
+        private String error;
+        private long durationMs;
+        /**
+         * استجابة الحاسبة نفسها (BrickCostResponse، ConcreteCostResponse ...)
+         */
+        private Object result;
+    }
+}
@@ -104,4 +104,9 @@ public class FoundationCostResponse {
      * ملخص المدخلات
      */
     private FoundationCostRequest inputSummary;
+
+    /**
+     * إصدار أسعار المواد المستخدم في الحساب
+     */
+    private String priceVersion;
 }
@@ -0,0 +1,52 @@
+package com.bena.api.module.cost.dto.material;
+
+import com.bena.api.module.cost.entity.Material;
+import lombok.Builder;
+import lombok.Value;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * بيانات المادة للعرض. غير قابلة للتعديل لأنها تُحفظ في كاش المواد وتُشارك بين الطلبات
+ * (نفس حقول Material حتى لا يتغير شكل الـ JSON).
+ */
+@Value
+@Builder
+public class MaterialResponse {
+    UUID id;
+    String code;
+    String nameAr;
+    String nameEn;
+    String category;
+    String unit;
+    BigDecimal defaultPrice;
+    BigDecimal defaultLaborCost;
+    Map<String, Object> specifications;
+    Boolean isActive;
+    OffsetDateTime createdAt;
+    OffsetDateTime updatedAt;
+
+    public static MaterialResponse from(Material material) {
+        return MaterialResponse.builder()
+                .id(material.getId())
+                .code(material.getCode())
+                .nameAr(material.getNameAr())
+                .nameEn(material.getNameEn())
+                .category(material.getCategory())
+                .unit(material.getUnit())
+                .defaultPrice(material.getDefaultPrice())
+                .defaultLaborCost(material.getDefaultLaborCost())
+                .specifications(material.getSpecifications() != null
+                        ? Collections.unmodifiableMap(new LinkedHashMap<>(material.getSpecifications()))
+                        : Map.of())
+                .isActive(material.getIsActive())
+                .createdAt(material.getCreatedAt())
+                .updatedAt(material.getUpdatedAt())
+                .build();
+    }
+}
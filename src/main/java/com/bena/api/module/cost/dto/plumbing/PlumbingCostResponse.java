@@ -142,4 +142,9 @@ public class PlumbingCostResponse {
      * ملخص المدخلات
      */
     private PlumbingCostRequest inputSummary;
+
+    /**
+     * إصدار أسعار المواد المستخدم في الحساب
+     */
+    private String priceVersion;
 }
@@ -2,6 +2,7 @@ package com.bena.api.module.cost.dto.steel;
 
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -57,6 +58,7 @@ public class SteelCostRequest {
     /**
      * قائمة القضبان المطلوبة
      */
+    @Size(max = 500, message = "عدد القضبان يجب ألا يتجاوز 500")
     private List<SteelBar> bars;
 
     // === الأسعار ===
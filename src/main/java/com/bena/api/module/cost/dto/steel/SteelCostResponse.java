@@ -100,6 +100,11 @@ public class SteelCostResponse {
      */
     private SteelCostRequest inputSummary;
 
+    /**
+     * إصدار أسعار المواد المستخدم في الحساب
+     */
+    private String priceVersion;
+
     /**
      * تفاصيل قضيب واحد
      */
@@ -98,4 +98,9 @@ public class TilesCostResponse {
      * ملخص المدخلات
      */
     private TilesCostRequest inputSummary;
+
+    /**
+     * إصدار أسعار المواد المستخدم في الحساب
+     */
+    private String priceVersion;
 }
@@ -47,6 +47,9 @@ public class CalculationLog {
     @Builder.Default
     private String currency = "IQD";
 
+    @Column(length = 50)
+    private String governorate;
+
     @Column(name = "ip_address", length = 45)
     private String ipAddress;
 
@@ -2,15 +2,12 @@ package com.bena.api.module.cost.service;
 
 import com.bena.api.module.cost.dto.brick.BrickCostRequest;
 import com.bena.api.module.cost.dto.brick.BrickCostResponse;
-import com.bena.api.module.cost.entity.Material;
-import com.bena.api.module.cost.repository.MaterialRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Map;
 
 /**
  * خدمة حساب كلفة الطابوق
@@ -21,9 +18,10 @@ import java.util.Map;
 @Slf4j
 public class BrickCostService {
 
-    private final MaterialRepository materialRepository;
+    private final MaterialPriceService materialPriceService;
 
     // القيم الافتراضية
+    private static final String DEFAULT_BRICK_CODE = "BRICK_STANDARD";
     private static final int DEFAULT_BRICKS_PER_M2 = 130;
     private static final BigDecimal DEFAULT_BRICK_PRICE_PER_1000 = new BigDecimal("150000");
     private static final BigDecimal DEFAULT_LABOR_PRICE_PER_1000 = new BigDecimal("80000");
@@ -31,6 +29,10 @@ public class BrickCostService {
     private static final int BRICKS_PER_WORKER_PER_DAY = 500;
 
     public BrickCostResponse calculate(BrickCostRequest request) {
+        return calculate(request, materialPriceService.current());
+    }
+
+    public BrickCostResponse calculate(BrickCostRequest request, MaterialPriceSnapshot prices) {
         log.debug("Calculating brick cost for wall area: {} m²", request.getWallArea());
 
         // 1. حساب المساحة الصافية
@@ -47,27 +49,24 @@ public class BrickCostService {
         BigDecimal mortarCost = request.getMortarCostPerM2();
         String brickTypeName = "طابوق عادي";
 
-        if (request.getBrickTypeCode() != null) {
-            Material material = materialRepository.findByCode(request.getBrickTypeCode()).orElse(null);
-            if (material != null) {
-                brickTypeName = material.getNameAr();
-                
-                // استخراج bricks_per_m2 من specifications
-                Map<String, Object> specs = material.getSpecifications();
-                if (specs != null && specs.containsKey("bricks_per_m2")) {
-                    Object bpm2 = specs.get("bricks_per_m2");
-                    if (bpm2 instanceof Number) {
-                        bricksPerM2 = bricksPerM2 != null ? bricksPerM2 : ((Number) bpm2).intValue();
-                    }
-                }
-                
-                // استخدام الأسعار الافتراضية من المادة إذا لم تُحدد
-                if (brickPrice == null && material.getDefaultPrice() != null) {
-                    brickPrice = material.getDefaultPrice();
-                }
-                if (laborPrice == null && material.getDefaultLaborCost() != null) {
-                    laborPrice = material.getDefaultLaborCost();
-                }
+        MaterialPriceSnapshot.Entry material = prices.find(
+                request.getBrickTypeCode() != null ? request.getBrickTypeCode() : DEFAULT_BRICK_CODE).orElse(null);
+        if (material != null) {
+            brickTypeName = material.nameAr();
+
+            // استخراج bricks_per_m2 من specifications
+            Object bpm2 = material.specifications().get("bricks_per_m2");
+            if (bricksPerM2 == null && bpm2 instanceof Number number) {
+                bricksPerM2 = number.intValue();
+            }
+
+            // أسعار المادة مسجلة للقطعة، والحساب هنا لكل 1000 طابوقة
+            BigDecimal unitFactor = "piece".equals(material.unit()) ? BigDecimal.valueOf(1000) : BigDecimal.ONE;
+            if (brickPrice == null && material.price() != null) {
+                brickPrice = material.price().multiply(unitFactor);
+            }
+            if (laborPrice == null && material.laborCost() != null) {
+                laborPrice = material.laborCost().multiply(unitFactor);
             }
         }
 
@@ -130,6 +129,7 @@ public class BrickCostService {
                 .estimatedWorkDays(estimatedWorkDays)
                 .estimatedWorkers(estimatedWorkers)
                 .inputSummary(request)
+                .priceVersion(prices.version())
                 .build();
     }
 }
@@ -0,0 +1,306 @@
+package com.bena.api.module.cost.service;
+
+import com.bena.api.module.user.entity.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * تسجيل حسابات الكلفة في calculation_logs خارج خيط الطلب:
+ * - الطلب يضيف السجل لطابور محدود فقط (عند امتلائه يُسقط السجل ولا يتأخر الطلب)
+ * - كل flush-interval-ms تُكتب السجلات بـ JDBC batch insert، ومعها تحديث calculation_daily_stats
+ *   (عدد ومجموع الكلفة لكل يوم/نوع/محافظة) في نفس المعاملة
+ * - إذا فشلت الدفعة تُكتب سجلاتها واحداً واحداً (كل سجل مع تجميعه في معاملته)، فيُسقط السجل التالف فقط
+ * - تحليلات الحسابات تقرأ من الجدول اليومي فقط ولا تمسح jsonb في السجل الخام
+ * الإحصائيات: /actuator/metrics/cost.logs
+ */
+@Service
+@Slf4j
+public class CalculationLogService {
+
+    private static final String INSERT_SQL = """
+            INSERT INTO calculation_logs (user_id, calculation_type, input_data, result_data, total_cost, currency,
+                                          governorate, ip_address, user_agent, created_at)
+            VALUES (?, ?, ?::jsonb, ?::jsonb, ?, ?, ?, ?, ?, ?)
+            """;
+
+    private static final String ROLLUP_SQL = """
+            INSERT INTO calculation_daily_stats (day, calculation_type, governorate, calculation_count, costed_count, total_cost_sum)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON CONFLICT (day, calculation_type, governorate) DO UPDATE SET
+                calculation_count = calculation_daily_stats.calculation_count + EXCLUDED.calculation_count,
+                costed_count = calculation_daily_stats.costed_count + EXCLUDED.costed_count,
+                total_cost_sum = calculation_daily_stats.total_cost_sum + EXCLUDED.total_cost_sum,
+                updated_at = NOW()
+            """;
+
+    private static final String STATS_BY_TYPE_SQL = """
+            SELECT calculation_type, SUM(calculation_count), SUM(costed_count), SUM(total_cost_sum)
+            FROM calculation_daily_stats
+            WHERE day BETWEEN ? AND ?
+            GROUP BY calculation_type
+            ORDER BY 2 DESC
+            """;
+
+    private static final String STATS_BY_GOVERNORATE_SQL = """
+            SELECT governorate, calculation_type, SUM(calculation_count), SUM(costed_count), SUM(total_cost_sum)
+            FROM calculation_daily_stats
+            WHERE day BETWEEN ? AND ?
+            GROUP BY governorate, calculation_type
+            ORDER BY governorate, 3 DESC
+            """;
+
+    private static final String STATS_BY_DAY_SQL = """
+            SELECT day, SUM(calculation_count)
+            FROM calculation_daily_stats
+            WHERE day BETWEEN ? AND ?
+            GROUP BY day
+            ORDER BY day
+            """;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<Entry> queue;
+
+    private final Counter queued;
+    private final Counter dropped;
+    private final Counter written;
+    private final Counter failed;
+
+    public record TypeStats(String calculationType, long count, BigDecimal averageTotalCost) {
+    }
+
+    public record GovernorateStats(String governorate, String calculationType, long count, BigDecimal averageTotalCost) {
+    }
+
+    public record DayStats(LocalDate day, long count) {
+    }
+
+    public record CalculationStats(LocalDate from, LocalDate to, List<TypeStats> byType,
+                                   List<GovernorateStats> byGovernorate, List<DayStats> daily) {
+    }
+
+    private record Entry(String type, Object input, Object result, BigDecimal totalCost, String currency,
+                         UUID userId, String governorate, String ipAddress, String userAgent,
+                         OffsetDateTime createdAt) {
+    }
+
+    // صف جاهز للكتابة مع مفتاح تجميعه اليومي
+    private record Row(Object[] values, LocalDate day, String type, String governorate, BigDecimal totalCost) {
+    }
+
+    public CalculationLogService(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            ObjectMapper objectMapper,
+            MeterRegistry meterRegistry,
+            @Value("${app.cost.logs.enabled:true}") boolean enabled,
+            @Value("${app.cost.logs.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.cost.logs.batch-size:500}") int batchSize
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.batchSize = Math.max(1, batchSize);
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+
+        this.queued = meterRegistry.counter("cost.logs", "result", "queued");
+        this.dropped = meterRegistry.counter("cost.logs", "result", "dropped");
+        this.written = meterRegistry.counter("cost.logs", "result", "written");
+        this.failed = meterRegistry.counter("cost.logs", "result", "failed");
+        meterRegistry.gauge("cost.logs.queue", queue, BlockingQueue::size);
+    }
+
+    /**
+     * تسجيل حساب من الطلب الحالي (المستخدم والمحافظة وIP من سياق الطلب).
+     * التحويل إلى JSON يتم لاحقاً عند الكتابة، فالطلب لا يدفع كلفته.
+     */
+    public void record(String calculationType, Object input, Object result, BigDecimal totalCost, String currency) {
+        if (!enabled) {
+            return;
+        }
+        UUID userId = null;
+        String governorate = null;
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.getPrincipal() instanceof User user) {
+            userId = user.getId();
+            governorate = user.getGovernorate();
+        }
+
+        String ipAddress = null;
+        String userAgent = null;
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes attrs) {
+            HttpServletRequest request = attrs.getRequest();
+            ipAddress = clientIp(request);
+            userAgent = request.getHeader("User-Agent");
+        }
+
+        Entry entry = new Entry(calculationType, input, result, totalCost, currency != null ? currency : "IQD",
+                userId, governorate, ipAddress, userAgent, OffsetDateTime.now(ZoneOffset.UTC));
+        if (queue.offer(entry)) {
+            queued.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.cost.logs.flush-interval-ms:2000}", initialDelay = 5000)
+    public void flush() {
+        while (writeBatch() == batchSize) {
+            // الطابور فيه دفعة كاملة أخرى
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * تحليلات الحسابات من الجدول اليومي (من - إلى شاملة)
+     */
+    public CalculationStats getStats(LocalDate from, LocalDate to) {
+        List<TypeStats> byType = jdbcTemplate.query(STATS_BY_TYPE_SQL, (rs, i) -> new TypeStats(
+                rs.getString(1), rs.getLong(2), average(rs.getBigDecimal(4), rs.getLong(3))), from, to);
+        List<GovernorateStats> byGovernorate = jdbcTemplate.query(STATS_BY_GOVERNORATE_SQL, (rs, i) -> new GovernorateStats(
+                rs.getString(1).isEmpty() ? null : rs.getString(1), rs.getString(2), rs.getLong(3),
+                average(rs.getBigDecimal(5), rs.getLong(4))), from, to);
+        List<DayStats> daily = jdbcTemplate.query(STATS_BY_DAY_SQL, (rs, i) -> new DayStats(
+                rs.getObject(1, LocalDate.class), rs.getLong(2)), from, to);
+        return new CalculationStats(from, to, byType, byGovernorate, daily);
+    }
+
+    // ==================== Helpers ====================
+
+    private synchronized int writeBatch() {
+        List<Entry> batch = new ArrayList<>(batchSize);
+        queue.drainTo(batch, batchSize);
+        if (batch.isEmpty()) {
+            return 0;
+        }
+
+        List<Row> rows = new ArrayList<>(batch.size());
+        for (Entry entry : batch) {
+            try {
+                rows.add(new Row(new Object[]{
+                        entry.userId, entry.type, objectMapper.writeValueAsString(entry.input),
+                        resultJson(entry.result), entry.totalCost, truncate(entry.currency, 3), truncate(entry.governorate, 50),
+                        truncate(entry.ipAddress, 45), entry.userAgent, entry.createdAt
+                }, entry.createdAt.toLocalDate(), entry.type,
+                        entry.governorate != null ? truncate(entry.governorate, 50) : "", entry.totalCost));
+            } catch (Exception e) {
+                failed.increment();
+                log.warn("⚠️ Failed to serialize {} calculation log: {}", entry.type, e.getMessage());
+            }
+        }
+        if (rows.isEmpty()) {
+            return batch.size();
+        }
+
+        try {
+            write(rows);
+            written.increment(rows.size());
+            log.debug("Wrote {} calculation logs", rows.size());
+        } catch (Exception e) {
+            log.warn("⚠️ Batch of {} calculation logs failed, writing row by row: {}", rows.size(), e.getMessage());
+            writeOneByOne(rows);
+        }
+        return batch.size();
+    }
+
+    /**
+     * السجلات وتجميعها في معاملة واحدة - التجميع من نفس الصفوف المكتوبة فقط
+     */
+    private void write(List<Row> rows) {
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(INSERT_SQL, rows.stream().map(Row::values).toList());
+            jdbcTemplate.batchUpdate(ROLLUP_SQL, rollups(rows));
+        });
+    }
+
+    // سجلات تحليلية فقط: السجل الفاشل لا يُعاد للطابور حتى لا يتكرر فشله إلى ما لا نهاية
+    private void writeOneByOne(List<Row> rows) {
+        int saved = 0;
+        for (Row row : rows) {
+            try {
+                write(List.of(row));
+                saved++;
+            } catch (Exception e) {
+                failed.increment();
+                log.warn("⚠️ Skipping {} calculation log from {}: {}", row.type(), row.values()[9], e.getMessage());
+            }
+        }
+        written.increment(saved);
+    }
+
+    // مرتبة حتى تأخذ النسخ المتعددة أقفال صفوف التجميع بنفس الترتيب
+    private static List<Object[]> rollups(List<Row> rows) {
+        Map<String, Object[]> rollups = new TreeMap<>();
+        for (Row row : rows) {
+            Object[] rollup = rollups.computeIfAbsent(row.day() + "|" + row.type() + "|" + row.governorate(),
+                    key -> new Object[]{row.day(), row.type(), row.governorate(), 0L, 0L, BigDecimal.ZERO});
+            rollup[3] = (Long) rollup[3] + 1;
+            if (row.totalCost() != null) {
+                rollup[4] = (Long) rollup[4] + 1;
+                rollup[5] = ((BigDecimal) rollup[5]).add(row.totalCost());
+            }
+        }
+        return new ArrayList<>(rollups.values());
+    }
+
+    private String resultJson(Object result) throws Exception {
+        // inputSummary في الاستجابات نسخة من المدخلات المحفوظة في input_data
+        if (objectMapper.valueToTree(result) instanceof ObjectNode node) {
+            node.remove("inputSummary");
+            return objectMapper.writeValueAsString(node);
+        }
+        return objectMapper.writeValueAsString(result);
+    }
+
+    private static BigDecimal average(BigDecimal sum, long count) {
+        return count > 0 && sum != null ? sum.divide(BigDecimal.valueOf(count), 0, RoundingMode.HALF_UP) : null;
+    }
+
+    private static String clientIp(HttpServletRequest request) {
+        String xForwardedFor = request.getHeader("X-Forwarded-For");
+        if (xForwardedFor != null && !xForwardedFor.isEmpty()) {
+            return xForwardedFor.split(",")[0].trim();
+        }
+        return request.getRemoteAddr();
+    }
+
+    private static String truncate(String value, int max) {
+        return value != null && value.length() > max ? value.substring(0, max) : value;
+    }
+}
@@ -2,7 +2,6 @@ package com.bena.api.module.cost.service;
 
 import com.bena.api.module.cost.dto.cement.CementCostRequest;
 import com.bena.api.module.cost.dto.cement.CementCostResponse;
-import com.bena.api.module.cost.repository.MaterialRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,7 +18,11 @@ import java.math.RoundingMode;
 @Slf4j
 public class CementCostService {
 
-    private final MaterialRepository materialRepository;
+    private final MaterialPriceService materialPriceService;
+
+    private static final String CEMENT_PORTLAND_CODE = "CEMENT_PORTLAND";
+    private static final String CEMENT_RESISTANT_CODE = "CEMENT_RESISTANT";
+    private static final String SAND_CODE = "SAND";
 
     // القيم الافتراضية
     private static final BigDecimal DEFAULT_CEMENT_PRICE_PER_TON = new BigDecimal("180000");
@@ -33,6 +36,10 @@ public class CementCostService {
     private static final int CEMENT_BAG_WEIGHT_KG = 50;
 
     public CementCostResponse calculate(CementCostRequest request) {
+        return calculate(request, materialPriceService.current());
+    }
+
+    public CementCostResponse calculate(CementCostRequest request, MaterialPriceSnapshot prices) {
         log.debug("Calculating cement cost for usage type: {}", request.getUsageType());
 
         BigDecimal area = request.getArea();
@@ -98,10 +105,12 @@ public class CementCostService {
                 .divide(BigDecimal.valueOf(totalParts), 2, RoundingMode.HALF_UP);
 
         // 3. حساب الكلف
+        String cementCode = "resistant".equalsIgnoreCase(request.getCementType()) ?
+                CEMENT_RESISTANT_CODE : CEMENT_PORTLAND_CODE;
         BigDecimal cementPrice = request.getCementPricePerTon() != null ?
-                request.getCementPricePerTon() : DEFAULT_CEMENT_PRICE_PER_TON;
+                request.getCementPricePerTon() : prices.price(cementCode, DEFAULT_CEMENT_PRICE_PER_TON);
         BigDecimal sandPrice = request.getSandPricePerM3() != null ?
-                request.getSandPricePerM3() : DEFAULT_SAND_PRICE_PER_M3;
+                request.getSandPricePerM3() : prices.price(SAND_CODE, DEFAULT_SAND_PRICE_PER_M3);
         BigDecimal laborCostPerM2 = request.getLaborCostPerM2() != null ?
                 request.getLaborCostPerM2() : DEFAULT_LABOR_COST_PER_M2;
 
@@ -155,6 +164,7 @@ public class CementCostService {
                 .mixRatioUsed("1:" + mixRatio)
                 .estimatedWorkDays(estimatedWorkDays)
                 .inputSummary(request)
+                .priceVersion(prices.version())
                 .build();
     }
 }
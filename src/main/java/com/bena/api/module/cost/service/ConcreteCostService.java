@@ -2,7 +2,6 @@ package com.bena.api.module.cost.service;
 
 import com.bena.api.module.cost.dto.concrete.ConcreteCostRequest;
 import com.bena.api.module.cost.dto.concrete.ConcreteCostResponse;
-import com.bena.api.module.cost.repository.MaterialRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,7 +18,12 @@ import java.math.RoundingMode;
 @Slf4j
 public class ConcreteCostService {
 
-    private final MaterialRepository materialRepository;
+    private final MaterialPriceService materialPriceService;
+
+    private static final String CONCRETE_CODE = "CONCRETE_READY";
+    private static final String STEEL_CODE = "STEEL_REBAR_12";
+    private static final String HOLLOW_BLOCK_CODE = "HOLLOW_BLOCK";
+    private static final String STYROFOAM_CODE = "STYROFOAM";
 
     // القيم الافتراضية
     private static final BigDecimal DEFAULT_CONCRETE_PRICE_PER_M3 = new BigDecimal("180000");
@@ -39,6 +43,10 @@ public class ConcreteCostService {
     private static final BigDecimal STYROFOAM_PRICE_PER_M2 = new BigDecimal("15000");
 
     public ConcreteCostResponse calculate(ConcreteCostRequest request) {
+        return calculate(request, materialPriceService.current());
+    }
+
+    public ConcreteCostResponse calculate(ConcreteCostRequest request, MaterialPriceSnapshot prices) {
         log.debug("Calculating concrete cost for type: {}", request.getConcreteType());
 
         // 1. حساب الحجم والمساحة
@@ -74,9 +82,9 @@ public class ConcreteCostService {
 
         // 4. جلب الأسعار
         BigDecimal concretePrice = request.getConcretePricePerM3() != null ?
-                request.getConcretePricePerM3() : DEFAULT_CONCRETE_PRICE_PER_M3;
+                request.getConcretePricePerM3() : prices.price(CONCRETE_CODE, DEFAULT_CONCRETE_PRICE_PER_M3);
         BigDecimal steelPrice = request.getSteelPricePerTon() != null ?
-                request.getSteelPricePerTon() : DEFAULT_STEEL_PRICE_PER_TON;
+                request.getSteelPricePerTon() : prices.price(STEEL_CODE, DEFAULT_STEEL_PRICE_PER_TON);
         BigDecimal laborCost = request.getLaborCostPerM3() != null ?
                 request.getLaborCostPerM3() : DEFAULT_LABOR_COST_PER_M3;
         BigDecimal formworkCost = request.getFormworkCostPerM2() != null ?
@@ -102,11 +110,11 @@ public class ConcreteCostService {
                 case "hollow" -> {
                     hollowBlockCount = areaM2.multiply(BigDecimal.valueOf(HOLLOW_BLOCKS_PER_M2))
                             .setScale(0, RoundingMode.CEILING).intValue();
-                    slabMaterialCost = BigDecimal.valueOf(hollowBlockCount).multiply(HOLLOW_BLOCK_PRICE);
+                    slabMaterialCost = BigDecimal.valueOf(hollowBlockCount).multiply(prices.price(HOLLOW_BLOCK_CODE, HOLLOW_BLOCK_PRICE));
                 }
                 case "styrofoam" -> {
                     styrofoamArea = areaM2;
-                    slabMaterialCost = areaM2.multiply(STYROFOAM_PRICE_PER_M2);
+                    slabMaterialCost = areaM2.multiply(prices.price(STYROFOAM_CODE, STYROFOAM_PRICE_PER_M2));
                 }
             }
         }
@@ -149,6 +157,7 @@ public class ConcreteCostService {
                 .slabType(request.getSlabType())
                 .estimatedWorkDays(estimatedWorkDays)
                 .inputSummary(request)
+                .priceVersion(prices.version())
                 .build();
     }
 }
@@ -2,7 +2,6 @@ package com.bena.api.module.cost.service;
 
 import com.bena.api.module.cost.dto.electrical.ElectricalCostRequest;
 import com.bena.api.module.cost.dto.electrical.ElectricalCostResponse;
-import com.bena.api.module.cost.repository.MaterialRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,7 +18,13 @@ import java.math.RoundingMode;
 @Slf4j
 public class ElectricalCostService {
 
-    private final MaterialRepository materialRepository;
+    private final MaterialPriceService materialPriceService;
+
+    private static final String WIRE_CODE = "ELEC_WIRE";
+    private static final String SWITCH_CODE = "ELEC_SWITCH";
+    private static final String SOCKET_CODE = "ELEC_SOCKET";
+    private static final String BREAKER_CODE = "ELEC_BREAKER";
+    private static final String DISTRIBUTION_BOARD_CODE = "ELEC_DISTRIBUTION_BOARD";
 
     // القيم الافتراضية
     private static final BigDecimal DEFAULT_WIRE_PRICE_PER_METER = new BigDecimal("1500");
@@ -35,6 +40,10 @@ public class ElectricalCostService {
     private static final BigDecimal CONDUIT_COST_RATIO = new BigDecimal("0.25"); // 25% من كلفة الأسلاك
 
     public ElectricalCostResponse calculate(ElectricalCostRequest request) {
+        return calculate(request, materialPriceService.current());
+    }
+
+    public ElectricalCostResponse calculate(ElectricalCostRequest request, MaterialPriceSnapshot prices) {
         log.debug("Calculating electrical cost with method: {}", request.getCalculationType());
 
         int totalPoints;
@@ -94,15 +103,15 @@ public class ElectricalCostService {
 
         // جلب الأسعار
         BigDecimal wirePrice = request.getWirePricePerMeter() != null ?
-                request.getWirePricePerMeter() : DEFAULT_WIRE_PRICE_PER_METER;
+                request.getWirePricePerMeter() : prices.price(WIRE_CODE, DEFAULT_WIRE_PRICE_PER_METER);
         BigDecimal switchPrice = request.getSwitchPrice() != null ?
-                request.getSwitchPrice() : DEFAULT_SWITCH_PRICE;
+                request.getSwitchPrice() : prices.price(SWITCH_CODE, DEFAULT_SWITCH_PRICE);
         BigDecimal socketPrice = request.getSocketPrice() != null ?
-                request.getSocketPrice() : DEFAULT_SOCKET_PRICE;
+                request.getSocketPrice() : prices.price(SOCKET_CODE, DEFAULT_SOCKET_PRICE);
         BigDecimal breakerPrice = request.getBreakerPrice() != null ?
-                request.getBreakerPrice() : DEFAULT_BREAKER_PRICE;
+                request.getBreakerPrice() : prices.price(BREAKER_CODE, DEFAULT_BREAKER_PRICE);
         BigDecimal distributionBoardPrice = request.getDistributionBoardPrice() != null ?
-                request.getDistributionBoardPrice() : DEFAULT_DISTRIBUTION_BOARD_PRICE;
+                request.getDistributionBoardPrice() : prices.price(DISTRIBUTION_BOARD_CODE, DEFAULT_DISTRIBUTION_BOARD_PRICE);
         BigDecimal laborCostPerPoint = request.getLaborCostPerPoint() != null ?
                 request.getLaborCostPerPoint() : DEFAULT_LABOR_COST_PER_POINT;
 
@@ -160,6 +169,7 @@ public class ElectricalCostService {
                 .calculationType(calcType)
                 .estimatedWorkDays(estimatedWorkDays)
                 .inputSummary(request)
+                .priceVersion(prices.version())
                 .build();
     }
 }
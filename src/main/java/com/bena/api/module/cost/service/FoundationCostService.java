@@ -2,7 +2,6 @@ package com.bena.api.module.cost.service;
 
 import com.bena.api.module.cost.dto.foundation.FoundationCostRequest;
 import com.bena.api.module.cost.dto.foundation.FoundationCostResponse;
-import com.bena.api.module.cost.repository.MaterialRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,7 +18,12 @@ import java.math.RoundingMode;
 @Slf4j
 public class FoundationCostService {
 
-    private final MaterialRepository materialRepository;
+    private final MaterialPriceService materialPriceService;
+
+    private static final String EXCAVATION_CODE = "EXCAVATION";
+    private static final String FILL_CODE = "FILL_COMPACTED";
+    private static final String CONCRETE_CODE = "CONCRETE_READY";
+    private static final String STEEL_CODE = "STEEL_REBAR_12";
 
     // القيم الافتراضية
     private static final BigDecimal DEFAULT_EXCAVATION_PRICE_PER_M3 = new BigDecimal("15000");
@@ -32,6 +36,10 @@ public class FoundationCostService {
     private static final BigDecimal STEEL_RATIO_FOOTING = new BigDecimal("100");
 
     public FoundationCostResponse calculate(FoundationCostRequest request) {
+        return calculate(request, materialPriceService.current());
+    }
+
+    public FoundationCostResponse calculate(FoundationCostRequest request, MaterialPriceSnapshot prices) {
         log.debug("Calculating foundation cost for land area: {} m²", request.getLandArea());
 
         BigDecimal wastePercentage = request.getWastePercentage() != null ?
@@ -43,7 +51,7 @@ public class FoundationCostService {
                 .setScale(2, RoundingMode.HALF_UP);
 
         BigDecimal excavationPrice = request.getExcavationPricePerM3() != null ?
-                request.getExcavationPricePerM3() : DEFAULT_EXCAVATION_PRICE_PER_M3;
+                request.getExcavationPricePerM3() : prices.price(EXCAVATION_CODE, DEFAULT_EXCAVATION_PRICE_PER_M3);
         BigDecimal excavationCost = excavationVolume.multiply(excavationPrice)
                 .setScale(0, RoundingMode.HALF_UP);
 
@@ -70,9 +78,9 @@ public class FoundationCostService {
 
             // الكلف
             BigDecimal concretePrice = request.getConcretePricePerM3() != null ?
-                    request.getConcretePricePerM3() : DEFAULT_CONCRETE_PRICE_PER_M3;
+                    request.getConcretePricePerM3() : prices.price(CONCRETE_CODE, DEFAULT_CONCRETE_PRICE_PER_M3);
             BigDecimal steelPrice = request.getSteelPricePerTon() != null ?
-                    request.getSteelPricePerTon() : DEFAULT_STEEL_PRICE_PER_TON;
+                    request.getSteelPricePerTon() : prices.price(STEEL_CODE, DEFAULT_STEEL_PRICE_PER_TON);
 
             footingConcreteCost = footingConcreteVolume.multiply(concretePrice)
                     .setScale(0, RoundingMode.HALF_UP);
@@ -91,7 +99,7 @@ public class FoundationCostService {
                     .setScale(2, RoundingMode.HALF_UP);
 
             BigDecimal fillPrice = request.getFillPricePerM3() != null ?
-                    request.getFillPricePerM3() : DEFAULT_FILL_PRICE_PER_M3;
+                    request.getFillPricePerM3() : prices.price(FILL_CODE, DEFAULT_FILL_PRICE_PER_M3);
             fillCost = fillVolume.multiply(fillPrice)
                     .setScale(0, RoundingMode.HALF_UP);
         }
@@ -103,7 +111,7 @@ public class FoundationCostService {
                 .setScale(2, RoundingMode.HALF_UP);
 
         // السبيس = خرسانة عادية (بدون حديد) بسعر أقل
-        BigDecimal spaceConcretePrice = DEFAULT_CONCRETE_PRICE_PER_M3
+        BigDecimal spaceConcretePrice = prices.price(CONCRETE_CODE, DEFAULT_CONCRETE_PRICE_PER_M3)
                 .multiply(new BigDecimal("0.7")); // 70% من سعر الخرسانة المسلحة
         BigDecimal spaceCost = spaceVolume.multiply(spaceConcretePrice)
                 .setScale(0, RoundingMode.HALF_UP);
@@ -152,6 +160,7 @@ public class FoundationCostService {
                 .currency(request.getCurrency())
                 .estimatedWorkDays(estimatedWorkDays)
                 .inputSummary(request)
+                .priceVersion(prices.version())
                 .build();
     }
 }
@@ -0,0 +1,385 @@
+package com.bena.api.module.cost.service;
+
+import com.bena.api.common.exception.InvalidOperationException;
+import com.bena.api.module.cost.dto.brick.BrickCostResponse;
+import com.bena.api.module.cost.dto.cement.CementCostResponse;
+import com.bena.api.module.cost.dto.concrete.ConcreteCostResponse;
+import com.bena.api.module.cost.dto.electrical.ElectricalCostRequest;
+import com.bena.api.module.cost.dto.electrical.ElectricalCostResponse;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateRequest;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateResponse;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateResponse.EstimateItem;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateResponse.TradeSubtotal;
+import com.bena.api.module.cost.dto.foundation.FoundationCostResponse;
+import com.bena.api.module.cost.dto.plumbing.PlumbingCostRequest;
+import com.bena.api.module.cost.dto.plumbing.PlumbingCostResponse;
+import com.bena.api.module.cost.dto.steel.SteelCostResponse;
+import com.bena.api.module.cost.dto.tiles.TilesCostResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * تقدير كلفة بيت كامل بطلب واحد:
+ * - كل بند يُحسب بحاسبته الأصلية (BrickCostService ...)، افتراضياً على خيط الطلب بالتتابع:
+ *   الحاسبات تقرأ الأسعار من الذاكرة وكل بند بضع مايكروثوان، فالتوزيع على executor أبطأ
+ *   (HouseEstimateBenchmark). threads > 0 يوزع البنود على executor محدود الحجم لحاسبات تنتظر I/O
+ * - كل البنود تُحسب على نسخة أسعار واحدة تُؤخذ في بداية التقدير، فلا يختلط سعران إذا تغيرت الأسعار أثناءه
+ * - فشل بند أو تجاوزه المهلة لا يُفشل التقدير، بل يظهر كبند failed ولا يدخل في المجموع
+ * - النتيجة جدول كميات (BOQ) بمجموع فرعي لكل صنعة
+ * عند امتلاء الطابور يُحسب البند على خيط الطلب نفسه بدل رفضه.
+ * عند انتهاء المهلة يُلغى البند: إن لم يبدأ لا يُحسب أبداً، وإن كان جارياً يُقاطع خيطه
+ * (الحاسبات حسابات ثابتة الكلفة، والحلقة الوحيدة - قضبان الحديد - تتوقف عند المقاطعة).
+ * في الوضع المباشر (threads=0) تُفحص المهلة قبل كل بند فقط: البند الجاري لا يُقاطع لأنه على خيط الطلب،
+ * والبنود التالية له تظهر failed. أسوأ حالة إذن المهلة + زمن بند واحد.
+ * الكهرباء والسباكة تُقدّر من وصف البناء (المساحة والطوابق) إذا لم تُدخل بنودها.
+ * الإحصائيات: /actuator/metrics/cost.estimate
+ */
+@Service
+@Slf4j
+public class HouseEstimateService {
+
+    static final String STATUS_OK = "ok";
+    static final String STATUS_FAILED = "failed";
+
+    private static final String TIMEOUT_MESSAGE = "انتهت مهلة حساب هذا البند";
+
+    private final BrickCostService brickCostService;
+    private final CementCostService cementCostService;
+    private final SteelCostService steelCostService;
+    private final ConcreteCostService concreteCostService;
+    private final FoundationCostService foundationCostService;
+    private final TilesCostService tilesCostService;
+    private final ElectricalCostService electricalCostService;
+    private final PlumbingCostService plumbingCostService;
+    private final MaterialPriceService materialPriceService;
+
+    private final ThreadPoolExecutor executor;
+    private final long timeoutMs;
+
+    private final Counter complete;
+    private final Counter partial;
+    private final Counter failedItems;
+
+    public HouseEstimateService(
+            BrickCostService brickCostService,
+            CementCostService cementCostService,
+            SteelCostService steelCostService,
+            ConcreteCostService concreteCostService,
+            FoundationCostService foundationCostService,
+            TilesCostService tilesCostService,
+            ElectricalCostService electricalCostService,
+            PlumbingCostService plumbingCostService,
+            MaterialPriceService materialPriceService,
+            MeterRegistry meterRegistry,
+            @Value("${app.cost.estimate.threads:0}") int threads,
+            @Value("${app.cost.estimate.queue-capacity:200}") int queueCapacity,
+            @Value("${app.cost.estimate.timeout-ms:3000}") long timeoutMs
+    ) {
+        this.brickCostService = brickCostService;
+        this.cementCostService = cementCostService;
+        this.steelCostService = steelCostService;
+        this.concreteCostService = concreteCostService;
+        this.foundationCostService = foundationCostService;
+        this.tilesCostService = tilesCostService;
+        this.electricalCostService = electricalCostService;
+        this.plumbingCostService = plumbingCostService;
+        this.materialPriceService = materialPriceService;
+        this.timeoutMs = timeoutMs;
+
+        if (threads > 0) {
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(queueCapacity),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "cost-estimate-" + threadNumber.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+            meterRegistry.gauge("cost.estimate.queue", executor, e -> e.getQueue().size());
+        } else {
+            this.executor = null;
+        }
+
+        this.complete = meterRegistry.counter("cost.estimate", "result", "complete");
+        this.partial = meterRegistry.counter("cost.estimate", "result", "partial");
+        this.failedItems = meterRegistry.counter("cost.estimate", "result", "failed_item");
+
+        if (executor != null) {
+            log.info("✅ House estimate executor: threads={}, queue={}, timeout={}ms", threads, queueCapacity, timeoutMs);
+        } else {
+            log.info("✅ House estimate: inline on request thread, timeout={}ms checked between items", timeoutMs);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    public HouseEstimateResponse estimate(HouseEstimateRequest request) {
+        long start = System.nanoTime();
+        // مهلة واحدة للتقدير كله وليس لكل بند
+        long deadline = start + TimeUnit.MILLISECONDS.toNanos(timeoutMs);
+        MaterialPriceSnapshot prices = materialPriceService.current();
+
+        // بترتيب مراحل البناء، وهو نفس ترتيب الصنعات في الاستجابة
+        List<Task> tasks = new ArrayList<>();
+        HouseEstimateRequest.Building building = request.getBuilding();
+        submit(tasks, deadline, prices, Trade.FOUNDATION, request.getFoundation(), foundationCostService::calculate,
+                FoundationCostResponse::getTotalCost, FoundationCostResponse::getCurrency, FoundationCostResponse::getPriceVersion);
+        submit(tasks, deadline, prices, Trade.CONCRETE, request.getConcrete(), concreteCostService::calculate,
+                ConcreteCostResponse::getTotalCost, ConcreteCostResponse::getCurrency, ConcreteCostResponse::getPriceVersion);
+        submit(tasks, deadline, prices, Trade.STEEL, request.getSteel(), steelCostService::calculate,
+                SteelCostResponse::getTotalCost, SteelCostResponse::getCurrency, SteelCostResponse::getPriceVersion);
+        submit(tasks, deadline, prices, Trade.BRICK, request.getBrick(), brickCostService::calculate,
+                BrickCostResponse::getTotalCost, BrickCostResponse::getCurrency, BrickCostResponse::getPriceVersion);
+        submit(tasks, deadline, prices, Trade.CEMENT, request.getCement(), cementCostService::calculate,
+                CementCostResponse::getTotalCost, CementCostResponse::getCurrency, CementCostResponse::getPriceVersion);
+        submit(tasks, deadline, prices, Trade.TILES, request.getTiles(), tilesCostService::calculate,
+                TilesCostResponse::getTotalCost, TilesCostResponse::getCurrency, TilesCostResponse::getPriceVersion);
+        submit(tasks, deadline, prices, Trade.ELECTRICAL, orFromBuilding(request.getElectrical(), building, this::electricalFor),
+                electricalCostService::calculate,
+                ElectricalCostResponse::getTotalCost, ElectricalCostResponse::getCurrency, ElectricalCostResponse::getPriceVersion);
+        submit(tasks, deadline, prices, Trade.PLUMBING, orFromBuilding(request.getPlumbing(), building, this::plumbingFor),
+                plumbingCostService::calculate,
+                PlumbingCostResponse::getTotalCost, PlumbingCostResponse::getCurrency, PlumbingCostResponse::getPriceVersion);
+
+        if (tasks.isEmpty()) {
+            throw new InvalidOperationException("يجب إدخال بند واحد على الأقل للتقدير");
+        }
+
+        List<Outcome> outcomes = new ArrayList<>(tasks.size());
+        for (Task task : tasks) {
+            outcomes.add(await(task, deadline));
+        }
+
+        return assemble(request, outcomes, start);
+    }
+
+    // ==================== Helpers ====================
+
+    private <Q, R> void submit(List<Task> tasks, long deadline, MaterialPriceSnapshot prices, Trade trade,
+                               List<Q> requests, BiFunction<Q, MaterialPriceSnapshot, R> calculator,
+                               Function<R, BigDecimal> total, Function<R, String> currency,
+                               Function<R, String> priceVersion) {
+        if (requests == null) {
+            return;
+        }
+        for (int i = 0; i < requests.size(); i++) {
+            Q itemRequest = requests.get(i);
+            int index = i;
+            // FutureTask: الإلغاء يمنع البند من البدء إن كان في الطابور ويقاطع خيطه إن كان جارياً
+            FutureTask<Outcome> future = new FutureTask<>(() -> {
+                long itemStart = System.nanoTime();
+                if (itemStart - deadline >= 0) {
+                    // بقي في الطابور حتى انتهت المهلة
+                    return Outcome.failed(trade, index, TIMEOUT_MESSAGE, 0);
+                }
+                try {
+                    R result = calculator.apply(itemRequest, prices);
+                    return Outcome.ok(trade, index, result, total.apply(result), currency.apply(result),
+                            priceVersion.apply(result), elapsedMs(itemStart));
+                } catch (CancellationException e) {
+                    return Outcome.failed(trade, index, TIMEOUT_MESSAGE, elapsedMs(itemStart));
+                } catch (Exception e) {
+                    log.warn("⚠️ Estimate item {}[{}] failed: {}", trade.code, index, e.getMessage());
+                    return Outcome.failed(trade, index, errorMessage(e), elapsedMs(itemStart));
+                }
+            });
+            if (executor != null) {
+                executor.execute(future);
+            } else {
+                future.run();
+            }
+            tasks.add(new Task(trade, index, future));
+        }
+    }
+
+    private Outcome await(Task task, long deadline) {
+        try {
+            long remaining = Math.max(0, deadline - System.nanoTime());
+            return task.future.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            task.future.cancel(true);
+            return Outcome.failed(task.trade, task.index, TIMEOUT_MESSAGE, timeoutMs);
+        } catch (InterruptedException e) {
+            task.future.cancel(true);
+            Thread.currentThread().interrupt();
+            return Outcome.failed(task.trade, task.index, "تم إيقاف الحساب", 0);
+        } catch (ExecutionException e) {
+            return Outcome.failed(task.trade, task.index, errorMessage(e.getCause()), 0);
+        } catch (CancellationException e) {
+            return Outcome.failed(task.trade, task.index, TIMEOUT_MESSAGE, timeoutMs);
+        }
+    }
+
+    private HouseEstimateResponse assemble(HouseEstimateRequest request, List<Outcome> outcomes, long start) {
+        Map<Trade, TradeSubtotal> trades = new LinkedHashMap<>();
+        List<EstimateItem> items = new ArrayList<>(outcomes.size());
+        Set<String> priceVersions = new LinkedHashSet<>();
+        BigDecimal grandTotal = BigDecimal.ZERO;
+        String currency = null;
+        int failed = 0;
+
+        for (Outcome outcome : outcomes) {
+            TradeSubtotal subtotal = trades.computeIfAbsent(outcome.trade, trade -> TradeSubtotal.builder()
+                    .trade(trade.code)
+                    .nameAr(trade.nameAr)
+                    .subtotal(BigDecimal.ZERO)
+                    .build());
+            subtotal.setItemCount(subtotal.getItemCount() + 1);
+
+            if (STATUS_OK.equals(outcome.status)) {
+                BigDecimal cost = outcome.totalCost != null ? outcome.totalCost : BigDecimal.ZERO;
+                subtotal.setSubtotal(subtotal.getSubtotal().add(cost));
+                grandTotal = grandTotal.add(cost);
+                if (currency == null) {
+                    currency = outcome.currency;
+                }
+                if (outcome.priceVersion != null) {
+                    priceVersions.add(outcome.priceVersion);
+                }
+            } else {
+                subtotal.setFailedCount(subtotal.getFailedCount() + 1);
+                failed++;
+            }
+
+            items.add(EstimateItem.builder()
+                    .trade(outcome.trade.code)
+                    .index(outcome.index)
+                    .status(outcome.status)
+                    .totalCost(outcome.totalCost)
+                    .error(outcome.error)
+                    .durationMs(outcome.durationMs)
+                    .result(outcome.result)
+                    .build());
+        }
+
+        if (grandTotal.signum() > 0) {
+            for (TradeSubtotal subtotal : trades.values()) {
+                subtotal.setPercentage(subtotal.getSubtotal()
+                        .multiply(BigDecimal.valueOf(100))
+                        .divide(grandTotal, 1, RoundingMode.HALF_UP));
+            }
+        }
+
+        if (failed == 0) {
+            complete.increment();
+        } else {
+            partial.increment();
+            failedItems.increment(failed);
+        }
+
+        return HouseEstimateResponse.builder()
+                .title(request.getTitle())
+                .grandTotal(grandTotal)
+                .currency(currency != null ? currency : "IQD")
+                .complete(failed == 0)
+                .failedItems(failed)
+                .trades(List.copyOf(trades.values()))
+                .items(items)
+                .priceVersion(priceVersions.isEmpty() ? null : String.join(",", priceVersions))
+                .durationMs(elapsedMs(start))
+                .build();
+    }
+
+    private static <Q> List<Q> orFromBuilding(List<Q> requests, HouseEstimateRequest.Building building,
+                                              Function<HouseEstimateRequest.Building, Q> derive) {
+        if ((requests == null || requests.isEmpty()) && building != null) {
+            return List.of(derive.apply(building));
+        }
+        return requests;
+    }
+
+    // الحاسبتان تقدّران النقاط والحمامات من المساحة (by_area)
+    private ElectricalCostRequest electricalFor(HouseEstimateRequest.Building building) {
+        return ElectricalCostRequest.builder()
+                .calculationType("by_area")
+                .buildingArea(building.getBuildingArea())
+                .floors(building.getFloors())
+                .build();
+    }
+
+    private PlumbingCostRequest plumbingFor(HouseEstimateRequest.Building building) {
+        return PlumbingCostRequest.builder()
+                .calculationType("by_area")
+                .buildingArea(building.getBuildingArea())
+                .floors(building.getFloors())
+                .build();
+    }
+
+    private static String errorMessage(Throwable e) {
+        // رسائل التحقق من الحاسبات عربية وموجهة للمستخدم، غيرها لا يُعرض
+        if (e instanceof IllegalArgumentException || e instanceof InvalidOperationException) {
+            return e.getMessage();
+        }
+        return "تعذر حساب هذا البند، تحقق من المدخلات";
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+
+    private enum Trade {
+        FOUNDATION("foundation", "الأساس والدفان"),
+        CONCRETE("concrete", "الصبة"),
+        STEEL("steel", "الحديد"),
+        BRICK("brick", "الطابوق"),
+        CEMENT("cement", "السمنت"),
+        TILES("tiles", "الكاشي والسيراميك"),
+        ELECTRICAL("electrical", "الكهرباء"),
+        PLUMBING("plumbing", "السباكة");
+
+        private final String code;
+        private final String nameAr;
+
+        Trade(String code, String nameAr) {
+            this.code = code;
+            this.nameAr = nameAr;
+        }
+    }
+
+    private record Task(Trade trade, int index, Future<Outcome> future) {
+    }
+
+    private record Outcome(Trade trade, int index, String status, Object result, BigDecimal totalCost,
+                           String currency, String priceVersion, String error, long durationMs) {
+
+        static Outcome ok(Trade trade, int index, Object result, BigDecimal totalCost, String currency,
+                          String priceVersion, long durationMs) {
+            return new Outcome(trade, index, STATUS_OK, result, totalCost, currency, priceVersion,
+                    null, durationMs);
+        }
+
+        static Outcome failed(Trade trade, int index, String error, long durationMs) {
+            return new Outcome(trade, index, STATUS_FAILED, null, null, null, null, error, durationMs);
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package com.bena.api.module.cost.service;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * نسخة أسعار المواد في الذاكرة للحاسبات:
+ * - تُحمّل باستعلام واحد (materials + آخر سعر ساري من material_prices للمنطقة)
+ * - تُستبدل ذرياً (AtomicReference) عند تغير الأسعار، والحسابات الجارية تكمل على النسخة التي بدأت بها
+ * - كل refresh-ms يُقارن بصمة رخيصة (التاريخ ورقم نسخة الأسعار الذي يزيده trigger) ولا يُعاد التحميل إلا إذا تغيرت
+ */
+@Service
+@Slf4j
+public class MaterialPriceService {
+
+    private static final String LOAD_SQL = """
+            SELECT m.code, m.name_ar, m.unit,
+                   COALESCE(p.price, m.default_price) AS price,
+                   COALESCE(p.labor_cost, m.default_labor_cost) AS labor_cost,
+                   m.specifications::text AS specifications
+            FROM materials m
+            LEFT JOIN LATERAL (
+                SELECT mp.price, mp.labor_cost
+                FROM material_prices mp
+                WHERE mp.material_id = m.id AND mp.region = ? AND mp.effective_date <= CURRENT_DATE
+                ORDER BY mp.effective_date DESC, mp.created_at DESC
+                LIMIT 1
+            ) p ON TRUE
+            WHERE m.is_active = TRUE
+            """;
+
+    // CURRENT_DATE حتى يُطبق السعر المستقبلي عند حلول تاريخه، و version يزيد مع كل تغيير (V112)
+    private static final String FINGERPRINT_SQL = """
+            SELECT CURRENT_DATE::text || '|' || (SELECT version FROM material_price_version)
+            """;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicReference<MaterialPriceSnapshot> current = new AtomicReference<>();
+    private final JdbcTemplate jdbcTemplate;
+    private final String region;
+    private volatile String fingerprint;
+
+    public MaterialPriceService(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.cost.prices.region:baghdad}") String region
+    ) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.region = region;
+    }
+
+    /**
+     * النسخة الحالية - بدون أي استعلام بعد التحميل الأول
+     */
+    public MaterialPriceSnapshot current() {
+        MaterialPriceSnapshot snapshot = current.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        synchronized (this) {
+            if (current.get() == null) {
+                reload();
+            }
+            return current.get();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        current();
+    }
+
+    @Scheduled(fixedDelayString = "${app.cost.prices.refresh-ms:60000}", initialDelay = 60000)
+    public void refreshIfChanged() {
+        try {
+            String latest = jdbcTemplate.queryForObject(FINGERPRINT_SQL, String.class);
+            if (latest != null && !latest.equals(fingerprint)) {
+                reload();
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Material price refresh failed: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * إعادة التحميل فوراً (مثلاً بعد إدخال أسعار جديدة)
+     */
+    public synchronized MaterialPriceSnapshot reload() {
+        try {
+            String latestFingerprint = jdbcTemplate.queryForObject(FINGERPRINT_SQL, String.class);
+            Map<String, MaterialPriceSnapshot.Entry> entries = new TreeMap<>();
+            jdbcTemplate.query(LOAD_SQL, rs -> {
+                String code = rs.getString("code");
+                entries.put(code, new MaterialPriceSnapshot.Entry(
+                        code,
+                        rs.getString("name_ar"),
+                        rs.getString("unit"),
+                        rs.getBigDecimal("price"),
+                        rs.getBigDecimal("labor_cost"),
+                        parseSpecifications(rs.getString("specifications"))
+                ));
+            }, region);
+
+            MaterialPriceSnapshot snapshot = new MaterialPriceSnapshot(
+                    version(entries), OffsetDateTime.now(), Collections.unmodifiableMap(entries));
+            MaterialPriceSnapshot previous = current.getAndSet(snapshot);
+            fingerprint = latestFingerprint;
+            if (previous == null || !previous.version().equals(snapshot.version())) {
+                log.info("✅ Material prices loaded: version={}, materials={}", snapshot.version(), entries.size());
+            }
+            return snapshot;
+        } catch (Exception e) {
+            // الحاسبات تبقى تعمل على النسخة السابقة أو على القيم الافتراضية
+            log.warn("⚠️ Failed to load material prices: {}", e.getMessage());
+            current.compareAndSet(null, MaterialPriceSnapshot.EMPTY);
+            return current.get();
+        }
+    }
+
+    // ==================== Helpers ====================
+
+    private static Map<String, Object> parseSpecifications(String json) {
+        if (json == null || json.isBlank()) {
+            return Map.of();
+        }
+        try {
+            return Collections.unmodifiableMap(objectMapper.readValue(json, new TypeReference<HashMap<String, Object>>() {
+            }));
+        } catch (Exception e) {
+            return Map.of();
+        }
+    }
+
+    private static String version(Map<String, MaterialPriceSnapshot.Entry> entries) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            for (MaterialPriceSnapshot.Entry entry : entries.values()) {
+                String line = entry.code() + '|' + plain(entry.price()) + '|' + plain(entry.laborCost())
+                        + '|' + new TreeMap<>(entry.specifications()) + '\n';
+                digest.update(line.getBytes(StandardCharsets.UTF_8));
+            }
+            return HexFormat.of().formatHex(digest.digest()).substring(0, 12);
+        } catch (Exception e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String plain(BigDecimal value) {
+        return value == null ? "" : value.stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,40 @@
+package com.bena.api.module.cost.service;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * نسخة ثابتة (immutable) من أسعار المواد تقرأ منها الحاسبات بدون قاعدة البيانات.
+ * version مشتق من المحتوى، فنفس الأسعار تعطي نفس الإصدار على كل النسخ.
+ */
+public record MaterialPriceSnapshot(String version, OffsetDateTime loadedAt, Map<String, Entry> entries) {
+
+    /**
+     * سعر مادة: آخر سعر ساري من material_prices للمنطقة، وإلا default_price من materials
+     */
+    public record Entry(
+            String code,
+            String nameAr,
+            String unit,
+            BigDecimal price,
+            BigDecimal laborCost,
+            Map<String, Object> specifications
+    ) {
+    }
+
+    public static final MaterialPriceSnapshot EMPTY = new MaterialPriceSnapshot("defaults", null, Map.of());
+
+    public Optional<Entry> find(String code) {
+        return code == null ? Optional.empty() : Optional.ofNullable(entries.get(code));
+    }
+
+    public BigDecimal price(String code, BigDecimal fallback) {
+        return find(code).map(Entry::price).orElse(fallback);
+    }
+
+    public BigDecimal laborCost(String code, BigDecimal fallback) {
+        return find(code).map(Entry::laborCost).orElse(fallback);
+    }
+}
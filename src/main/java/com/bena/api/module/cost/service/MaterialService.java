@@ -0,0 +1,57 @@
+package com.bena.api.module.cost.service;
+
+import com.bena.api.config.cache.CacheRegions;
+import com.bena.api.module.cost.dto.material.MaterialResponse;
+import com.bena.api.module.cost.repository.MaterialRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * كتالوج المواد للعرض.
+ * القراءات بالمعرف والكود والفئة مخزنة في الكاش كـ MaterialResponse غير قابلة للتعديل، وليس كيانات JPA
+ * (لا يوجد مسار كتابة للمواد؛ التحديث بانتهاء TTL أو المسح من /v1/admin/caches).
+ */
+@Service
+@RequiredArgsConstructor
+@Transactional(readOnly = true)
+public class MaterialService {
+
+    private final MaterialRepository materialRepository;
+
+    public Page<MaterialResponse> getActiveMaterials(String search, Pageable pageable) {
+        if (search != null && !search.isBlank()) {
+            return materialRepository.searchMaterials(search.trim(), pageable).map(MaterialResponse::from);
+        }
+        return materialRepository.findAllActive(pageable).map(MaterialResponse::from);
+    }
+
+    @Cacheable(value = CacheRegions.MATERIALS, key = "'id:' + #id")
+    public Optional<MaterialResponse> getById(UUID id) {
+        return materialRepository.findById(id).map(MaterialResponse::from);
+    }
+
+    @Cacheable(value = CacheRegions.MATERIALS, key = "'code:' + #code")
+    public Optional<MaterialResponse> getByCode(String code) {
+        return materialRepository.findByCode(code).map(MaterialResponse::from);
+    }
+
+    @Cacheable(value = CacheRegions.MATERIALS, key = "'category:' + #category")
+    public List<MaterialResponse> getActiveByCategory(String category) {
+        return materialRepository.findActiveByCategoryOrderByNameAr(category).stream()
+                .map(MaterialResponse::from)
+                .toList();
+    }
+
+    @Cacheable(value = CacheRegions.MATERIALS, key = "'categories'")
+    public List<String> getActiveCategories() {
+        return List.copyOf(materialRepository.findAllActiveCategories());
+    }
+}
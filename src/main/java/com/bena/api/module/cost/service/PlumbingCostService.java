@@ -2,7 +2,6 @@ package com.bena.api.module.cost.service;
 
 import com.bena.api.module.cost.dto.plumbing.PlumbingCostRequest;
 import com.bena.api.module.cost.dto.plumbing.PlumbingCostResponse;
-import com.bena.api.module.cost.repository.MaterialRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -19,7 +18,16 @@ import java.math.RoundingMode;
 @Slf4j
 public class PlumbingCostService {
 
-    private final MaterialRepository materialRepository;
+    private final MaterialPriceService materialPriceService;
+
+    private static final String WATER_PIPE_CODE = "PLUMB_WATER_PIPE";
+    private static final String DRAIN_PIPE_CODE = "PLUMB_DRAIN_PIPE";
+    private static final String TOILET_CODE = "PLUMB_TOILET";
+    private static final String SINK_CODE = "PLUMB_SINK";
+    private static final String MIXER_CODE = "PLUMB_MIXER";
+    private static final String WATER_HEATER_CODE = "PLUMB_WATER_HEATER";
+    private static final String WATER_TANK_CODE = "PLUMB_WATER_TANK";
+    private static final String WATER_PUMP_CODE = "PLUMB_WATER_PUMP";
 
     // القيم الافتراضية
     private static final BigDecimal DEFAULT_WATER_PIPE_PRICE_PER_METER = new BigDecimal("3000");
@@ -43,6 +51,10 @@ public class PlumbingCostService {
     private static final BigDecimal FITTINGS_COST_RATIO = new BigDecimal("0.30"); // 30% من كلفة الأنابيب
 
     public PlumbingCostResponse calculate(PlumbingCostRequest request) {
+        return calculate(request, materialPriceService.current());
+    }
+
+    public PlumbingCostResponse calculate(PlumbingCostRequest request, MaterialPriceSnapshot prices) {
         log.debug("Calculating plumbing cost with method: {}", request.getCalculationType());
 
         int totalWaterPoints;
@@ -118,15 +130,15 @@ public class PlumbingCostService {
 
         // جلب الأسعار
         BigDecimal waterPipePrice = request.getWaterPipePricePerMeter() != null ?
-                request.getWaterPipePricePerMeter() : DEFAULT_WATER_PIPE_PRICE_PER_METER;
+                request.getWaterPipePricePerMeter() : prices.price(WATER_PIPE_CODE, DEFAULT_WATER_PIPE_PRICE_PER_METER);
         BigDecimal drainPipePrice = request.getDrainPipePricePerMeter() != null ?
-                request.getDrainPipePricePerMeter() : DEFAULT_DRAIN_PIPE_PRICE_PER_METER;
+                request.getDrainPipePricePerMeter() : prices.price(DRAIN_PIPE_CODE, DEFAULT_DRAIN_PIPE_PRICE_PER_METER);
         BigDecimal toiletPrice = request.getToiletPrice() != null ?
-                request.getToiletPrice() : DEFAULT_TOILET_PRICE;
+                request.getToiletPrice() : prices.price(TOILET_CODE, DEFAULT_TOILET_PRICE);
         BigDecimal sinkPrice = request.getSinkPrice() != null ?
-                request.getSinkPrice() : DEFAULT_SINK_PRICE;
+                request.getSinkPrice() : prices.price(SINK_CODE, DEFAULT_SINK_PRICE);
         BigDecimal mixerPrice = request.getMixerPrice() != null ?
-                request.getMixerPrice() : DEFAULT_MIXER_PRICE;
+                request.getMixerPrice() : prices.price(MIXER_CODE, DEFAULT_MIXER_PRICE);
         BigDecimal laborCostPerPoint = request.getLaborCostPerPoint() != null ?
                 request.getLaborCostPerPoint() : DEFAULT_LABOR_COST_PER_POINT;
 
@@ -143,11 +155,11 @@ public class PlumbingCostService {
 
         // الإضافات
         BigDecimal waterHeaterCost = Boolean.TRUE.equals(request.getIncludeWaterHeater()) ?
-                DEFAULT_WATER_HEATER_PRICE : BigDecimal.ZERO;
+                prices.price(WATER_HEATER_CODE, DEFAULT_WATER_HEATER_PRICE) : BigDecimal.ZERO;
         BigDecimal waterTankCost = Boolean.TRUE.equals(request.getIncludeWaterTank()) ?
-                DEFAULT_WATER_TANK_PRICE : BigDecimal.ZERO;
+                prices.price(WATER_TANK_CODE, DEFAULT_WATER_TANK_PRICE) : BigDecimal.ZERO;
         BigDecimal waterPumpCost = Boolean.TRUE.equals(request.getIncludeWaterPump()) ?
-                DEFAULT_WATER_PUMP_PRICE : BigDecimal.ZERO;
+                prices.price(WATER_PUMP_CODE, DEFAULT_WATER_PUMP_PRICE) : BigDecimal.ZERO;
 
         int totalPoints = totalWaterPoints + totalDrainPoints;
         BigDecimal laborCost = BigDecimal.valueOf(totalPoints).multiply(laborCostPerPoint)
@@ -199,6 +211,7 @@ public class PlumbingCostService {
                 .calculationType(calcType)
                 .estimatedWorkDays(estimatedWorkDays)
                 .inputSummary(request)
+                .priceVersion(prices.version())
                 .build();
     }
 }
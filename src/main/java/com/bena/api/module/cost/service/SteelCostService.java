@@ -2,7 +2,6 @@ package com.bena.api.module.cost.service;
 
 import com.bena.api.module.cost.dto.steel.SteelCostRequest;
 import com.bena.api.module.cost.dto.steel.SteelCostResponse;
-import com.bena.api.module.cost.repository.MaterialRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -12,6 +11,7 @@ import java.math.RoundingMode;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
 
 /**
  * خدمة حساب كلفة الحديد
@@ -22,7 +22,9 @@ import java.util.Map;
 @Slf4j
 public class SteelCostService {
 
-    private final MaterialRepository materialRepository;
+    private final MaterialPriceService materialPriceService;
+
+    private static final String STEEL_CODE = "STEEL_REBAR_12";
 
     // القيم الافتراضية
     private static final BigDecimal DEFAULT_STEEL_PRICE_PER_TON = new BigDecimal("1200000");
@@ -54,6 +56,10 @@ public class SteelCostService {
     );
 
     public SteelCostResponse calculate(SteelCostRequest request) {
+        return calculate(request, materialPriceService.current());
+    }
+
+    public SteelCostResponse calculate(SteelCostRequest request, MaterialPriceSnapshot prices) {
         log.debug("Calculating steel cost with method: {}", request.getCalculationMethod());
 
         BigDecimal weightTonNet;
@@ -94,6 +100,10 @@ public class SteelCostService {
 
                 if (request.getBars() != null) {
                     for (SteelCostRequest.SteelBar bar : request.getBars()) {
+                        // ضمن تقدير البيت: البند الملغى بعد المهلة لا يكمل باقي القضبان
+                        if (Thread.currentThread().isInterrupted()) {
+                            throw new CancellationException("تم إيقاف الحساب");
+                        }
                         BigDecimal weightPerMeter = WEIGHT_PER_METER.getOrDefault(
                                 bar.getDiameterMm(), 
                                 new BigDecimal("1.0")
@@ -137,7 +147,7 @@ public class SteelCostService {
 
         // حساب الكلف
         BigDecimal steelPrice = request.getSteelPricePerTon() != null ?
-                request.getSteelPricePerTon() : DEFAULT_STEEL_PRICE_PER_TON;
+                request.getSteelPricePerTon() : prices.price(STEEL_CODE, DEFAULT_STEEL_PRICE_PER_TON);
         BigDecimal cuttingCostPerTon = request.getCuttingCostPerTon() != null ?
                 request.getCuttingCostPerTon() : DEFAULT_CUTTING_COST_PER_TON;
         BigDecimal installationCostPerTon = request.getInstallationCostPerTon() != null ?
@@ -181,6 +191,7 @@ public class SteelCostService {
                 .barDetails(barDetails)
                 .estimatedWorkDays(estimatedWorkDays)
                 .inputSummary(request)
+                .priceVersion(prices.version())
                 .build();
     }
 }
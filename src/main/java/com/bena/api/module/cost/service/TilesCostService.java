@@ -2,7 +2,6 @@ package com.bena.api.module.cost.service;
 
 import com.bena.api.module.cost.dto.tiles.TilesCostRequest;
 import com.bena.api.module.cost.dto.tiles.TilesCostResponse;
-import com.bena.api.module.cost.repository.MaterialRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -20,7 +19,10 @@ import java.util.Map;
 @Slf4j
 public class TilesCostService {
 
-    private final MaterialRepository materialRepository;
+    private final MaterialPriceService materialPriceService;
+
+    private static final String ADHESIVE_CODE = "TILE_ADHESIVE";
+    private static final String WHITE_CEMENT_CODE = "WHITE_CEMENT";
 
     // القيم الافتراضية
     private static final Map<String, BigDecimal> DEFAULT_TILE_PRICES = Map.of(
@@ -40,6 +42,10 @@ public class TilesCostService {
     private static final BigDecimal TILES_PER_BOX_M2 = new BigDecimal("1.44"); // 1.44 م² لكل صندوق (60×60)
 
     public TilesCostResponse calculate(TilesCostRequest request) {
+        return calculate(request, materialPriceService.current());
+    }
+
+    public TilesCostResponse calculate(TilesCostRequest request, MaterialPriceSnapshot prices) {
         log.debug("Calculating tiles cost for type: {}, location: {}", 
                 request.getTileType(), request.getLocation());
 
@@ -59,11 +65,12 @@ public class TilesCostService {
         // جلب الأسعار
         String tileType = request.getTileType().toLowerCase();
         BigDecimal tilePrice = request.getTilePricePerM2() != null ?
-                request.getTilePricePerM2() : DEFAULT_TILE_PRICES.getOrDefault(tileType, new BigDecimal("25000"));
+                request.getTilePricePerM2() : prices.price("TILES_" + tileType.toUpperCase(),
+                DEFAULT_TILE_PRICES.getOrDefault(tileType, new BigDecimal("25000")));
         BigDecimal adhesivePrice = request.getAdhesivePricePerBag() != null ?
-                request.getAdhesivePricePerBag() : DEFAULT_ADHESIVE_PRICE_PER_BAG;
+                request.getAdhesivePricePerBag() : prices.price(ADHESIVE_CODE, DEFAULT_ADHESIVE_PRICE_PER_BAG);
         BigDecimal whiteCementPrice = request.getWhiteCementPricePerBag() != null ?
-                request.getWhiteCementPricePerBag() : DEFAULT_WHITE_CEMENT_PRICE_PER_BAG;
+                request.getWhiteCementPricePerBag() : prices.price(WHITE_CEMENT_CODE, DEFAULT_WHITE_CEMENT_PRICE_PER_BAG);
         BigDecimal laborCostPerM2 = request.getLaborCostPerM2() != null ?
                 request.getLaborCostPerM2() : DEFAULT_LABOR_COST_PER_M2;
 
@@ -114,6 +121,7 @@ public class TilesCostService {
                 .location(request.getLocation())
                 .estimatedWorkDays(estimatedWorkDays)
                 .inputSummary(request)
+                .priceVersion(prices.version())
                 .build();
     }
 }
@@ -6,6 +6,7 @@ import com.bena.api.module.design.dto.DesignDTO;
 import com.bena.api.module.design.entity.DesignCategory;
 import com.bena.api.module.design.service.DesignService;
 import com.bena.api.module.design.service.ImageStorageService;
+import com.bena.api.common.service.BlobRef;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -65,8 +66,7 @@ public class DesignAdminController {
         
         try {
             // حفظ الصورة
-            byte[] imageData = imageStorageService.saveImage(image);
-            String imageType = imageStorageService.getImageType(imageData);
+            BlobRef storedImage = imageStorageService.storeImage(image);
 
             // تحويل القيم
             Integer areaInSquareMeters = areaInSquareMetersStr != null ? Integer.parseInt(areaInSquareMetersStr) : null;
@@ -82,8 +82,8 @@ public class DesignAdminController {
             request.setAreaInSquareMeters(areaInSquareMeters);
             request.setEstimatedCost(estimatedCost);
             request.setIsFeatured(isFeatured);
-            request.setImageData(imageData);
-            request.setImageType(imageType);
+            request.setImageHash(storedImage.sha256());
+            request.setImageType(storedImage.contentType());
 
             DesignDTO design = designService.createDesign(request);
             return ResponseEntity.status(HttpStatus.CREATED).body(ApiResponse.success(design, "تم إضافة التصميم بنجاح"));
@@ -6,6 +6,7 @@ import com.bena.api.module.design.entity.DesignCategory;
 import com.bena.api.module.design.entity.DesignStyle;
 import com.bena.api.module.design.service.DesignService;
 import com.bena.api.module.design.service.ImageStorageService;
+import com.bena.api.common.service.BlobRef;
 import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
@@ -103,8 +104,7 @@ public class DesignController {
             @RequestPart(value = "estimatedCost", required = false) String estimatedCostStr,
             @RequestPart(value = "isFeatured", required = false) String isFeaturedStr
     ) throws IOException {
-        byte[] imageData = imageStorageService.saveImage(image);
-        String imageType = imageStorageService.getImageType(imageData);
+        BlobRef storedImage = imageStorageService.storeImage(image);
 
         Integer areaInSquareMeters = areaInSquareMetersStr != null ? Integer.parseInt(areaInSquareMetersStr) : null;
         Double estimatedCost = estimatedCostStr != null ? Double.parseDouble(estimatedCostStr) : null;
@@ -118,8 +118,8 @@ public class DesignController {
         request.setAreaInSquareMeters(areaInSquareMeters);
         request.setEstimatedCost(estimatedCost);
         request.setIsFeatured(isFeatured);
-        request.setImageData(imageData);
-        request.setImageType(imageType);
+        request.setImageHash(storedImage.sha256());
+        request.setImageType(storedImage.contentType());
 
         DesignDTO design = designService.createDesign(request);
         return ResponseEntity.ok(design);
@@ -2,6 +2,7 @@ package com.bena.api.module.design.dto;
 
 import com.bena.api.module.design.entity.DesignCategory;
 import com.bena.api.module.design.entity.DesignStyle;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
 import lombok.AllArgsConstructor;
@@ -26,6 +27,9 @@ public class CreateDesignRequest {
 
     private byte[] imageData;
 
+    @JsonIgnore  // يُعيَّن من الخادم فقط بعد ImageStorageService.storeImage، ولا يُقبل من جسم الطلب
+    private String imageHash;
+
     private String imageType;
 
     @NotNull(message = "نوع التصميم مطلوب")
@@ -1,5 +1,6 @@
 package com.bena.api.module.design.dto;
 
+import com.bena.api.common.dto.ImageVariantDTO;
 import com.bena.api.module.design.entity.DesignCategory;
 import com.bena.api.module.design.entity.DesignStyle;
 import lombok.AllArgsConstructor;
@@ -19,6 +20,9 @@ public class DesignDTO {
     private String title;
     private String description;
     private String imageUrl;  // URL الصورة فقط
+    private String thumbnailUrl;  // أصغر نسخة (null حتى تُولد النسخ)
+    private String blurhash;
+    private List<ImageVariantDTO> imageVariants;
     private DesignCategory category;
     private DesignStyle style;
     private Integer areaInSquareMeters;
@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.time.LocalDateTime;
@@ -36,13 +37,17 @@ public class Design {
     @Column(name = "image_url", length = 500)
     private String imageUrl;
     
-    // الأعمدة القديمة - للتوافق مع البيانات الموجودة
-    @Column(name = "image_data")
-    private byte[] imageData;
+    // العمود القديم image_data (bytea) لا يُحمل مع الصف؛ يُقدم من BlobController حتى ينقله BlobMigrationJob
+    @Formula("(image_data IS NOT NULL)")
+    private boolean legacyImage;
 
     @Column(name = "image_type", length = 50)
     private String imageType;
 
+    // SHA-256 للصورة في مخزن الملفات (بدل image_data)
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
+
     @Enumerated(EnumType.STRING)
     @Column(nullable = false)
     private DesignCategory category;
@@ -69,7 +74,8 @@ public class Design {
     @Column(name = "feature")
     private List<String> features;
 
-    @Column(name = "view_count")
+    // يُحدَّث فقط من ViewCounterService (UPDATE مجمع) حتى لا يلغي حفظ الكيان الزيادات المعلقة
+    @Column(name = "view_count", updatable = false)
     @Builder.Default
     private Integer viewCount = 0;
 
@@ -1,6 +1,11 @@
 package com.bena.api.module.design.service;
 
 import com.bena.api.common.service.FileStorageService;
+import com.bena.api.common.service.ImageDerivativeService;
+import com.bena.api.common.service.ImageDerivatives;
+import com.bena.api.common.service.LegacyBlobSource;
+import com.bena.api.common.service.ViewCounterService;
+import com.bena.api.config.cache.CacheRegions;
 import com.bena.api.module.design.dto.CreateDesignRequest;
 import com.bena.api.module.design.dto.DesignDTO;
 import com.bena.api.module.design.entity.Design;
@@ -8,12 +13,15 @@ import com.bena.api.module.design.entity.DesignCategory;
 import com.bena.api.module.design.entity.DesignStyle;
 import com.bena.api.module.design.repository.DesignRepository;
 import lombok.RequiredArgsConstructor;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Base64;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -23,6 +31,8 @@ public class DesignService {
 
     private final DesignRepository designRepository;
     private final FileStorageService fileStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final ViewCounterService viewCounterService;
 
     // الحصول على التصاميم حسب الفئة مع الفلاتر
     @Transactional(readOnly = true)
@@ -36,30 +46,34 @@ public class DesignService {
         Page<Design> designs = designRepository.findByFilters(
                 category, style, minArea, maxArea, pageable
         );
+        prefetchDerivatives(designs.getContent());
         return designs.map(this::toDTO);
     }
 
     // الحصول على تصميم واحد
-    @Transactional(readOnly = false)
+    @Transactional(readOnly = true)
     public DesignDTO getDesignById(Long id) {
         Design design = designRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("التصميم غير موجود"));
         
-        // زيادة عدد المشاهدات
-        design.setViewCount(design.getViewCount() + 1);
-        designRepository.save(design);
+        // المشاهدة تُجمع في الذاكرة وتُكتب دورياً (ViewCounterService)
+        viewCounterService.record(ViewCounterService.Target.DESIGN, id);
         
-        return toDTO(design);
+        DesignDTO dto = toDTO(design);
+        dto.setViewCount((design.getViewCount() != null ? design.getViewCount() : 0)
+                + (int) viewCounterService.pending(ViewCounterService.Target.DESIGN, id));
+        return dto;
     }
 
     // إنشاء تصميم جديد (للأدمن)
     @Transactional
+    @CacheEvict(value = CacheRegions.DESIGN_LISTS, allEntries = true)
     public DesignDTO createDesign(CreateDesignRequest request) {
         Design design = Design.builder()
                 .title(request.getTitle())
                 .description(request.getDescription())
                 .imageUrl(request.getImageUrl())
-                .imageData(request.getImageData())
+                .imageHash(storeImage(request))
                 .imageType(request.getImageType())
                 .category(request.getCategory())
                 .style(request.getStyle())
@@ -78,6 +92,7 @@ public class DesignService {
 
     // تحديث تصميم (للأدمن)
     @Transactional
+    @CacheEvict(value = CacheRegions.DESIGN_LISTS, allEntries = true)
     public DesignDTO updateDesign(Long id, CreateDesignRequest request) {
         Design design = designRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("التصميم غير موجود"));
@@ -85,8 +100,9 @@ public class DesignService {
         design.setTitle(request.getTitle());
         design.setDescription(request.getDescription());
         design.setImageUrl(request.getImageUrl());
-        if (request.getImageData() != null && request.getImageData().length > 0) {
-            design.setImageData(request.getImageData());
+        if (request.getImageHash() != null
+                || (request.getImageData() != null && request.getImageData().length > 0)) {
+            design.setImageHash(storeImage(request));
             design.setImageType(request.getImageType());
             design.setImageUrl(null);
         }
@@ -106,6 +122,7 @@ public class DesignService {
 
     // حذف تصميم (soft delete)
     @Transactional
+    @CacheEvict(value = CacheRegions.DESIGN_LISTS, allEntries = true)
     public void deleteDesign(Long id) {
         Design design = designRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("التصميم غير موجود"));
@@ -113,6 +130,7 @@ public class DesignService {
         // حذف الصورة من filesystem
         if (design.getImageUrl() != null) {
             fileStorageService.delete(design.getImageUrl());
+            imageDerivativeService.delete(ImageDerivativeService.sourceOf(design.getImageUrl()));
         }
         
         design.setIsActive(false);
@@ -121,18 +139,22 @@ public class DesignService {
 
     // التصاميم المميزة
     @Transactional(readOnly = true)
+    @Cacheable(value = CacheRegions.DESIGN_LISTS, key = "'featured'")
     public List<DesignDTO> getFeaturedDesigns() {
-        return designRepository.findByIsFeaturedTrueAndIsActiveTrueOrderByCreatedAtDesc()
-                .stream()
+        List<Design> designs = designRepository.findByIsFeaturedTrueAndIsActiveTrueOrderByCreatedAtDesc();
+        prefetchDerivatives(designs);
+        return designs.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
 
     // الأكثر مشاهدة
     @Transactional(readOnly = true)
+    @Cacheable(value = CacheRegions.DESIGN_LISTS, key = "'most-viewed'")
     public List<DesignDTO> getMostViewedDesigns() {
-        return designRepository.findTop10ByIsActiveTrueOrderByViewCountDesc()
-                .stream()
+        List<Design> designs = designRepository.findTop10ByIsActiveTrueOrderByViewCountDesc();
+        prefetchDerivatives(designs);
+        return designs.stream()
                 .map(this::toDTO)
                 .collect(Collectors.toList());
     }
@@ -142,23 +164,63 @@ public class DesignService {
         return designRepository.countByCategoryAndIsActiveTrue(category);
     }
 
+    // حفظ الصورة المرفوعة في مخزن الملفات (حسب SHA-256)
+    private String storeImage(CreateDesignRequest request) {
+        if (request.getImageHash() != null) {
+            // hash غير موجود في المخزن قد يكون مساراً يُمرر لاحقاً إلى fileStorageService.load
+            String hash = fileStorageService.findBlob(request.getImageHash())
+                    .orElseThrow(() -> new IllegalArgumentException("الصورة غير موجودة"))
+                    .sha256();
+            imageDerivativeService.enqueue(hash);
+            return hash;
+        }
+        if (request.getImageData() == null || request.getImageData().length == 0) {
+            return null;
+        }
+        try {
+            String hash = fileStorageService.storeBlob(new ByteArrayInputStream(request.getImageData()), request.getImageType()).sha256();
+            imageDerivativeService.enqueue(hash);
+            return hash;
+        } catch (IOException e) {
+            throw new RuntimeException("فشل حفظ صورة التصميم", e);
+        }
+    }
+
+    // مفتاح النسخ المصغرة: hash المحتوى أو مسار الملف المرفوع
+    private String imageSource(Design design) {
+        return design.getImageHash() != null
+                ? design.getImageHash()
+                : ImageDerivativeService.sourceOf(design.getImageUrl());
+    }
+
+    // تحميل النسخ المصغرة لكل القائمة باستعلام واحد
+    private void prefetchDerivatives(List<Design> designs) {
+        imageDerivativeService.findAll(designs.stream().map(this::imageSource).toList());
+    }
+
     private DesignDTO toDTO(Design design) {
-        // دعم الصور القديمة (byte[]) والجديدة (URL)
+        // دعم الروابط المباشرة (URL) والصور المخزنة (hash) والقديمة (byte[])
         String imageUrl = design.getImageUrl();
         
-        // إذا لم يكن هناك URL، حول byte[] إلى Base64 Data URL
-        if (imageUrl == null && design.getImageData() != null && design.getImageData().length > 0) {
-            String contentType = design.getImageType() != null ? design.getImageType() : "image/jpeg";
-            imageUrl = "data:" + contentType + ";base64," + Base64.getEncoder().encodeToString(design.getImageData());
-        } else if (imageUrl == null) {
+        // إذا لم يكن هناك URL، نستخدم رابط الملف في المخزن (أو رابط الصف القديم) بدل Base64 Data URL
+        if (imageUrl == null) {
+            imageUrl = fileStorageService.getBlobUrl(
+                    design.getImageHash(), LegacyBlobSource.DESIGNS, design.getId(), design.isLegacyImage());
+        }
+        if (imageUrl == null) {
             imageUrl = "";
         }
         
+        ImageDerivatives derivatives = imageDerivativeService.find(imageSource(design)).orElse(null);
+        
         return DesignDTO.builder()
                 .id(design.getId())
                 .title(design.getTitle())
                 .description(design.getDescription())
                 .imageUrl(imageUrl)
+                .thumbnailUrl(derivatives != null ? derivatives.thumbnailUrl() : null)
+                .blurhash(derivatives != null ? derivatives.blurhash() : null)
+                .imageVariants(derivatives != null ? derivatives.variants() : null)
                 .category(design.getCategory())
                 .style(design.getStyle())
                 .areaInSquareMeters(design.getAreaInSquareMeters())
@@ -1,38 +1,46 @@
 package com.bena.api.module.design.service;
 
+import com.bena.api.common.service.BlobRef;
+import com.bena.api.common.service.FileStorageService;
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Base64;
+import java.util.List;
 import java.util.UUID;
 
 /**
- * خدمة تخزين الصور في قاعدة البيانات PostgreSQL
+ * خدمة تخزين صور التصاميم
  */
 @Service
+@RequiredArgsConstructor
 public class ImageStorageService {
 
+    private static final long MAX_IMAGE_SIZE = 5 * 1024 * 1024;
+    private static final List<String> IMAGE_TYPES = List.of("image/jpeg", "image/png", "image/gif", "image/webp");
+
+    private final FileStorageService fileStorageService;
+
     /**
-     * حفظ الصورة وإرجاع معرف فريد
+     * حفظ الصورة في مخزن الملفات مباشرة من الـ stream (بدون تحميلها في الذاكرة)،
+     * مع التحقق من الحجم والنوع الفعلي أثناء النسخ
      */
-    public byte[] saveImage(MultipartFile file) throws IOException {
+    public BlobRef storeImage(MultipartFile file) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("الملف فارغ");
         }
 
-        // التحقق من نوع الملف
         String contentType = file.getContentType();
         if (contentType == null || !contentType.startsWith("image/")) {
             throw new IllegalArgumentException("الملف يجب أن يكون صورة");
         }
 
-        // التحقق من حجم الملف (أقل من 5MB)
-        if (file.getSize() > 5 * 1024 * 1024) {
-            throw new IllegalArgumentException("حجم الصورة يجب أن يكون أقل من 5MB");
+        try (InputStream in = file.getInputStream()) {
+            return fileStorageService.storeBlob(in, contentType, MAX_IMAGE_SIZE, IMAGE_TYPES);
         }
-
-        return file.getBytes();
     }
 
     /**
@@ -1,8 +1,11 @@
 package com.bena.api.module.ebook.controller;
 
 import com.bena.api.module.ebook.dto.*;
+import com.bena.api.module.ebook.service.EbookPdfStreamer;
 import com.bena.api.module.ebook.service.EbookService;
 import com.bena.api.module.user.entity.User;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.core.io.Resource;
@@ -14,6 +17,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 @RestController
@@ -22,6 +26,7 @@ import java.util.*;
 public class EbookController {
 
     private final EbookService ebookService;
+    private final EbookPdfStreamer pdfStreamer;
 
     // ==================== Public Endpoints ====================
 
@@ -83,19 +88,15 @@ public class EbookController {
      */
     @GetMapping("/{id}/read")
     @PreAuthorize("isAuthenticated()")
-    public ResponseEntity<Resource> readEbook(
+    public void readEbook(
             @PathVariable UUID id,
-            @AuthenticationPrincipal User currentUser) throws IOException {
-        Resource resource = ebookService.getEbookPdf(id, currentUser.getId());
+            @AuthenticationPrincipal User currentUser,
+            HttpServletRequest request,
+            HttpServletResponse response) throws IOException {
+        Path pdf = ebookService.getEbookPdfPath(id, currentUser.getId());
         
-        return ResponseEntity.ok()
-            .contentType(MediaType.APPLICATION_PDF)
-            .header(HttpHeaders.CONTENT_DISPOSITION, "inline; filename=\"ebook.pdf\"")
-            // منع التخزين المؤقت
-            .header(HttpHeaders.CACHE_CONTROL, "no-cache, no-store, must-revalidate")
-            .header(HttpHeaders.PRAGMA, "no-cache")
-            .header(HttpHeaders.EXPIRES, "0")
-            .body(resource);
+        // دعم Range (206) و ETag حتى لا يُعاد تحميل الكتاب كاملاً عند التنقل بين الصفحات
+        pdfStreamer.stream(pdf, "ebook.pdf", request, response);
     }
 
     /**
@@ -201,15 +202,17 @@ public class EbookController {
 
     /**
      * إضافة كتاب جديد
+     * ملف PDF إما multipart (pdf) أو جلسة رفع مجزأ مكتملة (pdfUploadId) للملفات الكبيرة
      */
     @PostMapping
     @PreAuthorize("hasAnyRole('ENGINEER', 'DESIGNER', 'CONTRACTOR', 'ADMIN')")
     public ResponseEntity<EbookDto> createEbook(
             @Valid @ModelAttribute EbookCreateRequest request,
-            @RequestParam("pdf") MultipartFile pdfFile,
+            @RequestParam(value = "pdf", required = false) MultipartFile pdfFile,
+            @RequestParam(value = "pdfUploadId", required = false) UUID pdfUploadId,
             @RequestParam(value = "cover", required = false) MultipartFile coverFile,
             @AuthenticationPrincipal User currentUser) throws IOException {
-        return ResponseEntity.ok(ebookService.createEbook(request, pdfFile, coverFile, currentUser.getId()));
+        return ResponseEntity.ok(ebookService.createEbook(request, pdfFile, pdfUploadId, coverFile, currentUser.getId()));
     }
 
     /**
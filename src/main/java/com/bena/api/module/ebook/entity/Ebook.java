@@ -4,6 +4,7 @@ import com.bena.api.module.user.entity.User;
 import jakarta.persistence.*;
 import lombok.*;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Formula;
 import org.hibernate.annotations.UpdateTimestamp;
 
 import java.math.BigDecimal;
@@ -36,12 +37,17 @@ public class Ebook {
     @Column(name = "cover_url", length = 500)
     private String coverUrl;
 
-    @Column(name = "cover_data")
-    private byte[] coverData;
+    // العمود القديم cover_data (bytea) لا يُحمل مع الصف؛ يُقدم من BlobController حتى ينقله BlobMigrationJob
+    @Formula("(cover_data IS NOT NULL)")
+    private boolean legacyCover;
 
     @Column(name = "cover_type", length = 50)
     private String coverType;
 
+    // SHA-256 للغلاف في مخزن الملفات (بدل cover_data)
+    @Column(name = "cover_hash", length = 64)
+    private String coverHash;
+
     @Column(name = "pdf_path", nullable = false, length = 500)
     private String pdfPath;
 
@@ -0,0 +1,97 @@
+package com.bena.api.module.ebook.service;
+
+import com.bena.api.module.ebook.entity.Ebook;
+import com.bena.api.module.ebook.repository.EbookPurchaseRepository;
+import com.bena.api.module.ebook.repository.EbookRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.UUID;
+
+/**
+ * كاش صلاحية قراءة الكتاب (مالك أو مشترٍ) مع مسار الـ PDF.
+ * تُخزن الصلاحيات الموجودة فقط، حتى يظهر الشراء الجديد فوراً.
+ */
+@Component
+public class EbookEntitlementCache {
+
+    public static final String CACHE_NAME = "ebook.entitlements";
+
+    public record Entitlement(UUID ebookId, String pdfPath, boolean owner) {
+    }
+
+    private record Key(UUID userId, UUID ebookId) {
+    }
+
+    private final EbookRepository ebookRepository;
+    private final EbookPurchaseRepository purchaseRepository;
+    private final Cache<Key, Entitlement> cache;
+
+    public EbookEntitlementCache(
+            EbookRepository ebookRepository,
+            EbookPurchaseRepository purchaseRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.ebook.entitlement-cache.max-size:20000}") long maxSize,
+            @Value("${app.ebook.entitlement-cache.ttl-seconds:600}") long ttlSeconds
+    ) {
+        this.ebookRepository = ebookRepository;
+        this.purchaseRepository = purchaseRepository;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    /**
+     * صلاحية المستخدم على الكتاب، أو استثناء إذا لم يشترِه
+     */
+    public Entitlement require(UUID userId, UUID ebookId) {
+        Key key = new Key(userId, ebookId);
+        Entitlement cached = cache.getIfPresent(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        Ebook ebook = ebookRepository.findById(ebookId)
+            .orElseThrow(() -> new RuntimeException("الكتاب غير موجود"));
+
+        boolean isOwner = ebook.getPublisher().getId().equals(userId);
+        if (!isOwner && !purchaseRepository.existsByUserIdAndEbookId(userId, ebookId)) {
+            throw new RuntimeException("يجب شراء الكتاب أولاً");
+        }
+
+        Entitlement entitlement = new Entitlement(ebookId, ebook.getPdfPath(), isOwner);
+        cache.put(key, entitlement);
+        return entitlement;
+    }
+
+    /**
+     * مسح كل الصلاحيات المخزنة لكتاب (عند الحذف).
+     * داخل معاملة يتم المسح بعد الـ commit: قبله قد يعيد طلب متزامن تخزين الصف القديم الذي ما زال مرئياً.
+     */
+    public void evictEbook(UUID ebookId) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictNow(ebookId);
+                }
+            });
+        } else {
+            evictNow(ebookId);
+        }
+    }
+
+    private void evictNow(UUID ebookId) {
+        cache.asMap().keySet().removeIf(key -> key.ebookId().equals(ebookId));
+    }
+}
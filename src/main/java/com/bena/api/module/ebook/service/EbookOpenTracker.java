@@ -0,0 +1,64 @@
+package com.bena.api.module.ebook.service;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * تسجيل آخر فتح للكتاب (last_opened_at) في الخلفية:
+ * الفتحات المتكررة لنفس المشتري تُدمج، وتُحفظ كل 30 ثانية بـ batch update واحد.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class EbookOpenTracker {
+
+    private record Key(UUID userId, UUID ebookId) {
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final Map<Key, LocalDateTime> pending = new ConcurrentHashMap<>();
+
+    public void recordOpen(UUID userId, UUID ebookId) {
+        pending.put(new Key(userId, ebookId), LocalDateTime.now());
+    }
+
+    @Scheduled(fixedDelay = 30000)
+    @PreDestroy
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batch = new ArrayList<>();
+        for (Key key : new ArrayList<>(pending.keySet())) {
+            LocalDateTime openedAt = pending.remove(key);
+            if (openedAt != null) {
+                Timestamp timestamp = Timestamp.valueOf(openedAt);
+                batch.add(new Object[]{timestamp, key.userId(), key.ebookId(), timestamp});
+            }
+        }
+
+        try {
+            jdbcTemplate.batchUpdate(
+                    "UPDATE ebook_purchases SET last_opened_at = ? " +
+                    "WHERE user_id = ? AND ebook_id = ? AND (last_opened_at IS NULL OR last_opened_at < ?)",
+                    batch);
+            log.debug("Flushed {} ebook opens", batch.size());
+        } catch (Exception e) {
+            log.warn("Failed to flush {} ebook opens: {}", batch.size(), e.getMessage());
+        }
+    }
+}
@@ -1,5 +1,10 @@
 package com.bena.api.module.ebook.service;
 
+import com.bena.api.common.service.FileStorageService;
+import com.bena.api.common.service.LegacyBlobSource;
+import com.bena.api.common.service.StreamingFileWriter;
+import com.bena.api.common.service.UploadSessionService;
+import com.bena.api.config.cache.CacheRegions;
 import com.bena.api.module.ebook.dto.*;
 import com.bena.api.module.ebook.entity.*;
 import com.bena.api.module.ebook.repository.*;
@@ -8,14 +13,15 @@ import com.bena.api.module.user.repository.UserRepository;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.*;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.nio.file.*;
 import java.time.LocalDateTime;
@@ -31,6 +37,13 @@ public class EbookService {
     private final EbookNoteRepository noteRepository;
     private final EbookReaderSettingsRepository settingsRepository;
     private final UserRepository userRepository;
+    private final FileStorageService fileStorageService;
+    private final EbookEntitlementCache entitlementCache;
+    private final EbookOpenTracker openTracker;
+    private final UploadSessionService uploadSessionService;
+
+    private static final List<String> PDF_TYPES = List.of("application/pdf");
+    private static final List<String> COVER_TYPES = List.of("image/jpeg", "image/png", "image/webp");
 
     @Value("${app.ebook.upload-dir:uploads/ebooks}")
     private String uploadDir;
@@ -38,6 +51,12 @@ public class EbookService {
     @Value("${app.ebook.cover-dir:uploads/ebook-covers}")
     private String coverDir;
 
+    @Value("${app.ebook.max-pdf-size:104857600}") // 100MB
+    private long maxPdfSize;
+
+    @Value("${app.upload.max-size:10485760}")
+    private long maxCoverSize;
+
     // ==================== الكتب ====================
 
     public Page<EbookDto> getAllEbooks(EbookFilterRequest filter, UUID currentUserId) {
@@ -72,6 +91,7 @@ public class EbookService {
         return toDto(ebook, currentUserId);
     }
 
+    @Cacheable(value = CacheRegions.EBOOK_CATEGORIES, key = "'all'")
     public List<String> getAllCategories() {
         return ebookRepository.findAllCategories();
     }
@@ -79,19 +99,38 @@ public class EbookService {
     // ==================== للناشر ====================
 
     @Transactional
+    @CacheEvict(value = CacheRegions.EBOOK_CATEGORIES, allEntries = true)
     public EbookDto createEbook(EbookCreateRequest request, MultipartFile pdfFile, 
                                  MultipartFile coverFile, UUID publisherId) throws IOException {
+        return createEbook(request, pdfFile, null, coverFile, publisherId);
+    }
+
+    /**
+     * إنشاء كتاب من ملف multipart أو من جلسة رفع مجزأ مكتملة (pdfUploadId) للملفات الكبيرة
+     */
+    @Transactional
+    @CacheEvict(value = CacheRegions.EBOOK_CATEGORIES, allEntries = true)
+    public EbookDto createEbook(EbookCreateRequest request, MultipartFile pdfFile, UUID pdfUploadId,
+                                 MultipartFile coverFile, UUID publisherId) throws IOException {
         User publisher = userRepository.findById(publisherId)
             .orElseThrow(() -> new RuntimeException("المستخدم غير موجود"));
 
         // حفظ ملف PDF (نحتاج المسار الكامل للقراءة)
-        String pdfPath = savePdfFile(pdfFile, uploadDir, publisherId.toString());
+        String pdfPath;
+        if (pdfUploadId != null) {
+            pdfPath = uploadSessionService.consumeTo(pdfUploadId, publisherId,
+                    pdfTarget(uploadDir, publisherId.toString(), "book.pdf"), PDF_TYPES).toString();
+        } else if (pdfFile != null && !pdfFile.isEmpty()) {
+            pdfPath = savePdfFile(pdfFile, uploadDir, publisherId.toString());
+        } else {
+            throw new IllegalArgumentException("ملف PDF مطلوب");
+        }
         
-        // حفظ صورة الغلاف في Database كـ byte[]
-        byte[] coverData = null;
+        // حفظ صورة الغلاف في مخزن الملفات (حسب SHA-256)
+        String coverHash = null;
         String coverType = null;
         if (coverFile != null && !coverFile.isEmpty()) {
-            coverData = coverFile.getBytes();
+            coverHash = storeCover(coverFile);
             coverType = coverFile.getContentType();
         }
 
@@ -103,7 +142,7 @@ public class EbookService {
             .price(request.getPrice())
             .currency(request.getCurrency() != null ? request.getCurrency() : "IQD")
             .pdfPath(pdfPath)
-            .coverData(coverData)
+            .coverHash(coverHash)
             .coverType(coverType)
             .publishDate(LocalDateTime.now())
             .build();
@@ -115,6 +154,7 @@ public class EbookService {
     }
 
     @Transactional
+    @CacheEvict(value = CacheRegions.EBOOK_CATEGORIES, allEntries = true)
     public EbookDto updateEbook(UUID id, EbookCreateRequest request, 
                                  MultipartFile coverFile, UUID publisherId) throws IOException {
         Ebook ebook = ebookRepository.findById(id)
@@ -134,7 +174,7 @@ public class EbookService {
         }
 
         if (coverFile != null && !coverFile.isEmpty()) {
-            ebook.setCoverData(coverFile.getBytes());
+            ebook.setCoverHash(storeCover(coverFile));
             ebook.setCoverType(coverFile.getContentType());
             ebook.setCoverUrl(null); // مسح الـ URL القديم
         }
@@ -144,6 +184,7 @@ public class EbookService {
     }
 
     @Transactional
+    @CacheEvict(value = CacheRegions.EBOOK_CATEGORIES, allEntries = true)
     public void deleteEbook(UUID id, UUID publisherId) {
         Ebook ebook = ebookRepository.findById(id)
             .orElseThrow(() -> new RuntimeException("الكتاب غير موجود"));
@@ -153,6 +194,7 @@ public class EbookService {
         }
 
         ebookRepository.delete(ebook);
+        entitlementCache.evictEbook(id);
         log.info("تم حذف الكتاب: {} بواسطة {}", ebook.getTitle(), publisherId);
     }
 
@@ -209,33 +251,18 @@ public class EbookService {
         return purchaseRepository.existsByUserIdAndEbookId(userId, ebookId);
     }
 
-    public Resource getEbookPdf(UUID ebookId, UUID userId) throws IOException {
-        Ebook ebook = ebookRepository.findById(ebookId)
-            .orElseThrow(() -> new RuntimeException("الكتاب غير موجود"));
-
-        // التحقق من الشراء أو الملكية
-        boolean isOwner = ebook.getPublisher().getId().equals(userId);
-        if (!isOwner && !hasPurchased(userId, ebookId)) {
-            throw new RuntimeException("يجب شراء الكتاب أولاً");
-        }
-
-        // تحديث آخر فتح (للمشترين فقط)
-        if (!isOwner) {
-            purchaseRepository.findByUserIdAndEbookId(userId, ebookId)
-                .ifPresent(purchase -> {
-                    purchase.setLastOpenedAt(LocalDateTime.now());
-                    purchaseRepository.save(purchase);
-                });
-        }
-
-        Path filePath = Paths.get(ebook.getPdfPath());
-        Resource resource = new UrlResource(filePath.toUri());
+    /**
+     * مسار ملف الكتاب بعد التحقق من الشراء أو الملكية (من الكاش)
+     */
+    public Path getEbookPdfPath(UUID ebookId, UUID userId) {
+        EbookEntitlementCache.Entitlement entitlement = entitlementCache.require(userId, ebookId);
 
-        if (!resource.exists()) {
-            throw new RuntimeException("ملف الكتاب غير موجود");
+        // تحديث آخر فتح (للمشترين فقط) - يُحفظ في الخلفية
+        if (!entitlement.owner()) {
+            openTracker.recordOpen(userId, ebookId);
         }
 
-        return resource;
+        return Paths.get(entitlement.pdfPath());
     }
 
     @Transactional
@@ -340,33 +367,34 @@ public class EbookService {
      * حفظ ملف PDF - يُرجع المسار الكامل للقراءة
      */
     private String savePdfFile(MultipartFile file, String directory, String prefix) throws IOException {
-        Path uploadPath = Paths.get(directory);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+        Path filePath = pdfTarget(directory, prefix, file.getOriginalFilename());
+        try (InputStream in = file.getInputStream()) {
+            StreamingFileWriter.write(in, filePath, maxPdfSize, PDF_TYPES);
         }
 
-        String filename = prefix + "_" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
         return filePath.toString(); // مسار كامل للـ PDF
     }
 
+    private Path pdfTarget(String directory, String prefix, String originalFilename) {
+        String name = originalFilename != null ? Paths.get(originalFilename).getFileName().toString() : "book.pdf";
+        return Paths.get(directory).resolve(prefix + "_" + System.currentTimeMillis() + "_" + name);
+    }
+
+    private String storeCover(MultipartFile coverFile) throws IOException {
+        try (InputStream content = coverFile.getInputStream()) {
+            return fileStorageService.storeBlob(content, coverFile.getContentType(), maxCoverSize, COVER_TYPES).sha256();
+        }
+    }
+
     /**
-     * حفظ صورة - يُرجع URL نسبي للعرض عبر HTTP
+     * رابط الغلاف: URL مباشر أو رابط الملف في المخزن (بدل Base64 data URL)
      */
-    private String saveImageFile(MultipartFile file, String directory, String prefix) throws IOException {
-        Path uploadPath = Paths.get(directory);
-        if (!Files.exists(uploadPath)) {
-            Files.createDirectories(uploadPath);
+    private String coverUrlOf(Ebook ebook) {
+        if (ebook.getCoverUrl() != null) {
+            return ebook.getCoverUrl();
         }
-
-        String filename = prefix + "_" + System.currentTimeMillis() + "_" + file.getOriginalFilename();
-        Path filePath = uploadPath.resolve(filename);
-        Files.copy(file.getInputStream(), filePath, StandardCopyOption.REPLACE_EXISTING);
-
-        // إرجاع URL نسبي للصور
-        return "/" + directory + "/" + filename;
+        return fileStorageService.getBlobUrl(
+                ebook.getCoverHash(), LegacyBlobSource.EBOOK_COVERS, ebook.getId(), ebook.isLegacyCover());
     }
 
     private Sort getSort(String sortBy, String direction) {
@@ -386,18 +414,11 @@ public class EbookService {
         boolean isPurchased = isOwner || (currentUserId != null && 
             purchaseRepository.existsByUserIdAndEbookId(currentUserId, ebook.getId()));
 
-        // تحويل الصورة لـ Base64 data URL (مثل التصاميم)
-        String coverUrl = ebook.getCoverUrl();
-        if (coverUrl == null && ebook.getCoverData() != null && ebook.getCoverData().length > 0) {
-            String contentType = ebook.getCoverType() != null ? ebook.getCoverType() : "image/jpeg";
-            coverUrl = "data:" + contentType + ";base64," + java.util.Base64.getEncoder().encodeToString(ebook.getCoverData());
-        }
-
         return EbookDto.builder()
             .id(ebook.getId())
             .title(ebook.getTitle())
             .description(ebook.getDescription())
-            .coverUrl(coverUrl)
+            .coverUrl(coverUrlOf(ebook))
             .category(ebook.getCategory())
             .price(ebook.getPrice())
             .currency(ebook.getCurrency())
@@ -417,7 +438,7 @@ public class EbookService {
             .id(purchase.getId())
             .ebookId(purchase.getEbook().getId())
             .ebookTitle(purchase.getEbook().getTitle())
-            .ebookCoverUrl(purchase.getEbook().getCoverUrl())
+            .ebookCoverUrl(coverUrlOf(purchase.getEbook()))
             .amountPaid(purchase.getAmountPaid())
             .currency(purchase.getCurrency())
             .purchasedAt(purchase.getPurchasedAt())
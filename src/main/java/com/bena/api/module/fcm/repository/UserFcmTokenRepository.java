@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -31,6 +32,19 @@ public interface UserFcmTokenRepository extends JpaRepository<UserFcmToken, Long
     @Query("SELECT t FROM UserFcmToken t WHERE t.user.id = :userId AND t.isActive = true")
     List<UserFcmToken> findActiveTokensByUserId(@Param("userId") UUID userId);
 
+    /**
+     * Active tokens for many users in one query: rows of [userId, fcmToken]
+     */
+    @Query("SELECT t.user.id, t.fcmToken FROM UserFcmToken t WHERE t.user.id IN :userIds AND t.isActive = true")
+    List<Object[]> findActiveTokensByUserIds(@Param("userIds") Collection<UUID> userIds);
+
+    /**
+     * Deactivate many tokens at once (invalid tokens reported by FCM)
+     */
+    @Modifying
+    @Query("UPDATE UserFcmToken t SET t.isActive = false WHERE t.fcmToken IN :tokens AND t.isActive = true")
+    int deactivateTokens(@Param("tokens") Collection<String> tokens);
+
     /**
      * Deactivate all tokens for a user (used for logout)
      */
@@ -0,0 +1,40 @@
+package com.bena.api.module.fcm.service;
+
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+
+import java.util.List;
+
+/**
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ * 📡 FcmClient
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ * Thin seam over FirebaseMessaging so the push pipeline
+ * can run against a local stub
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ */
+public interface FcmClient {
+
+    /**
+     * Max messages per sendEach call (FCM limit)
+     */
+    int MAX_BATCH_SIZE = 500;
+
+    /**
+     * Send up to MAX_BATCH_SIZE messages.
+     * Results are returned in the same order as the messages.
+     */
+    List<SendResult> sendEach(List<Message> messages) throws FirebaseMessagingException;
+
+    record SendResult(boolean success, String messageId, MessagingErrorCode errorCode) {
+
+        public static SendResult ok(String messageId) {
+            return new SendResult(true, messageId, null);
+        }
+
+        public static SendResult failed(MessagingErrorCode errorCode) {
+            return new SendResult(false, null, errorCode);
+        }
+    }
+}
@@ -1,11 +1,9 @@
 package com.bena.api.module.fcm.service;
 
-import com.google.firebase.messaging.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
-import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -16,6 +14,7 @@ import java.util.UUID;
  * Purpose: Send FCM notifications to users
  * Strategy: Direct-to-token (NO Topics)
  * Multi-device: Sends to all active tokens
+ * Delivery: Async via FcmPushDispatcher (never blocks the caller)
  * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
  */
 @Service
@@ -23,7 +22,7 @@ import java.util.UUID;
 @Slf4j
 public class FcmNotificationSender {
 
-    private final FcmTokenService fcmTokenService;
+    private final FcmPushDispatcher pushDispatcher;
 
     /**
      * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
@@ -33,83 +32,19 @@ public class FcmNotificationSender {
      * @param title Notification title
      * @param body Notification body
      * @param data Custom data payload (chatId, etc.)
+     * Every notification is delivered (no coalescing)
      * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
      */
     public void sendToUser(UUID userId, String title, String body, Map<String, String> data) {
-        List<String> activeTokens = fcmTokenService.getActiveTokens(userId);
-
-        if (activeTokens.isEmpty()) {
-            log.warn("⚠️ No active FCM tokens for user: {}", userId);
-            return;
-        }
-
-        log.info("📤 Sending notification to {} tokens for user: {}", activeTokens.size(), userId);
-
-        for (String token : activeTokens) {
-            sendToToken(token, title, body, data);
-        }
+        sendToUser(userId, null, title, body, data);
     }
 
     /**
-     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
-     * Send to Single Token
-     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+     * Same as above, but queued notifications with the same collapseKey
+     * for the same user are coalesced (latest wins)
      */
-    private void sendToToken(String fcmToken, String title, String body, Map<String, String> data) {
-        try {
-            // Build notification payload
-            Notification notification = Notification.builder()
-                    .setTitle(title)
-                    .setBody(body)
-                    .build();
-
-            // Build message with data payload
-            Message message = Message.builder()
-                    .setToken(fcmToken)
-                    .setNotification(notification)
-                    .putAllData(data) // Data for navigation
-                    .setAndroidConfig(AndroidConfig.builder()
-                            .setPriority(AndroidConfig.Priority.HIGH)
-                            .setNotification(AndroidNotification.builder()
-                                    .setSound("default")
-                                    .setChannelId("chat_channel") // ✅ Match Flutter channel
-                                    .build())
-                            .build())
-                    .setApnsConfig(ApnsConfig.builder()
-                            .setAps(Aps.builder()
-                                    .setSound("default")
-                                    .build())
-                            .build())
-                    .build();
-
-            String response = FirebaseMessaging.getInstance().send(message);
-            log.info("✅ FCM sent successfully: {}", response);
-
-        } catch (FirebaseMessagingException e) {
-            handleFcmError(fcmToken, e);
-        } catch (Exception e) {
-            log.error("❌ Unexpected error sending FCM: {}", e.getMessage());
-        }
-    }
-
-    /**
-     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
-     * Handle FCM Errors
-     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
-     * Mark invalid tokens as inactive
-     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
-     */
-    private void handleFcmError(String fcmToken, FirebaseMessagingException e) {
-        MessagingErrorCode errorCode = e.getMessagingErrorCode();
-        log.error("❌ FCM Error [{}]: {}", errorCode, e.getMessage());
-
-        // Mark token as invalid if unregistered or invalid
-        if (errorCode == MessagingErrorCode.UNREGISTERED ||
-            errorCode == MessagingErrorCode.INVALID_ARGUMENT) {
-            
-            fcmTokenService.markTokenAsInvalid(fcmToken);
-            log.warn("⚠️ Token marked as invalid: {}...", fcmToken.substring(0, 20));
-        }
+    public void sendToUser(UUID userId, String collapseKey, String title, String body, Map<String, String> data) {
+        enqueue(new PushNotification(userId, collapseKey, title, body, data));
     }
 
     /**
@@ -117,6 +52,7 @@ public class FcmNotificationSender {
      * Send Chat Message Notification
      * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
      * Specialized method for chat notifications
+     * Bursts in the same chat are coalesced (latest message wins)
      * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
      */
     public void sendChatNotification(UUID userId, String senderName, String message, Long chatId) {
@@ -126,11 +62,15 @@ public class FcmNotificationSender {
                 "senderName", senderName
         );
 
-        sendToUser(
-                userId,
-                senderName,
-                message,
-                data
-        );
+        enqueue(new PushNotification(userId, "chat:" + chatId, senderName, message, data));
+    }
+
+    private void enqueue(PushNotification notification) {
+        if (notification.userId() == null) {
+            return;
+        }
+        if (pushDispatcher.enqueue(notification)) {
+            log.debug("📤 Notification queued for user: {}", notification.userId());
+        }
     }
 }
@@ -0,0 +1,320 @@
+package com.bena.api.module.fcm.service;
+
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ * 🚚 FcmPushDispatcher
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ * Async push pipeline (single worker thread):
+ * - Bounded queue, coalesced per user + explicit collapse key
+ * - Tokens loaded in bulk for the whole batch
+ * - sendEach batches of up to 500 messages
+ * - Retryable errors re-sent with exponential backoff
+ * - Invalid tokens deactivated in one UPDATE per batch
+ * Metrics: /actuator/metrics/fcm.push
+ * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+ */
+@Component
+@Slf4j
+public class FcmPushDispatcher {
+
+    private final FcmClient fcmClient;
+    private final FcmTokenService fcmTokenService;
+
+    private final int capacity;
+    private final long flushIntervalMs;
+    private final int maxAttempts;
+    private final long retryBackoffMs;
+
+    // coalesceKey -> latest notification, order keeps the arrival order of the keys
+    private final Map<String, PushNotification> pending = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<String> order = new LinkedBlockingQueue<>();
+    // Unique keys for notifications without a collapse key
+    private final AtomicLong uncoalesced = new AtomicLong();
+
+    // Used by the worker thread only
+    private final PriorityQueue<Outgoing> retries = new PriorityQueue<>(Comparator.comparingLong(Outgoing::dueAt));
+
+    private final Counter enqueued;
+    private final Counter coalesced;
+    private final Counter dropped;
+    private final Counter sent;
+    private final Counter failed;
+    private final Counter retried;
+    private final Counter invalidTokens;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public FcmPushDispatcher(
+            FcmClient fcmClient,
+            FcmTokenService fcmTokenService,
+            MeterRegistry meterRegistry,
+            @Value("${app.fcm.queue-capacity:10000}") int capacity,
+            @Value("${app.fcm.flush-interval-ms:100}") long flushIntervalMs,
+            @Value("${app.fcm.max-attempts:4}") int maxAttempts,
+            @Value("${app.fcm.retry-backoff-ms:1000}") long retryBackoffMs
+    ) {
+        this.fcmClient = fcmClient;
+        this.fcmTokenService = fcmTokenService;
+        this.capacity = capacity;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxAttempts = maxAttempts;
+        this.retryBackoffMs = retryBackoffMs;
+
+        this.enqueued = meterRegistry.counter("fcm.push", "result", "enqueued");
+        this.coalesced = meterRegistry.counter("fcm.push", "result", "coalesced");
+        this.dropped = meterRegistry.counter("fcm.push", "result", "dropped");
+        this.sent = meterRegistry.counter("fcm.push", "result", "sent");
+        this.failed = meterRegistry.counter("fcm.push", "result", "failed");
+        this.retried = meterRegistry.counter("fcm.push", "result", "retried");
+        this.invalidTokens = meterRegistry.counter("fcm.push", "result", "invalid_token");
+        meterRegistry.gauge("fcm.push.queue", pending, Map::size);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        worker = new Thread(this::run, "fcm-push");
+        worker.setDaemon(true);
+        worker.start();
+        log.info("✅ FCM push pipeline started: capacity={}, maxAttempts={}", capacity, maxAttempts);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            try {
+                worker.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        // retries belongs to the worker, which reports it when it exits
+        if (worker != null && worker.isAlive()) {
+            log.warn("⚠️ FCM push worker did not stop in time, {} notifications still queued", pending.size());
+        }
+    }
+
+    /**
+     * Queue a notification. Returns false if the queue is full.
+     */
+    public boolean enqueue(PushNotification notification) {
+        String key = notification.coalesceKey();
+        if (key == null) {
+            key = "#" + uncoalesced.incrementAndGet();
+        }
+        boolean[] added = {false};
+        boolean[] rejected = {false};
+
+        pending.compute(key, (k, previous) -> {
+            if (previous != null) {
+                return notification;
+            }
+            if (pending.size() >= capacity) {
+                rejected[0] = true;
+                return null;
+            }
+            added[0] = true;
+            return notification;
+        });
+
+        if (rejected[0]) {
+            dropped.increment();
+            log.warn("⚠️ FCM queue full, dropping notification for user: {}", notification.userId());
+            return false;
+        }
+        if (added[0]) {
+            order.offer(key);
+            enqueued.increment();
+        } else {
+            coalesced.increment();
+        }
+        return true;
+    }
+
+    // ==================== Worker ====================
+
+    private void run() {
+        while (running || !order.isEmpty()) {
+            try {
+                List<PushNotification> batch = nextBatch();
+                List<Outgoing> outgoing = toOutgoing(batch);
+                outgoing.addAll(dueRetries());
+                if (!outgoing.isEmpty()) {
+                    dispatch(outgoing);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                log.error("❌ FCM push pipeline error: {}", e.getMessage(), e);
+            }
+        }
+        if (!pending.isEmpty() || !retries.isEmpty()) {
+            log.warn("⚠️ FCM push pipeline stopped with {} queued and {} retrying notifications",
+                    pending.size(), retries.size());
+        }
+    }
+
+    /**
+     * Wait for the first notification (or the next retry), then drain up to a full batch
+     */
+    private List<PushNotification> nextBatch() throws InterruptedException {
+        long timeout = flushIntervalMs;
+        Outgoing nextRetry = retries.peek();
+        if (nextRetry != null) {
+            timeout = Math.max(0, Math.min(timeout, nextRetry.dueAt() - System.currentTimeMillis()));
+        }
+
+        List<PushNotification> batch = new ArrayList<>();
+        String key = order.poll(timeout, TimeUnit.MILLISECONDS);
+        while (key != null) {
+            PushNotification notification = pending.remove(key);
+            if (notification != null) {
+                batch.add(notification);
+            }
+            if (batch.size() >= FcmClient.MAX_BATCH_SIZE) {
+                break;
+            }
+            key = order.poll();
+        }
+        return batch;
+    }
+
+    private List<Outgoing> toOutgoing(List<PushNotification> batch) {
+        List<Outgoing> outgoing = new ArrayList<>();
+        if (batch.isEmpty()) {
+            return outgoing;
+        }
+
+        Set<UUID> userIds = new HashSet<>();
+        for (PushNotification notification : batch) {
+            userIds.add(notification.userId());
+        }
+        Map<UUID, List<String>> tokensByUser = fcmTokenService.getActiveTokens(userIds);
+
+        for (PushNotification notification : batch) {
+            List<String> tokens = tokensByUser.getOrDefault(notification.userId(), List.of());
+            if (tokens.isEmpty()) {
+                log.warn("⚠️ No active FCM tokens for user: {}", notification.userId());
+                continue;
+            }
+            for (String token : tokens) {
+                outgoing.add(new Outgoing(token, notification.toMessage(token), 1, 0));
+            }
+        }
+        return outgoing;
+    }
+
+    private List<Outgoing> dueRetries() {
+        List<Outgoing> due = new ArrayList<>();
+        long now = System.currentTimeMillis();
+        while (!retries.isEmpty() && retries.peek().dueAt() <= now) {
+            due.add(retries.poll());
+        }
+        return due;
+    }
+
+    private void dispatch(List<Outgoing> outgoing) {
+        Set<String> invalid = new HashSet<>();
+
+        for (int from = 0; from < outgoing.size(); from += FcmClient.MAX_BATCH_SIZE) {
+            List<Outgoing> chunk = outgoing.subList(from, Math.min(from + FcmClient.MAX_BATCH_SIZE, outgoing.size()));
+            List<Message> messages = new ArrayList<>(chunk.size());
+            for (Outgoing item : chunk) {
+                messages.add(item.message());
+            }
+
+            List<FcmClient.SendResult> results;
+            try {
+                results = fcmClient.sendEach(messages);
+            } catch (Exception e) {
+                log.error("❌ FCM batch of {} failed: {}", chunk.size(), e.getMessage());
+                chunk.forEach(this::retryOrFail);
+                continue;
+            }
+
+            for (int i = 0; i < chunk.size(); i++) {
+                Outgoing item = chunk.get(i);
+                FcmClient.SendResult result = i < results.size() ? results.get(i) : null;
+                if (result != null && result.success()) {
+                    sent.increment();
+                } else if (result != null && isInvalidToken(result.errorCode())) {
+                    invalid.add(item.token());
+                } else if (result == null || isRetryable(result.errorCode())) {
+                    retryOrFail(item);
+                } else {
+                    failed.increment();
+                    log.error("❌ FCM Error [{}] for token {}...", result.errorCode(), abbreviate(item.token()));
+                }
+            }
+        }
+
+        if (!invalid.isEmpty()) {
+            invalidTokens.increment(invalid.size());
+            try {
+                fcmTokenService.markTokensAsInvalid(invalid);
+            } catch (Exception e) {
+                log.error("❌ Failed to deactivate {} invalid FCM tokens: {}", invalid.size(), e.getMessage());
+            }
+        }
+
+        log.debug("📤 FCM dispatched {} messages ({} invalid tokens, {} retrying)",
+                outgoing.size(), invalid.size(), retries.size());
+    }
+
+    private void retryOrFail(Outgoing item) {
+        if (item.attempt() >= maxAttempts || !running) {
+            failed.increment();
+            log.error("❌ FCM giving up after {} attempts for token {}...", item.attempt(), abbreviate(item.token()));
+            return;
+        }
+        long delay = retryBackoffMs << (item.attempt() - 1);
+        retries.add(new Outgoing(item.token(), item.message(), item.attempt() + 1, System.currentTimeMillis() + delay));
+        retried.increment();
+    }
+
+    private static boolean isInvalidToken(MessagingErrorCode errorCode) {
+        return errorCode == MessagingErrorCode.UNREGISTERED
+                || errorCode == MessagingErrorCode.INVALID_ARGUMENT
+                || errorCode == MessagingErrorCode.SENDER_ID_MISMATCH;
+    }
+
+    private static boolean isRetryable(MessagingErrorCode errorCode) {
+        return errorCode == null
+                || errorCode == MessagingErrorCode.UNAVAILABLE
+                || errorCode == MessagingErrorCode.INTERNAL
+                || errorCode == MessagingErrorCode.QUOTA_EXCEEDED;
+    }
+
+    private static String abbreviate(String token) {
+        return token.length() > 20 ? token.substring(0, 20) : token;
+    }
+
+    private record Outgoing(String token, Message message, int attempt, long dueAt) {
+    }
+}
@@ -10,7 +10,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -96,6 +100,25 @@ public class FcmTokenService {
                 .collect(Collectors.toList());
     }
 
+    /**
+     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+     * Get Active Tokens for Many Users
+     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+     * Used by the push pipeline (one query per batch)
+     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+     */
+    @Transactional(readOnly = true)
+    public Map<UUID, List<String>> getActiveTokens(Collection<UUID> userIds) {
+        if (userIds.isEmpty()) {
+            return Map.of();
+        }
+        Map<UUID, List<String>> tokens = new HashMap<>();
+        for (Object[] row : fcmTokenRepository.findActiveTokensByUserIds(userIds)) {
+            tokens.computeIfAbsent((UUID) row[0], id -> new ArrayList<>()).add((String) row[1]);
+        }
+        return tokens;
+    }
+
     /**
      * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
      * Deactivate All User Tokens
@@ -125,6 +148,22 @@ public class FcmTokenService {
         });
     }
 
+    /**
+     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+     * Mark Tokens as Invalid (bulk)
+     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+     * Called by the push pipeline once per batch
+     * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
+     */
+    @Transactional
+    public void markTokensAsInvalid(Collection<String> fcmTokens) {
+        if (fcmTokens.isEmpty()) {
+            return;
+        }
+        int updated = fcmTokenRepository.deactivateTokens(fcmTokens);
+        log.warn("⚠️ {} FCM tokens marked as invalid", updated);
+    }
+
     /**
      * ━━━━━━━━━━━━━━━━━━━━━━━━━━━━━
      * Cleanup Old Inactive Tokens
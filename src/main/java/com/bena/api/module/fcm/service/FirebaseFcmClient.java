@@ -0,0 +1,34 @@
+package com.bena.api.module.fcm.service;
+
+import com.google.firebase.messaging.BatchResponse;
+import com.google.firebase.messaging.FirebaseMessaging;
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.SendResponse;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * FcmClient backed by the Firebase Admin SDK (one HTTP/2 batch per sendEach call)
+ */
+@Component
+public class FirebaseFcmClient implements FcmClient {
+
+    @Override
+    public List<SendResult> sendEach(List<Message> messages) throws FirebaseMessagingException {
+        BatchResponse response = FirebaseMessaging.getInstance().sendEach(messages);
+
+        List<SendResult> results = new ArrayList<>(messages.size());
+        for (SendResponse sendResponse : response.getResponses()) {
+            if (sendResponse.isSuccessful()) {
+                results.add(SendResult.ok(sendResponse.getMessageId()));
+            } else {
+                FirebaseMessagingException e = sendResponse.getException();
+                results.add(SendResult.failed(e != null ? e.getMessagingErrorCode() : null));
+            }
+        }
+        return results;
+    }
+}
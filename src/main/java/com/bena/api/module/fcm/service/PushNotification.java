@@ -0,0 +1,57 @@
+package com.bena.api.module.fcm.service;
+
+import com.google.firebase.messaging.AndroidConfig;
+import com.google.firebase.messaging.AndroidNotification;
+import com.google.firebase.messaging.ApnsConfig;
+import com.google.firebase.messaging.Aps;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.Notification;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Notification waiting in the push queue.
+ * Notifications with the same userId + collapseKey (e.g. same chat) are coalesced:
+ * only the latest one is sent. Without a collapseKey every notification is delivered.
+ */
+public record PushNotification(
+        UUID userId,
+        String collapseKey,
+        String title,
+        String body,
+        Map<String, String> data
+) {
+
+    /**
+     * null when the notification must not be coalesced
+     */
+    String coalesceKey() {
+        return collapseKey != null ? userId + ":" + collapseKey : null;
+    }
+
+    Message toMessage(String fcmToken) {
+        Notification notification = Notification.builder()
+                .setTitle(title)
+                .setBody(body)
+                .build();
+
+        return Message.builder()
+                .setToken(fcmToken)
+                .setNotification(notification)
+                .putAllData(data) // Data for navigation
+                .setAndroidConfig(AndroidConfig.builder()
+                        .setPriority(AndroidConfig.Priority.HIGH)
+                        .setNotification(AndroidNotification.builder()
+                                .setSound("default")
+                                .setChannelId("chat_channel") // ✅ Match Flutter channel
+                                .build())
+                        .build())
+                .setApnsConfig(ApnsConfig.builder()
+                        .setAps(Aps.builder()
+                                .setSound("default")
+                                .build())
+                        .build())
+                .build();
+    }
+}
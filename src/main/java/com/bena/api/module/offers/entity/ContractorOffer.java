@@ -73,7 +73,8 @@ public class ContractorOffer {
     @Builder.Default
     private Boolean isFeatured = false;
 
-    @Column(name = "view_count")
+    // يُحدَّث فقط من ViewCounterService (UPDATE مجمع) حتى لا يلغي حفظ الكيان الزيادات المعلقة
+    @Column(name = "view_count", updatable = false)
     @Builder.Default
     private Integer viewCount = 0;
 
@@ -121,8 +122,4 @@ public class ContractorOffer {
         images.remove(image);
         image.setOffer(null);
     }
-
-    public void incrementViewCount() {
-        this.viewCount = (this.viewCount == null ? 0 : this.viewCount) + 1;
-    }
 }
@@ -1,5 +1,6 @@
 package com.bena.api.module.offers.service;
 
+import com.bena.api.common.service.ViewCounterService;
 import com.bena.api.module.offers.dto.*;
 import com.bena.api.module.offers.entity.*;
 import com.bena.api.module.offers.repository.*;
@@ -28,6 +29,7 @@ public class ContractorOfferService {
     private final OfferFeatureRepository featureRepository;
     private final OfferImageRepository imageRepository;
     private final WorkerRepository workerRepository;
+    private final ViewCounterService viewCounterService;
 
     /**
      * جلب جميع العروض مع الفلترة
@@ -72,16 +74,18 @@ public class ContractorOfferService {
     /**
      * جلب تفاصيل عرض
      */
-    @Transactional
+    @Transactional(readOnly = true)
     public OfferResponse getOfferById(UUID offerId) {
         ContractorOffer offer = offerRepository.findByIdWithDetails(offerId)
                 .orElseThrow(() -> new RuntimeException("العرض غير موجود"));
         
-        // زيادة عداد المشاهدات
-        offer.incrementViewCount();
-        offerRepository.save(offer);
+        // المشاهدة تُجمع في الذاكرة وتُكتب دورياً (ViewCounterService)
+        viewCounterService.record(ViewCounterService.Target.OFFER, offerId);
         
-        return mapToFullResponse(offer);
+        OfferResponse response = mapToFullResponse(offer);
+        response.setViewCount((offer.getViewCount() != null ? offer.getViewCount() : 0)
+                + (int) viewCounterService.pending(ViewCounterService.Target.OFFER, offerId));
+        return response;
     }
 
     /**
@@ -1,5 +1,7 @@
 package com.bena.api.module.user.service;
 
+import com.bena.api.common.service.StreamingFileWriter;
+import com.bena.api.module.auth.service.PrincipalCache;
 import com.bena.api.module.user.dto.ProfileCompletionRequest;
 import com.bena.api.module.user.dto.ProfileStatusResponse;
 import com.bena.api.module.user.entity.User;
@@ -16,10 +18,12 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.time.OffsetDateTime;
+import java.util.List;
 import java.util.UUID;
 
 @Service
@@ -29,7 +33,10 @@ public class ProfileCompletionService {
 
     private final UserRepository userRepository;
     private final WorkerRepository workerRepository;
+    private final PrincipalCache principalCache;
     private static final String UPLOAD_DIR = "uploads/documents/";
+    private static final long MAX_DOCUMENT_SIZE = 10 * 1024 * 1024;
+    private static final List<String> DOCUMENT_TYPES = List.of("image/jpeg", "image/png", "image/webp", "application/pdf");
 
     /**
      * الحصول على حالة الملف الشخصي للمستخدم
@@ -101,6 +108,7 @@ public class ProfileCompletionService {
         }
 
         userRepository.save(user);
+        principalCache.evict(userId);
         log.info("Profile completed for user: {}", userId);
 
         // إنشاء/تحديث سجل Worker للمختصين
@@ -197,9 +205,11 @@ public class ProfileCompletionService {
                     : "";
             String filename = userId + "_" + System.currentTimeMillis() + extension;
 
-            // حفظ الملف
+            // حفظ الملف (التحقق من الحجم والنوع الفعلي أثناء النسخ)
             Path filePath = uploadPath.resolve(filename);
-            Files.copy(file.getInputStream(), filePath);
+            try (InputStream in = file.getInputStream()) {
+                StreamingFileWriter.write(in, filePath, MAX_DOCUMENT_SIZE, DOCUMENT_TYPES);
+            }
 
             return "/documents/" + filename;
         } catch (IOException e) {
@@ -229,6 +239,7 @@ public class ProfileCompletionService {
         }
 
         userRepository.save(user);
+        principalCache.evict(userId);
         log.info("Verification status updated for user: {} to {}", userId, status);
 
         // تحديث Worker المقابل إذا كان مختصاً
@@ -1,6 +1,7 @@
 package com.bena.api.module.user.service;
 
 import com.bena.api.common.exception.ResourceNotFoundException;
+import com.bena.api.module.auth.service.PrincipalCache;
 import com.bena.api.module.user.dto.UserRequest;
 import com.bena.api.module.user.dto.UserResponse;
 import com.bena.api.module.user.dto.UserUpdateRequest;
@@ -31,6 +32,7 @@ public class UserService {
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
     private final FileUploadService fileUploadService;
+    private final PrincipalCache principalCache;
 
     public Page<UserResponse> getAllUsers(Pageable pageable) {
         return userRepository.findAllActive(pageable)
@@ -134,6 +136,7 @@ public class UserService {
         }
 
         user = userRepository.save(user);
+        principalCache.evict(user.getId());
         log.info("User updated successfully with id: {}", user.getId());
 
         return UserResponse.from(user);
@@ -148,6 +151,7 @@ public class UserService {
         // Soft delete
         user.setIsActive(false);
         userRepository.save(user);
+        principalCache.evict(id);
 
         log.info("User soft deleted successfully with id: {}", id);
     }
@@ -160,6 +164,7 @@ public class UserService {
         }
 
         userRepository.deleteById(id);
+        principalCache.evict(id);
         log.info("User hard deleted successfully with id: {}", id);
     }
 
@@ -192,6 +197,7 @@ public class UserService {
         }
 
         user = userRepository.save(user);
+        principalCache.evict(userId);
         return UserResponse.from(user);
     }
 
@@ -216,6 +222,7 @@ public class UserService {
 
         user.setPasswordHash(passwordEncoder.encode(request.getNewPassword()));
         userRepository.save(user);
+        principalCache.evict(userId);
     }
 
     private void validatePasswordStrength(String password) {
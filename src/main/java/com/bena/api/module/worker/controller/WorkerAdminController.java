@@ -1,5 +1,6 @@
 package com.bena.api.module.worker.controller;
 
+import com.bena.api.module.user.entity.User;
 import com.bena.api.module.worker.dto.*;
 import com.bena.api.module.worker.entity.WorkerCategory;
 import com.bena.api.module.worker.service.WorkerService;
@@ -11,10 +12,12 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.web.PageableDefault;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.UUID;
 
 /**
  * Controller للأدمن - إدارة العمال
@@ -137,6 +140,17 @@ public class WorkerAdminController {
         return ResponseEntity.ok(workerService.addMedia(id, file, caption));
     }
 
+    @PostMapping("/{id}/media/upload-session")
+    @Operation(summary = "إضافة فيديو/صورة كبيرة من جلسة رفع مجزأ مكتملة")
+    public ResponseEntity<WorkerMediaDTO> addMediaFromUpload(
+            @PathVariable Long id,
+            @RequestParam UUID uploadId,
+            @RequestParam(required = false) String caption,
+            @AuthenticationPrincipal User currentUser
+    ) throws IOException {
+        return ResponseEntity.ok(workerService.addMedia(id, uploadId, currentUser.getId(), caption));
+    }
+
     @PostMapping("/{id}/media/external")
     @Operation(summary = "إضافة رابط فيديو خارجي")
     public ResponseEntity<WorkerMediaDTO> addExternalVideo(
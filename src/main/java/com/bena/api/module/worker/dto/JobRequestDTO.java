@@ -1,6 +1,7 @@
 package com.bena.api.module.worker.dto;
 
 import com.bena.api.module.worker.entity.JobRequest;
+import io.swagger.v3.oas.annotations.media.Schema;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
@@ -31,7 +32,16 @@ public class JobRequestDTO {
     private String statusArabic;
     private String workerResponse;
     private BigDecimal workerPriceOffer;
-    private List<String> imagesBase64;
+    private List<String> imageUrls;
+
+    /**
+     * الاسم القديم قبل مخزن الملفات - يحمل نفس روابط imageUrls (لم يعد Base64) حتى تنتقل التطبيقات
+     */
+    @Deprecated
+    @Schema(deprecated = true, description = "استخدم imageUrls")
+    public List<String> getImagesBase64() {
+        return imageUrls;
+    }
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
     
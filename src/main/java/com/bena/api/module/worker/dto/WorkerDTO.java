@@ -38,6 +38,7 @@ public class WorkerDTO {
     private String area;
     private Double latitude;
     private Double longitude;
+    private Double distanceKm; // المسافة عن نقطة البحث (في البحث المكاني فقط)
     
     // الأسعار
     private BigDecimal pricePerMeter;
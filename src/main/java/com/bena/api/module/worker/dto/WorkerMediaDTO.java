@@ -1,5 +1,6 @@
 package com.bena.api.module.worker.dto;
 
+import com.bena.api.common.dto.ImageVariantDTO;
 import com.bena.api.module.worker.entity.WorkerMedia.MediaType;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
@@ -7,6 +8,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 /**
  * DTO لوسائط العامل
@@ -20,6 +22,8 @@ public class WorkerMediaDTO {
     private MediaType mediaType;
     private String mediaUrl;
     private String thumbnailUrl;
+    private String blurhash;
+    private List<ImageVariantDTO> variants;  // مرتبة حسب العرض، null حتى تُولد
     private String externalUrl;
     private String caption;
     private Integer displayOrder;
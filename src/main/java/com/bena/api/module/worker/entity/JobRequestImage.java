@@ -6,6 +6,7 @@ import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.Formula;
 
 import java.time.LocalDateTime;
 
@@ -28,8 +29,12 @@ public class JobRequestImage {
     @JoinColumn(name = "job_request_id", nullable = false)
     private JobRequest jobRequest;
 
-    @Column(name = "image_data")
-    private byte[] imageData;
+    // البيانات القديمة (image_data) تُنقل إلى مخزن الملفات (image_hash)؛ لا تُحمل مع الصف، وتُقدم من BlobController
+    @Formula("(image_data IS NOT NULL)")
+    private boolean legacyImage;
+
+    @Column(name = "image_hash", length = 64)
+    private String imageHash;
 
     @Column(name = "content_type", length = 100)
     private String contentType;
@@ -2,7 +2,11 @@ package com.bena.api.module.worker.repository;
 
 import com.bena.api.module.worker.entity.WorkerMedia;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.util.List;
 
@@ -14,4 +18,10 @@ public interface WorkerMediaRepository extends JpaRepository<WorkerMedia, Long>
 
     // حذف وسائط عامل
     void deleteByWorkerId(Long workerId);
+
+    // الصورة المصغرة بعد توليدها في الخلفية
+    @Modifying
+    @Transactional
+    @Query("UPDATE WorkerMedia m SET m.thumbnailUrl = :thumbnailUrl WHERE m.id = :id")
+    int updateThumbnailUrl(@Param("id") Long id, @Param("thumbnailUrl") String thumbnailUrl);
 }
@@ -16,6 +16,116 @@ import java.util.UUID;
 @Repository
 public interface WorkerRepository extends JpaRepository<Worker, Long> {
 
+    // ==================== البحث المتقدم والمكاني ====================
+
+    String VISIBLE_FROM =
+            "FROM workers w " +
+            "JOIN users u ON u.id = w.user_id " +
+            "WHERE w.is_active = true AND u.profile_completed = true ";
+
+    String SEARCH_FILTERS =
+            "AND (CAST(:name AS VARCHAR) IS NULL OR LOWER(w.name) LIKE LOWER(CONCAT('%', CAST(:name AS VARCHAR), '%'))) " +
+            "AND (CAST(:category AS VARCHAR) IS NULL OR w.category = CAST(:category AS VARCHAR)) " +
+            "AND (CAST(:city AS VARCHAR) IS NULL OR LOWER(w.city) LIKE LOWER(CONCAT('%', CAST(:city AS VARCHAR), '%'))) " +
+            "AND (CAST(:area AS VARCHAR) IS NULL OR LOWER(w.area) LIKE LOWER(CONCAT('%', CAST(:area AS VARCHAR), '%'))) " +
+            "AND (CAST(:minRating AS DOUBLE PRECISION) IS NULL OR w.average_rating >= CAST(:minRating AS DOUBLE PRECISION)) " +
+            "AND (CAST(:maxPricePerMeter AS NUMERIC) IS NULL OR w.price_per_meter <= CAST(:maxPricePerMeter AS NUMERIC)) " +
+            "AND (CAST(:maxPricePerDay AS NUMERIC) IS NULL OR w.price_per_day <= CAST(:maxPricePerDay AS NUMERIC)) " +
+            "AND (CAST(:featuredOnly AS BOOLEAN) IS NOT TRUE OR w.is_featured = true) " +
+            "AND (CAST(:worksAtNight AS BOOLEAN) IS NOT TRUE OR w.works_at_night = true) " +
+            "AND (CAST(:maxCompletionDays AS INTEGER) IS NULL OR w.estimated_completion_days <= CAST(:maxCompletionDays AS INTEGER)) ";
+
+    // Haversine بالكيلومتر (6371 = نصف قطر الأرض)
+    String DISTANCE_KM =
+            "(6371 * 2 * ASIN(SQRT(" +
+            "POWER(SIN(RADIANS(w.latitude - :latitude) / 2), 2) + " +
+            "COS(RADIANS(:latitude)) * COS(RADIANS(w.latitude)) * " +
+            "POWER(SIN(RADIANS(w.longitude - :longitude) / 2), 2))))";
+
+    // تصفية أولية بالصندوق المحيط (خلايا الشبكة + حدود الإحداثيات) ثم المسافة الدقيقة
+    String GEO_FILTERS =
+            "AND w.geo_cell IS NOT NULL " +
+            "AND (:useCells = false OR w.geo_cell IN (:cells)) " +
+            "AND w.latitude BETWEEN :minLat AND :maxLat " +
+            "AND w.longitude BETWEEN :minLon AND :maxLon " +
+            "AND " + DISTANCE_KM + " <= :distanceKm ";
+
+    // قيمة الترتيب الذي طلبه العميل (:sortKey من WorkerService.SEARCH_SORT_KEYS، أو null)
+    String SORT_CASES =
+            "WHEN 'averageRating' THEN w.average_rating " +
+            "WHEN 'reviewCount' THEN CAST(w.review_count AS DOUBLE PRECISION) " +
+            "WHEN 'experienceYears' THEN CAST(w.experience_years AS DOUBLE PRECISION) " +
+            "WHEN 'pricePerMeter' THEN CAST(w.price_per_meter AS DOUBLE PRECISION) " +
+            "WHEN 'pricePerDay' THEN CAST(w.price_per_day AS DOUBLE PRECISION) " +
+            "WHEN 'estimatedCompletionDays' THEN CAST(w.estimated_completion_days AS DOUBLE PRECISION) " +
+            "WHEN 'createdAt' THEN CAST(EXTRACT(EPOCH FROM w.created_at) AS DOUBLE PRECISION) ";
+
+    String SORT_VALUE = "CASE CAST(:sortKey AS VARCHAR) " + SORT_CASES + "END";
+
+    String SORT_VALUE_NEAR = "CASE CAST(:sortKey AS VARCHAR) " + SORT_CASES + "WHEN 'distance' THEN " + DISTANCE_KM + " END";
+
+    // ترتيب العميل أولاً، ثم ترتيب ثابت (المعرف، أو المسافة ثم المعرف) حتى لا تتكرر النتائج أو تضيع بين الصفحات
+    String SEARCH_SQL =
+            "SELECT w.* " + VISIBLE_FROM + SEARCH_FILTERS +
+            "ORDER BY CASE WHEN :sortDesc THEN NULL ELSE " + SORT_VALUE + " END ASC NULLS LAST, " +
+            "CASE WHEN :sortDesc THEN " + SORT_VALUE + " END DESC NULLS LAST, " +
+            "w.id ASC";
+
+    String SEARCH_COUNT_SQL = "SELECT COUNT(*) " + VISIBLE_FROM + SEARCH_FILTERS;
+
+    String SEARCH_NEAR_SQL =
+            "SELECT w.* " + VISIBLE_FROM + SEARCH_FILTERS + GEO_FILTERS +
+            "ORDER BY CASE WHEN :sortDesc THEN NULL ELSE " + SORT_VALUE_NEAR + " END ASC NULLS LAST, " +
+            "CASE WHEN :sortDesc THEN " + SORT_VALUE_NEAR + " END DESC NULLS LAST, " +
+            DISTANCE_KM + " ASC, w.id ASC";
+
+    String SEARCH_NEAR_COUNT_SQL = "SELECT COUNT(*) " + VISIBLE_FROM + SEARCH_FILTERS + GEO_FILTERS;
+
+    // البحث المتقدم بدون موقع - كل الفلاتر والترتيب داخل SQL (الـ Pageable بدون Sort)
+    @Query(value = SEARCH_SQL, countQuery = SEARCH_COUNT_SQL, nativeQuery = true)
+    Page<Worker> searchVisibleWorkers(
+            @Param("name") String name,
+            @Param("category") String category,
+            @Param("city") String city,
+            @Param("area") String area,
+            @Param("minRating") Double minRating,
+            @Param("maxPricePerMeter") java.math.BigDecimal maxPricePerMeter,
+            @Param("maxPricePerDay") java.math.BigDecimal maxPricePerDay,
+            @Param("featuredOnly") Boolean featuredOnly,
+            @Param("worksAtNight") Boolean worksAtNight,
+            @Param("maxCompletionDays") Integer maxCompletionDays,
+            @Param("sortKey") String sortKey,
+            @Param("sortDesc") boolean sortDesc,
+            Pageable pageable
+    );
+
+    // البحث المكاني - ترتيب العميل ثم المسافة، مع عدد إجمالي صحيح
+    @Query(value = SEARCH_NEAR_SQL, countQuery = SEARCH_NEAR_COUNT_SQL, nativeQuery = true)
+    Page<Worker> searchVisibleWorkersNear(
+            @Param("name") String name,
+            @Param("category") String category,
+            @Param("city") String city,
+            @Param("area") String area,
+            @Param("minRating") Double minRating,
+            @Param("maxPricePerMeter") java.math.BigDecimal maxPricePerMeter,
+            @Param("maxPricePerDay") java.math.BigDecimal maxPricePerDay,
+            @Param("featuredOnly") Boolean featuredOnly,
+            @Param("worksAtNight") Boolean worksAtNight,
+            @Param("maxCompletionDays") Integer maxCompletionDays,
+            @Param("latitude") double latitude,
+            @Param("longitude") double longitude,
+            @Param("distanceKm") double distanceKm,
+            @Param("minLat") double minLat,
+            @Param("maxLat") double maxLat,
+            @Param("minLon") double minLon,
+            @Param("maxLon") double maxLon,
+            @Param("useCells") boolean useCells,
+            @Param("cells") List<Integer> cells,
+            @Param("sortKey") String sortKey,
+            @Param("sortDesc") boolean sortDesc,
+            Pageable pageable
+    );
+
     // جلب عامل مع معرض أعماله (لصفحة التفاصيل)
     @Query("SELECT w FROM Worker w LEFT JOIN FETCH w.mediaGallery WHERE w.id = :id")
     Optional<Worker> findByIdWithMedia(@Param("id") Long id);
@@ -0,0 +1,100 @@
+package com.bena.api.module.worker.service;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * شبكة جغرافية ثابتة (خلايا 0.1 درجة ≈ 11 كم) لتسريع البحث المكاني.
+ * يجب أن تطابق صيغة الخلية هنا العمود المولّد workers.geo_cell (V98).
+ */
+public final class GeoGrid {
+
+    public static final double EARTH_RADIUS_KM = 6371.0;
+
+    // عدد الخلايا لكل درجة
+    private static final int CELLS_PER_DEGREE = 10;
+
+    // عرض الصف (عدد خلايا خط الطول + 1 لتجنب التداخل عند 180)
+    private static final int ROW_STRIDE = 360 * CELLS_PER_DEGREE + 1;
+
+    // إذا تجاوز الصندوق هذا العدد من الخلايا نكتفي بحدود خط العرض/الطول
+    public static final int MAX_CELLS = 1024;
+
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    private GeoGrid() {
+    }
+
+    /**
+     * الصندوق المحيط بدائرة البحث
+     */
+    public record BoundingBox(double minLat, double maxLat, double minLon, double maxLon) {
+    }
+
+    public static int cellOf(double latitude, double longitude) {
+        return row(latitude) * ROW_STRIDE + column(longitude);
+    }
+
+    public static BoundingBox boundingBox(double latitude, double longitude, double distanceKm) {
+        double latDelta = distanceKm / KM_PER_DEGREE_LAT;
+        double minLat = Math.max(-90.0, latitude - latDelta);
+        double maxLat = Math.min(90.0, latitude + latDelta);
+
+        // عند الاقتراب من القطبين نغطي كل خطوط الطول
+        double cosLat = Math.cos(Math.toRadians(Math.max(Math.abs(minLat), Math.abs(maxLat))));
+        if (cosLat < 1e-6 || maxLat >= 90.0 || minLat <= -90.0) {
+            return new BoundingBox(minLat, maxLat, -180.0, 180.0);
+        }
+        double lonDelta = distanceKm / (KM_PER_DEGREE_LAT * cosLat);
+        if (lonDelta >= 180.0) {
+            return new BoundingBox(minLat, maxLat, -180.0, 180.0);
+        }
+        return new BoundingBox(minLat, maxLat,
+                Math.max(-180.0, longitude - lonDelta),
+                Math.min(180.0, longitude + lonDelta));
+    }
+
+    /**
+     * الخلايا التي تغطي الصندوق، أو قائمة فارغة إذا كان عددها أكبر من MAX_CELLS
+     */
+    public static List<Integer> coveringCells(BoundingBox box) {
+        int minRow = row(box.minLat());
+        int maxRow = row(box.maxLat());
+        int minCol = column(box.minLon());
+        int maxCol = column(box.maxLon());
+
+        long count = (long) (maxRow - minRow + 1) * (maxCol - minCol + 1);
+        if (count > MAX_CELLS) {
+            return List.of();
+        }
+
+        List<Integer> cells = new ArrayList<>((int) count);
+        for (int r = minRow; r <= maxRow; r++) {
+            for (int c = minCol; c <= maxCol; c++) {
+                cells.add(r * ROW_STRIDE + c);
+            }
+        }
+        return cells;
+    }
+
+    /**
+     * حساب المسافة بين نقطتين (بالكيلومتر) - Haversine formula
+     */
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double latDistance = Math.toRadians(lat2 - lat1);
+        double lonDistance = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
+        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+        return EARTH_RADIUS_KM * c;
+    }
+
+    private static int row(double latitude) {
+        return (int) Math.floor((latitude + 90.0) * CELLS_PER_DEGREE);
+    }
+
+    private static int column(double longitude) {
+        return (int) Math.floor((longitude + 180.0) * CELLS_PER_DEGREE);
+    }
+}
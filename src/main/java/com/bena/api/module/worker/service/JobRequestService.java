@@ -1,6 +1,8 @@
 package com.bena.api.module.worker.service;
 
 
+import com.bena.api.common.service.FileStorageService;
+import com.bena.api.common.service.LegacyBlobSource;
 import com.bena.api.module.worker.dto.JobRequestCreateDTO;
 import com.bena.api.module.worker.dto.JobRequestDTO;
 import com.bena.api.module.worker.entity.JobRequest;
@@ -17,9 +19,10 @@ import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
-import java.util.Base64;
 import java.util.List;
+import java.util.Objects;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
@@ -29,6 +32,7 @@ public class JobRequestService {
 
     private final JobRequestRepository jobRequestRepository;
     private final WorkerRepository workerRepository;
+    private final FileStorageService fileStorageService;
 
 
     /**
@@ -56,9 +60,14 @@ public class JobRequestService {
         if (images != null && !images.isEmpty()) {
             for (MultipartFile image : images) {
                 if (!image.isEmpty()) {
+                    String imageHash;
+                    try (InputStream content = image.getInputStream()) {
+                        // صور الطلب خاصة بأطرافه: تُقدم بروابط موقعة فقط
+                        imageHash = fileStorageService.storePrivateBlob(content, image.getContentType()).sha256();
+                    }
                     JobRequestImage img = JobRequestImage.builder()
                             .jobRequest(jobRequest)
-                            .imageData(image.getBytes())
+                            .imageHash(imageHash)
                             .contentType(image.getContentType())
                             .build();
                     jobRequest.getImages().add(img);
@@ -290,8 +299,10 @@ public class JobRequestService {
                 .status(request.getStatus())
                 .workerResponse(request.getWorkerResponse())
                 .workerPriceOffer(request.getWorkerPriceOffer())
-                .imagesBase64(request.getImages().stream()
-                        .map(img -> Base64.getEncoder().encodeToString(img.getImageData()))
+                .imageUrls(request.getImages().stream()
+                        .map(img -> fileStorageService.getBlobUrl(
+                                img.getImageHash(), LegacyBlobSource.JOB_REQUEST_IMAGES, img.getId(), img.isLegacyImage()))
+                        .filter(Objects::nonNull)
                         .collect(Collectors.toList()))
                 .createdAt(request.getCreatedAt())
                 .updatedAt(request.getUpdatedAt())
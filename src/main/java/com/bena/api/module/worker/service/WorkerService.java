@@ -1,13 +1,21 @@
 package com.bena.api.module.worker.service;
 
 import com.bena.api.common.service.FileStorageService;
+import com.bena.api.common.service.ImageDerivativeService;
+import com.bena.api.common.service.ImageDerivatives;
+import com.bena.api.common.service.UploadSessionService;
+import com.bena.api.config.cache.CacheRegions;
 import com.bena.api.module.worker.dto.*;
 import com.bena.api.module.worker.entity.*;
 import com.bena.api.module.worker.repository.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
@@ -15,6 +23,8 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.util.Base64;
 import java.util.List;
+import java.util.Set;
+import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +36,11 @@ public class WorkerService {
     private final WorkerMediaRepository mediaRepository;
     private final WorkerReviewRepository reviewRepository;
     private final FileStorageService fileStorageService;
+    private final ImageDerivativeService imageDerivativeService;
+    private final UploadSessionService uploadSessionService;
+
+    private static final List<String> MEDIA_UPLOAD_TYPES = List.of(
+            "video/mp4", "video/webm", "video/quicktime", "image/jpeg", "image/png", "image/webp");
 
     // ==================== عمليات القراءة ====================
 
@@ -76,9 +91,19 @@ public class WorkerService {
         return workerRepository.searchWorkers(query, pageable).map(this::toDTO);
     }
 
+    // الحقول التي يمكن للعميل الترتيب بها في البحث المتقدم (+ distance في البحث المكاني)، تطابق WorkerRepository.SORT_CASES
+    private static final Set<String> SEARCH_SORT_KEYS = Set.of(
+            "averageRating", "reviewCount", "experienceYears", "pricePerMeter", "pricePerDay",
+            "estimatedCompletionDays", "createdAt");
+
+    private record SearchSort(String key, boolean desc) {
+    }
+
     /**
-     * البحث المتقدم
+     * البحث المتقدم - الفلترة والمسافة والترتيب تتم داخل قاعدة البيانات.
+     * أول حقل معروف في sort يُطبق، ثم ترتيب ثابت: المسافة ثم المعرف (مكاني) أو المعرف فقط
      */
+    @Transactional(readOnly = true)
     public Page<WorkerDTO> advancedSearch(
             String name, WorkerCategory category, String city, String area,
             Double minRating, java.math.BigDecimal maxPricePerMeter, java.math.BigDecimal maxPricePerDay,
@@ -86,75 +111,79 @@ public class WorkerService {
             Double latitude, Double longitude, Double distanceKm,
             Pageable pageable
     ) {
-        // جلب المختصين المعتمدين فقط ثم فلترة
-        Page<Worker> allWorkers = workerRepository.findVisibleWorkers(pageable);
-        
-        List<Worker> filtered = allWorkers.getContent().stream()
-                .filter(w -> name == null || w.getName().toLowerCase().contains(name.toLowerCase()))
-                .filter(w -> category == null || w.getCategory() == category)
-                .filter(w -> city == null || (w.getCity() != null && w.getCity().toLowerCase().contains(city.toLowerCase())))
-                .filter(w -> area == null || (w.getArea() != null && w.getArea().toLowerCase().contains(area.toLowerCase())))
-                .filter(w -> minRating == null || (w.getAverageRating() != null && w.getAverageRating() >= minRating))
-                .filter(w -> maxPricePerMeter == null || (w.getPricePerMeter() != null && w.getPricePerMeter().compareTo(maxPricePerMeter) <= 0))
-                .filter(w -> maxPricePerDay == null || (w.getPricePerDay() != null && w.getPricePerDay().compareTo(maxPricePerDay) <= 0))
-                .filter(w -> featuredOnly == null || !featuredOnly || Boolean.TRUE.equals(w.getIsFeatured()))
-                .filter(w -> worksAtNight == null || !worksAtNight || Boolean.TRUE.equals(w.getWorksAtNight()))
-                .filter(w -> maxCompletionDays == null || (w.getEstimatedCompletionDays() != null && w.getEstimatedCompletionDays() <= maxCompletionDays))
-                .filter(w -> {
-                    if (latitude == null || longitude == null || distanceKm == null) return true;
-                    if (w.getLatitude() == null || w.getLongitude() == null) return false;
-                    double distance = calculateDistance(latitude, longitude, w.getLatitude(), w.getLongitude());
-                    return distance <= distanceKm;
-                })
-                .collect(Collectors.toList());
-        
-        return new org.springframework.data.domain.PageImpl<>(
-                filtered.stream().map(this::toDTO).collect(Collectors.toList()),
-                pageable,
-                filtered.size()
-        );
+        String categoryName = category != null ? category.name() : null;
+
+        if (latitude == null || longitude == null || distanceKm == null) {
+            SearchSort sort = searchSort(pageable, false);
+            return workerRepository.searchVisibleWorkers(
+                    blankToNull(name), categoryName, blankToNull(city), blankToNull(area), minRating,
+                    maxPricePerMeter, maxPricePerDay, featuredOnly, worksAtNight, maxCompletionDays,
+                    sort.key(), sort.desc(),
+                    unsorted(pageable)
+            ).map(this::toDTO);
+        }
+
+        validateGeoParams(latitude, longitude, distanceKm);
+        GeoGrid.BoundingBox box = GeoGrid.boundingBox(latitude, longitude, distanceKm);
+        List<Integer> cells = GeoGrid.coveringCells(box);
+        SearchSort sort = searchSort(pageable, true);
+
+        return workerRepository.searchVisibleWorkersNear(
+                blankToNull(name), categoryName, blankToNull(city), blankToNull(area), minRating,
+                maxPricePerMeter, maxPricePerDay, featuredOnly, worksAtNight, maxCompletionDays,
+                latitude, longitude, distanceKm,
+                box.minLat(), box.maxLat(), box.minLon(), box.maxLon(),
+                !cells.isEmpty(), cells.isEmpty() ? List.of(-1) : cells,
+                sort.key(), sort.desc(),
+                unsorted(pageable)
+        ).map(w -> toDTOWithDistance(w, latitude, longitude));
     }
 
     /**
-     * جلب العمال القريبين
+     * جلب العمال القريبين - مرتبين حسب المسافة
      */
+    @Transactional(readOnly = true)
     public Page<WorkerDTO> getNearbyWorkers(Double latitude, Double longitude, Double distanceKm, Pageable pageable) {
-        Page<Worker> allWorkers = workerRepository.findVisibleWorkers(pageable);
-        
-        List<Worker> nearby = allWorkers.getContent().stream()
-                .filter(w -> w.getLatitude() != null && w.getLongitude() != null)
-                .filter(w -> calculateDistance(latitude, longitude, w.getLatitude(), w.getLongitude()) <= distanceKm)
-                .sorted((w1, w2) -> {
-                    double d1 = calculateDistance(latitude, longitude, w1.getLatitude(), w1.getLongitude());
-                    double d2 = calculateDistance(latitude, longitude, w2.getLatitude(), w2.getLongitude());
-                    return Double.compare(d1, d2);
-                })
-                .collect(Collectors.toList());
-        
-        return new org.springframework.data.domain.PageImpl<>(
-                nearby.stream().map(this::toDTO).collect(Collectors.toList()),
-                pageable,
-                nearby.size()
+        return advancedSearch(
+                null, null, null, null, null, null, null, null, null, null,
+                latitude, longitude, distanceKm, pageable
         );
     }
 
-    /**
-     * حساب المسافة بين نقطتين (بالكيلومتر) - Haversine formula
-     */
-    private double calculateDistance(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // نصف قطر الأرض بالكيلومتر
-        double latDistance = Math.toRadians(lat2 - lat1);
-        double lonDistance = Math.toRadians(lon2 - lon1);
-        double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
-                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
-                * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
-        double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+    private void validateGeoParams(double latitude, double longitude, double distanceKm) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new IllegalArgumentException("إحداثيات غير صالحة");
+        }
+        if (distanceKm <= 0) {
+            throw new IllegalArgumentException("المسافة يجب أن تكون أكبر من صفر");
+        }
+    }
+
+    private SearchSort searchSort(Pageable pageable, boolean geo) {
+        for (Sort.Order order : pageable.getSort()) {
+            String property = order.getProperty();
+            if (SEARCH_SORT_KEYS.contains(property) || (geo && "distance".equals(property))) {
+                return new SearchSort(property, order.isDescending());
+            }
+        }
+        return new SearchSort(null, false);
+    }
+
+    // الترتيب مكتوب في الاستعلام (sortKey)، فلا يضيف Spring ترتيباً بأسماء حقول Java لاستعلام native
+    private Pageable unsorted(Pageable pageable) {
+        return pageable.isPaged()
+                ? PageRequest.of(pageable.getPageNumber(), pageable.getPageSize())
+                : pageable;
+    }
+
+    private String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
     }
 
     /**
      * جلب العمال المميزين
      */
+    @Cacheable(value = CacheRegions.FEATURED_WORKERS, key = "'all'")
     public List<WorkerDTO> getFeaturedWorkers() {
         return workerRepository.findVisibleFeaturedWorkers()
                 .stream()
@@ -182,6 +211,7 @@ public class WorkerService {
      * إنشاء عامل جديد
      */
     @Transactional
+    @CacheEvict(value = CacheRegions.FEATURED_WORKERS, allEntries = true)
     public WorkerDTO createWorker(WorkerCreateDTO dto, MultipartFile profileImage) throws IOException {
         Worker worker = Worker.builder()
                 .name(dto.getName())
@@ -208,6 +238,7 @@ public class WorkerService {
      * تحديث عامل
      */
     @Transactional
+    @CacheEvict(value = CacheRegions.FEATURED_WORKERS, allEntries = true)
     public WorkerDTO updateWorker(Long id, WorkerCreateDTO dto, MultipartFile profileImage) throws IOException {
         Worker worker = workerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("العامل غير موجود"));
@@ -241,6 +272,7 @@ public class WorkerService {
      * حذف عامل
      */
     @Transactional
+    @CacheEvict(value = CacheRegions.FEATURED_WORKERS, allEntries = true)
     public void deleteWorker(Long id) {
         workerRepository.deleteById(id);
     }
@@ -249,6 +281,7 @@ public class WorkerService {
      * تفعيل/إلغاء تفعيل عامل
      */
     @Transactional
+    @CacheEvict(value = CacheRegions.FEATURED_WORKERS, allEntries = true)
     public WorkerDTO toggleWorkerActive(Long id) {
         Worker worker = workerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("العامل غير موجود"));
@@ -260,6 +293,7 @@ public class WorkerService {
      * تمييز/إلغاء تمييز عامل
      */
     @Transactional
+    @CacheEvict(value = CacheRegions.FEATURED_WORKERS, allEntries = true)
     public WorkerDTO toggleWorkerFeatured(Long id) {
         Worker worker = workerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("العامل غير موجود"));
@@ -271,6 +305,7 @@ public class WorkerService {
      * توثيق حساب عامل
      */
     @Transactional
+    @CacheEvict(value = CacheRegions.FEATURED_WORKERS, allEntries = true)
     public WorkerDTO verifyWorker(Long id) {
         Worker worker = workerRepository.findById(id)
                 .orElseThrow(() -> new RuntimeException("العامل غير موجود"));
@@ -294,7 +329,27 @@ public class WorkerService {
                 : WorkerMedia.MediaType.IMAGE;
 
         String mediaUrl = fileStorageService.store(file, "workers/media");
-        
+        return saveMedia(worker, mediaType, mediaUrl, caption);
+    }
+
+    /**
+     * إضافة فيديو/صورة كبيرة من جلسة رفع مجزأ مكتملة (الملف يُنقل بدون نسخ)
+     */
+    @Transactional
+    public WorkerMediaDTO addMedia(Long workerId, UUID uploadId, UUID userId, String caption) throws IOException {
+        Worker worker = workerRepository.findById(workerId)
+                .orElseThrow(() -> new RuntimeException("العامل غير موجود"));
+
+        String contentType = uploadSessionService.get(uploadId, userId).contentType();
+        WorkerMedia.MediaType mediaType = contentType.startsWith("video")
+                ? WorkerMedia.MediaType.VIDEO
+                : WorkerMedia.MediaType.IMAGE;
+
+        String mediaUrl = uploadSessionService.consume(uploadId, userId, "workers/media", MEDIA_UPLOAD_TYPES);
+        return saveMedia(worker, mediaType, mediaUrl, caption);
+    }
+
+    private WorkerMediaDTO saveMedia(Worker worker, WorkerMedia.MediaType mediaType, String mediaUrl, String caption) {
         WorkerMedia media = WorkerMedia.builder()
                 .worker(worker)
                 .mediaType(mediaType)
@@ -304,6 +359,11 @@ public class WorkerService {
                 .build();
 
         WorkerMedia saved = mediaRepository.save(media);
+        if (mediaType == WorkerMedia.MediaType.IMAGE) {
+            Long mediaId = saved.getId();
+            imageDerivativeService.enqueue(mediaUrl,
+                    derivatives -> mediaRepository.updateThumbnailUrl(mediaId, derivatives.thumbnailUrl()));
+        }
         return toMediaDTO(saved);
     }
 
@@ -338,6 +398,7 @@ public class WorkerService {
         // حذف الملف من filesystem
         if (media.getMediaUrl() != null) {
             fileStorageService.delete(media.getMediaUrl());
+            imageDerivativeService.delete(media.getMediaUrl());
         }
         
         mediaRepository.deleteById(mediaId);
@@ -349,6 +410,7 @@ public class WorkerService {
      * إضافة تقييم
      */
     @Transactional
+    @CacheEvict(value = CacheRegions.FEATURED_WORKERS, allEntries = true)
     public WorkerReviewDTO addReview(Long workerId, WorkerReviewCreateDTO dto) {
         Worker worker = workerRepository.findById(workerId)
                 .orElseThrow(() -> new RuntimeException("العامل غير موجود"));
@@ -437,6 +499,14 @@ public class WorkerService {
                 .build();
     }
     
+    private WorkerDTO toDTOWithDistance(Worker worker, double latitude, double longitude) {
+        WorkerDTO dto = toDTO(worker);
+        if (worker.getLatitude() != null && worker.getLongitude() != null) {
+            dto.setDistanceKm(GeoGrid.distanceKm(latitude, longitude, worker.getLatitude(), worker.getLongitude()));
+        }
+        return dto;
+    }
+
     // تحويل مع mediaGallery (للـ detail view)
     private WorkerDTO toDTOWithMedia(Worker worker) {
         String imageUrl = worker.getProfileImageUrl();
@@ -472,12 +542,21 @@ public class WorkerService {
                 .estimatedCompletionDays(worker.getEstimatedCompletionDays())
                 .email(worker.getEmail())
                 .mediaGallery(worker.getMediaGallery() != null
-                        ? worker.getMediaGallery().stream().map(this::toMediaDTO).collect(Collectors.toList())
+                        ? toMediaDTOs(worker.getMediaGallery())
                         : null)
                 .createdAt(worker.getCreatedAt())
                 .build();
     }
 
+    // النسخ المصغرة لكل المعرض باستعلام واحد
+    private List<WorkerMediaDTO> toMediaDTOs(List<WorkerMedia> gallery) {
+        imageDerivativeService.findAll(gallery.stream()
+                .filter(media -> media.getMediaType() == WorkerMedia.MediaType.IMAGE)
+                .map(WorkerMedia::getMediaUrl)
+                .toList());
+        return gallery.stream().map(this::toMediaDTO).collect(Collectors.toList());
+    }
+
     private WorkerMediaDTO toMediaDTO(WorkerMedia media) {
         // دعم الوسائط القديمة (byte[]) والجديدة (URL)
         String mediaUrl = media.getMediaUrl();
@@ -491,11 +570,21 @@ public class WorkerService {
             mediaUrl = "data:image/svg+xml;base64,PHN2ZyB3aWR0aD0iMTAwIiBoZWlnaHQ9IjEwMCIgeG1sbnM9Imh0dHA6Ly93d3cudzMub3JnLzIwMDAvc3ZnIj48cmVjdCB3aWR0aD0iMTAwIiBoZWlnaHQ9IjEwMCIgZmlsbD0iIzY0NzQ4YiIvPjx0ZXh0IHg9IjUwIiB5PSI1NSIgZm9udC1mYW1pbHk9IkFyaWFsIiBmb250LXNpemU9IjEyIiBmaWxsPSJ3aGl0ZSIgdGV4dC1hbmNob3I9Im1pZGRsZSI+TUVESUE8L3RleHQ+PC9zdmc+";
         }
         
+        ImageDerivatives derivatives = media.getMediaType() == WorkerMedia.MediaType.IMAGE
+                ? imageDerivativeService.find(media.getMediaUrl()).orElse(null)
+                : null;
+        String thumbnailUrl = media.getThumbnailUrl();
+        if (thumbnailUrl == null && derivatives != null) {
+            thumbnailUrl = derivatives.thumbnailUrl();
+        }
+        
         return WorkerMediaDTO.builder()
                 .id(media.getId())
                 .mediaType(media.getMediaType())
                 .mediaUrl(mediaUrl)
-                .thumbnailUrl(media.getThumbnailUrl())
+                .thumbnailUrl(thumbnailUrl)
+                .blurhash(derivatives != null ? derivatives.blurhash() : null)
+                .variants(derivatives != null ? derivatives.variants() : null)
                 .externalUrl(media.getExternalUrl())
                 .caption(media.getCaption())
                 .displayOrder(media.getDisplayOrder())
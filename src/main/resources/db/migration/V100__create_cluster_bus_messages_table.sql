@@ -0,0 +1,10 @@
+-- رسائل ناقل النسخ الأكبر من حد NOTIFY (app.cluster.bus=postgres)
+-- UNLOGGED: رسائل عابرة تُحذف بعد دقائق
+CREATE UNLOGGED TABLE IF NOT EXISTS cluster_bus_messages (
+    id BIGSERIAL PRIMARY KEY,
+    payload TEXT NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_cluster_bus_messages_created_at
+    ON cluster_bus_messages(created_at);
@@ -0,0 +1,78 @@
+-- تقسيم audit_logs إلى أقسام شهرية (RANGE على created_at)
+-- الحذف حسب مدة الاحتفاظ يصبح DETACH/DROP للقسم بدل DELETE لملايين الصفوف،
+-- والاستعلامات المقيدة بـ created_at تقرأ الأقسام المطلوبة فقط.
+-- الأقسام المستقبلية ينشئها AuditPartitionMaintenance يومياً.
+
+ALTER TABLE audit_logs RENAME TO audit_logs_legacy;
+
+-- نحتفظ بنفس الـ sequence حتى تستمر المعرفات بدون تكرار
+ALTER SEQUENCE audit_logs_id_seq OWNED BY NONE;
+
+CREATE TABLE audit_logs (
+    id BIGINT NOT NULL DEFAULT nextval('audit_logs_id_seq'),
+    user_id UUID,
+    user_email VARCHAR(100),
+    action VARCHAR(50) NOT NULL,
+    target_type VARCHAR(30) NOT NULL,
+    target_id VARCHAR(50),
+    description TEXT,
+    old_value TEXT,
+    new_value TEXT,
+    ip_address VARCHAR(45),
+    user_agent VARCHAR(500),
+    request_path VARCHAR(200),
+    request_method VARCHAR(10),
+    status VARCHAR(20) DEFAULT 'SUCCESS',
+    error_message TEXT,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    -- مفتاح التقسيم يجب أن يكون جزءاً من المفتاح الأساسي
+    PRIMARY KEY (id, created_at)
+) PARTITION BY RANGE (created_at);
+
+ALTER SEQUENCE audit_logs_id_seq OWNED BY audit_logs.id;
+
+-- أقسام من أقدم سجل حتى 3 أشهر قادمة (الاسم: audit_logs_yYYYYmMM)
+DO $$
+DECLARE
+    month_start DATE;
+    last_month DATE := date_trunc('month', CURRENT_DATE + INTERVAL '3 months')::DATE;
+BEGIN
+    SELECT COALESCE(date_trunc('month', MIN(created_at) AT TIME ZONE 'UTC')::DATE,
+                    date_trunc('month', CURRENT_DATE)::DATE)
+    INTO month_start
+    FROM audit_logs_legacy;
+
+    WHILE month_start <= last_month LOOP
+        EXECUTE format(
+            'CREATE TABLE IF NOT EXISTS %I PARTITION OF audit_logs FOR VALUES FROM (%L) TO (%L)',
+            'audit_logs_' || to_char(month_start, '"y"YYYY"m"MM'),
+            month_start::TIMESTAMP AT TIME ZONE 'UTC',
+            (month_start + INTERVAL '1 month')::TIMESTAMP AT TIME ZONE 'UTC'
+        );
+        month_start := (month_start + INTERVAL '1 month')::DATE;
+    END LOOP;
+END $$;
+
+-- احتياط إذا لم تُنشأ أقسام الأشهر القادمة في الوقت المناسب
+CREATE TABLE IF NOT EXISTS audit_logs_default PARTITION OF audit_logs DEFAULT;
+
+INSERT INTO audit_logs (id, user_id, user_email, action, target_type, target_id, description,
+                        old_value, new_value, ip_address, user_agent, request_path, request_method,
+                        status, error_message, created_at)
+SELECT id, user_id, user_email, action, target_type, target_id, description,
+       old_value, new_value, ip_address, user_agent, request_path, request_method,
+       status, error_message, created_at
+FROM audit_logs_legacy;
+
+DROP TABLE audit_logs_legacy;
+
+-- الفهارس على الجدول الأب تُنشأ تلقائياً لكل قسم
+CREATE INDEX IF NOT EXISTS idx_audit_user_id ON audit_logs(user_id);
+CREATE INDEX IF NOT EXISTS idx_audit_action ON audit_logs(action);
+CREATE INDEX IF NOT EXISTS idx_audit_target_type ON audit_logs(target_type);
+CREATE INDEX IF NOT EXISTS idx_audit_created_at ON audit_logs(created_at);
+CREATE INDEX IF NOT EXISTS idx_audit_ip_address ON audit_logs(ip_address);
+CREATE INDEX IF NOT EXISTS idx_audit_target ON audit_logs(target_type, target_id);
+CREATE INDEX IF NOT EXISTS idx_audit_failures ON audit_logs(action, created_at) WHERE status = 'FAILURE';
+
+COMMENT ON TABLE audit_logs IS 'Stores all sensitive operations for security, compliance, and analysis (monthly partitions)';
@@ -0,0 +1,20 @@
+-- مخزن المحتوى حسب SHA-256 (الملفات على القرص، هنا البيانات الوصفية فقط)
+CREATE TABLE IF NOT EXISTS blobs (
+    sha256 VARCHAR(64) PRIMARY KEY,
+    content_type VARCHAR(100) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
+
+-- مرجع الصورة بدل bytea داخل الصف (تنقل BlobMigrationJob البيانات القديمة)
+ALTER TABLE job_request_images ADD COLUMN IF NOT EXISTS image_hash VARCHAR(64);
+ALTER TABLE designs ADD COLUMN IF NOT EXISTS image_hash VARCHAR(64);
+ALTER TABLE ebooks ADD COLUMN IF NOT EXISTS cover_hash VARCHAR(64);
+
+-- الصفوف التي لم تُنقل بعد
+CREATE INDEX IF NOT EXISTS idx_job_request_images_pending_blob
+    ON job_request_images(id) WHERE image_data IS NOT NULL AND image_hash IS NULL;
+CREATE INDEX IF NOT EXISTS idx_designs_pending_blob
+    ON designs(id) WHERE image_data IS NOT NULL AND image_hash IS NULL;
+CREATE INDEX IF NOT EXISTS idx_ebooks_pending_blob
+    ON ebooks(id) WHERE cover_data IS NOT NULL AND cover_hash IS NULL;
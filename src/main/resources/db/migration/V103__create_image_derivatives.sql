@@ -0,0 +1,21 @@
+-- نسخ الصور المصغرة (160/480/1080 ...) تُولد في الخلفية بعد الرفع
+-- source: المسار النسبي للملف المرفوع أو SHA-256 للمحتوى في مخزن blobs
+-- ملفات النسخ نفسها محفوظة في blobs وتُقدم من /v1/blobs/{sha256}
+CREATE TABLE IF NOT EXISTS image_variants (
+    source VARCHAR(500) NOT NULL,
+    format VARCHAR(10) NOT NULL,
+    width INT NOT NULL,
+    height INT NOT NULL,
+    blob_sha256 VARCHAR(64) NOT NULL,
+    size_bytes BIGINT NOT NULL,
+    PRIMARY KEY (source, format, width)
+);
+
+-- صف واحد لكل صورة اكتملت نسخها (يُكتب بعد النسخ، فوجوده يعني أن النسخ جاهزة)
+CREATE TABLE IF NOT EXISTS image_derivatives (
+    source VARCHAR(500) PRIMARY KEY,
+    width INT NOT NULL,
+    height INT NOT NULL,
+    blurhash VARCHAR(64),
+    created_at TIMESTAMP WITH TIME ZONE DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
@@ -0,0 +1,30 @@
+-- مواد الحاسبات التي كانت أسعارها ثابتة في الكود فقط
+-- حتى تُدار أسعارها من materials / material_prices مثل باقي المواد
+INSERT INTO materials (code, name_ar, name_en, category, unit, default_price, default_labor_cost, specifications) VALUES
+-- Foundation
+('EXCAVATION', 'حفر', 'Excavation', 'foundation', 'm3', 15000, 0, '{}'),
+('FILL_COMPACTED', 'دفان مع الرص', 'Compacted Fill', 'foundation', 'm3', 45000, 0, '{}'),
+
+-- Finishing
+('TILES_MARBLE', 'مرمر', 'Marble Tiles', 'finishing', 'm2', 80000, 20000, '{}'),
+('TILES_GRANITE', 'كرانيت', 'Granite Tiles', 'finishing', 'm2', 100000, 20000, '{}'),
+('TILE_ADHESIVE', 'غراء سيراميك', 'Tile Adhesive', 'finishing', 'bag', 12000, 0, '{"coverage_m2_per_bag": 5}'),
+('WHITE_CEMENT', 'سمنت أبيض', 'White Cement', 'finishing', 'bag', 8000, 0, '{"coverage_m2_per_bag": 15}'),
+
+-- Electrical
+('ELEC_WIRE', 'سلك كهرباء', 'Electrical Wire', 'electrical', 'm', 1500, 0, '{}'),
+('ELEC_SWITCH', 'سويج', 'Switch', 'electrical', 'piece', 8000, 0, '{}'),
+('ELEC_SOCKET', 'بلك', 'Socket', 'electrical', 'piece', 6000, 0, '{}'),
+('ELEC_BREAKER', 'قاطع', 'Circuit Breaker', 'electrical', 'piece', 15000, 0, '{}'),
+('ELEC_DISTRIBUTION_BOARD', 'لوحة توزيع', 'Distribution Board', 'electrical', 'piece', 150000, 0, '{}'),
+
+-- Plumbing
+('PLUMB_WATER_PIPE', 'أنابيب ماء', 'Water Pipe', 'plumbing', 'm', 3000, 0, '{}'),
+('PLUMB_DRAIN_PIPE', 'أنابيب صرف', 'Drain Pipe', 'plumbing', 'm', 5000, 0, '{}'),
+('PLUMB_TOILET', 'مرحاض', 'Toilet', 'plumbing', 'piece', 250000, 0, '{}'),
+('PLUMB_SINK', 'مغسلة', 'Sink', 'plumbing', 'piece', 150000, 0, '{}'),
+('PLUMB_MIXER', 'خلاط', 'Mixer', 'plumbing', 'piece', 80000, 0, '{}'),
+('PLUMB_WATER_HEATER', 'سخان ماء', 'Water Heater', 'plumbing', 'piece', 350000, 0, '{}'),
+('PLUMB_WATER_TANK', 'خزان ماء', 'Water Tank', 'plumbing', 'piece', 500000, 0, '{}'),
+('PLUMB_WATER_PUMP', 'مضخة ماء', 'Water Pump', 'plumbing', 'piece', 400000, 0, '{}')
+ON CONFLICT (code) DO NOTHING;
@@ -0,0 +1,19 @@
+-- V106: محافظة المستخدم في سجل الحسابات + جدول التجميع اليومي للتحليلات
+-- التحليلات تقرأ من calculation_daily_stats ولا تمسح calculation_logs (jsonb)
+
+ALTER TABLE calculation_logs ADD COLUMN IF NOT EXISTS governorate VARCHAR(50);
+
+CREATE TABLE IF NOT EXISTS calculation_daily_stats (
+    day DATE NOT NULL,
+    calculation_type VARCHAR(50) NOT NULL,
+    -- '' للزوار أو المستخدمين بدون محافظة (المفتاح الأساسي لا يقبل NULL)
+    governorate VARCHAR(50) NOT NULL DEFAULT '',
+    calculation_count BIGINT NOT NULL DEFAULT 0,
+    -- عدد الحسابات التي لها total_cost (المتوسط = total_cost_sum / costed_count)
+    costed_count BIGINT NOT NULL DEFAULT 0,
+    total_cost_sum DECIMAL(20,2) NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (day, calculation_type, governorate)
+);
+
+CREATE INDEX IF NOT EXISTS idx_calc_daily_stats_type ON calculation_daily_stats(calculation_type, day DESC);
@@ -0,0 +1,18 @@
+-- V107: جداول التجميع لإحصائيات لوحة التحكم
+-- تُحدّث تدريجياً من أحداث الكيانات بعد الـ commit، وتُطابق دورياً مع الجداول الأصلية بـ GROUP BY
+
+-- العدادات الحالية: users.total, users.active, contracts.status.ACTIVE ...
+CREATE TABLE IF NOT EXISTS admin_stat_counters (
+    metric VARCHAR(100) PRIMARY KEY,
+    value BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
+
+-- السلاسل اليومية (UTC): users.created
+CREATE TABLE IF NOT EXISTS admin_daily_stats (
+    metric VARCHAR(100) NOT NULL,
+    day DATE NOT NULL,
+    value BIGINT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMPTZ NOT NULL DEFAULT NOW(),
+    PRIMARY KEY (metric, day)
+);
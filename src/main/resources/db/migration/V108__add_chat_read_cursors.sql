@@ -0,0 +1,19 @@
+-- مؤشرات القراءة: آخر رسالة قرأها كل طرف بدل تحديث is_read لكل رسالة
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS user_last_read_message_id BIGINT;
+ALTER TABLE conversations ADD COLUMN IF NOT EXISTS worker_last_read_message_id BIGINT;
+
+-- نقل حالة القراءة الحالية (is_read كان يُحدّث لكل رسائل الطرف الآخر دفعة واحدة)
+UPDATE conversations c SET
+    user_last_read_message_id = (
+        SELECT MAX(m.id) FROM messages m
+        WHERE m.conversation_id = c.id AND m.sender_type = 'WORKER' AND m.is_read = TRUE),
+    worker_last_read_message_id = (
+        SELECT MAX(m.id) FROM messages m
+        WHERE m.conversation_id = c.id AND m.sender_type = 'USER' AND m.is_read = TRUE);
+
+UPDATE conversations SET user_unread_count = 0 WHERE user_unread_count IS NULL;
+UPDATE conversations SET worker_unread_count = 0 WHERE worker_unread_count IS NULL;
+
+-- آخر رسالة من الطرف الآخر عند تحديد المحادثة كمقروءة
+CREATE INDEX IF NOT EXISTS idx_messages_conversation_sender_id
+    ON messages(conversation_id, sender_type, id DESC);
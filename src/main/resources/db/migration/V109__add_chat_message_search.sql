@@ -0,0 +1,4 @@
+-- نص البحث الموحد للرسائل (يُملأ من التطبيق عند الإضافة والتعديل: ChatSearchText)
+-- إضافة عمود بدون قيمة افتراضية لا تعيد كتابة الجدول. تعبئة الرسائل الحالية والفهرس النصي في V113
+-- خارج معاملة Flyway حتى لا يُقفل جدول messages طوال التعبئة وبناء الفهرس
+ALTER TABLE messages ADD COLUMN IF NOT EXISTS search_text TEXT;
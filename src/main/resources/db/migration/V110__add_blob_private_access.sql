@@ -0,0 +1,25 @@
+-- المحتوى الخاص (صور طلبات العمل) يُقدم من /v1/blobs برابط موقع فقط
+ALTER TABLE blobs ADD COLUMN IF NOT EXISTS is_private BOOLEAN NOT NULL DEFAULT FALSE;
+
+-- صور طلبات العمل المنقولة سابقاً: خاصة إلا إذا كان نفس المحتوى مستخدماً في مكان عام
+CREATE TEMPORARY TABLE private_sources ON COMMIT DROP AS
+SELECT DISTINCT image_hash AS sha256 FROM job_request_images
+WHERE image_hash IS NOT NULL
+  AND image_hash NOT IN (SELECT image_hash FROM designs WHERE image_hash IS NOT NULL)
+  AND image_hash NOT IN (SELECT cover_hash FROM ebooks WHERE cover_hash IS NOT NULL);
+
+UPDATE blobs SET is_private = TRUE WHERE sha256 IN (SELECT sha256 FROM private_sources);
+
+-- النسخ المصغرة التي وُلدت لها سابقاً (BlobMigrationJob لم يعد يولدها للمحتوى الخاص)
+UPDATE blobs SET is_private = TRUE
+WHERE sha256 IN (SELECT blob_sha256 FROM image_variants WHERE source IN (SELECT sha256 FROM private_sources));
+DELETE FROM image_variants WHERE source IN (SELECT sha256 FROM private_sources);
+DELETE FROM image_derivatives WHERE source IN (SELECT sha256 FROM private_sources);
+
+-- بيانات قديمة بقيت بعد استبدال الصورة (يفرغها BlobMigrationJob)
+CREATE INDEX IF NOT EXISTS idx_job_request_images_replaced_blob
+    ON job_request_images(id) WHERE image_data IS NOT NULL AND image_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_designs_replaced_blob
+    ON designs(id) WHERE image_data IS NOT NULL AND image_hash IS NOT NULL;
+CREATE INDEX IF NOT EXISTS idx_ebooks_replaced_blob
+    ON ebooks(id) WHERE cover_data IS NOT NULL AND cover_hash IS NOT NULL;
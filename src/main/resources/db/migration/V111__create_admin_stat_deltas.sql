@@ -0,0 +1,12 @@
+-- V111: فروقات الإحصائيات تُكتب في نفس معاملة التغيير بدل ذاكرة كل نسخة
+-- المطابقة (REPEATABLE READ) تحذف الفروقات المرئية في الـ snapshot فقط، فلا يُحسب تغيير مرتين
+-- مهما كانت النسخة التي سجلته، والـ flush في أي نسخة ينقل الباقي إلى admin_stat_counters / admin_daily_stats.
+
+CREATE TABLE IF NOT EXISTS admin_stat_deltas (
+    id BIGSERIAL PRIMARY KEY,
+    metric VARCHAR(100) NOT NULL,
+    -- NULL = عداد حالي، غير ذلك = قيمة يومية (UTC)
+    day DATE,
+    delta BIGINT NOT NULL,
+    created_at TIMESTAMPTZ NOT NULL DEFAULT NOW()
+);
@@ -0,0 +1,28 @@
+-- V112: رقم نسخة لأسعار المواد يزيد مع كل تغيير في materials أو material_prices (إضافة، تعديل، حذف)
+-- MaterialPriceService يقارنه بدل COUNT(*) + MAX(created_at) الذي لا يرى تعديل سعر قائم في مكانه،
+-- ولا معاملة بدأت قبل آخر صف مرئي وانتهت بعده (created_at = وقت بدء المعاملة لا وقت الـ commit).
+-- التحديث يقفل الصف حتى الـ commit، فكل معاملة ناجحة تعطي رقماً جديداً.
+
+CREATE TABLE IF NOT EXISTS material_price_version (
+    id BOOLEAN PRIMARY KEY DEFAULT TRUE CHECK (id),
+    version BIGINT NOT NULL
+);
+
+INSERT INTO material_price_version (id, version) VALUES (TRUE, 1) ON CONFLICT (id) DO NOTHING;
+
+CREATE OR REPLACE FUNCTION bump_material_price_version() RETURNS trigger AS $$
+BEGIN
+    UPDATE material_price_version SET version = version + 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS trg_materials_price_version ON materials;
+CREATE TRIGGER trg_materials_price_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON materials
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_material_price_version();
+
+DROP TRIGGER IF EXISTS trg_material_prices_price_version ON material_prices;
+CREATE TRIGGER trg_material_prices_price_version
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON material_prices
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_material_price_version();
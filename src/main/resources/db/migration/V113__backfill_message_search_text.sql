@@ -0,0 +1,32 @@
+-- تعبئة search_text للرسائل الحالية ثم بناء الفهرس النصي، بدون قفل جدول messages:
+-- - الترحيل يعمل خارج معاملة Flyway (V113__backfill_message_search_text.sql.conf)
+-- - التعبئة على دفعات حسب نطاق id، وكل دفعة تُثبّت (COMMIT) وحدها فلا تبقى أقفال الصفوف حتى النهاية
+-- - الفهرس يُبنى CONCURRENTLY فتستمر الكتابة في messages أثناء البناء
+-- الرسائل الجديدة يملؤها التطبيق (ChatSearchText)، وإعادة التشغيل آمنة (WHERE search_text IS NULL و IF NOT EXISTS)
+
+-- نفس قواعد ChatSearchText:
+-- حذف التشكيل والتطويل، توحيد الألف والتاء المربوطة والياء والهمزات، الأرقام العربية والفارسية، أحرف صغيرة
+DO $$
+DECLARE
+    batch_size CONSTANT BIGINT := 5000;
+    max_id BIGINT;
+    from_id BIGINT := 0;
+BEGIN
+    SELECT COALESCE(MAX(id), 0) INTO max_id FROM messages;
+    WHILE from_id < max_id LOOP
+        UPDATE messages
+        SET search_text = LOWER(TRANSLATE(
+                REGEXP_REPLACE(content, '[\u064B-\u065F\u0670\u0640]', '', 'g'),
+                'أإآٱةىئؤ٠١٢٣٤٥٦٧٨٩۰۱۲۳۴۵۶۷۸۹',
+                'ااااهييو01234567890123456789'))
+        WHERE id > from_id AND id <= from_id + batch_size
+          AND search_text IS NULL AND is_deleted = FALSE;
+        from_id := from_id + batch_size;
+        COMMIT;
+    END LOOP;
+END $$;
+
+-- فهرس نصي: البحث بالكلمات (وبداياتها) بدل LIKE '%...%' الذي يمسح كل الرسائل
+-- إن فشل البناء يبقى فهرس INVALID: يُحذف بـ DROP INDEX CONCURRENTLY idx_messages_search ثم يُعاد الترحيل
+CREATE INDEX CONCURRENTLY IF NOT EXISTS idx_messages_search
+    ON messages USING GIN (to_tsvector('simple', COALESCE(search_text, '')));
@@ -0,0 +1,16 @@
+-- خلية شبكة جغرافية (0.1 درجة) لتسريع البحث عن العمال القريبين
+-- الصيغة يجب أن تطابق GeoGrid.cellOf في الكود
+ALTER TABLE workers ADD COLUMN IF NOT EXISTS geo_cell INTEGER
+    GENERATED ALWAYS AS (
+        CASE WHEN latitude IS NULL OR longitude IS NULL THEN NULL
+             ELSE FLOOR((latitude + 90) * 10)::INTEGER * 3601 + FLOOR((longitude + 180) * 10)::INTEGER
+        END
+    ) STORED;
+
+-- فهرس جزئي للعمال الظاهرين فقط مع الإحداثيات
+CREATE INDEX IF NOT EXISTS idx_workers_geo_cell_active
+    ON workers(geo_cell, latitude, longitude)
+    WHERE is_active = true AND geo_cell IS NOT NULL;
+
+-- تسريع الربط مع users في استعلامات الظهور
+CREATE INDEX IF NOT EXISTS idx_workers_user_id ON workers(user_id);
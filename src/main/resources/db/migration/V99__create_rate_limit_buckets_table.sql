@@ -0,0 +1,11 @@
+-- حالة Token Buckets المشتركة بين نسخ التطبيق (app.rate-limit.store=jdbc)
+-- UNLOGGED: بيانات مؤقتة لا تحتاج WAL، وفقدانها بعد crash مقبول
+CREATE UNLOGGED TABLE IF NOT EXISTS rate_limit_buckets (
+    bucket_key VARCHAR(255) PRIMARY KEY,
+    tokens DOUBLE PRECISION NOT NULL,
+    refilled_at_ms BIGINT NOT NULL,
+    last_allowed BOOLEAN NOT NULL DEFAULT TRUE
+);
+
+CREATE INDEX IF NOT EXISTS idx_rate_limit_buckets_refilled_at
+    ON rate_limit_buckets(refilled_at_ms);
@@ -0,0 +1,52 @@
+package com.bena.api.common.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BlobUrlSignerTest {
+
+    private static final String PATH = "/v1/blobs/" + "a".repeat(64);
+
+    @Test
+    void signedPathVerifiesUntilExpiry() {
+        BlobUrlSigner signer = signer("secret", Instant.ofEpochSecond(10_000));
+        UriComponents query = query(signer.sign(PATH));
+        long exp = Long.parseLong(query.getQueryParams().getFirst("exp"));
+        String sig = query.getQueryParams().getFirst("sig");
+
+        // صالح بين ttl و 2×ttl، وثابت داخل نفس النافذة
+        assertThat(exp - 10_000).isBetween(3600L, 7200L);
+        assertThat(signer.verify(PATH, exp, sig)).isTrue();
+        assertThat(signer("secret", Instant.ofEpochSecond(10_500)).sign(PATH)).isEqualTo(signer.sign(PATH));
+
+        assertThat(signer("secret", Instant.ofEpochSecond(exp + 1)).verify(PATH, exp, sig)).isFalse();
+    }
+
+    @Test
+    void signatureIsBoundToPathExpiryAndSecret() {
+        BlobUrlSigner signer = signer("secret", Instant.ofEpochSecond(10_000));
+        UriComponents query = query(signer.sign(PATH));
+        long exp = Long.parseLong(query.getQueryParams().getFirst("exp"));
+        String sig = query.getQueryParams().getFirst("sig");
+
+        assertThat(signer.verify("/v1/blobs/" + "b".repeat(64), exp, sig)).isFalse();
+        assertThat(signer.verify(PATH, exp + 3600, sig)).isFalse();
+        assertThat(signer("other", Instant.ofEpochSecond(10_000)).verify(PATH, exp, sig)).isFalse();
+        assertThat(signer.verify(PATH, null, null)).isFalse();
+    }
+
+    private static BlobUrlSigner signer(String secret, Instant now) {
+        return new BlobUrlSigner(secret, 3600, Clock.fixed(now, ZoneOffset.UTC));
+    }
+
+    private static UriComponents query(String signedQuery) {
+        return UriComponentsBuilder.fromUriString(PATH + signedQuery).build();
+    }
+}
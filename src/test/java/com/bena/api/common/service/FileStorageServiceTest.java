@@ -0,0 +1,46 @@
+package com.bena.api.common.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.CALLS_REAL_METHODS;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class FileStorageServiceTest {
+
+    private final FileStorageService storage = mock(FileStorageService.class, CALLS_REAL_METHODS);
+
+    @Test
+    void storedBlobUsesPublicOrSignedUrlBySource() {
+        doReturn("/v1/blobs/abc").when(storage).getBlobUrl("abc");
+        doReturn("/v1/blobs/abc?exp=1&sig=s").when(storage).getPrivateBlobUrl("abc");
+
+        assertThat(storage.getBlobUrl("abc", LegacyBlobSource.DESIGNS, 1L, true)).isEqualTo("/v1/blobs/abc");
+        assertThat(storage.getBlobUrl("abc", LegacyBlobSource.JOB_REQUEST_IMAGES, 1L, false))
+                .isEqualTo("/v1/blobs/abc?exp=1&sig=s");
+    }
+
+    @Test
+    void legacyRowGetsUrlWithoutWritingToStorage() throws Exception {
+        doReturn("/v1/blobs/legacy/designs/7").when(storage).getLegacyBlobUrl(LegacyBlobSource.DESIGNS, 7L);
+
+        assertThat(storage.getBlobUrl(null, LegacyBlobSource.DESIGNS, 7L, true)).isEqualTo("/v1/blobs/legacy/designs/7");
+        assertThat(storage.getBlobUrl(null, LegacyBlobSource.DESIGNS, 7L, false)).isNull();
+        verify(storage, never()).storeBlob(any(), anyString());
+        verify(storage, never()).storePrivateBlob(any(), anyString());
+    }
+
+    @Test
+    void legacySourceIdsFollowColumnTypes() {
+        assertThat(LegacyBlobSource.fromPath("ebook-covers")).contains(LegacyBlobSource.EBOOK_COVERS);
+        assertThat(LegacyBlobSource.fromPath("users")).isEmpty();
+        assertThat(LegacyBlobSource.DESIGNS.parseId("42")).isEqualTo(42L);
+        assertThat(LegacyBlobSource.DESIGNS.parseId("42; DROP")).isNull();
+        assertThat(LegacyBlobSource.EBOOK_COVERS.parseId("not-a-uuid")).isNull();
+    }
+}
@@ -0,0 +1,189 @@
+package com.bena.api.common.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+
+import javax.imageio.ImageIO;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * التدوير حسب EXIF، التصغير مع الحفاظ على النسبة، blurhash، وقراءة الملف المرفوع من القرص.
+ */
+class ImageDerivativeServiceTest {
+
+    private final FileStorageService storage = mock(FileStorageService.class);
+    private final JdbcTemplate jdbc = mock(JdbcTemplate.class);
+
+    @TempDir
+    Path dir;
+
+    private ImageDerivativeService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void exifOrientationIsReadFromBothByteOrders() {
+        assertThat(ImageDerivativeService.parseExifOrientation(app1(ByteOrder.BIG_ENDIAN, 6))).isEqualTo(6);
+        assertThat(ImageDerivativeService.parseExifOrientation(app1(ByteOrder.LITTLE_ENDIAN, 8))).isEqualTo(8);
+        assertThat(ImageDerivativeService.parseExifOrientation(app1(ByteOrder.BIG_ENDIAN, 9))).isEqualTo(-1);
+        assertThat(ImageDerivativeService.parseExifOrientation("XMP data".getBytes())).isEqualTo(-1);
+        // IFD يشير خارج المقطع
+        byte[] truncated = app1(ByteOrder.BIG_ENDIAN, 6);
+        assertThat(ImageDerivativeService.parseExifOrientation(Arrays.copyOf(truncated, 20))).isEqualTo(-1);
+    }
+
+    @Test
+    void rotatesAndMirrorsAccordingToOrientation() {
+        // 4x2 والبكسل الأحمر في الزاوية العليا اليسرى
+        BufferedImage image = new BufferedImage(4, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, Color.RED.getRGB());
+
+        BufferedImage rotatedRight = ImageDerivativeService.toRgb(image, 6);
+        assertThat(rotatedRight.getWidth()).isEqualTo(2);
+        assertThat(rotatedRight.getHeight()).isEqualTo(4);
+        assertThat(rotatedRight.getRGB(1, 0)).isEqualTo(Color.RED.getRGB());
+
+        BufferedImage rotatedLeft = ImageDerivativeService.toRgb(image, 8);
+        assertThat(rotatedLeft.getRGB(0, 3)).isEqualTo(Color.RED.getRGB());
+
+        assertThat(ImageDerivativeService.toRgb(image, 3).getRGB(3, 1)).isEqualTo(Color.RED.getRGB());
+        assertThat(ImageDerivativeService.toRgb(image, 2).getRGB(3, 0)).isEqualTo(Color.RED.getRGB());
+        assertThat(ImageDerivativeService.toRgb(image, 1).getRGB(0, 0)).isEqualTo(Color.RED.getRGB());
+    }
+
+    @Test
+    void transparentPixelsBecomeWhite() {
+        BufferedImage image = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+
+        assertThat(ImageDerivativeService.toRgb(image, 1).getRGB(0, 0)).isEqualTo(Color.WHITE.getRGB());
+    }
+
+    @Test
+    void resizeKeepsAspectRatioAndNeverUpscales() {
+        BufferedImage photo = new BufferedImage(4000, 3000, BufferedImage.TYPE_INT_RGB);
+
+        BufferedImage thumbnail = ImageDerivativeService.resize(photo, 160);
+        assertThat(thumbnail.getWidth()).isEqualTo(160);
+        assertThat(thumbnail.getHeight()).isEqualTo(120);
+
+        BufferedImage portrait = ImageDerivativeService.resize(new BufferedImage(1080, 1920, BufferedImage.TYPE_INT_RGB), 480);
+        assertThat(portrait.getHeight()).isEqualTo(853);
+
+        assertThat(ImageDerivativeService.resize(new BufferedImage(1000, 1, BufferedImage.TYPE_INT_RGB), 160).getHeight())
+                .isEqualTo(1);
+        assertThat(ImageDerivativeService.resize(photo, 8000)).isSameAs(photo);
+    }
+
+    @Test
+    void blurhashMatchesReferenceAndFollowsTheColours() {
+        BufferedImage black = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        // نفس ناتج المكتبة المرجعية لصورة سوداء بـ 4x3 مكونات
+        assertThat(Blurhash.encode(black, 4, 3)).isEqualTo("L00000fQfQfQfQfQfQfQfQfQfQfQ");
+
+        BufferedImage leftRed = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        BufferedImage rightRed = new BufferedImage(32, 24, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 24; y++) {
+            for (int x = 0; x < 16; x++) {
+                leftRed.setRGB(x, y, Color.RED.getRGB());
+                rightRed.setRGB(31 - x, y, Color.RED.getRGB());
+            }
+        }
+        String left = Blurhash.encode(leftRed, 4, 3);
+        String right = Blurhash.encode(rightRed, 4, 3);
+        assertThat(left).hasSize(28);
+        // نفس متوسط اللون، واتجاه مختلف
+        assertThat(left.substring(2, 6)).isEqualTo(right.substring(2, 6));
+        assertThat(left).isNotEqualTo(right);
+    }
+
+    @Test
+    void uploadedFileIsStreamedFromDiskAndVariantsKeepTheRatio() throws Exception {
+        Path file = dir.resolve("plan.png");
+        ImageIO.write(new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB), "png", file.toFile());
+        when(storage.resolve("designs/plan.png")).thenReturn(file);
+        when(storage.storeBlob(any(InputStream.class), anyString()))
+                .thenAnswer(invocation -> new BlobRef("a".repeat(64), invocation.getArgument(1), 100, false));
+        service = new ImageDerivativeService(storage, jdbc, new SimpleMeterRegistry(), true,
+                new int[]{160, 480}, 0.8f, 1, 10, 50_000_000);
+
+        CompletableFuture<ImageDerivatives> ready = new CompletableFuture<>();
+        service.enqueue("designs/plan.png", ready::complete);
+        ImageDerivatives derivatives = ready.get(10, TimeUnit.SECONDS);
+
+        assertThat(derivatives.width()).isEqualTo(800);
+        assertThat(derivatives.blurhash()).hasSize(28);
+        assertThat(derivatives.variants())
+                .filteredOn(variant -> ImageDerivativeService.FORMAT_JPEG.equals(variant.getFormat()))
+                .extracting(variant -> variant.getWidth() + "x" + variant.getHeight())
+                .containsExactly("160x120", "480x360");
+        verify(storage, never()).load(anyString());
+    }
+
+    @Test
+    void deleteRemovesRowsAndCachedDerivatives() {
+        service = new ImageDerivativeService(storage, jdbc, new SimpleMeterRegistry(), true,
+                new int[]{160}, 0.8f, 1, 10, 50_000_000);
+
+        service.find("designs/gone.png");
+        service.find("designs/gone.png");
+        // الغياب مخزن: استعلام واحد فقط
+        verify(jdbc, times(1)).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+
+        service.delete("designs/gone.png");
+        service.find("designs/gone.png");
+
+        verify(jdbc).update(contains("DELETE FROM image_variants"), eq("designs/gone.png"));
+        verify(jdbc).update(contains("DELETE FROM image_derivatives"), eq("designs/gone.png"));
+        verify(jdbc, times(2)).query(anyString(), any(RowCallbackHandler.class), any(Object[].class));
+    }
+
+    // ==================== Helpers ====================
+
+    /**
+     * مقطع APP1: "Exif\0\0" ثم ترويسة TIFF و IFD بمدخل واحد (Orientation)
+     */
+    private static byte[] app1(ByteOrder order, int orientation) {
+        ByteBuffer buffer = ByteBuffer.allocate(6 + 8 + 2 + 12 + 4).order(order);
+        buffer.put("Exif\0\0".getBytes());
+        buffer.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        buffer.put(order == ByteOrder.LITTLE_ENDIAN ? (byte) 'I' : (byte) 'M');
+        buffer.putShort((short) 42);
+        buffer.putInt(8);
+        buffer.putShort((short) 1);
+        buffer.putShort((short) 0x0112);
+        buffer.putShort((short) 3);
+        buffer.putInt(1);
+        buffer.putShort((short) orientation);
+        buffer.putShort((short) 0);
+        buffer.putInt(0);
+        return buffer.array();
+    }
+}
@@ -0,0 +1,74 @@
+package com.bena.api.common.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MimeSnifferTest {
+
+    @Test
+    void detectsSupportedTypesFromMagicNumbers() {
+        assertThat(sniff(0xFF, 0xD8, 0xFF, 0xE0)).isEqualTo("image/jpeg");
+        assertThat(sniff(0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)).isEqualTo("image/png");
+        assertThat(sniff("GIF89a")).isEqualTo("image/gif");
+        assertThat(sniff("RIFF\0\0\0\0WEBPVP8 ")).isEqualTo("image/webp");
+        assertThat(sniff("%PDF-1.7")).isEqualTo("application/pdf");
+        assertThat(sniff("\0\0\0\u0018ftypisom")).isEqualTo("video/mp4");
+        assertThat(sniff("\0\0\0\u0014ftypqt  ")).isEqualTo("video/quicktime");
+        assertThat(sniff(0x1A, 0x45, 0xDF, 0xA3)).isEqualTo("video/webm");
+        assertThat(sniff('P', 'K', 0x03, 0x04)).isEqualTo(MimeSniffer.ZIP);
+    }
+
+    @Test
+    void unknownOrTruncatedContentIsNotRecognised() {
+        assertThat(sniff("<svg onload=alert(1)>")).isNull();
+        assertThat(sniff("<html><script>")).isNull();
+        assertThat(sniff("RIFF\0\0\0\0AVI ")).isNull();
+        // أول بايتين من JPEG فقط
+        assertThat(sniff(0xFF, 0xD8)).isNull();
+        assertThat(MimeSniffer.sniff(new byte[MimeSniffer.HEAD_SIZE], 0)).isNull();
+    }
+
+    @Test
+    void allowedTypesAcceptOnlyKnownEquivalents() {
+        List<String> images = List.of("image/jpeg", "image/png");
+
+        assertThat(MimeSniffer.isAllowed("image/png", images)).isTrue();
+        assertThat(MimeSniffer.isAllowed("application/pdf", images)).isFalse();
+        assertThat(MimeSniffer.isAllowed(null, images)).isFalse();
+        assertThat(MimeSniffer.isAllowed("video/quicktime", List.of("video/mp4"))).isTrue();
+        assertThat(MimeSniffer.isAllowed(MimeSniffer.ZIP, images)).isFalse();
+        assertThat(MimeSniffer.isAllowed(MimeSniffer.ZIP,
+                List.of("application/vnd.openxmlformats-officedocument.wordprocessingml.document"))).isTrue();
+    }
+
+    @Test
+    void declaredTypeMustBeInTheSameFamily() {
+        assertThat(MimeSniffer.matchesDeclared("image/jpeg", "image/jpg")).isTrue();
+        assertThat(MimeSniffer.matchesDeclared("image/png", "image/jpeg")).isTrue();
+        assertThat(MimeSniffer.matchesDeclared("video/mp4", "video/quicktime")).isTrue();
+        // PDF مُعلن كصورة أو العكس
+        assertThat(MimeSniffer.matchesDeclared("application/pdf", "image/png")).isFalse();
+        assertThat(MimeSniffer.matchesDeclared("image/png", "application/pdf")).isFalse();
+        assertThat(MimeSniffer.matchesDeclared("image/png", null)).isFalse();
+    }
+
+    private static String sniff(int... bytes) {
+        byte[] head = new byte[MimeSniffer.HEAD_SIZE];
+        for (int i = 0; i < bytes.length; i++) {
+            head[i] = (byte) bytes[i];
+        }
+        return MimeSniffer.sniff(head, bytes.length);
+    }
+
+    private static String sniff(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.ISO_8859_1);
+        byte[] head = new byte[MimeSniffer.HEAD_SIZE];
+        int length = Math.min(bytes.length, head.length);
+        System.arraycopy(bytes, 0, head, 0, length);
+        return MimeSniffer.sniff(head, length);
+    }
+}
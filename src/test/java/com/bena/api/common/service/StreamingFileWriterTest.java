@@ -0,0 +1,146 @@
+package com.bena.api.common.service;
+
+import com.bena.api.common.exception.PayloadTooLargeException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StreamingFileWriterTest {
+
+    private static final byte[] PNG = png(200_000);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void writesContentWithHashAndSniffedType() throws Exception {
+        Path target = dir.resolve("images/a.png");
+
+        StreamingFileWriter.StreamedFile file =
+                StreamingFileWriter.write(new ByteArrayInputStream(PNG), target, PNG.length, List.of("image/png"));
+
+        assertThat(file.path()).isEqualTo(target);
+        assertThat(file.size()).isEqualTo(PNG.length);
+        assertThat(file.sniffedType()).isEqualTo("image/png");
+        assertThat(file.sha256()).isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(PNG)));
+        assertThat(Files.readAllBytes(target)).isEqualTo(PNG);
+        assertThat(leftovers(target.getParent())).isEmpty();
+    }
+
+    @Test
+    void stopsReadingAsSoonAsTheLimitIsExceeded() throws Exception {
+        CountingStream endless = new CountingStream(Long.MAX_VALUE);
+        Path target = dir.resolve("big.png");
+
+        assertThatThrownBy(() -> StreamingFileWriter.write(endless, target, 1_000_000, null))
+                .isInstanceOf(PayloadTooLargeException.class);
+
+        // يتوقف بعد buffer واحد من الحد، لا عند نهاية الـ stream
+        assertThat(endless.read.get()).isLessThanOrEqualTo(1_000_000 + StreamingFileWriter.BUFFER_SIZE);
+        assertThat(target).doesNotExist();
+        assertThat(leftovers(dir)).isEmpty();
+    }
+
+    @Test
+    void rejectsContentThatIsNotAnAllowedType() throws Exception {
+        byte[] html = "<html><script>alert(1)</script></html>".getBytes(StandardCharsets.UTF_8);
+        Path target = dir.resolve("fake.png");
+
+        assertThatThrownBy(() -> StreamingFileWriter.write(new ByteArrayInputStream(html), target, 1_000, List.of("image/png")))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(target).doesNotExist();
+        assertThat(leftovers(dir)).isEmpty();
+    }
+
+    @Test
+    void appendWritesAtChannelPositionAndEnforcesLimit() throws Exception {
+        Path part = dir.resolve("upload.part");
+        try (FileChannel channel = FileChannel.open(part, StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            assertThat(StreamingFileWriter.append(new ByteArrayInputStream(PNG, 0, 1000), channel, 1000)).isEqualTo(1000);
+            channel.position(500);
+            assertThat(StreamingFileWriter.append(new ByteArrayInputStream(PNG, 500, 1500), channel, 2000)).isEqualTo(1500);
+
+            assertThatThrownBy(() -> StreamingFileWriter.append(new ByteArrayInputStream(PNG), channel, 10))
+                    .isInstanceOf(PayloadTooLargeException.class);
+        }
+        byte[] written = Files.readAllBytes(part);
+        assertThat(written.length).isGreaterThanOrEqualTo(2000);
+        assertThat(Arrays.copyOf(written, 2000)).isEqualTo(Arrays.copyOf(PNG, 2000));
+    }
+
+    @Test
+    void inspectMatchesWrite() throws Exception {
+        Path target = dir.resolve("b.png");
+        StreamingFileWriter.StreamedFile written =
+                StreamingFileWriter.write(new ByteArrayInputStream(PNG), target, Long.MAX_VALUE, null);
+
+        StreamingFileWriter.StreamedFile inspected = StreamingFileWriter.inspect(target);
+
+        assertThat(inspected.sha256()).isEqualTo(written.sha256());
+        assertThat(inspected.size()).isEqualTo(written.size());
+        assertThat(inspected.sniffedType()).isEqualTo("image/png");
+    }
+
+    // ==================== Helpers ====================
+
+    static byte[] png(int size) {
+        byte[] bytes = new byte[size];
+        byte[] signature = {(byte) 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A};
+        System.arraycopy(signature, 0, bytes, 0, signature.length);
+        for (int i = signature.length; i < size; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        return bytes;
+    }
+
+    private static List<Path> leftovers(Path directory) throws IOException {
+        if (!Files.exists(directory)) {
+            return List.of();
+        }
+        try (var files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith(".upload-")).toList();
+        }
+    }
+
+    private static class CountingStream extends InputStream {
+
+        final AtomicLong read = new AtomicLong();
+        private final long length;
+
+        CountingStream(long length) {
+            this.length = length;
+        }
+
+        @Override
+        public int read() {
+            return read.get() < length ? (int) (read.incrementAndGet() & 0xFF) : -1;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int count) {
+            if (read.get() >= length) {
+                return -1;
+            }
+            int n = (int) Math.min(count, length - read.get());
+            read.addAndGet(n);
+            return n;
+        }
+    }
+}
@@ -0,0 +1,242 @@
+package com.bena.api.common.service;
+
+import com.bena.api.common.exception.InvalidOperationException;
+import com.bena.api.common.exception.PayloadTooLargeException;
+import com.bena.api.common.exception.ResourceNotFoundException;
+import com.bena.api.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * جلسات الرفع مقابل PostgreSQL حقيقي: الإزاحات، حدود المستخدم، عمر الجلسة، نسختان على نفس الجلسة،
+ * والتراجع بعد consume.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class UploadSessionServiceTest {
+
+    private static final byte[] PNG = StreamingFileWriterTest.png(3000);
+
+    private static DataSource dataSource;
+    private static JdbcTemplate jdbc;
+
+    @TempDir
+    Path uploadDir;
+
+    private UploadSessionService service;
+    private final UUID userId = UUID.randomUUID();
+
+    @BeforeAll
+    static void setUpDatabase() {
+        dataSource = PostgresTestSupport.dataSource();
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @BeforeEach
+    void setUp() {
+        service = service(5, 1_000_000);
+    }
+
+    @Test
+    void resumesFromReceivedOffsetAndRejectsGaps() throws Exception {
+        UUID id = service.create(userId, "plan.png", "image/png", PNG.length).id();
+
+        assertThat(append(id, 0, 0, 1000).receivedBytes()).isEqualTo(1000);
+        // فجوة: العميل يقفز فوق بايتات لم تصل
+        assertThatThrownBy(() -> append(id, 2000, 2000, 3000)).isInstanceOf(InvalidOperationException.class);
+        // إعادة إرسال بعد انقطاع من منتصف الجزء السابق
+        assertThat(append(id, 500, 500, 2000).receivedBytes()).isEqualTo(2000);
+        assertThat(append(id, 2000, 2000, 3000).receivedBytes()).isEqualTo(3000);
+
+        UploadSessionService.UploadSession completed = service.complete(id, userId);
+        assertThat(completed.status()).isEqualTo(UploadSessionService.Status.COMPLETED);
+        assertThat(completed.sha256()).isEqualTo(HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(PNG)));
+        assertThatThrownBy(() -> append(id, 0, 0, 10)).isInstanceOf(InvalidOperationException.class);
+    }
+
+    @Test
+    void chunkCannotGoPastDeclaredSizeAndOtherUsersCannotWrite() throws Exception {
+        UUID id = service.create(userId, "plan.png", "image/png", 1000).id();
+
+        assertThatThrownBy(() -> append(id, 0, 0, 1001)).isInstanceOf(PayloadTooLargeException.class);
+        assertThat(service.get(id, userId).receivedBytes()).isZero();
+        assertThatThrownBy(() -> service.append(id, UUID.randomUUID(), 0, new ByteArrayInputStream(PNG, 0, 10)))
+                .isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    @Test
+    void completeDeletesSessionWhenContentDoesNotMatchDeclaredType() throws Exception {
+        byte[] pdf = "%PDF-1.7 not really an image".getBytes(StandardCharsets.US_ASCII);
+        UUID id = service.create(userId, "plan.png", "image/png", pdf.length).id();
+        service.append(id, userId, 0, new ByteArrayInputStream(pdf));
+
+        assertThatThrownBy(() -> service.complete(id, userId)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.get(id, userId)).isInstanceOf(ResourceNotFoundException.class);
+        assertThat(uploadDir.resolve("tmp/chunks/" + id + ".part")).doesNotExist();
+    }
+
+    @Test
+    void capsOpenSessionsAndTotalBytesPerUser() throws Exception {
+        service = service(2, 5000);
+        UUID first = service.create(userId, "a.png", "image/png", 1000).id();
+        service.create(userId, "b.png", "image/png", 1000);
+
+        assertThatThrownBy(() -> service.create(userId, "c.png", "image/png", 1000))
+                .isInstanceOf(InvalidOperationException.class);
+        // مستخدم آخر غير متأثر
+        service.create(UUID.randomUUID(), "c.png", "image/png", 1000);
+
+        service.abort(first, userId);
+        assertThatThrownBy(() -> service.create(userId, "big.png", "image/png", 4001))
+                .isInstanceOf(PayloadTooLargeException.class);
+        service.create(userId, "c.png", "image/png", 4000);
+    }
+
+    @Test
+    void concurrentCreatesCannotExceedTheCap() throws Exception {
+        service = service(3, 1_000_000);
+        int callers = 12;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return service.create(userId, "a.png", "image/png", 1000);
+                }));
+            }
+            start.countDown();
+            int created = 0;
+            for (Future<?> future : futures) {
+                try {
+                    future.get(10, TimeUnit.SECONDS);
+                    created++;
+                } catch (Exception e) {
+                    assertThat(e.getCause()).isInstanceOf(InvalidOperationException.class);
+                }
+            }
+            assertThat(created).isEqualTo(3);
+        }
+    }
+
+    @Test
+    void appendsExtendExpiryOnlyUpToMaxLifetime() throws Exception {
+        UUID id = service.create(userId, "plan.png", "image/png", PNG.length).id();
+        jdbc.update("UPDATE upload_sessions SET created_at = NOW() - INTERVAL '71 hours' WHERE id = ?", id);
+
+        OffsetDateTime expiresAt = append(id, 0, 0, 1000).expiresAt();
+
+        OffsetDateTime createdAt = jdbc.queryForObject(
+                "SELECT created_at FROM upload_sessions WHERE id = ?", OffsetDateTime.class, id);
+        assertThat(expiresAt).isBeforeOrEqualTo(createdAt.plusHours(72));
+        assertThat(expiresAt).isBefore(OffsetDateTime.now().plusHours(2));
+    }
+
+    @Test
+    void twoNodesWritingTheSameOffsetNeverInterleave() throws Exception {
+        // نسختان بنفس قاعدة البيانات ومجلد الرفع المشترك
+        UploadSessionService other = service(5, 1_000_000);
+        int length = 200_000;
+        UUID id = service.create(userId, "video.mp4", "video/mp4", length).id();
+        byte[] a = filled(length, (byte) 'a');
+        byte[] b = filled(length, (byte) 'b');
+
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            for (int i = 0; i < 8; i++) {
+                UploadSessionService node = i % 2 == 0 ? service : other;
+                byte[] content = i % 2 == 0 ? a : b;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return node.append(id, userId, 0, new ByteArrayInputStream(content));
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, TimeUnit.SECONDS);
+            }
+        }
+
+        byte[] part = Files.readAllBytes(uploadDir.resolve("tmp/chunks/" + id + ".part"));
+        assertThat(service.get(id, userId).receivedBytes()).isEqualTo(length);
+        assertThat(part).satisfiesAnyOf(
+                bytes -> assertThat(bytes).isEqualTo(a),
+                bytes -> assertThat(bytes).isEqualTo(b));
+        try (var files = Files.list(uploadDir.resolve("tmp/chunks"))) {
+            assertThat(files.filter(path -> path.toString().endsWith(".chunk"))).isEmpty();
+        }
+    }
+
+    @Test
+    void rolledBackConsumeReturnsTheFileToTheSession() throws Exception {
+        UUID id = service.create(userId, "plan.png", "image/png", PNG.length).id();
+        append(id, 0, 0, PNG.length);
+        service.complete(id, userId);
+
+        TransactionTemplate caller = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        String[] stored = new String[1];
+        caller.executeWithoutResult(status -> {
+            try {
+                stored[0] = service.consume(id, userId, "designs", List.of("image/png"));
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+            assertThat(uploadDir.resolve(stored[0])).exists();
+            status.setRollbackOnly();
+        });
+
+        assertThat(uploadDir.resolve(stored[0])).doesNotExist();
+        assertThat(service.get(id, userId).status()).isEqualTo(UploadSessionService.Status.COMPLETED);
+
+        String path = service.consume(id, userId, "designs", List.of("image/png"));
+        assertThat(Files.readAllBytes(uploadDir.resolve(path))).isEqualTo(PNG);
+        assertThatThrownBy(() -> service.get(id, userId)).isInstanceOf(ResourceNotFoundException.class);
+    }
+
+    // ==================== Helpers ====================
+
+    private UploadSessionService service(int maxSessions, long maxBytesPerUser) {
+        LocalFileStorageService storage = new LocalFileStorageService(jdbc, new BlobUrlSigner("test", 3600));
+        ReflectionTestUtils.setField(storage, "uploadDir", uploadDir.toString());
+        return new UploadSessionService(jdbc, new DataSourceTransactionManager(dataSource), storage,
+                uploadDir.toString(), 500_000, 300_000, 24, 72, maxSessions, maxBytesPerUser);
+    }
+
+    private UploadSessionService.UploadSession append(UUID id, long offset, int from, int to) throws Exception {
+        return service.append(id, userId, offset, new ByteArrayInputStream(Arrays.copyOfRange(PNG, from, to)));
+    }
+
+    private static byte[] filled(int size, byte value) {
+        byte[] bytes = new byte[size];
+        Arrays.fill(bytes, value);
+        return bytes;
+    }
+}
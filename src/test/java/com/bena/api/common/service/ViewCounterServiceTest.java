@@ -0,0 +1,123 @@
+package com.bena.api.common.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ViewCounterServiceTest {
+
+    private final AtomicLong written = new AtomicLong();
+
+    @Test
+    void viewsRecordedDuringConcurrentFlushesAreNeverLost() throws Exception {
+        ViewCounterService service = service(300);
+
+        List<UUID> ids = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        int threads = 8;
+        int viewsPerThread = 20_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicBoolean recording = new AtomicBoolean(true);
+
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < viewsPerThread; i++) {
+                    service.record(ViewCounterService.Target.OFFER, ids.get(i % ids.size()));
+                }
+                return null;
+            }));
+        }
+        Future<?> flusher = executor.submit(() -> {
+            start.await();
+            while (recording.get()) {
+                service.flush();
+            }
+            return null;
+        });
+
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get(30, TimeUnit.SECONDS);
+        }
+        recording.set(false);
+        flusher.get(30, TimeUnit.SECONDS);
+        executor.shutdown();
+        service.flush();
+
+        assertThat(written.get()).isEqualTo((long) threads * viewsPerThread);
+        ids.forEach(id -> assertThat(service.pending(ViewCounterService.Target.OFFER, id)).isZero());
+    }
+
+    @Test
+    void idleCountersAreEvictedAndRecreatedOnTheNextView() {
+        ViewCounterService service = service(0);
+        UUID id = UUID.randomUUID();
+
+        service.record(ViewCounterService.Target.DESIGN, id);
+        service.flush();
+        assertThat(tracked(service)).containsKey(id);
+
+        // لا مشاهدات منذ آخر flush: يُحذف العداد
+        service.flush();
+        assertThat(tracked(service)).doesNotContainKey(id);
+
+        service.record(ViewCounterService.Target.DESIGN, id);
+        assertThat(service.pending(ViewCounterService.Target.DESIGN, id)).isEqualTo(1);
+        service.flush();
+        assertThat(written.get()).isEqualTo(2);
+    }
+
+    @Test
+    void failedFlushKeepsTheViewsForTheNextOne() {
+        JdbcTemplate failing = mock(JdbcTemplate.class);
+        when(failing.batchUpdate(anyString(), anyList())).thenThrow(new IllegalStateException("database down"));
+        ViewCounterService service = new ViewCounterService(failing, new SimpleMeterRegistry(), 30, 1000, 300);
+        UUID id = UUID.randomUUID();
+
+        service.record(ViewCounterService.Target.OFFER, id);
+        service.record(ViewCounterService.Target.OFFER, id);
+        service.flush();
+
+        assertThat(service.pending(ViewCounterService.Target.OFFER, id)).isEqualTo(2);
+    }
+
+    // ==================== Helpers ====================
+
+    private ViewCounterService service(long idleEvictSeconds) {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenAnswer(invocation -> {
+            List<Object[]> batch = invocation.getArgument(1);
+            batch.forEach(row -> written.addAndGet((Long) row[0]));
+            return new int[batch.size()];
+        });
+        return new ViewCounterService(jdbcTemplate, new SimpleMeterRegistry(), 30, 1000, idleEvictSeconds);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<Object, ?> tracked(ViewCounterService service) {
+        Map<ViewCounterService.Target, Map<Object, ?>> pending =
+                (Map<ViewCounterService.Target, Map<Object, ?>>) ReflectionTestUtils.getField(service, "pending");
+        return pending.get(ViewCounterService.Target.DESIGN);
+    }
+}
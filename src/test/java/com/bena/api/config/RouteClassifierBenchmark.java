@@ -0,0 +1,101 @@
+package com.bena.api.config;
+
+import com.bena.api.config.ratelimit.EndpointClass;
+import com.sun.management.ThreadMXBean;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * تصنيف المسار لكل طلب: سلسلة startsWith/contains مع path.matches (السلوك السابق في RateLimitConfig)
+ * مقابل RouteClassifier.classify وrouteClassifier.routePattern.
+ * ليس ضمن mvn test (الاسم لا ينتهي بـ Test)، يُشغل يدوياً:
+ * mvn test -Dtest=RouteClassifierBenchmark [-Dbench.route.rounds=20]
+ */
+class RouteClassifierBenchmark {
+
+    private static final int ROUNDS = Integer.getInteger("bench.route.rounds", 20);
+    private static final int PER_ROUND = 1_000_000;
+
+    private static RouteClassifier classifier;
+    private static String[] paths;
+
+    @BeforeAll
+    static void setUp() {
+        classifier = RouteClassifierTest.fromControllers();
+        paths = RouteClassifierTest.SAMPLE_PATHS.toArray(String[]::new);
+    }
+
+    @Test
+    void compareTrieWithRuleChain() {
+        for (String path : paths) {
+            assertThat(classifier.classify(path)).isNotNull();
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-28s %12s %14s", "mode", "ns/op", "bytes/op"));
+        report.add(row("rules + path.matches (before)", measure(RouteClassifierBenchmark::classifyWithRegex)));
+        report.add(row("classify()", measure(classifier::classify)));
+        report.add(row("routePattern()", measure(classifier::routePattern)));
+        report.forEach(System.out::println);
+    }
+
+    // ==================== Helpers ====================
+
+    // نسخة من RateLimitConfig.checkRateLimit قبل RouteClassifier (بدون معاملات البحث)
+    private static EndpointClass classifyWithRegex(String path) {
+        if (path.startsWith("/v1/auth/")) {
+            return EndpointClass.AUTH;
+        }
+        if (path.startsWith("/v1/admin/") || path.startsWith("/admin/")) {
+            return EndpointClass.ADMIN;
+        }
+        if (path.contains("/upload") || path.contains("/media")) {
+            return EndpointClass.UPLOAD;
+        }
+        if (path.contains("search") || path.contains("filter")) {
+            return EndpointClass.SEARCH;
+        }
+        if (path.matches(".*/users/.*") || path.matches(".*/workers/.*")) {
+            return EndpointClass.GENERAL;
+        }
+        if (path.startsWith("/v1/workers") || path.startsWith("/v1/designs")
+                || path.startsWith("/v1/building-steps") || path.startsWith("/v1/cost")) {
+            return EndpointClass.PUBLIC_READ;
+        }
+        return EndpointClass.GENERAL;
+    }
+
+    // {ns/op, bytes/op} كأفضل جولة من ROUNDS، والـ bytes من عداد التخصيص للخيط الحالي
+    private static long[] measure(Function<String, ?> classify) {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long bestNanos = Long.MAX_VALUE;
+        long bestBytes = Long.MAX_VALUE;
+        int sink = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long bytesBefore = threads.getThreadAllocatedBytes(threadId);
+            long started = System.nanoTime();
+            for (int i = 0; i < PER_ROUND; i++) {
+                Object result = classify.apply(paths[i % paths.length]);
+                sink += result != null ? 1 : 0;
+            }
+            long elapsed = System.nanoTime() - started;
+            long bytes = threads.getThreadAllocatedBytes(threadId) - bytesBefore;
+            bestNanos = Math.min(bestNanos, elapsed);
+            bestBytes = Math.min(bestBytes, bytes);
+        }
+        assertThat(sink).isPositive();
+        return new long[]{bestNanos / PER_ROUND, bestBytes / PER_ROUND};
+    }
+
+    private static String row(String mode, long[] result) {
+        return String.format("%-28s %12d %14d", mode, result[0], result[1]);
+    }
+}
@@ -0,0 +1,89 @@
+package com.bena.api.config;
+
+import com.bena.api.config.ratelimit.EndpointClass;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.config.BeanDefinition;
+import org.springframework.beans.factory.support.RootBeanDefinition;
+import org.springframework.context.annotation.ClassPathScanningCandidateComponentProvider;
+import org.springframework.context.support.StaticApplicationContext;
+import org.springframework.core.type.filter.AnnotationTypeFilter;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.RequestMappingHandlerMapping;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RouteClassifierTest {
+
+    // مسارات حقيقية من الـ controllers + مسارات غير مسجلة
+    static final List<String> SAMPLE_PATHS = List.of(
+            "/v1/auth/login",
+            "/v1/auth/refresh",
+            "/v1/admin/users",
+            "/v1/workers",
+            "/v1/workers/",
+            "/v1/workers/3f2b6c1e-9a0d-4c57-8e8e-0f4b1c2d3e4f",
+            "/v1/designs",
+            "/v1/cost/steel",
+            "/v1/building-steps",
+            "/v1/users/me",
+            "/v1/chat/conversations",
+            "/uploads/designs/a.png",
+            "/v1/unknown/thing",
+            "/");
+
+    private static RouteClassifier classifier;
+
+    @BeforeAll
+    static void setUp() {
+        classifier = fromControllers();
+    }
+
+    @Test
+    void classificationMatchesOriginalRules() {
+        for (String path : SAMPLE_PATHS) {
+            EndpointClass expected = RouteClassifier.classifyByRules(path);
+            // المسار الخام قد يحتوي معرفاً يغير القاعدة (مثل searchId)، لذلك نقارن فقط عندما يطابق نمطاً بدون متغيرات،
+            // والشرطة الأخيرة تُطبع عمداً (/v1/workers/ مثل /v1/workers)
+            String pattern = classifier.routePattern(path);
+            if ((pattern == null || !pattern.contains("{")) && !(path.length() > 1 && path.endsWith("/"))) {
+                assertThat(classifier.classify(path)).as(path).isEqualTo(expected);
+            }
+        }
+        assertThat(classifier.classify("/v1/auth/login")).isEqualTo(EndpointClass.AUTH);
+        assertThat(classifier.classify("/uploads/designs/a.png")).isEqualTo(EndpointClass.UPLOAD);
+        assertThat(classifier.classify("/v1/workers/")).isEqualTo(classifier.classify("/v1/workers"));
+    }
+
+    @Test
+    void routePatternReplacesIdsWithVariables() {
+        String pattern = classifier.routePattern("/v1/workers/3f2b6c1e-9a0d-4c57-8e8e-0f4b1c2d3e4f");
+        assertThat(pattern).startsWith("/v1/workers/{").endsWith("}");
+        assertThat(classifier.routePattern("/v1/workers/")).isEqualTo(classifier.routePattern("/v1/workers"));
+        assertThat(classifier.routePattern("/v1/unknown/thing")).isNull();
+        assertThat(classifier.routePattern("no-leading-slash")).isNull();
+    }
+
+    /**
+     * RouteClassifier مبني من controllers التطبيق بدون تشغيل Spring: تعريفات الـ beans فقط
+     * (لا تُنشأ الـ controllers)، ويكفي ذلك لـ RequestMappingHandlerMapping لاكتشاف المسارات.
+     */
+    static RouteClassifier fromControllers() {
+        StaticApplicationContext context = new StaticApplicationContext();
+        ClassPathScanningCandidateComponentProvider scanner = new ClassPathScanningCandidateComponentProvider(false);
+        scanner.addIncludeFilter(new AnnotationTypeFilter(RestController.class));
+        for (BeanDefinition candidate : scanner.findCandidateComponents("com.bena.api")) {
+            context.registerBeanDefinition(candidate.getBeanClassName(), new RootBeanDefinition(candidate.getBeanClassName()));
+        }
+        RequestMappingHandlerMapping mapping = new RequestMappingHandlerMapping();
+        mapping.setApplicationContext(context);
+        mapping.afterPropertiesSet();
+
+        RouteClassifier routeClassifier = new RouteClassifier(context.getBeanProvider(RequestMappingHandlerMapping.class));
+        context.getBeanFactory().registerSingleton("requestMappingHandlerMapping", mapping);
+        routeClassifier.build();
+        return routeClassifier;
+    }
+}
@@ -0,0 +1,213 @@
+package com.bena.api.config.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.DefaultListableBeanFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageChannel;
+import org.springframework.messaging.converter.ByteArrayMessageConverter;
+import org.springframework.messaging.converter.CompositeMessageConverter;
+import org.springframework.messaging.converter.MappingJackson2MessageConverter;
+import org.springframework.messaging.converter.StringMessageConverter;
+import org.springframework.messaging.simp.SimpMessageHeaderAccessor;
+import org.springframework.messaging.simp.SimpMessageType;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+import org.springframework.messaging.simp.broker.SimpleBrokerMessageHandler;
+import org.springframework.messaging.simp.user.DefaultUserDestinationResolver;
+import org.springframework.messaging.simp.user.UserDestinationMessageHandler;
+import org.springframework.messaging.support.ExecutorSubscribableChannel;
+import org.springframework.messaging.support.MessageBuilder;
+import org.springframework.web.socket.messaging.DefaultSimpUserRegistry;
+import org.springframework.web.socket.messaging.SessionConnectedEvent;
+
+import java.nio.charset.StandardCharsets;
+import java.security.Principal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * نسختان في نفس الـ JVM، لكل منهما brokerChannel و SimpleBroker ومعالج /user الخاص بها كما في WebSocketConfig:
+ * رسالة convertAndSendToUser على النسخة A تصل لجلسة المستخدم المتصلة بالنسخة B.
+ */
+class ClusterStompRelayTest {
+
+    private final InMemoryClusterNetwork network = new InMemoryClusterNetwork();
+    private final List<StompNode> nodes = new ArrayList<>();
+
+    @AfterEach
+    void stopNodes() {
+        nodes.forEach(StompNode::stop);
+    }
+
+    @Test
+    void messageSentToUserOnNodeAReachesTheirSessionOnNodeB() throws Exception {
+        StompNode nodeA = start("node-a");
+        StompNode nodeB = start("node-b");
+        BlockingQueue<Message<?>> delivered = nodeB.connect("ali", "session-1", "/user/queue/notifications");
+
+        nodeA.template.convertAndSendToUser("ali", "/queue/notifications", Map.of("text", "مرحبا"));
+
+        Message<?> message = delivered.poll(5, TimeUnit.SECONDS);
+        assertThat(message).isNotNull();
+        assertThat(new String((byte[]) message.getPayload(), StandardCharsets.UTF_8)).contains("مرحبا");
+        assertThat(SimpMessageHeaderAccessor.getSessionId(message.getHeaders())).isEqualTo("session-1");
+        // لا يرتد إلى النسخة B مرة ثانية
+        assertThat(delivered.poll(300, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void topicMessageReachesSubscribersOnBothNodesOnce() throws Exception {
+        StompNode nodeA = start("node-a");
+        StompNode nodeB = start("node-b");
+        BlockingQueue<Message<?>> onA = nodeA.connect("sara", "session-a", "/topic/presence");
+        BlockingQueue<Message<?>> onB = nodeB.connect("omar", "session-b", "/topic/presence");
+
+        nodeA.template.convertAndSend("/topic/presence", "online");
+
+        assertThat(onA.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(onB.poll(5, TimeUnit.SECONDS)).isNotNull();
+        assertThat(onA.poll(300, TimeUnit.MILLISECONDS)).isNull();
+        assertThat(onB.poll(300, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    @Test
+    void slowBusDoesNotBlockTheSenderAndOverflowIsDropped() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        ClusterBus slowBus = new ClusterBus() {
+            @Override
+            public String nodeId() {
+                return "slow";
+            }
+
+            @Override
+            public boolean isClustered() {
+                return true;
+            }
+
+            @Override
+            public void publish(String topic, String payload) {
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+
+            @Override
+            public void subscribe(String topic, Consumer<String> handler) {
+            }
+        };
+        ClusterStompRelay relay = new ClusterStompRelay(slowBus, new ObjectMapper(),
+                new DefaultListableBeanFactory().getBeanProvider(MessageChannel.class), meterRegistry, 2);
+        try {
+            long started = System.nanoTime();
+            for (int i = 0; i < 10; i++) {
+                relay.preSend(topicMessage("/topic/load", "m" + i), null);
+            }
+            assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(1000);
+            // واحدة قيد النشر واثنتان في الطابور
+            assertThat(meterRegistry.counter("cluster.stomp_relay", "result", "dropped").count()).isEqualTo(7);
+        } finally {
+            release.countDown();
+            relay.shutdown();
+        }
+        assertThat(meterRegistry.counter("cluster.stomp_relay", "result", "published").count()).isEqualTo(3);
+    }
+
+    // ==================== Helpers ====================
+
+    private StompNode start(String nodeId) {
+        StompNode node = new StompNode(network.node(nodeId));
+        nodes.add(node);
+        return node;
+    }
+
+    private static Message<byte[]> topicMessage(String destination, String payload) {
+        SimpMessageHeaderAccessor accessor = SimpMessageHeaderAccessor.create(SimpMessageType.MESSAGE);
+        accessor.setDestination(destination);
+        return MessageBuilder.createMessage(payload.getBytes(StandardCharsets.UTF_8), accessor.getMessageHeaders());
+    }
+
+    /**
+     * نسخة واحدة: نفس القنوات والمعالجات التي ينشئها @EnableWebSocketMessageBroker مع ClusterStompRelay
+     */
+    private static class StompNode {
+
+        final ExecutorSubscribableChannel clientInbound = new ExecutorSubscribableChannel();
+        final ExecutorSubscribableChannel clientOutbound = new ExecutorSubscribableChannel();
+        final ExecutorSubscribableChannel brokerChannel = new ExecutorSubscribableChannel();
+        final DefaultSimpUserRegistry userRegistry = new DefaultSimpUserRegistry();
+        final SimpleBrokerMessageHandler broker;
+        final UserDestinationMessageHandler userHandler;
+        final ClusterStompRelay relay;
+        final SimpMessagingTemplate template;
+
+        StompNode(ClusterBus bus) {
+            DefaultListableBeanFactory beans = new DefaultListableBeanFactory();
+            beans.registerSingleton("brokerChannel", brokerChannel);
+            relay = new ClusterStompRelay(bus, new ObjectMapper(), beans.getBeanProvider(MessageChannel.class),
+                    new SimpleMeterRegistry(), 100);
+            brokerChannel.addInterceptor(relay);
+
+            broker = new SimpleBrokerMessageHandler(clientInbound, clientOutbound, brokerChannel, List.of("/topic", "/queue"));
+            userHandler = new UserDestinationMessageHandler(clientInbound, brokerChannel,
+                    new DefaultUserDestinationResolver(userRegistry));
+            broker.start();
+            userHandler.start();
+
+            template = new SimpMessagingTemplate(brokerChannel);
+            template.setMessageConverter(new CompositeMessageConverter(List.of(
+                    new StringMessageConverter(), new ByteArrayMessageConverter(), new MappingJackson2MessageConverter())));
+        }
+
+        /**
+         * جلسة متصلة بهذه النسخة ومشتركة في destination، تُرجع ما يصلها من الـ broker
+         */
+        BlockingQueue<Message<?>> connect(String user, String sessionId, String destination) {
+            Principal principal = () -> user;
+            SimpMessageHeaderAccessor connected = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT_ACK);
+            connected.setSessionId(sessionId);
+            connected.setUser(principal);
+            userRegistry.onApplicationEvent(new SessionConnectedEvent(this,
+                    MessageBuilder.createMessage(new byte[0], connected.getMessageHeaders()), principal));
+
+            BlockingQueue<Message<?>> delivered = new LinkedBlockingQueue<>();
+            clientOutbound.subscribe(message -> {
+                if (sessionId.equals(SimpMessageHeaderAccessor.getSessionId(message.getHeaders()))
+                        && SimpMessageHeaderAccessor.getMessageType(message.getHeaders()) == SimpMessageType.MESSAGE) {
+                    delivered.add(message);
+                }
+            });
+
+            SimpMessageHeaderAccessor connect = SimpMessageHeaderAccessor.create(SimpMessageType.CONNECT);
+            connect.setSessionId(sessionId);
+            connect.setUser(principal);
+            clientInbound.send(MessageBuilder.createMessage(new byte[0], connect.getMessageHeaders()));
+
+            SimpMessageHeaderAccessor subscribe = SimpMessageHeaderAccessor.create(SimpMessageType.SUBSCRIBE);
+            subscribe.setSessionId(sessionId);
+            subscribe.setSubscriptionId("sub-" + sessionId);
+            subscribe.setDestination(destination);
+            subscribe.setUser(principal);
+            clientInbound.send(MessageBuilder.createMessage(new byte[0], subscribe.getMessageHeaders()));
+            return delivered;
+        }
+
+        void stop() {
+            userHandler.stop();
+            broker.stop();
+            relay.shutdown();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.bena.api.config.cluster;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * عدة نسخ في نفس الـ JVM: كل ناقل يوصل الرسائل للنسخ الأخرى فوراً (بدون نفسه) كما يفعل PostgresClusterBus
+ */
+public class InMemoryClusterNetwork {
+
+    private final List<Node> nodes = new CopyOnWriteArrayList<>();
+
+    public Node node(String nodeId) {
+        Node node = new Node(nodeId);
+        nodes.add(node);
+        return node;
+    }
+
+    public void remove(Node node) {
+        nodes.remove(node);
+    }
+
+    public class Node implements ClusterBus {
+
+        private final String nodeId;
+        private final Map<String, List<Consumer<String>>> handlers = new ConcurrentHashMap<>();
+
+        private Node(String nodeId) {
+            this.nodeId = nodeId;
+        }
+
+        @Override
+        public String nodeId() {
+            return nodeId;
+        }
+
+        @Override
+        public boolean isClustered() {
+            return true;
+        }
+
+        @Override
+        public void publish(String topic, String payload) {
+            for (Node node : nodes) {
+                if (node != this) {
+                    node.handlers.getOrDefault(topic, List.of()).forEach(handler -> handler.accept(payload));
+                }
+            }
+        }
+
+        @Override
+        public void subscribe(String topic, Consumer<String> handler) {
+            handlers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(handler);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.bena.api.config.cluster;
+
+import com.bena.api.support.PostgresTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@Testcontainers(disabledWithoutDocker = true)
+class PostgresClusterBusTest {
+
+    private final List<PostgresClusterBus> buses = new ArrayList<>();
+
+    @AfterEach
+    void stopBuses() {
+        buses.forEach(PostgresClusterBus::stop);
+    }
+
+    @Test
+    void replyToMessagePublishedRightAfterSubscribeIsNotLost() throws Exception {
+        // نفس تسلسل WebSocketPresenceService: اشتراك ثم SYNC فوراً، والنسخة الأخرى ترد بـ SNAPSHOT
+        String topic = "sync_" + UUID.randomUUID().toString().replace("-", "");
+        String replyTopic = "snapshot_" + UUID.randomUUID().toString().replace("-", "");
+
+        PostgresClusterBus existing = start("existing");
+        existing.subscribe(topic, body -> existing.publish(replyTopic, "snapshot-for-" + body));
+
+        for (int i = 0; i < 20; i++) {
+            PostgresClusterBus joining = start("joining-" + i);
+            BlockingQueue<String> replies = new LinkedBlockingQueue<>();
+            joining.subscribe(replyTopic, replies::add);
+            joining.publish(topic, "joining-" + i);
+
+            assertThat(replies.poll(5, TimeUnit.SECONDS)).isEqualTo("snapshot-for-joining-" + i);
+            joining.stop();
+        }
+    }
+
+    @Test
+    void ignoresOwnMessagesAndDeliversLargePayloads() throws Exception {
+        String topic = "large_" + UUID.randomUUID().toString().replace("-", "");
+        PostgresClusterBus sender = start("sender");
+        PostgresClusterBus receiver = start("receiver");
+
+        BlockingQueue<String> own = new LinkedBlockingQueue<>();
+        BlockingQueue<String> received = new LinkedBlockingQueue<>();
+        sender.subscribe(topic, own::add);
+        receiver.subscribe(topic, received::add);
+
+        String payload = "x".repeat(20_000);
+        sender.publish(topic, payload);
+
+        assertThat(received.poll(5, TimeUnit.SECONDS)).isEqualTo(payload);
+        assertThat(own.poll(500, TimeUnit.MILLISECONDS)).isNull();
+    }
+
+    private PostgresClusterBus start(String nodeId) {
+        DataSource dataSource = PostgresTestSupport.dataSource();
+        PostgresClusterBus bus = new PostgresClusterBus(nodeId, dataSource, new JdbcTemplate(dataSource), 5000);
+        bus.start();
+        buses.add(bus);
+        return bus;
+    }
+}
@@ -0,0 +1,213 @@
+package com.bena.api.module.admin.service;
+
+import com.bena.api.support.ChatTestData;
+import com.bena.api.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * المطابقة مع تغييرات تصل أثناءها ومن نسخ أخرى: كل تغيير يُحسب مرة واحدة، سواء تم الـ commit له قبل
+ * الـ snapshot أو بعده، وأياً كانت النسخة التي سجلت فرقه أو نقلته.
+ * "الطلب" يُدرج مستخدماً ويكتب فروقاته في نفس المعاملة كما يفعل StatisticsEventListener.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class StatisticsServiceReconcileTest {
+
+    private static DataSource dataSource;
+    private static HookedJdbcTemplate jdbc;
+    private StatisticsService statisticsService;
+    private StatisticsService otherNode;
+
+    static class HookedJdbcTemplate extends JdbcTemplate {
+        volatile Runnable beforeRecount;
+        volatile Runnable beforeDeltaCleanup;
+
+        HookedJdbcTemplate(DataSource dataSource) {
+            super(dataSource);
+        }
+
+        @Override
+        public void query(String sql, RowCallbackHandler rch) {
+            Runnable hook = beforeRecount;
+            if (hook != null && sql.contains("'users.total'")) {
+                beforeRecount = null;
+                hook.run();
+            }
+            super.query(sql, rch);
+        }
+
+        @Override
+        public int update(String sql, Object... args) {
+            Runnable hook = beforeDeltaCleanup;
+            if (hook != null && sql.startsWith("DELETE FROM admin_stat_deltas")) {
+                beforeDeltaCleanup = null;
+                hook.run();
+            }
+            return super.update(sql, args);
+        }
+    }
+
+    @BeforeAll
+    static void setUpDatabase() {
+        dataSource = PostgresTestSupport.dataSource();
+        jdbc = new HookedJdbcTemplate(dataSource);
+    }
+
+    @BeforeEach
+    void setUp() {
+        statisticsService = node(Runnable::run);
+        otherNode = node(Runnable::run);
+        statisticsService.reconcile();
+    }
+
+    @Test
+    void deltasForCommittedRowsAreNotCountedTwice() {
+        createUserAndRecord(statisticsService);
+        createUserAndRecord(otherNode);
+
+        statisticsService.reconcile();
+        statisticsService.flush();
+        otherNode.flush();
+
+        assertMatchesTables();
+    }
+
+    @Test
+    void changeCommittedBeforeRecountIsCountedOnce() {
+        jdbc.beforeRecount = () -> runInOtherThread(() -> createUserAndRecord(otherNode));
+
+        statisticsService.reconcile();
+        otherNode.flush();
+
+        assertMatchesTables();
+    }
+
+    @Test
+    void changeCommittedAfterSnapshotIsLeftForTheFlush() {
+        // الـ snapshot أُخذ بالفعل عند إعادة العد، فهذا المستخدم وفرقه غير مرئيين للمطابقة
+        jdbc.beforeDeltaCleanup = () -> runInOtherThread(() -> createUserAndRecord(otherNode));
+
+        statisticsService.reconcile();
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM admin_stat_deltas", Integer.class)).isPositive();
+        otherNode.flush();
+
+        assertMatchesTables();
+    }
+
+    @Test
+    void otherNodesSkipWhileReconcileRuns() {
+        List<Boolean> otherReconciled = new ArrayList<>();
+        jdbc.beforeDeltaCleanup = () -> runInOtherThread(() -> {
+            createUserAndRecord(otherNode);
+            // لا ينتظر قفل الجدول ولا يطابق مرة ثانية
+            otherNode.flush();
+            otherReconciled.add(otherNode.reconcile());
+        });
+
+        assertThat(statisticsService.reconcile()).isTrue();
+        assertThat(otherReconciled).containsExactly(false);
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM admin_stat_deltas", Integer.class)).isPositive();
+
+        otherNode.flush();
+        assertMatchesTables();
+    }
+
+    @Test
+    void rolledBackChangeLeavesNoDelta() {
+        TransactionTemplate transaction = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+        transaction.executeWithoutResult(status -> {
+            createUserWithDeltas(otherNode);
+            status.setRollbackOnly();
+        });
+
+        otherNode.flush();
+
+        assertMatchesTables();
+    }
+
+    @Test
+    void emptyCountersAreReconciledOffTheCallerThread() {
+        List<Runnable> submitted = new ArrayList<>();
+        StatisticsService node = node(submitted::add);
+        jdbc.update("DELETE FROM admin_stat_counters");
+
+        assertThat(node.counters()).isEmpty();
+        assertThat(node.counters()).isEmpty();
+        assertThat(submitted).hasSize(1);
+
+        submitted.get(0).run();
+        assertMatchesTables();
+    }
+
+    // ==================== Helpers ====================
+
+    private static StatisticsService node(Executor executor) {
+        return new StatisticsService(jdbc, new DataSourceTransactionManager(dataSource), executor, 400, 10_000);
+    }
+
+    private static void createUserAndRecord(StatisticsService node) {
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource))
+                .executeWithoutResult(status -> createUserWithDeltas(node));
+    }
+
+    private static void createUserWithDeltas(StatisticsService node) {
+        ChatTestData.createUser(jdbc, "stats " + UUID.randomUUID());
+        List<StatisticsService.Delta> deltas = List.of(
+                StatisticsService.Delta.counter(StatisticsService.total(StatisticsService.USERS), 1),
+                StatisticsService.Delta.counter(StatisticsService.USERS_ACTIVE, 1),
+                StatisticsService.Delta.daily(StatisticsService.USERS_CREATED, LocalDate.now(ZoneOffset.UTC), 1));
+        jdbc.execute((ConnectionCallback<Void>) connection -> {
+            node.record(connection, deltas);
+            return null;
+        });
+    }
+
+    private void assertMatchesTables() {
+        assertThat(statisticsService.counters().get("users.total"))
+                .isEqualTo(jdbc.queryForObject("SELECT COUNT(*) FROM users", Long.class));
+        assertThat(statisticsService.counters().get(StatisticsService.USERS_ACTIVE))
+                .isEqualTo(jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE is_active = TRUE", Long.class));
+        assertThat(jdbc.queryForObject("SELECT value FROM admin_daily_stats WHERE metric = ? AND day = ?", Long.class,
+                StatisticsService.USERS_CREATED, LocalDate.now(ZoneOffset.UTC)))
+                .isEqualTo(jdbc.queryForObject("SELECT COUNT(*) FROM users WHERE (created_at AT TIME ZONE 'UTC')::date = ?",
+                        Long.class, LocalDate.now(ZoneOffset.UTC)));
+    }
+
+    private static void runInOtherThread(Runnable task) {
+        AtomicBoolean failed = new AtomicBoolean();
+        Thread thread = new Thread(() -> {
+            try {
+                task.run();
+            } catch (RuntimeException e) {
+                failed.set(true);
+                throw e;
+            }
+        });
+        thread.start();
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+        assertThat(failed).isFalse();
+    }
+}
@@ -0,0 +1,116 @@
+package com.bena.api.module.ads.service;
+
+import com.bena.api.common.service.FileUploadService;
+import com.bena.api.config.cache.CacheRegions;
+import com.bena.api.module.ads.dto.ActiveAdvertisement;
+import com.bena.api.module.ads.entity.Advertisement;
+import com.bena.api.module.ads.enums.AdSection;
+import com.bena.api.module.ads.repository.AdvertisementRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.OffsetDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * كاش الإعلانات حسب القسم عبر proxy الكاش الحقيقي: يُخزن ActiveAdvertisement وليس الكيان،
+ * ووقت العرض يُفلتر بعد القراءة من الكاش.
+ */
+class AdvertisementServiceTest {
+
+    private final AdvertisementRepository advertisementRepository = mock(AdvertisementRepository.class);
+    private AnnotationConfigApplicationContext context;
+    private AdvertisementService advertisementService;
+
+    @Configuration
+    @EnableCaching
+    static class CachingConfig {
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheRegions.ADS_BY_SECTION);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(CachingConfig.class);
+        context.registerBean(AdvertisementRepository.class, () -> advertisementRepository);
+        context.registerBean(FileUploadService.class, () -> mock(FileUploadService.class));
+        context.registerBean(AdvertisementService.class);
+        context.refresh();
+        advertisementService = context.getBean(AdvertisementService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void upcomingAdIsCachedAndShownOnceItsWindowStarts() {
+        OffsetDateTime now = OffsetDateTime.now();
+        Advertisement upcoming = ad("upcoming", now.plusHours(1), now.plusHours(3));
+        when(advertisementRepository.findActiveAdsBySectionNotEndedBy(eq(AdSection.HOME), any()))
+                .thenReturn(List.of(upcoming));
+
+        List<ActiveAdvertisement> cached = advertisementService.getActiveAdsBySection(AdSection.HOME);
+        assertThat(cached).hasSize(1);
+        assertThat(cached.get(0).isShowing(now)).isFalse();
+
+        // نفس القائمة من الكاش بعد ساعتين: الإعلان يظهر بدون انتظار انتهاء الـ TTL
+        List<ActiveAdvertisement> later = advertisementService.getActiveAdsBySection(AdSection.HOME);
+        assertThat(later.get(0).isShowing(now.plusHours(2))).isTrue();
+        assertThat(later.get(0).isShowing(now.plusHours(4))).isFalse();
+        verify(advertisementRepository, times(1)).findActiveAdsBySectionNotEndedBy(eq(AdSection.HOME), any());
+    }
+
+    @Test
+    void cachedAdIsAnImmutableCopyOfTheEntity() {
+        Advertisement entity = ad("original", null, null);
+        when(advertisementRepository.findActiveAdsBySectionNotEndedBy(eq(AdSection.HOME), any()))
+                .thenReturn(List.of(entity));
+
+        List<ActiveAdvertisement> first = advertisementService.getActiveAdsBySection(AdSection.HOME);
+        entity.setTitle("changed");
+        entity.getSections().add(AdSection.ESCROW);
+
+        List<ActiveAdvertisement> second = advertisementService.getActiveAdsBySection(AdSection.HOME);
+        assertThat(second.get(0).getTitle()).isEqualTo("original");
+        assertThat(second.get(0).getSections()).containsExactly(AdSection.HOME);
+        assertThatThrownBy(() -> second.add(first.get(0))).isInstanceOf(UnsupportedOperationException.class);
+        assertThatThrownBy(() -> second.get(0).getSections().clear()).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static Advertisement ad(String title, OffsetDateTime startAt, OffsetDateTime endAt) {
+        return Advertisement.builder()
+                .id(UUID.randomUUID())
+                .title(title)
+                .imageUrl("/uploads/ads/" + title + ".png")
+                .sections(new HashSet<>(Set.of(AdSection.HOME)))
+                .active(true)
+                .priority(0)
+                .startAt(startAt)
+                .endAt(endAt)
+                .build();
+    }
+}
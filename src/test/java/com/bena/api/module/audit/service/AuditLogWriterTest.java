@@ -0,0 +1,242 @@
+package com.bena.api.module.audit.service;
+
+import com.bena.api.module.audit.entity.AuditLog;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ParameterizedPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * AuditLogWriter مقابل JdbcTemplate وهمي يسجل كل دفعة: الإسقاط عند الامتلاء، حجم الدفعات،
+ * والتفريغ عند الإيقاف.
+ */
+class AuditLogWriterTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final List<List<String>> batches = new CopyOnWriteArrayList<>();
+
+    private AuditLogWriter writer;
+
+    @AfterEach
+    void stop() {
+        if (writer != null) {
+            writer.stop();
+        }
+    }
+
+    @Test
+    void fullBufferDropsAndCountsWithDropPolicy() {
+        recordBatches(null);
+        writer = writer(4, 100, 10_000, AuditLogWriter.OverflowPolicy.DROP, 0);
+
+        // الخيط لم يبدأ بعد، فلا شيء يفرغ الـ buffer
+        int accepted = 0;
+        for (int i = 0; i < 6; i++) {
+            if (writer.enqueue(log("log-" + i))) {
+                accepted++;
+            }
+        }
+
+        assertThat(accepted).isEqualTo(4);
+        assertThat(writer.size()).isEqualTo(4);
+        assertThat(count("accepted")).isEqualTo(4);
+        assertThat(count("dropped")).isEqualTo(2);
+
+        writer.start();
+        writer.stop();
+        assertThat(flattened()).containsExactly("log-0", "log-1", "log-2", "log-3");
+    }
+
+    @Test
+    void blockPolicyWaitsForTheWriterToMakeRoom() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        recordBatches(release);
+        writer = writer(4, 4, 10_000, AuditLogWriter.OverflowPolicy.BLOCK, 5_000);
+        writer.start();
+
+        // أول 4 تُسحب للدفعة التي تنتظر release، والـ 4 التالية تملأ الـ buffer
+        for (int i = 0; i < 4; i++) {
+            writer.enqueue(log("first-" + i));
+        }
+        await(() -> writer.size() == 0);
+        for (int i = 0; i < 4; i++) {
+            assertThat(writer.enqueue(log("second-" + i))).isTrue();
+        }
+        new Thread(() -> {
+            sleep(100);
+            release.countDown();
+        }).start();
+
+        long start = System.nanoTime();
+        assertThat(writer.enqueue(log("blocked"))).isTrue();
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)).isLessThan(5_000);
+        assertThat(count("dropped")).isZero();
+
+        writer.stop();
+        assertThat(flattened()).hasSize(9).contains("blocked");
+    }
+
+    @Test
+    void blockPolicyDropsAfterTheTimeout() {
+        CountDownLatch release = new CountDownLatch(1);
+        recordBatches(release);
+        writer = writer(4, 4, 10_000, AuditLogWriter.OverflowPolicy.BLOCK, 30);
+        writer.start();
+        for (int i = 0; i < 4; i++) {
+            writer.enqueue(log("first-" + i));
+        }
+        await(() -> writer.size() == 0);
+        for (int i = 0; i < 4; i++) {
+            writer.enqueue(log("second-" + i));
+        }
+
+        assertThat(writer.enqueue(log("late"))).isFalse();
+        assertThat(count("dropped")).isEqualTo(1);
+        release.countDown();
+    }
+
+    @Test
+    void flushesFullBatchesAtOnceAndTheRestAfterTheInterval() {
+        recordBatches(null);
+        writer = writer(64, 3, 200, AuditLogWriter.OverflowPolicy.DROP, 0);
+        writer.start();
+
+        for (int i = 0; i < 7; i++) {
+            writer.enqueue(log("log-" + i));
+        }
+
+        await(() -> batches.size() >= 2);
+        assertThat(batches.get(0)).containsExactly("log-0", "log-1", "log-2");
+        assertThat(batches.get(1)).containsExactly("log-3", "log-4", "log-5");
+        // الدفعة الناقصة تنتظر flush-interval
+        await(() -> batches.size() == 3);
+        assertThat(batches.get(2)).containsExactly("log-6");
+        assertThat(count("written")).isEqualTo(7);
+    }
+
+    @Test
+    void stopDrainsEverythingStillBuffered() {
+        recordBatches(null);
+        writer = writer(1024, 200, 60_000, AuditLogWriter.OverflowPolicy.DROP, 0);
+        writer.start();
+
+        for (int i = 0; i < 500; i++) {
+            writer.enqueue(log("log-" + i));
+        }
+        writer.stop();
+
+        assertThat(writer.size()).isZero();
+        assertThat(flattened()).hasSize(500).startsWith("log-0").endsWith("log-499");
+        assertThat(batches).allSatisfy(batch -> assertThat(batch.size()).isLessThanOrEqualTo(200));
+        assertThat(count("written")).isEqualTo(500);
+    }
+
+    @Test
+    void failedBatchIsRetriedRowByRowAndOnlyTheBadRowIsLost() {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenThrow(new DataIntegrityViolationException("batch failed"));
+        AtomicInteger rows = new AtomicInteger();
+        when(jdbcTemplate.update(anyString(), any(PreparedStatementSetter.class))).thenAnswer(invocation -> {
+            // الصف الثاني مرفوض
+            if (rows.incrementAndGet() == 2) {
+                throw new DataIntegrityViolationException("bad row");
+            }
+            return 1;
+        });
+        writer = writer(64, 3, 10_000, AuditLogWriter.OverflowPolicy.DROP, 0);
+        writer.start();
+
+        for (int i = 0; i < 3; i++) {
+            writer.enqueue(log("log-" + i));
+        }
+        writer.stop();
+
+        assertThat(rows.get()).isEqualTo(3);
+        assertThat(count("written")).isEqualTo(2);
+        assertThat(count("failed")).isEqualTo(1);
+    }
+
+    // ==================== Helpers ====================
+
+    private AuditLogWriter writer(int bufferSize, int batchSize, long flushIntervalMs,
+                                  AuditLogWriter.OverflowPolicy policy, long blockTimeoutMs) {
+        return new AuditLogWriter(jdbcTemplate, meterRegistry, bufferSize, batchSize, flushIntervalMs, policy, blockTimeoutMs);
+    }
+
+    /**
+     * كل دفعة تُنسخ (الكاتب يفرغ القائمة بعد الحفظ)، وتنتظر release إن وُجد
+     */
+    @SuppressWarnings("unchecked")
+    private void recordBatches(CountDownLatch release) {
+        when(jdbcTemplate.batchUpdate(anyString(), anyCollection(), anyInt(), any(ParameterizedPreparedStatementSetter.class)))
+                .thenAnswer(invocation -> {
+                    if (release != null) {
+                        release.await(10, TimeUnit.SECONDS);
+                    }
+                    List<String> batch = new ArrayList<>();
+                    for (AuditLog auditLog : (Collection<AuditLog>) invocation.getArgument(1)) {
+                        batch.add(auditLog.getDescription());
+                    }
+                    batches.add(batch);
+                    return new int[0][];
+                });
+    }
+
+    private List<String> flattened() {
+        return batches.stream().flatMap(List::stream).toList();
+    }
+
+    private static AuditLog log(String description) {
+        return AuditLog.builder()
+                .action(AuditLog.AuditAction.USER_UPDATE)
+                .targetType(AuditLog.AuditTargetType.USER)
+                .description(description)
+                .createdAt(OffsetDateTime.now())
+                .build();
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("audit.events", "result", result).count();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within 5s");
+            }
+            sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AssertionError(e);
+        }
+    }
+}
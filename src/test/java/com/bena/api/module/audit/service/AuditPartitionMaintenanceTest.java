@@ -0,0 +1,127 @@
+package com.bena.api.module.audit.service;
+
+import com.bena.api.support.PostgresTestSupport;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * أقسام audit_logs مقابل PostgreSQL حقيقي: الإنشاء المسبق، الاحتفاظ الاختياري، وعدم الانتظار خلف
+ * معاملة مفتوحة على الجدول.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class AuditPartitionMaintenanceTest {
+
+    // أشهر بعيدة حتى لا تتداخل مع أقسام V101
+    private static final YearMonth OLD = YearMonth.of(2001, 1);
+    private static final YearMonth FUTURE = YearMonth.of(2090, 1);
+
+    private static DataSource dataSource;
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        dataSource = PostgresTestSupport.dataSource();
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @AfterEach
+    void dropTestPartitions() {
+        for (String name : partitions()) {
+            YearMonth month = AuditPartitionMaintenance.monthOf(name);
+            if (month != null && (month.getYear() == OLD.getYear() || month.getYear() == FUTURE.getYear())) {
+                jdbc.execute("DROP TABLE " + name);
+            }
+        }
+    }
+
+    @Test
+    void createsMissingPartitionsOnce() {
+        AuditPartitionMaintenance maintenance = maintenance(false);
+
+        assertThat(maintenance.createPartitions(FUTURE, FUTURE.plusMonths(2))).isEqualTo(3);
+        assertThat(maintenance.createPartitions(FUTURE, FUTURE.plusMonths(3))).isEqualTo(1);
+
+        assertThat(partitions()).contains("audit_logs_y2090m01", "audit_logs_y2090m04");
+        jdbc.update("INSERT INTO audit_logs (action, target_type, created_at) VALUES ('LOGIN', 'USER', '2090-02-15T00:00:00Z')");
+        assertThat(jdbc.queryForObject("SELECT COUNT(*) FROM audit_logs_y2090m02", Integer.class)).isEqualTo(1);
+    }
+
+    @Test
+    void maintainKeepsOldPartitionsUnlessDroppingIsEnabled() {
+        maintenance(false).createPartitions(OLD, OLD.plusMonths(1));
+
+        maintenance(false).maintain();
+        assertThat(partitions()).contains("audit_logs_y2001m01", "audit_logs_y2001m02");
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        assertThat(partitions()).contains(AuditPartitionMaintenance.partitionName(current.plusMonths(3)));
+
+        maintenance(true).maintain();
+        assertThat(partitions()).doesNotContain("audit_logs_y2001m01", "audit_logs_y2001m02");
+        assertThat(partitions()).contains(AuditPartitionMaintenance.partitionName(current));
+    }
+
+    @Test
+    void dropsOnlyPartitionsBeforeTheCutoff() {
+        AuditPartitionMaintenance maintenance = maintenance(true);
+        maintenance.createPartitions(OLD, OLD.plusMonths(1));
+        jdbc.update("INSERT INTO audit_logs (action, target_type, created_at) VALUES ('LOGIN', 'USER', '2001-01-10T00:00:00Z')");
+
+        assertThat(maintenance.dropPartitionsBefore(OLD.plusMonths(1))).isEqualTo(1);
+
+        assertThat(partitions()).doesNotContain("audit_logs_y2001m01").contains("audit_logs_y2001m02", "audit_logs_default");
+        assertThat(jdbc.queryForObject(
+                "SELECT COUNT(*) FROM audit_logs WHERE created_at < '2001-02-01T00:00:00Z'", Integer.class)).isZero();
+    }
+
+    @Test
+    void skipsPartitionInsteadOfQueueingBehindAnOpenTransaction() throws Exception {
+        AuditPartitionMaintenance maintenance = maintenance(true);
+        maintenance.createPartitions(OLD, OLD);
+
+        try (Connection writer = dataSource.getConnection()) {
+            writer.setAutoCommit(false);
+            try (Statement statement = writer.createStatement()) {
+                statement.execute("INSERT INTO audit_logs (action, target_type) VALUES ('LOGIN', 'USER')");
+            }
+
+            long started = System.nanoTime();
+            assertThat(maintenance.dropPartitionsBefore(OLD.plusMonths(1))).isZero();
+            assertThat((System.nanoTime() - started) / 1_000_000).isLessThan(5_000);
+            writer.rollback();
+        }
+
+        assertThat(partitions()).contains("audit_logs_y2001m01");
+        assertThat(maintenance.dropPartitionsBefore(OLD.plusMonths(1))).isEqualTo(1);
+    }
+
+    @Test
+    void partitionNamesRoundTrip() {
+        assertThat(AuditPartitionMaintenance.partitionName(YearMonth.of(2025, 3))).isEqualTo("audit_logs_y2025m03");
+        assertThat(AuditPartitionMaintenance.monthOf("audit_logs_y2025m03")).isEqualTo(YearMonth.of(2025, 3));
+        assertThat(AuditPartitionMaintenance.monthOf("audit_logs_default")).isNull();
+    }
+
+    private static AuditPartitionMaintenance maintenance(boolean dropEnabled) {
+        return new AuditPartitionMaintenance(jdbc, new DataSourceTransactionManager(dataSource), 3, 12, dropEnabled, 200);
+    }
+
+    private static List<String> partitions() {
+        return jdbc.queryForList("""
+                SELECT c.relname FROM pg_inherits i JOIN pg_class c ON c.oid = i.inhrelid
+                WHERE i.inhparent = 'audit_logs'::regclass
+                """, String.class);
+    }
+}
@@ -0,0 +1,200 @@
+package com.bena.api.module.auth.service;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigInteger;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.KeyPairGenerator;
+import java.security.PublicKey;
+import java.security.interfaces.RSAPublicKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * JwksKeyStore مقابل خادم JWKS محلي (com.sun.net.httpserver) يعد الطلبات ويتحكم بالمفاتيح وCache-Control.
+ */
+class JwksKeyStoreTest {
+
+    private HttpServer server;
+    private String jwksUrl;
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Map<String, RSAPublicKey> published = new LinkedHashMap<>();
+    private volatile String cacheControl;
+    private volatile long delayMs;
+
+    @BeforeEach
+    void startServer() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.createContext("/keys", exchange -> {
+            requests.incrementAndGet();
+            try {
+                Thread.sleep(delayMs);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            byte[] body = jwks().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            if (cacheControl != null) {
+                exchange.getResponseHeaders().add("Cache-Control", cacheControl);
+            }
+            exchange.sendResponseHeaders(200, body.length);
+            exchange.getResponseBody().write(body);
+            exchange.close();
+        });
+        server.start();
+        jwksUrl = "http://127.0.0.1:" + server.getAddress().getPort() + "/keys";
+    }
+
+    @AfterEach
+    void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    void concurrentMissesShareOneFetch() throws Exception {
+        RSAPublicKey key = publish("k1");
+        delayMs = 300;
+        JwksKeyStore store = store(3600, 30);
+
+        int callers = 32;
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newFixedThreadPool(callers)) {
+            List<Future<PublicKey>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    return store.getKey(jwksUrl, "k1");
+                }));
+            }
+            start.countDown();
+            for (Future<PublicKey> future : futures) {
+                assertThat(future.get(10, TimeUnit.SECONDS)).isEqualTo(key);
+            }
+        }
+
+        assertThat(requests.get()).isEqualTo(1);
+        // بعد الجلب كل الطلبات من الذاكرة
+        store.getKey(jwksUrl, "k1");
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    @Test
+    void unknownKidRefetchesAtMostOncePerInterval() throws Exception {
+        publish("k1");
+        JwksKeyStore store = store(3600, 1);
+        store.getKey(jwksUrl, "k1");
+        assertThat(requests.get()).isEqualTo(1);
+
+        // kid عشوائي داخل الفاصل الأدنى: لا جلب جديد
+        for (int i = 0; i < 20; i++) {
+            String kid = "forged-" + i;
+            assertThatThrownBy(() -> store.getKey(jwksUrl, kid)).isInstanceOf(IllegalArgumentException.class);
+        }
+        assertThat(requests.get()).isEqualTo(1);
+
+        // تدوير المفاتيح: بعد الفاصل يُجلب الـ kid الجديد مرة واحدة
+        RSAPublicKey rotated = publish("k2");
+        Thread.sleep(1100);
+        assertThat(store.getKey(jwksUrl, "k2")).isEqualTo(rotated);
+        assertThat(requests.get()).isEqualTo(2);
+        assertThatThrownBy(() -> store.getKey(jwksUrl, "forged")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    void maxAgeControlsBackgroundRefresh() throws Exception {
+        publish("k1");
+        cacheControl = "public, max-age=1, must-revalidate";
+        JwksKeyStore store = store(3600, 30);
+        store.getKey(jwksUrl, "k1");
+        store.getKey(jwksUrl, "k1");
+        assertThat(requests.get()).isEqualTo(1);
+
+        // بعد 80% من max-age: الطلب يُخدم من الذاكرة والتجديد في الخلفية
+        Thread.sleep(900);
+        RSAPublicKey rotated = publish("k2");
+        store.getKey(jwksUrl, "k1");
+        assertThat(awaitKey(store, "k2")).isEqualTo(rotated);
+        assertThat(requests.get()).isEqualTo(2);
+    }
+
+    @Test
+    void defaultTtlAppliesWithoutCacheControl() throws Exception {
+        publish("k1");
+        cacheControl = null;
+        JwksKeyStore store = store(3600, 30);
+        store.getKey(jwksUrl, "k1");
+        Thread.sleep(900);
+        store.getKey(jwksUrl, "k1");
+        Thread.sleep(200);
+        assertThat(requests.get()).isEqualTo(1);
+    }
+
+    // ==================== Helpers ====================
+
+    private JwksKeyStore store(long defaultTtlSeconds, long minRefetchSeconds) {
+        return new JwksKeyStore(new SimpleMeterRegistry(), 2000, defaultTtlSeconds, 86400, 86400, minRefetchSeconds);
+    }
+
+    private RSAPublicKey publish(String kid) throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        RSAPublicKey key = (RSAPublicKey) generator.generateKeyPair().getPublic();
+        synchronized (published) {
+            published.put(kid, key);
+        }
+        return key;
+    }
+
+    private String jwks() {
+        synchronized (published) {
+            return published.entrySet().stream()
+                    .map(e -> String.format("{\"kty\":\"RSA\",\"use\":\"sig\",\"alg\":\"RS256\",\"kid\":\"%s\",\"n\":\"%s\",\"e\":\"%s\"}",
+                            e.getKey(), base64Url(e.getValue().getModulus()), base64Url(e.getValue().getPublicExponent())))
+                    .collect(Collectors.joining(",", "{\"keys\":[", "]}"));
+        }
+    }
+
+    private static String base64Url(BigInteger value) {
+        byte[] bytes = value.toByteArray();
+        if (bytes.length > 1 && bytes[0] == 0) {
+            bytes = Arrays.copyOfRange(bytes, 1, bytes.length);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+    }
+
+    // التجديد في الخلفية: ننتظر حتى يظهر المفتاح الجديد بدون أن نسبب جلباً إضافياً
+    private PublicKey awaitKey(JwksKeyStore store, String kid) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (true) {
+            try {
+                return store.getKey(jwksUrl, kid);
+            } catch (IllegalArgumentException e) {
+                if (System.currentTimeMillis() > deadline) {
+                    throw e;
+                }
+                Thread.sleep(10);
+            }
+        }
+    }
+}
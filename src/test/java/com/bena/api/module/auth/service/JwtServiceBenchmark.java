@@ -0,0 +1,124 @@
+package com.bena.api.module.auth.service;
+
+import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.Jwts;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import javax.crypto.SecretKey;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * كلفة التحقق من JWT لكل طلب: ثلاث عمليات parse (السلوك السابق في JwtAuthenticationFilter)
+ * مقابل verify() لتوكن جديد (cache miss) ولتوكن متكرر (cache hit).
+ * ليس ضمن mvn test (الاسم لا ينتهي بـ Test)، يُشغل يدوياً:
+ * mvn test -Dtest=JwtServiceBenchmark [-Dbench.jwt.callers=16]
+ */
+class JwtServiceBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("bench.jwt.iterations", 50_000);
+    private static final int CALLERS = Integer.getInteger("bench.jwt.callers", 16);
+
+    private static JwtService jwtService;
+    private static SecretKey signingKey;
+    private static String[] tokens;
+
+    @BeforeAll
+    static void setUp() {
+        jwtService = new JwtService(new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(jwtService, "secretKey", "benchmark-secret-benchmark-secret-benchmark-secret");
+        ReflectionTestUtils.setField(jwtService, "jwtExpiration", 3_600_000L);
+        ReflectionTestUtils.setField(jwtService, "claimsCacheMaxSize", 20_000L);
+        jwtService.initClaimsCache();
+        signingKey = ReflectionTestUtils.invokeMethod(jwtService, "getSigningKey");
+
+        // توكنات مختلفة لقياس الـ cache miss: كل طلب يرى توكناً لم يُتحقق منه من قبل
+        tokens = new String[ITERATIONS * 3];
+        for (int i = 0; i < tokens.length; i++) {
+            tokens[i] = jwtService.generateToken(UUID.randomUUID(), "USER");
+        }
+    }
+
+    @Test
+    void compareVerifyWithRepeatedParsing() throws Exception {
+        String token = tokens[0];
+        Claims parsed = parse(token);
+        assertThat(jwtService.verify(token).getSubject()).isEqualTo(parsed.getSubject());
+        assertThat(jwtService.verify(token)).isSameAs(jwtService.verify(token));
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-36s %10s %10s %10s %12s", "mode", "p50", "p95", "p99", "verifies/s"));
+        for (int callers : new int[]{1, CALLERS}) {
+            String suffix = ", " + callers + (callers == 1 ? " caller" : " callers");
+            AtomicInteger next = new AtomicInteger();
+            report.add(row("3x parse (before)" + suffix, measure(i -> {
+                String t = tokens[i % tokens.length];
+                parse(t);
+                parse(t);
+                return parse(t).getSubject();
+            }, callers)));
+            report.add(row("verify() cold" + suffix, measure(
+                    i -> jwtService.verify(tokens[next.getAndIncrement() % tokens.length]).getSubject(), callers)));
+            report.add(row("verify() warm" + suffix, measure(
+                    i -> jwtService.verify(token).getSubject(), callers)));
+        }
+        report.forEach(System.out::println);
+    }
+
+    // ==================== Helpers ====================
+
+    private static Claims parse(String token) {
+        return Jwts.parser().verifyWith(signingKey).build().parseSignedClaims(token).getPayload();
+    }
+
+    // {p50, p95, p99} بالنانوثانية، والإنتاجية في آخر عنصر
+    private static long[] measure(IntFunction<String> verify, int callers) throws Exception {
+        for (int i = 0; i < ITERATIONS / 10; i++) {
+            verify.apply(i);
+        }
+        int perCaller = ITERATIONS / callers;
+        long[] samples = new long[perCaller * callers];
+        long started = System.nanoTime();
+        try (ExecutorService pool = Executors.newFixedThreadPool(callers)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < callers; c++) {
+                int offset = c * perCaller;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perCaller; i++) {
+                        long itemStart = System.nanoTime();
+                        verify.apply(offset + i);
+                        samples[offset + i] = System.nanoTime() - itemStart;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        Arrays.sort(samples);
+        return new long[]{
+                samples[samples.length / 2],
+                samples[samples.length * 95 / 100],
+                samples[samples.length * 99 / 100],
+                samples.length * 1_000_000_000L / elapsedNanos
+        };
+    }
+
+    private static String row(String mode, long[] result) {
+        return String.format("%-36s %8d ns %8d ns %8d ns %12d", mode, result[0], result[1], result[2], result[3]);
+    }
+}
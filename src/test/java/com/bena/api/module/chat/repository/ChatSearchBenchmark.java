@@ -0,0 +1,189 @@
+package com.bena.api.module.chat.repository;
+
+import com.bena.api.module.chat.service.ChatSearchText;
+import com.bena.api.support.ChatTestData;
+import com.bena.api.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * مقارنة البحث في الرسائل على 10 ملايين رسالة: LIKE '%...%' القديم مقابل فهرس GIN على search_text (V109).
+ * ليس ضمن mvn test (الاسم لا ينتهي بـ Test)، يُشغل يدوياً مع Docker:
+ * mvn test -Dtest=ChatSearchBenchmark -Dbench.chat.rows=10000000
+ * الاستعلامات هنا نفس استعلامات MessageRepository (صفحة 20 + count) ونفس الاستعلام القديم قبل V109.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ChatSearchBenchmark {
+
+    private static final int ROWS = Integer.getInteger("bench.chat.rows", 10_000_000);
+    private static final int ITERATIONS = Integer.getInteger("bench.chat.iterations", 20);
+    private static final int LOAD_CHUNK = 1_000_000;
+    private static final int PAGE_SIZE = 20;
+
+    // كلمات عينة بأشكال كتابة مختلفة (تشكيل، همزات، تاء مربوطة) مثل الرسائل الحقيقية
+    private static final String[] WORDS = {
+            "السلام", "عليكم", "مرحبا", "شكرا", "اسمنت", "إسْمنت", "حديد", "طابوق", "بلوك", "رمل", "حصى",
+            "كاشي", "سيراميك", "لبخ", "صبة", "سقف", "أساس", "جدار", "غرفة", "حمام", "مطبخ", "سعر", "السعر",
+            "كم", "متى", "اليوم", "غدا", "الأسبوع", "موقع", "العنوان", "بغداد", "البصرة", "أربيل", "مقاول",
+            "مُقاول", "عامل", "كهربائي", "سباك", "صباغ", "نجار", "تسليم", "دفعة", "المبلغ", "دينار", "متر",
+            "طن", "كيس", "سيارة", "نقل", "تحميل", "موافق", "تمام", "إن", "شاء", "الله", "ممكن", "صورة",
+            "المخطط", "الخريطة", "الطابق", "الثاني", "مشروع", "بيت", "شقة", "فيلا", "١٠٠", "٢٥٠", "50", "120"
+    };
+
+    private static final String NORMALIZE_SQL = "LOWER(TRANSLATE(" +
+            "REGEXP_REPLACE(%s, '[\\u064B-\\u065F\\u0670\\u0640]', '', 'g'), " +
+            "'أإآٱةىئؤ٠١٢٣٤٥٦٧٨٩۰۱۲۳۴۵۶۷۸۹', 'ااااهييو01234567890123456789'))";
+
+    private static final String LIKE_PAGE_SQL = "SELECT m.id FROM messages m " +
+            "WHERE m.conversation_id = ? AND m.is_deleted = FALSE AND LOWER(m.content) LIKE LOWER('%' || ? || '%') " +
+            "ORDER BY m.created_at DESC LIMIT " + PAGE_SIZE;
+    private static final String LIKE_COUNT_SQL = "SELECT COUNT(*) FROM messages m " +
+            "WHERE m.conversation_id = ? AND m.is_deleted = FALSE AND LOWER(m.content) LIKE LOWER('%' || ? || '%')";
+    private static final String LIKE_USER_PAGE_SQL = "SELECT m.id FROM messages m JOIN conversations c ON c.id = m.conversation_id " +
+            "WHERE c.user_id = ? AND m.is_deleted = FALSE AND LOWER(m.content) LIKE LOWER('%' || ? || '%') " +
+            "ORDER BY m.created_at DESC LIMIT " + PAGE_SIZE;
+    private static final String LIKE_USER_COUNT_SQL = "SELECT COUNT(*) FROM messages m JOIN conversations c ON c.id = m.conversation_id " +
+            "WHERE c.user_id = ? AND m.is_deleted = FALSE AND LOWER(m.content) LIKE LOWER('%' || ? || '%')";
+
+    private static final String FTS_PAGE_SQL = "SELECT m.id, ts_rank(to_tsvector('simple', COALESCE(m.search_text, '')), q)::float8 AS rank " +
+            "FROM messages m, to_tsquery('simple', ?) q " +
+            "WHERE m.conversation_id = ? AND m.is_deleted = FALSE " +
+            "AND to_tsvector('simple', COALESCE(m.search_text, '')) @@ q " +
+            "ORDER BY rank DESC, m.created_at DESC LIMIT " + PAGE_SIZE;
+    private static final String FTS_COUNT_SQL = "SELECT COUNT(*) FROM messages m " +
+            "WHERE m.conversation_id = ? AND m.is_deleted = FALSE " +
+            "AND to_tsvector('simple', COALESCE(m.search_text, '')) @@ to_tsquery('simple', ?)";
+    private static final String FTS_USER_PAGE_SQL = "SELECT m.id, ts_rank(to_tsvector('simple', COALESCE(m.search_text, '')), q)::float8 AS rank " +
+            "FROM messages m JOIN conversations c ON c.id = m.conversation_id, to_tsquery('simple', ?) q " +
+            "WHERE c.user_id = ? AND m.is_deleted = FALSE " +
+            "AND to_tsvector('simple', COALESCE(m.search_text, '')) @@ q " +
+            "ORDER BY rank DESC, m.created_at DESC LIMIT " + PAGE_SIZE;
+    private static final String FTS_USER_COUNT_SQL = "SELECT COUNT(*) FROM messages m JOIN conversations c ON c.id = m.conversation_id " +
+            "WHERE c.user_id = ? AND m.is_deleted = FALSE " +
+            "AND to_tsvector('simple', COALESCE(m.search_text, '')) @@ to_tsquery('simple', ?)";
+
+    private static JdbcTemplate jdbc;
+    private static long conversationId;
+    private static UUID userId;
+
+    @BeforeAll
+    static void load() {
+        jdbc = new JdbcTemplate(PostgresTestSupport.dataSource());
+        // 100 مستخدم × 100 عامل = 10,000 محادثة (~1,000 رسالة لكل محادثة، ~100,000 لكل مستخدم)
+        List<Long> conversations = ChatTestData.createConversations(jdbc, 100, 100);
+        conversationId = conversations.get(0);
+        userId = jdbc.queryForObject("SELECT user_id FROM conversations WHERE id = ?", UUID.class, conversationId);
+
+        // الفهرس يُبنى بعد التحميل (أسرع بكثير من تحديثه مع كل صف)، بنفس تعريفه في V109
+        String indexDef = jdbc.queryForObject(
+                "SELECT indexdef FROM pg_indexes WHERE indexname = 'idx_messages_search'", String.class);
+        jdbc.execute("DROP INDEX idx_messages_search");
+
+        String words = "ARRAY[" + String.join(",", Arrays.stream(WORDS).map(w -> "'" + w + "'").toList()) + "]";
+        String word = "w[1 + floor(random() * " + WORDS.length + ")::int]";
+        String content = String.join(" || ' ' || ", List.of(word, word, word, word, word, word))
+                + " || CASE WHEN random() < 0.0001 THEN ' خلاطة' ELSE '' END";
+        String insert = "INSERT INTO messages (conversation_id, sender_type, sender_id, content, search_text, created_at) " +
+                "SELECT c[1 + (g % array_length(c, 1))], CASE WHEN g % 2 = 0 THEN 'USER' ELSE 'WORKER' END, 'bench', " +
+                "body, " + NORMALIZE_SQL.formatted("body") + ", NOW() - (g || ' seconds')::interval " +
+                "FROM (SELECT g, " + content + " AS body FROM generate_series(?, ?) g, (SELECT " + words + " AS w) words) t, " +
+                "(SELECT ?::bigint[] AS c) conversations";
+        Long[] conversationIds = conversations.toArray(Long[]::new);
+
+        long started = System.nanoTime();
+        for (int chunk = 1; chunk <= ROWS; chunk += LOAD_CHUNK) {
+            int from = chunk;
+            int to = Math.min(ROWS, chunk + LOAD_CHUNK - 1);
+            jdbc.update(connection -> {
+                PreparedStatement ps = connection.prepareStatement(insert);
+                ps.setInt(1, from);
+                ps.setInt(2, to);
+                ps.setArray(3, connection.createArrayOf("bigint", conversationIds));
+                return ps;
+            });
+        }
+        System.out.printf("Loaded %,d messages in %,d ms%n", ROWS, (System.nanoTime() - started) / 1_000_000);
+
+        started = System.nanoTime();
+        jdbc.execute(indexDef);
+        jdbc.execute("VACUUM ANALYZE messages");
+        System.out.printf("Built idx_messages_search in %,d ms%n", (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Test
+    void compareLikeWithFullTextSearch() {
+        List<String> queries = List.of("اسمنت", "أسمنت", "مقاول", "خلاطة", "بلوك سعر", "سير");
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-12s %-13s %12s %12s %12s %12s", "query", "scope", "like p50", "like p95", "fts p50", "fts p95"));
+
+        for (String query : queries) {
+            List<String> tokens = ChatSearchText.tokens(query);
+            String tsQuery = ChatSearchText.toTsQuery(tokens);
+            assertThat(tsQuery).isNotNull();
+
+            long[] like = measure(() -> {
+                jdbc.queryForList(LIKE_PAGE_SQL, Long.class, conversationId, query);
+                return jdbc.queryForObject(LIKE_COUNT_SQL, Long.class, conversationId, query);
+            });
+            long[] fts = measure(() -> {
+                jdbc.queryForList(FTS_PAGE_SQL, tsQuery, conversationId);
+                return jdbc.queryForObject(FTS_COUNT_SQL, Long.class, tsQuery, conversationId);
+            });
+            report.add(row(query, "conversation", like, fts));
+
+            long[] userLike = measure(() -> {
+                jdbc.queryForList(LIKE_USER_PAGE_SQL, Long.class, userId, query);
+                return jdbc.queryForObject(LIKE_USER_COUNT_SQL, Long.class, userId, query);
+            });
+            long[] userFts = measure(() -> {
+                jdbc.queryForList(FTS_USER_PAGE_SQL, tsQuery, userId);
+                return jdbc.queryForObject(FTS_USER_COUNT_SQL, Long.class, tsQuery, userId);
+            });
+            report.add(row(query, "user", userLike, userFts));
+        }
+        report.forEach(System.out::println);
+
+        // البحث في كل محادثات المستخدم يجب أن يستخدم الفهرس النصي لا مسح الرسائل
+        String plan = String.join("\n", jdbc.queryForList("EXPLAIN " + FTS_USER_COUNT_SQL, String.class, userId, "خلاطه:*"));
+        System.out.println(plan);
+        assertThat(plan).contains("idx_messages_search");
+
+        // التوحيد: البحث عن "اسمنت" يجد "إسْمنت" أيضاً، وLIKE القديم لا يجدها
+        Long likeCount = jdbc.queryForObject(LIKE_COUNT_SQL, Long.class, conversationId, "اسمنت");
+        Long ftsCount = jdbc.queryForObject(FTS_COUNT_SQL, Long.class, "اسمنت:*", conversationId);
+        assertThat(ftsCount).isGreaterThan(likeCount);
+    }
+
+    // ==================== Helpers ====================
+
+    // {p50, p95} بالمايكروثانية بعد الإحماء
+    private static long[] measure(Supplier<Long> search) {
+        for (int i = 0; i < 3; i++) {
+            search.get();
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long started = System.nanoTime();
+            search.get();
+            samples[i] = (System.nanoTime() - started) / 1_000;
+        }
+        Arrays.sort(samples);
+        return new long[]{samples[ITERATIONS / 2], samples[Math.min(ITERATIONS - 1, ITERATIONS * 95 / 100)]};
+    }
+
+    private static String row(String query, String scope, long[] like, long[] fts) {
+        return String.format("%-12s %-13s %9.1f ms %9.1f ms %9.1f ms %9.1f ms", query, scope,
+                like[0] / 1000.0, like[1] / 1000.0, fts[0] / 1000.0, fts[1] / 1000.0);
+    }
+}
@@ -0,0 +1,203 @@
+package com.bena.api.module.chat.repository;
+
+import com.bena.api.support.ChatTestData;
+import com.bena.api.support.PostgresTestSupport;
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.lang.reflect.Method;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * عدادات غير المقروء تحت الإرسال المتزامن، بنفس استعلامات ConversationRepository (تُقرأ من @Query)
+ * وبنفس تسلسل المعاملات في ChatService.sendMessage وmarkAsRead.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class ConversationUnreadCountersTest {
+
+    private static final int SENDERS = 1000;
+    private static final int MESSAGES_PER_SENDER = 3;
+
+    private static HikariDataSource dataSource;
+    private static JdbcTemplate jdbc;
+    private static NamedParameterJdbcTemplate named;
+    private static TransactionTemplate tx;
+
+    @BeforeAll
+    static void setUp() {
+        HikariConfig config = new HikariConfig();
+        config.setDataSource(PostgresTestSupport.dataSource());
+        config.setMaximumPoolSize(50);
+        dataSource = new HikariDataSource(config);
+        jdbc = new JdbcTemplate(dataSource);
+        named = new NamedParameterJdbcTemplate(dataSource);
+        tx = new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    }
+
+    @AfterAll
+    static void tearDown() {
+        dataSource.close();
+    }
+
+    @Test
+    void concurrentSendersNeverLoseIncrements() throws Exception {
+        long conversationId = ChatTestData.createConversation(jdbc).id();
+
+        runConcurrently(SENDERS, i -> {
+            for (int n = 0; n < MESSAGES_PER_SENDER; n++) {
+                send(conversationId, i % 2 == 0 ? "USER" : "WORKER", "sender " + i + " message " + n);
+            }
+        }, null);
+
+        Map<String, Object> row = conversation(conversationId);
+        assertThat(((Number) row.get("worker_unread_count")).intValue())
+                .isEqualTo(count(conversationId, "USER", 0))
+                .isEqualTo(SENDERS / 2 * MESSAGES_PER_SENDER);
+        assertThat(((Number) row.get("user_unread_count")).intValue())
+                .isEqualTo(count(conversationId, "WORKER", 0))
+                .isEqualTo(SENDERS / 2 * MESSAGES_PER_SENDER);
+        assertThat(row.get("last_message_at")).isEqualTo(jdbc.queryForObject(
+                "SELECT MAX(created_at) FROM messages WHERE conversation_id = ?", Object.class, conversationId));
+    }
+
+    @Test
+    void unreadCountsMatchReadCursorsWhileBothSidesKeepReading() throws Exception {
+        long conversationId = ChatTestData.createConversation(jdbc).id();
+
+        AtomicBoolean sending = new AtomicBoolean(true);
+        runConcurrently(SENDERS, i -> {
+            for (int n = 0; n < MESSAGES_PER_SENDER; n++) {
+                send(conversationId, i % 2 == 0 ? "USER" : "WORKER", "sender " + i + " message " + n);
+            }
+        }, () -> {
+            while (sending.get()) {
+                markAsRead(conversationId, "USER");
+                markAsRead(conversationId, "WORKER");
+            }
+        }, sending);
+
+        // العداد = رسائل الطرف الآخر بعد مؤشر القراءة، بدون زيادة أو نقص
+        Map<String, Object> row = conversation(conversationId);
+        long userCursor = cursor(row, "user_last_read_message_id");
+        long workerCursor = cursor(row, "worker_last_read_message_id");
+        assertThat(((Number) row.get("user_unread_count")).intValue())
+                .isEqualTo(count(conversationId, "WORKER", userCursor));
+        assertThat(((Number) row.get("worker_unread_count")).intValue())
+                .isEqualTo(count(conversationId, "USER", workerCursor));
+
+        markAsRead(conversationId, "USER");
+        markAsRead(conversationId, "WORKER");
+        row = conversation(conversationId);
+        assertThat(((Number) row.get("user_unread_count")).intValue()).isZero();
+        assertThat(((Number) row.get("worker_unread_count")).intValue()).isZero();
+        assertThat(cursor(row, "user_last_read_message_id")).isEqualTo(maxId(conversationId, "WORKER"));
+        assertThat(cursor(row, "worker_last_read_message_id")).isEqualTo(maxId(conversationId, "USER"));
+    }
+
+    // ==================== Helpers ====================
+
+    private interface Sender {
+        void send(int index) throws Exception;
+    }
+
+    // مثل ChatService.sendMessage: UPDATE ذري للمحادثة (يأخذ قفل الصف) ثم حفظ الرسالة في نفس المعاملة
+    private static void send(long conversationId, String senderType, String content) {
+        tx.executeWithoutResult(status -> {
+            LocalDateTime sentAt = LocalDateTime.now();
+            named.update(sql(senderType.equals("USER") ? "recordMessageFromUser" : "recordMessageFromWorker"),
+                    Map.of("conversationId", conversationId, "preview", content, "sentAt", sentAt));
+            jdbc.update("INSERT INTO messages (conversation_id, sender_type, sender_id, content, created_at) VALUES (?, ?, 'test', ?, ?)",
+                    conversationId, senderType, content, sentAt);
+        });
+    }
+
+    // مثل ChatService.markAsRead: قفل الصف ثم تقديم المؤشر وتصفير العداد
+    private static void markAsRead(long conversationId, String readerType) {
+        tx.executeWithoutResult(status -> {
+            named.queryForObject(sql("lockById"), Map.of("conversationId", conversationId), Long.class);
+            named.update(sql(readerType.equals("USER") ? "markReadByUser" : "markReadByWorker"),
+                    Map.of("conversationId", conversationId));
+        });
+    }
+
+    private static void runConcurrently(int senders, Sender sender, Runnable reader) throws Exception {
+        runConcurrently(senders, sender, reader, new AtomicBoolean(true));
+    }
+
+    private static void runConcurrently(int senders, Sender sender, Runnable reader, AtomicBoolean running) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < senders; i++) {
+                int index = i;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    sender.send(index);
+                    return null;
+                }));
+            }
+            Future<?> readerFuture = reader != null ? executor.submit(() -> {
+                start.await();
+                reader.run();
+                return null;
+            }) : null;
+
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(2, TimeUnit.MINUTES);
+            }
+            running.set(false);
+            if (readerFuture != null) {
+                readerFuture.get(1, TimeUnit.MINUTES);
+            }
+        }
+    }
+
+    private static String sql(String methodName) {
+        Method method = Arrays.stream(ConversationRepository.class.getMethods())
+                .filter(m -> m.getName().equals(methodName))
+                .findFirst()
+                .orElseThrow();
+        return method.getAnnotation(Query.class).value();
+    }
+
+    private static Map<String, Object> conversation(long conversationId) {
+        return jdbc.queryForMap("SELECT * FROM conversations WHERE id = ?", conversationId);
+    }
+
+    private static int count(long conversationId, String senderType, long afterId) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM messages WHERE conversation_id = ? AND sender_type = ? AND id > ?",
+                Integer.class, conversationId, senderType, afterId);
+    }
+
+    private static long maxId(long conversationId, String senderType) {
+        return jdbc.queryForObject("SELECT MAX(id) FROM messages WHERE conversation_id = ? AND sender_type = ?",
+                Long.class, conversationId, senderType);
+    }
+
+    private static long cursor(Map<String, Object> row, String column) {
+        Object value = row.get(column);
+        return value != null ? ((Number) value).longValue() : 0;
+    }
+}
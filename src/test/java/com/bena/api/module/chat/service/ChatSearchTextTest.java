@@ -0,0 +1,59 @@
+package com.bena.api.module.chat.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatSearchTextTest {
+
+    @Test
+    void normalizesDiacriticsLetterFormsAndDigits() {
+        assertThat(ChatSearchText.normalize("إسْمَنْت مُقاولـة ٤٥ Tiles"))
+                .isEqualTo("اسمنت مقاوله 45 tiles");
+        assertThat(ChatSearchText.normalize("مستشفى، سؤال، جزئي")).isEqualTo("مستشفي، سوال، جزيي");
+    }
+
+    @Test
+    void dropsTokensShorterThanMinimumPrefix() {
+        assertThat(ChatSearchText.tokens("ا ب 5")).isEmpty();
+        assertThat(ChatSearchText.toTsQuery(ChatSearchText.tokens("ا"))).isNull();
+        assertThat(ChatSearchText.tokens("و اسمنت 5 طن")).containsExactly("اسمنت", "طن");
+    }
+
+    @Test
+    void buildsPrefixQueryFromDistinctTokens() {
+        List<String> tokens = ChatSearchText.tokens("أسمنت، اسمنت! بلوك");
+
+        assertThat(tokens).containsExactly("اسمنت", "بلوك");
+        assertThat(ChatSearchText.toTsQuery(tokens)).isEqualTo("اسمنت:* & بلوك:*");
+    }
+
+    @Test
+    void queryTokensCannotInjectTsQuerySyntax() {
+        assertThat(ChatSearchText.tokens("ab:* | !cd & (ef)")).containsExactly("ab", "cd", "ef");
+    }
+
+    @Test
+    void highlightsMatchesInOriginalTextAtWordStartsOnly() {
+        String content = "سعر إسْمنت اليوم والاسمنت الأبيض";
+        ChatSearchText.Snippet snippet = ChatSearchText.snippet(content, ChatSearchText.tokens("اسمنت"), 120);
+
+        assertThat(snippet.text()).isEqualTo(content);
+        assertThat(snippet.highlights()).hasSize(1);
+        ChatSearchText.Highlight highlight = snippet.highlights().get(0);
+        assertThat(content.substring(highlight.start(), highlight.end())).isEqualTo("إسْمنت");
+    }
+
+    @Test
+    void snippetIsCutAroundFirstMatch() {
+        String content = "ا".repeat(300) + " بلوك " + "ب".repeat(300);
+        ChatSearchText.Snippet snippet = ChatSearchText.snippet(content, List.of("بلوك"), 120);
+
+        assertThat(snippet.text()).startsWith("…").endsWith("…");
+        assertThat(snippet.text().length()).isEqualTo(122);
+        ChatSearchText.Highlight highlight = snippet.highlights().get(0);
+        assertThat(snippet.text().substring(highlight.start(), highlight.end())).isEqualTo("بلوك");
+    }
+}
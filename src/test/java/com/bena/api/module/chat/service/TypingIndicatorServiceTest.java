@@ -0,0 +1,164 @@
+package com.bena.api.module.chat.service;
+
+import com.bena.api.config.cluster.InMemoryClusterNetwork;
+import com.bena.api.module.chat.repository.ConversationRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.messaging.simp.SimpMessagingTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * مؤشر الكتابة: دمج الإطارات المتكررة، إرسال التوقف عند انتهاء المدة، وحالة النسخ الأخرى عبر ClusterBus.
+ */
+class TypingIndicatorServiceTest {
+
+    private static final long CONVERSATION = 7L;
+
+    private final InMemoryClusterNetwork network = new InMemoryClusterNetwork();
+    private final ConversationRepository conversationRepository = mock(ConversationRepository.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final UUID customer = UUID.randomUUID();
+    private final UUID worker = UUID.randomUUID();
+
+    @Test
+    void repeatedTypingFramesAreThrottled() throws Exception {
+        givenConversation();
+        SimpMessagingTemplate messaging = mock(SimpMessagingTemplate.class);
+        TypingIndicatorService service = node("a", messaging, 60_000, 1_000);
+
+        service.setTyping(CONVERSATION, customer, true);
+        service.setTyping(CONVERSATION, customer, true);
+        service.setTyping(CONVERSATION, customer, true);
+        verify(messaging, times(1)).convertAndSendToUser(eq(worker.toString()), eq("/queue/typing"), any(Object.class));
+        assertThat(count("coalesced")).isEqualTo(2);
+
+        Thread.sleep(1_100);
+        service.setTyping(CONVERSATION, customer, true);
+        verify(messaging, times(2)).convertAndSendToUser(eq(worker.toString()), eq("/queue/typing"), any(Object.class));
+    }
+
+    @Test
+    void stopIsSentOnlyAfterTyping() {
+        givenConversation();
+        SimpMessagingTemplate messaging = mock(SimpMessagingTemplate.class);
+        TypingIndicatorService service = node("a", messaging, 60_000, 60_000);
+
+        service.setTyping(CONVERSATION, worker, false);
+        verify(messaging, never()).convertAndSendToUser(anyString(), anyString(), any(Object.class));
+
+        service.setTyping(CONVERSATION, worker, true);
+        service.setTyping(CONVERSATION, worker, false);
+        service.setTyping(CONVERSATION, worker, false);
+
+        assertThat(payloadsTo(messaging, customer, 2)).extracting(p -> p.get("isTyping")).containsExactly(true, false);
+        assertThat(service.getTypingUsers(CONVERSATION)).isEmpty();
+    }
+
+    @Test
+    void expiredStateSendsStopOnceAndLeavesTheIndex() throws Exception {
+        givenConversation();
+        SimpMessagingTemplate messaging = mock(SimpMessagingTemplate.class);
+        TypingIndicatorService service = node("a", messaging, 50, 60_000);
+
+        service.setTyping(CONVERSATION, customer, true);
+        assertThat(service.getTypingUsers(CONVERSATION))
+                .containsExactly(Map.of("userId", customer.toString(), "userName", "أحمد"));
+
+        Thread.sleep(80);
+        // المنتهية لا تظهر حتى قبل مرور الـ sweep
+        assertThat(service.getTypingUsers(CONVERSATION)).isEmpty();
+        service.expire();
+        service.expire();
+
+        assertThat(payloadsTo(messaging, worker, 2)).extracting(p -> p.get("isTyping")).containsExactly(true, false);
+        assertThat(count("expired")).isEqualTo(1);
+        assertThat(meterRegistry.get("chat.typing.active").gauge().value()).isZero();
+    }
+
+    @Test
+    void otherNodesSeeRemoteTypingWithoutSendingIt() throws Exception {
+        givenConversation();
+        SimpMessagingTemplate messagingA = mock(SimpMessagingTemplate.class);
+        SimpMessagingTemplate messagingB = mock(SimpMessagingTemplate.class);
+        TypingIndicatorService nodeA = node("a", messagingA, 50, 60_000);
+        TypingIndicatorService nodeB = node("b", messagingB, 50, 60_000);
+
+        nodeA.setTyping(CONVERSATION, worker, true);
+        assertThat(nodeB.getTypingUsers(CONVERSATION))
+                .containsExactly(Map.of("userId", worker.toString(), "userName", "علي"));
+
+        nodeA.setTyping(CONVERSATION, worker, false);
+        assertThat(nodeB.getTypingUsers(CONVERSATION)).isEmpty();
+
+        // الحالة البعيدة تنتهي بصمت: النسخة المالكة هي من ترسل التوقف
+        nodeA.setTyping(CONVERSATION, worker, true);
+        Thread.sleep(80);
+        nodeB.expire();
+        assertThat(nodeB.getTypingUsers(CONVERSATION)).isEmpty();
+        verify(messagingB, never()).convertAndSendToUser(anyString(), anyString(), any(Object.class));
+        assertThat(count("expired")).isZero();
+    }
+
+    @Test
+    void onlyParticipantsCanType() {
+        givenConversation();
+        SimpMessagingTemplate messaging = mock(SimpMessagingTemplate.class);
+        TypingIndicatorService service = node("a", messaging, 60_000, 60_000);
+
+        assertThatThrownBy(() -> service.setTyping(CONVERSATION, UUID.randomUUID(), true))
+                .isInstanceOf(RuntimeException.class);
+        assertThatThrownBy(() -> service.setTyping(99L, customer, true))
+                .isInstanceOf(RuntimeException.class);
+
+        assertThat(count("rejected")).isEqualTo(2);
+        assertThat(service.getTypingUsers(CONVERSATION)).isEmpty();
+        // أطراف المحادثة من الكاش بعد أول تحميل
+        verify(conversationRepository, times(1)).findParticipants(CONVERSATION);
+    }
+
+    // ==================== Helpers ====================
+
+    private TypingIndicatorService node(String nodeId, SimpMessagingTemplate messaging, long ttlMs, long throttleMs) {
+        return new TypingIndicatorService(conversationRepository, messaging, network.node(nodeId), new ObjectMapper(),
+                meterRegistry, ttlMs, throttleMs, 100, 600);
+    }
+
+    private void givenConversation() {
+        ConversationRepository.ParticipantsView view = mock(ConversationRepository.ParticipantsView.class);
+        when(view.getUserId()).thenReturn(customer);
+        when(view.getUserName()).thenReturn("أحمد");
+        when(view.getWorkerUserId()).thenReturn(worker);
+        when(view.getWorkerUserName()).thenReturn("علي");
+        when(conversationRepository.findParticipants(CONVERSATION)).thenReturn(Optional.of(view));
+        when(conversationRepository.findParticipants(99L)).thenReturn(Optional.empty());
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> payloadsTo(SimpMessagingTemplate messaging, UUID recipient, int expected) {
+        ArgumentCaptor<Object> payloads = ArgumentCaptor.forClass(Object.class);
+        verify(messaging, times(expected)).convertAndSendToUser(eq(recipient.toString()), eq("/queue/typing"), payloads.capture());
+        return payloads.getAllValues().stream().map(p -> (Map<String, Object>) p).toList();
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("chat.typing", "result", result).count();
+    }
+}
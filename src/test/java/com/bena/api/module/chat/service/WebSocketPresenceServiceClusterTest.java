@@ -0,0 +1,166 @@
+package com.bena.api.module.chat.service;
+
+import com.bena.api.config.cluster.ClusterBus;
+import com.bena.api.config.cluster.InMemoryClusterNetwork;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class WebSocketPresenceServiceClusterTest {
+
+    private final InMemoryClusterNetwork network = new InMemoryClusterNetwork();
+
+    @Test
+    void nodeStartedLaterLearnsExistingSessionsFromSnapshot() {
+        WebSocketPresenceService nodeA = node("a");
+        UUID alice = UUID.randomUUID();
+        UUID bob = UUID.randomUUID();
+        nodeA.markConnected(alice.toString(), "a-1");
+        nodeA.markConnected(bob.toString(), "a-2");
+
+        WebSocketPresenceService nodeB = node("b");
+        assertThat(nodeB.isOnline(alice)).isFalse();
+
+        nodeB.requestSnapshot();
+
+        assertThat(nodeB.isOnline(alice)).isTrue();
+        assertThat(nodeB.isOnline(List.of(alice, bob, UUID.randomUUID()))).containsExactlyInAnyOrder(alice, bob);
+    }
+
+    @Test
+    void userStaysOnlineUntilLastSessionOnAnyNodeCloses() {
+        WebSocketPresenceService nodeA = node("a");
+        WebSocketPresenceService nodeB = node("b");
+        UUID user = UUID.randomUUID();
+
+        nodeA.markConnected(user.toString(), "phone");
+        nodeA.markConnected(user.toString(), "tablet");
+        nodeB.markConnected(user.toString(), "web");
+
+        nodeA.markDisconnected(user.toString(), "phone");
+        assertThat(nodeB.isOnline(user)).isTrue();
+
+        nodeA.markDisconnected(user.toString(), "tablet");
+        assertThat(nodeA.isOnline(user)).isTrue();
+
+        nodeB.markDisconnected(user.toString(), "web");
+        assertThat(nodeA.isOnline(user)).isFalse();
+        assertThat(nodeB.isOnline(user)).isFalse();
+    }
+
+    @Test
+    void silentHeartbeatSessionExpiresOnEveryNode() throws Exception {
+        WebSocketPresenceService nodeA = node("a");
+        WebSocketPresenceService nodeB = node("b");
+        UUID user = UUID.randomUUID();
+
+        nodeA.heartbeat(user.toString(), "s-1");
+        assertThat(nodeB.isOnline(user)).isTrue();
+
+        Thread.sleep(80);
+        nodeA.expireSessions();
+
+        assertThat(nodeA.isOnline(user)).isFalse();
+        assertThat(nodeB.isOnline(user)).isFalse();
+    }
+
+    @Test
+    void lateConnectedEventCannotResurrectADisconnectedUser() {
+        List<String> published = new CopyOnWriteArrayList<>();
+        WebSocketPresenceService nodeA = new WebSocketPresenceService(recording("a", published), new ObjectMapper(),
+                mock(JdbcTemplate.class), new SimpleMeterRegistry(), 50, 50, 60000, 100);
+        SimpleMeterRegistry meterRegistryB = new SimpleMeterRegistry();
+        WebSocketPresenceService nodeB = new WebSocketPresenceService(network.node("b"), new ObjectMapper(),
+                mock(JdbcTemplate.class), meterRegistryB, 50, 50, 60000, 100);
+        InMemoryClusterNetwork.Node relay = network.node("relay");
+        UUID user = UUID.randomUUID();
+
+        nodeA.markConnected(user.toString(), "s-1");
+        nodeA.markDisconnected(user.toString(), "s-1");
+        // الانقطاع يصل أولاً ثم الاتصال الأقدم منه
+        relay.publish("presence", published.get(1));
+        relay.publish("presence", published.get(0));
+
+        assertThat(nodeB.isOnline(user)).isFalse();
+        assertThat(meterRegistryB.counter("chat.presence.remote", "result", "stale").count()).isEqualTo(1);
+
+        nodeA.markConnected(user.toString(), "s-2");
+        relay.publish("presence", published.get(2));
+        assertThat(nodeB.isOnline(user)).isTrue();
+    }
+
+    @Test
+    void concurrentConnectsAndDisconnectsEndInTheSameStateOnEveryNode() throws Exception {
+        WebSocketPresenceService nodeA = node("a");
+        WebSocketPresenceService nodeB = node("b");
+        UUID user = UUID.randomUUID();
+        int threads = 4;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                String sessionId = "s-" + t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 2000; i++) {
+                        nodeA.markConnected(user.toString(), sessionId);
+                        nodeA.markDisconnected(user.toString(), sessionId);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(nodeA.isOnline(user)).isFalse();
+        assertThat(nodeB.isOnline(user)).isFalse();
+    }
+
+    private static ClusterBus recording(String nodeId, List<String> published) {
+        return new ClusterBus() {
+            @Override
+            public String nodeId() {
+                return nodeId;
+            }
+
+            @Override
+            public boolean isClustered() {
+                return true;
+            }
+
+            @Override
+            public void publish(String topic, String payload) {
+                published.add(payload);
+            }
+
+            @Override
+            public void subscribe(String topic, Consumer<String> handler) {
+            }
+        };
+    }
+
+    private WebSocketPresenceService node(String nodeId) {
+        return new WebSocketPresenceService(network.node(nodeId), new ObjectMapper(), mock(JdbcTemplate.class),
+                new SimpleMeterRegistry(), 50, 50, 60000, 100);
+    }
+}
@@ -0,0 +1,101 @@
+package com.bena.api.module.cost.service;
+
+import com.bena.api.module.cost.dto.brick.BrickCostRequest;
+import com.bena.api.module.cost.dto.brick.BrickCostResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * أسعار الطابوق من نسخة الأسعار: سعر القطعة يُحوّل لسعر الألف، والقيم الافتراضية عند غياب المادة.
+ */
+class BrickCostServiceTest {
+
+    private final MaterialPriceService materialPriceService = mock(MaterialPriceService.class);
+    private final BrickCostService service = new BrickCostService(materialPriceService);
+
+    @Test
+    void piecePricesAreScaledToPricePer1000() {
+        MaterialPriceSnapshot prices = snapshot(new MaterialPriceSnapshot.Entry("BRICK_STANDARD", "طابوق عادي",
+                "piece", new BigDecimal("200"), new BigDecimal("90"), Map.of("bricks_per_m2", 100)));
+
+        // 10 م² × 100 طابوقة بدون هدر = 1000 طابوقة
+        BrickCostResponse response = service.calculate(request().wastePercentage(BigDecimal.ZERO).build(), prices);
+
+        assertThat(response.getBricksPerM2Used()).isEqualTo(100);
+        assertThat(response.getBrickCount()).isEqualTo(1000);
+        assertThat(response.getBrickCost()).isEqualByComparingTo("200000");
+        assertThat(response.getLaborCost()).isEqualByComparingTo("90000");
+        assertThat(response.getPriceVersion()).isEqualTo("v1");
+    }
+
+    @Test
+    void pricesNotPerPieceAreUsedAsIs() {
+        MaterialPriceSnapshot prices = snapshot(new MaterialPriceSnapshot.Entry("BRICK_STANDARD", "طابوق عادي",
+                "thousand", new BigDecimal("175000"), new BigDecimal("85000"), Map.of()));
+
+        BrickCostResponse response = service.calculate(
+                request().bricksPerM2(100).wastePercentage(BigDecimal.ZERO).build(), prices);
+
+        assertThat(response.getBrickCost()).isEqualByComparingTo("175000");
+        assertThat(response.getLaborCost()).isEqualByComparingTo("85000");
+    }
+
+    @Test
+    void requestPricesOverrideTheSnapshot() {
+        MaterialPriceSnapshot prices = snapshot(new MaterialPriceSnapshot.Entry("BRICK_STANDARD", "طابوق عادي",
+                "piece", new BigDecimal("200"), new BigDecimal("90"), Map.of("bricks_per_m2", 100)));
+
+        BrickCostResponse response = service.calculate(request().wastePercentage(BigDecimal.ZERO)
+                .brickPricePer1000(new BigDecimal("120000")).bricksPerM2(50).build(), prices);
+
+        assertThat(response.getBrickCount()).isEqualTo(500);
+        assertThat(response.getBrickCost()).isEqualByComparingTo("60000");
+        assertThat(response.getLaborCost()).isEqualByComparingTo("45000");
+    }
+
+    @Test
+    void missingMaterialUsesDefaults() {
+        BrickCostResponse response = service.calculate(request().build(), MaterialPriceSnapshot.EMPTY);
+
+        // 10 م² × 130 × 1.07 = 1391 طابوقة، 150000 للألف و 80000 عمالة و 5000 مونة لكل م²
+        assertThat(response.getBrickCount()).isEqualTo(1391);
+        assertThat(response.getBrickCost()).isEqualByComparingTo("208650");
+        assertThat(response.getLaborCost()).isEqualByComparingTo("111280");
+        assertThat(response.getMortarCost()).isEqualByComparingTo("50000");
+        assertThat(response.getPriceVersion()).isEqualTo("defaults");
+    }
+
+    @Test
+    void pricesThatFailToLoadFallBackToDefaults() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.queryForObject(anyString(), eq(String.class)))
+                .thenThrow(new DataAccessResourceFailureException("connection refused"));
+        BrickCostService withDatabaseDown = new BrickCostService(new MaterialPriceService(jdbcTemplate, "baghdad"));
+
+        BrickCostResponse response = withDatabaseDown.calculate(request().build());
+
+        assertThat(response.getBrickCost()).isEqualByComparingTo("208650");
+        assertThat(response.getPriceVersion()).isEqualTo("defaults");
+    }
+
+    // ==================== Helpers ====================
+
+    private static BrickCostRequest.BrickCostRequestBuilder request() {
+        return BrickCostRequest.builder().wallArea(BigDecimal.TEN);
+    }
+
+    private static MaterialPriceSnapshot snapshot(MaterialPriceSnapshot.Entry entry) {
+        return new MaterialPriceSnapshot("v1", OffsetDateTime.now(), Map.of(entry.code(), entry));
+    }
+}
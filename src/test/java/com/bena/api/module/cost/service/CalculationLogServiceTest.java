@@ -0,0 +1,80 @@
+package com.bena.api.module.cost.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.startsWith;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CalculationLogServiceTest {
+
+    private final JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CalculationLogService service = new CalculationLogService(jdbcTemplate,
+            mock(PlatformTransactionManager.class), new ObjectMapper(), meterRegistry, true, 100, 100);
+
+    @Test
+    void failedBatchFallsBackToRowsAndSkipsOnlyTheBadOne() {
+        List<List<Object[]>> rollupBatches = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO calculation_logs"), anyList())).thenAnswer(invocation -> {
+            List<Object[]> rows = invocation.getArgument(1);
+            if (rows.stream().anyMatch(row -> "bad".equals(row[1]))) {
+                throw new DataIntegrityViolationException("value too long for type character varying(50)");
+            }
+            return new int[rows.size()];
+        });
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO calculation_daily_stats"), anyList())).thenAnswer(invocation -> {
+            rollupBatches.add(invocation.getArgument(1));
+            return new int[0];
+        });
+
+        service.record("brick", Map.of("wallArea", 10), Map.of("totalCost", 100), new BigDecimal("100"), "IQD");
+        service.record("bad", Map.of(), Map.of(), new BigDecimal("999"), "IQD");
+        service.record("brick", Map.of("wallArea", 20), Map.of("totalCost", 200), new BigDecimal("200"), "IQD");
+        service.flush();
+
+        assertThat(meterRegistry.counter("cost.logs", "result", "written").count()).isEqualTo(2);
+        assertThat(meterRegistry.counter("cost.logs", "result", "failed").count()).isEqualTo(1);
+        // التجميع فقط للصفوف المكتوبة: الدفعة الفاشلة لم تصل لـ calculation_daily_stats
+        assertThat(rollupBatches).hasSize(2).allSatisfy(rollups -> {
+            assertThat(rollups).hasSize(1);
+            assertThat(rollups.get(0)[1]).isEqualTo("brick");
+            assertThat(rollups.get(0)[3]).isEqualTo(1L);
+        });
+        assertThat(rollupBatches).extracting(rollups -> rollups.get(0)[5])
+                .containsExactly(new BigDecimal("100"), new BigDecimal("200"));
+    }
+
+    @Test
+    void healthyBatchIsOneInsertAndOneRollup() {
+        List<List<Object[]>> rollupBatches = new ArrayList<>();
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO calculation_logs"), anyList()))
+                .thenAnswer(invocation -> new int[invocation.<List<?>>getArgument(1).size()]);
+        when(jdbcTemplate.batchUpdate(startsWith("INSERT INTO calculation_daily_stats"), anyList()))
+                .thenAnswer(invocation -> {
+                    rollupBatches.add(invocation.getArgument(1));
+                    return new int[0];
+                });
+
+        for (int i = 0; i < 3; i++) {
+            service.record("tiles", Map.of(), Map.of(), BigDecimal.TEN, null);
+        }
+        service.flush();
+
+        assertThat(meterRegistry.counter("cost.logs", "result", "written").count()).isEqualTo(3);
+        assertThat(rollupBatches).hasSize(1);
+        assertThat(rollupBatches.get(0).get(0)[3]).isEqualTo(3L);
+    }
+}
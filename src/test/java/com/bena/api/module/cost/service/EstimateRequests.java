@@ -0,0 +1,60 @@
+package com.bena.api.module.cost.service;
+
+import com.bena.api.module.cost.dto.brick.BrickCostRequest;
+import com.bena.api.module.cost.dto.cement.CementCostRequest;
+import com.bena.api.module.cost.dto.concrete.ConcreteCostRequest;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateRequest;
+import com.bena.api.module.cost.dto.foundation.FoundationCostRequest;
+import com.bena.api.module.cost.dto.steel.SteelCostRequest;
+import com.bena.api.module.cost.dto.tiles.TilesCostRequest;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * طلب تقدير لبيت 200 م² بطابقين: بند واحد لكل صنعة، والكهرباء والسباكة من وصف البناء
+ */
+final class EstimateRequests {
+
+    private EstimateRequests() {
+    }
+
+    static HouseEstimateRequest house() {
+        return HouseEstimateRequest.builder()
+                .title("بيت 200 م² طابقين")
+                .building(HouseEstimateRequest.Building.builder()
+                        .buildingArea(new BigDecimal("200"))
+                        .floors(2)
+                        .build())
+                .foundation(List.of(FoundationCostRequest.builder()
+                        .landArea(new BigDecimal("200"))
+                        .excavationDepth(new BigDecimal("1.2"))
+                        .totalFootingLength(new BigDecimal("90"))
+                        .build()))
+                .concrete(List.of(ConcreteCostRequest.builder()
+                        .concreteType("slab")
+                        .length(new BigDecimal("20"))
+                        .width(new BigDecimal("10"))
+                        .thickness(new BigDecimal("0.2"))
+                        .build()))
+                .steel(List.of(SteelCostRequest.builder()
+                        .calculationMethod("by_volume")
+                        .concreteVolumeM3(new BigDecimal("40"))
+                        .structuralElement("slab")
+                        .build()))
+                .brick(List.of(BrickCostRequest.builder()
+                        .wallArea(new BigDecimal("450"))
+                        .openingsArea(new BigDecimal("60"))
+                        .build()))
+                .cement(List.of(CementCostRequest.builder()
+                        .usageType("plastering")
+                        .area(new BigDecimal("780"))
+                        .build()))
+                .tiles(List.of(TilesCostRequest.builder()
+                        .tileType("ceramic")
+                        .location("floor")
+                        .area(new BigDecimal("360"))
+                        .build()))
+                .build();
+    }
+}
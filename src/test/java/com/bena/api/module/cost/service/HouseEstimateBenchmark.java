@@ -0,0 +1,154 @@
+package com.bena.api.module.cost.service;
+
+import com.bena.api.module.cost.dto.electrical.ElectricalCostRequest;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateRequest;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateResponse;
+import com.bena.api.module.cost.dto.plumbing.PlumbingCostRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * تقدير البيت بطلب واحد (HouseEstimateService) مقابل 8 استدعاءات متتالية للحاسبات نفسها.
+ * الحاسبات حقيقية والأسعار من نسخة في الذاكرة (بدون قاعدة بيانات)، فالفرق هو كلفة التقدير نفسه
+ * (على خيط الطلب أو موزعاً على executor)؛ توفير الـ 7 رحلات HTTP للعميل غير محسوب هنا.
+ * ليس ضمن mvn test (الاسم لا ينتهي بـ Test)، يُشغل يدوياً:
+ * mvn test -Dtest=HouseEstimateBenchmark [-Dbench.estimate.callers=16]
+ */
+class HouseEstimateBenchmark {
+
+    private static final int ITERATIONS = Integer.getInteger("bench.estimate.iterations", 20_000);
+    private static final int CALLERS = Integer.getInteger("bench.estimate.callers", 16);
+
+    private static BrickCostService brick;
+    private static CementCostService cement;
+    private static SteelCostService steel;
+    private static ConcreteCostService concrete;
+    private static FoundationCostService foundation;
+    private static TilesCostService tiles;
+    private static ElectricalCostService electrical;
+    private static PlumbingCostService plumbing;
+    private static HouseEstimateService inline;
+    private static HouseEstimateService pooled;
+
+    @BeforeAll
+    static void setUp() {
+        MaterialPriceService prices = mock(MaterialPriceService.class);
+        when(prices.current()).thenReturn(MaterialPriceSnapshot.EMPTY);
+        brick = new BrickCostService(prices);
+        cement = new CementCostService(prices);
+        steel = new SteelCostService(prices);
+        concrete = new ConcreteCostService(prices);
+        foundation = new FoundationCostService(prices);
+        tiles = new TilesCostService(prices);
+        electrical = new ElectricalCostService(prices);
+        plumbing = new PlumbingCostService(prices);
+        inline = new HouseEstimateService(brick, cement, steel, concrete, foundation, tiles, electrical, plumbing,
+                prices, new SimpleMeterRegistry(), 0, 200, 3000);
+        pooled = new HouseEstimateService(brick, cement, steel, concrete, foundation, tiles, electrical, plumbing,
+                prices, new SimpleMeterRegistry(), 4, 200, 3000);
+    }
+
+    @AfterAll
+    static void tearDown() {
+        pooled.shutdown();
+    }
+
+    @Test
+    void compareParallelEstimateWithSequentialCalls() throws Exception {
+        HouseEstimateRequest request = EstimateRequests.house();
+
+        for (HouseEstimateService service : List.of(inline, pooled)) {
+            HouseEstimateResponse estimate = service.estimate(request);
+            assertThat(estimate.isComplete()).isTrue();
+            assertThat(estimate.getGrandTotal()).isEqualByComparingTo(sequential(request));
+        }
+
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-32s %10s %10s %10s %12s", "mode", "p50", "p95", "p99", "estimates/s"));
+        for (int callers : new int[]{1, CALLERS}) {
+            String suffix = ", " + callers + (callers == 1 ? " caller" : " callers");
+            report.add(row("8 sequential calls" + suffix, measure(() -> sequential(request), callers)));
+            report.add(row("estimate() inline" + suffix, measure(() -> inline.estimate(request).getGrandTotal(), callers)));
+            report.add(row("estimate() 4 threads" + suffix, measure(() -> pooled.estimate(request).getGrandTotal(), callers)));
+        }
+        report.forEach(System.out::println);
+    }
+
+    // ==================== Helpers ====================
+
+    // نفس ما يفعله العميل بدون endpoint التقدير: كل بند بحاسبته بالتتابع
+    private static BigDecimal sequential(HouseEstimateRequest request) {
+        BigDecimal total = BigDecimal.ZERO;
+        total = total.add(foundation.calculate(request.getFoundation().get(0)).getTotalCost());
+        total = total.add(concrete.calculate(request.getConcrete().get(0)).getTotalCost());
+        total = total.add(steel.calculate(request.getSteel().get(0)).getTotalCost());
+        total = total.add(brick.calculate(request.getBrick().get(0)).getTotalCost());
+        total = total.add(cement.calculate(request.getCement().get(0)).getTotalCost());
+        total = total.add(tiles.calculate(request.getTiles().get(0)).getTotalCost());
+        total = total.add(electrical.calculate(ElectricalCostRequest.builder()
+                .calculationType("by_area")
+                .buildingArea(request.getBuilding().getBuildingArea())
+                .floors(request.getBuilding().getFloors())
+                .build()).getTotalCost());
+        total = total.add(plumbing.calculate(PlumbingCostRequest.builder()
+                .calculationType("by_area")
+                .buildingArea(request.getBuilding().getBuildingArea())
+                .floors(request.getBuilding().getFloors())
+                .build()).getTotalCost());
+        return total;
+    }
+
+    // {p50, p95, p99} بالمايكروثانية، والإنتاجية في آخر عنصر
+    private static long[] measure(Supplier<BigDecimal> estimate, int callers) throws Exception {
+        for (int i = 0; i < ITERATIONS / 4; i++) {
+            estimate.get();
+        }
+        int perCaller = ITERATIONS / callers;
+        long[] samples = new long[perCaller * callers];
+        long started = System.nanoTime();
+        try (ExecutorService pool = Executors.newFixedThreadPool(callers)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int c = 0; c < callers; c++) {
+                int offset = c * perCaller;
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < perCaller; i++) {
+                        long itemStart = System.nanoTime();
+                        estimate.get();
+                        samples[offset + i] = (System.nanoTime() - itemStart) / 1_000;
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(5, TimeUnit.MINUTES);
+            }
+        }
+        long elapsedNanos = System.nanoTime() - started;
+        Arrays.sort(samples);
+        return new long[]{
+                samples[samples.length / 2],
+                samples[samples.length * 95 / 100],
+                samples[samples.length * 99 / 100],
+                samples.length * 1_000_000_000L / elapsedNanos
+        };
+    }
+
+    private static String row(String mode, long[] result) {
+        return String.format("%-32s %8d µs %8d µs %8d µs %12d", mode, result[0], result[1], result[2], result[3]);
+    }
+}
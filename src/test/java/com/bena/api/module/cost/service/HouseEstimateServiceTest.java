@@ -0,0 +1,197 @@
+package com.bena.api.module.cost.service;
+
+import com.bena.api.module.cost.dto.brick.BrickCostRequest;
+import com.bena.api.module.cost.dto.brick.BrickCostResponse;
+import com.bena.api.module.cost.dto.cement.CementCostRequest;
+import com.bena.api.module.cost.dto.cement.CementCostResponse;
+import com.bena.api.module.cost.dto.electrical.ElectricalCostRequest;
+import com.bena.api.module.cost.dto.electrical.ElectricalCostResponse;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateRequest;
+import com.bena.api.module.cost.dto.estimate.HouseEstimateResponse;
+import com.bena.api.module.cost.dto.plumbing.PlumbingCostRequest;
+import com.bena.api.module.cost.dto.plumbing.PlumbingCostResponse;
+import com.bena.api.module.cost.dto.steel.SteelCostRequest;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class HouseEstimateServiceTest {
+
+    private final MaterialPriceService prices = mock(MaterialPriceService.class);
+    private final BrickCostService brick = mock(BrickCostService.class);
+    private final CementCostService cement = mock(CementCostService.class);
+    private final ElectricalCostService electrical = mock(ElectricalCostService.class);
+    private final PlumbingCostService plumbing = mock(PlumbingCostService.class);
+
+    private HouseEstimateService service;
+
+    @AfterEach
+    void shutdown() {
+        if (service != null) {
+            service.shutdown();
+        }
+    }
+
+    @Test
+    void timedOutItemIsInterruptedAndQueuedItemsNeverStart() throws Exception {
+        service = service(1, 200);
+        CountDownLatch interrupted = new CountDownLatch(1);
+        when(brick.calculate(any(), any())).thenAnswer(invocation -> {
+            try {
+                Thread.sleep(10_000);
+            } catch (InterruptedException e) {
+                interrupted.countDown();
+                throw e;
+            }
+            return brickResult("1");
+        });
+        AtomicInteger cementCalls = new AtomicInteger();
+        when(cement.calculate(any(), any())).thenAnswer(invocation -> {
+            cementCalls.incrementAndGet();
+            return CementCostResponse.builder().totalCost(BigDecimal.ONE).currency("IQD").build();
+        });
+
+        HouseEstimateResponse response = service.estimate(HouseEstimateRequest.builder()
+                .brick(List.of(BrickCostRequest.builder().wallArea(BigDecimal.TEN).build()))
+                .cement(Collections.nCopies(3, CementCostRequest.builder().usageType("plastering").area(BigDecimal.TEN).build()))
+                .build());
+
+        assertThat(response.isComplete()).isFalse();
+        assertThat(response.getFailedItems()).isEqualTo(4);
+        assertThat(interrupted.await(2, TimeUnit.SECONDS)).isTrue();
+        // البنود التي كانت في الطابور أُلغيت قبل أن تبدأ
+        Thread.sleep(200);
+        assertThat(cementCalls.get()).isZero();
+    }
+
+    @Test
+    void inlineEstimateSkipsItemsAfterDeadline() {
+        service = service(0, 100);
+        when(brick.calculate(any(), any())).thenAnswer(invocation -> {
+            Thread.sleep(300);
+            return brickResult("1");
+        });
+
+        HouseEstimateResponse response = service.estimate(HouseEstimateRequest.builder()
+                .brick(List.of(BrickCostRequest.builder().wallArea(BigDecimal.TEN).build()))
+                .cement(List.of(CementCostRequest.builder().usageType("plastering").area(BigDecimal.TEN).build()))
+                .build());
+
+        assertThat(response.getItems()).extracting(HouseEstimateResponse.EstimateItem::getStatus)
+                .containsExactly("ok", "failed");
+        verify(cement, never()).calculate(any(), any());
+    }
+
+    @Test
+    void steelBarScheduleStopsWhenInterrupted() {
+        SteelCostService steel = new SteelCostService(prices);
+        when(prices.current()).thenReturn(MaterialPriceSnapshot.EMPTY);
+        SteelCostRequest request = SteelCostRequest.builder()
+                .calculationMethod("by_bars")
+                .bars(List.of(SteelCostRequest.SteelBar.builder()
+                        .diameterMm(12).lengthM(BigDecimal.TEN).quantity(10).build()))
+                .build();
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThatThrownBy(() -> steel.calculate(request))
+                    .isInstanceOf(CancellationException.class);
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    @Test
+    void electricalAndPlumbingAreDerivedFromBuildingWhenNotGiven() {
+        service = service(2, 3000);
+        when(electrical.calculate(any(), any())).thenReturn(
+                ElectricalCostResponse.builder().totalCost(new BigDecimal("100")).currency("IQD").build());
+        when(plumbing.calculate(any(), any())).thenReturn(
+                PlumbingCostResponse.builder().totalCost(new BigDecimal("50")).currency("IQD").build());
+
+        HouseEstimateResponse response = service.estimate(HouseEstimateRequest.builder()
+                .building(HouseEstimateRequest.Building.builder().buildingArea(new BigDecimal("150")).floors(2).build())
+                .build());
+
+        ArgumentCaptor<ElectricalCostRequest> electricalRequest = ArgumentCaptor.forClass(ElectricalCostRequest.class);
+        ArgumentCaptor<PlumbingCostRequest> plumbingRequest = ArgumentCaptor.forClass(PlumbingCostRequest.class);
+        verify(electrical).calculate(electricalRequest.capture(), any());
+        verify(plumbing).calculate(plumbingRequest.capture(), any());
+        assertThat(electricalRequest.getValue().getCalculationType()).isEqualTo("by_area");
+        assertThat(electricalRequest.getValue().getBuildingArea()).isEqualByComparingTo("150");
+        assertThat(plumbingRequest.getValue().getFloors()).isEqualTo(2);
+        assertThat(response.getGrandTotal()).isEqualByComparingTo("150");
+        assertThat(response.isComplete()).isTrue();
+    }
+
+    @Test
+    void allItemsUseOnePriceSnapshot() {
+        service = service(2, 3000);
+        MaterialPriceSnapshot first = new MaterialPriceSnapshot("v1", OffsetDateTime.now(), Map.of());
+        MaterialPriceSnapshot second = new MaterialPriceSnapshot("v2", OffsetDateTime.now(), Map.of());
+        // الأسعار تتغير بعد أول قراءة
+        when(prices.current()).thenReturn(first, second);
+        when(brick.calculate(any(), any())).thenReturn(brickResult("1"));
+        when(cement.calculate(any(), any())).thenReturn(
+                CementCostResponse.builder().totalCost(BigDecimal.ONE).currency("IQD").build());
+
+        service.estimate(HouseEstimateRequest.builder()
+                .brick(Collections.nCopies(2, BrickCostRequest.builder().wallArea(BigDecimal.TEN).build()))
+                .cement(List.of(CementCostRequest.builder().usageType("plastering").area(BigDecimal.TEN).build()))
+                .build());
+
+        verify(prices, times(1)).current();
+        verify(brick, times(2)).calculate(any(), same(first));
+        verify(cement).calculate(any(), same(first));
+    }
+
+    @Test
+    void failedItemIsReportedAndLeftOutOfTotals() {
+        service = service(2, 3000);
+        when(brick.calculate(any(), any())).thenReturn(brickResult("1000"));
+        when(cement.calculate(any(), any())).thenThrow(new IllegalArgumentException("المساحة مطلوبة"));
+
+        HouseEstimateResponse response = service.estimate(HouseEstimateRequest.builder()
+                .brick(List.of(BrickCostRequest.builder().wallArea(BigDecimal.TEN).build()))
+                .cement(List.of(CementCostRequest.builder().usageType("plastering").build()))
+                .build());
+
+        assertThat(response.getGrandTotal()).isEqualByComparingTo("1000");
+        assertThat(response.isComplete()).isFalse();
+        assertThat(response.getItems()).extracting(HouseEstimateResponse.EstimateItem::getError)
+                .containsExactly(null, "المساحة مطلوبة");
+    }
+
+    // ==================== Helpers ====================
+
+    private HouseEstimateService service(int threads, long timeoutMs) {
+        return new HouseEstimateService(brick, cement, mock(SteelCostService.class), mock(ConcreteCostService.class),
+                mock(FoundationCostService.class), mock(TilesCostService.class), electrical, plumbing,
+                prices, new SimpleMeterRegistry(), threads, 10, timeoutMs);
+    }
+
+    private static BrickCostResponse brickResult(String total) {
+        return BrickCostResponse.builder().totalCost(new BigDecimal(total)).currency("IQD").build();
+    }
+}
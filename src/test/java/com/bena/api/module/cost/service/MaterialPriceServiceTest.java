@@ -0,0 +1,93 @@
+package com.bena.api.module.cost.service;
+
+import com.bena.api.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * نسخة الأسعار مقابل PostgreSQL حقيقي: السعر الساري للمنطقة، والتحديث عند تعديل سعر قائم أو حذفه.
+ * كل اختبار يستخدم منطقة خاصة به حتى لا تتأثر الاختبارات الأخرى بأسعاره.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class MaterialPriceServiceTest {
+
+    private static JdbcTemplate jdbc;
+
+    private final String region = "test-" + UUID.randomUUID().toString().substring(0, 8);
+    private MaterialPriceService service;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        jdbc = new JdbcTemplate(PostgresTestSupport.dataSource());
+    }
+
+    @BeforeEach
+    void setUp() {
+        service = new MaterialPriceService(jdbc, region);
+    }
+
+    @Test
+    void usesLatestEffectivePriceOfTheRegionOrTheDefault() {
+        insertPrice("SAND", "30000", "CURRENT_DATE - 10");
+        insertPrice("SAND", "32000", "CURRENT_DATE - 1");
+        // لم يحن تاريخه بعد
+        insertPrice("SAND", "99000", "CURRENT_DATE + 5");
+
+        MaterialPriceSnapshot snapshot = service.current();
+
+        assertThat(snapshot.price("SAND", null)).isEqualByComparingTo("32000");
+        assertThat(snapshot.price("GRAVEL", null)).isEqualByComparingTo("35000");
+        assertThat(snapshot.find("BRICK_STANDARD").orElseThrow().specifications()).containsEntry("bricks_per_m2", 130);
+    }
+
+    @Test
+    void editingAnExistingPriceInPlaceIsPickedUp() {
+        UUID id = insertPrice("SAND", "30000", "CURRENT_DATE - 1");
+        MaterialPriceSnapshot before = service.current();
+
+        // نفس عدد الصفوف ونفس created_at
+        jdbc.update("UPDATE material_prices SET price = 41000 WHERE id = ?", id);
+        service.refreshIfChanged();
+
+        assertThat(service.current().price("SAND", null)).isEqualByComparingTo("41000");
+        assertThat(service.current().version()).isNotEqualTo(before.version());
+    }
+
+    @Test
+    void deletingAPriceFallsBackToTheMaterialDefault() {
+        UUID id = insertPrice("SAND", "30000", "CURRENT_DATE - 1");
+        assertThat(service.current().price("SAND", null)).isEqualByComparingTo("30000");
+
+        jdbc.update("DELETE FROM material_prices WHERE id = ?", id);
+        service.refreshIfChanged();
+
+        assertThat(service.current().price("SAND", null)).isEqualByComparingTo("25000");
+    }
+
+    @Test
+    void unchangedPricesKeepTheSameSnapshot() {
+        MaterialPriceSnapshot before = service.current();
+
+        service.refreshIfChanged();
+
+        assertThat(service.current()).isSameAs(before);
+    }
+
+    // ==================== Helpers ====================
+
+    private UUID insertPrice(String code, String price, String effectiveDate) {
+        return jdbc.queryForObject("""
+                INSERT INTO material_prices (material_id, price, region, effective_date)
+                SELECT id, ?, ?, %s FROM materials WHERE code = ?
+                RETURNING id
+                """.formatted(effectiveDate), UUID.class, new BigDecimal(price), region, code);
+    }
+}
@@ -0,0 +1,108 @@
+package com.bena.api.module.cost.service;
+
+import com.bena.api.config.cache.CacheRegions;
+import com.bena.api.module.cost.dto.material.MaterialResponse;
+import com.bena.api.module.cost.entity.Material;
+import com.bena.api.module.cost.repository.MaterialRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * كاش المواد على مستوى الخدمة عبر proxy الكاش الحقيقي: يُخزن MaterialResponse وليس الكيان.
+ */
+class MaterialServiceTest {
+
+    private final MaterialRepository materialRepository = mock(MaterialRepository.class);
+    private AnnotationConfigApplicationContext context;
+    private MaterialService materialService;
+
+    @Configuration
+    @EnableCaching
+    static class CachingConfig {
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager(CacheRegions.MATERIALS);
+        }
+    }
+
+    @BeforeEach
+    void setUp() {
+        context = new AnnotationConfigApplicationContext();
+        context.register(CachingConfig.class);
+        context.registerBean(MaterialRepository.class, () -> materialRepository);
+        context.registerBean(MaterialService.class);
+        context.refresh();
+        materialService = context.getBean(MaterialService.class);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+    }
+
+    @Test
+    void cachedMaterialIsADetachedCopyOfTheEntity() {
+        Material material = material("CEM-01", new BigDecimal("9500"));
+        when(materialRepository.findByCode("CEM-01")).thenReturn(Optional.of(material));
+
+        MaterialResponse first = materialService.getByCode("CEM-01").orElseThrow();
+        // تعديل الكيان (كما يفعل Hibernate في جلسة أخرى) لا يصل للنسخة المخزنة
+        material.setDefaultPrice(BigDecimal.ONE);
+        material.getSpecifications().put("grade", "changed");
+        MaterialResponse second = materialService.getByCode("CEM-01").orElseThrow();
+
+        verify(materialRepository, times(1)).findByCode("CEM-01");
+        assertThat(second).isSameAs(first);
+        assertThat(second.getDefaultPrice()).isEqualByComparingTo("9500");
+        assertThat(second.getSpecifications()).containsEntry("grade", "42.5");
+        assertThatThrownBy(() -> second.getSpecifications().put("grade", "x"))
+                .isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void categoryListsAreCachedUnmodifiable() {
+        when(materialRepository.findActiveByCategoryOrderByNameAr("cement"))
+                .thenReturn(List.of(material("CEM-01", BigDecimal.TEN)));
+
+        List<MaterialResponse> materials = materialService.getActiveByCategory("cement");
+        materialService.getActiveByCategory("cement");
+
+        verify(materialRepository, times(1)).findActiveByCategoryOrderByNameAr("cement");
+        assertThatThrownBy(materials::clear).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    private static Material material(String code, BigDecimal price) {
+        Map<String, Object> specifications = new HashMap<>();
+        specifications.put("grade", "42.5");
+        return Material.builder()
+                .id(UUID.randomUUID())
+                .code(code)
+                .nameAr("سمنت")
+                .category("cement")
+                .unit("طن")
+                .defaultPrice(price)
+                .specifications(specifications)
+                .build();
+    }
+}
@@ -0,0 +1,95 @@
+package com.bena.api.module.ebook.service;
+
+import com.bena.api.module.ebook.entity.Ebook;
+import com.bena.api.module.ebook.repository.EbookPurchaseRepository;
+import com.bena.api.module.ebook.repository.EbookRepository;
+import com.bena.api.module.user.entity.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * إبطال الصلاحيات بعد الـ commit فقط: داخل المعاملة يبقى الكاش حتى afterCommit، والـ rollback لا يمسه.
+ */
+class EbookEntitlementCacheTest {
+
+    private final EbookRepository ebookRepository = mock(EbookRepository.class);
+    private final EbookPurchaseRepository purchaseRepository = mock(EbookPurchaseRepository.class);
+    private final EbookEntitlementCache cache = new EbookEntitlementCache(
+            ebookRepository, purchaseRepository, new SimpleMeterRegistry(), 100, 600);
+
+    private final UUID ebookId = UUID.randomUUID();
+    private final UUID buyerId = UUID.randomUUID();
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void evictionInsideATransactionWaitsForCommit() {
+        givenPurchasedEbook("books/a.pdf");
+        cache.require(buyerId, ebookId);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evictEbook(ebookId);
+        // قبل الـ commit: الصف القديم ما زال مرئياً، والكاش كذلك
+        cache.require(buyerId, ebookId);
+        verify(ebookRepository, times(1)).findById(ebookId);
+
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCommit();
+        }
+        cache.require(buyerId, ebookId);
+        verify(ebookRepository, times(2)).findById(ebookId);
+    }
+
+    @Test
+    void rolledBackDeleteKeepsTheCache() {
+        givenPurchasedEbook("books/a.pdf");
+        cache.require(buyerId, ebookId);
+
+        TransactionSynchronizationManager.initSynchronization();
+        cache.evictEbook(ebookId);
+        for (TransactionSynchronization synchronization : TransactionSynchronizationManager.getSynchronizations()) {
+            synchronization.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK);
+        }
+
+        assertThat(cache.require(buyerId, ebookId).pdfPath()).isEqualTo("books/a.pdf");
+        verify(ebookRepository, times(1)).findById(ebookId);
+    }
+
+    @Test
+    void evictionOutsideATransactionIsImmediate() {
+        givenPurchasedEbook("books/a.pdf");
+        cache.require(buyerId, ebookId);
+
+        cache.evictEbook(ebookId);
+        cache.require(buyerId, ebookId);
+
+        verify(ebookRepository, times(2)).findById(ebookId);
+    }
+
+    private void givenPurchasedEbook(String pdfPath) {
+        Ebook ebook = Ebook.builder()
+                .id(ebookId)
+                .publisher(User.builder().id(UUID.randomUUID()).build())
+                .pdfPath(pdfPath)
+                .build();
+        when(ebookRepository.findById(ebookId)).thenReturn(Optional.of(ebook));
+        when(purchaseRepository.existsByUserIdAndEbookId(buyerId, ebookId)).thenReturn(true);
+    }
+}
@@ -0,0 +1,121 @@
+package com.bena.api.module.ebook.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * تحليل Range وبث الـ PDF: المدى المغلق والمفتوح واللاحق، رفض المدى المتعدد، 416، If-Range و 304، وتسليم sendfile.
+ */
+class EbookPdfStreamerTest {
+
+    private final EbookPdfStreamer streamer = new EbookPdfStreamer();
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void parsesClosedOpenEndedAndSuffixRanges() {
+        assertThat(EbookPdfStreamer.parseRange("bytes=0-99", 1000)).containsExactly(0, 99);
+        // النهاية بعد حجم الملف تُقص
+        assertThat(EbookPdfStreamer.parseRange("bytes=900-5000", 1000)).containsExactly(900, 999);
+        assertThat(EbookPdfStreamer.parseRange("bytes=500-", 1000)).containsExactly(500, 999);
+        assertThat(EbookPdfStreamer.parseRange("bytes=-100", 1000)).containsExactly(900, 999);
+        // آخر n أكبر من الملف = الملف كله
+        assertThat(EbookPdfStreamer.parseRange("bytes=-5000", 1000)).containsExactly(0, 999);
+    }
+
+    @Test
+    void multipleOrInvalidRangesAreIgnored() {
+        assertThat(EbookPdfStreamer.parseRange("bytes=0-99,200-299", 1000)).isNull();
+        assertThat(EbookPdfStreamer.parseRange("bytes=99-0", 1000)).isNull();
+        assertThat(EbookPdfStreamer.parseRange("bytes=abc-", 1000)).isNull();
+        assertThat(EbookPdfStreamer.parseRange("items=0-99", 1000)).isNull();
+        assertThat(EbookPdfStreamer.parseRange("bytes=100", 1000)).isNull();
+    }
+
+    @Test
+    void rangesOutsideTheFileAreUnsatisfiable() {
+        assertThat(EbookPdfStreamer.parseRange("bytes=1000-", 1000)).isSameAs(EbookPdfStreamer.UNSATISFIABLE);
+        assertThat(EbookPdfStreamer.parseRange("bytes=2000-3000", 1000)).isSameAs(EbookPdfStreamer.UNSATISFIABLE);
+        assertThat(EbookPdfStreamer.parseRange("bytes=-0", 1000)).isSameAs(EbookPdfStreamer.UNSATISFIABLE);
+    }
+
+    @Test
+    void servesPartialContentAnd416() throws Exception {
+        byte[] content = pdf(1000);
+        Path file = Files.write(dir.resolve("book.pdf"), content);
+
+        MockHttpServletResponse partial = get(file, "bytes=-100", null);
+        assertThat(partial.getStatus()).isEqualTo(206);
+        assertThat(partial.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 900-999/1000");
+        assertThat(partial.getContentAsByteArray()).isEqualTo(Arrays.copyOfRange(content, 900, 1000));
+
+        MockHttpServletResponse unsatisfiable = get(file, "bytes=5000-", null);
+        assertThat(unsatisfiable.getStatus()).isEqualTo(416);
+        assertThat(unsatisfiable.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */1000");
+    }
+
+    @Test
+    void staleIfRangeSendsTheWholeFileAndMatchingEtagIs304() throws Exception {
+        byte[] content = pdf(1000);
+        Path file = Files.write(dir.resolve("book.pdf"), content);
+
+        MockHttpServletResponse whole = get(file, "bytes=0-99", "\"other\"");
+        assertThat(whole.getStatus()).isEqualTo(200);
+        assertThat(whole.getContentAsByteArray()).isEqualTo(content);
+
+        MockHttpServletRequest conditional = new MockHttpServletRequest("GET", "/ebooks/1/pdf");
+        conditional.addHeader(HttpHeaders.IF_NONE_MATCH, whole.getHeader(HttpHeaders.ETAG));
+        MockHttpServletResponse notModified = new MockHttpServletResponse();
+        streamer.stream(file, "book.pdf", conditional, notModified);
+        assertThat(notModified.getStatus()).isEqualTo(304);
+        assertThat(notModified.getContentAsByteArray()).isEmpty();
+    }
+
+    @Test
+    void largeRangesAreHandedToSendfileWhenSupported() throws Exception {
+        Path file = Files.write(dir.resolve("book.pdf"), pdf(200_000));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ebooks/1/pdf");
+        request.setAttribute("org.apache.tomcat.sendfile.support", Boolean.TRUE);
+        request.addHeader(HttpHeaders.RANGE, "bytes=100000-");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        streamer.stream(file, "book.pdf", request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.start")).isEqualTo(100_000L);
+        assertThat(request.getAttribute("org.apache.tomcat.sendfile.end")).isEqualTo(200_000L);
+        assertThat(response.getContentAsByteArray()).isEmpty();
+    }
+
+    // ==================== Helpers ====================
+
+    private MockHttpServletResponse get(Path file, String range, String ifRange) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ebooks/1/pdf");
+        request.addHeader(HttpHeaders.RANGE, range);
+        if (ifRange != null) {
+            request.addHeader(HttpHeaders.IF_RANGE, ifRange);
+        }
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        streamer.stream(file, "book.pdf", request, response);
+        return response;
+    }
+
+    private static byte[] pdf(int size) {
+        byte[] bytes = new byte[size];
+        for (int i = 0; i < size; i++) {
+            bytes[i] = (byte) (i * 31);
+        }
+        System.arraycopy("%PDF-1.7".getBytes(), 0, bytes, 0, 8);
+        return bytes;
+    }
+}
@@ -0,0 +1,227 @@
+package com.bena.api.module.fcm.service;
+
+import com.google.firebase.messaging.FirebaseMessagingException;
+import com.google.firebase.messaging.Message;
+import com.google.firebase.messaging.MessagingErrorCode;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * FcmPushDispatcher مقابل FcmClient وهمي: يسجل كل دفعة sendEach ويرد بنتائج مبرمجة لكل توكن.
+ */
+class FcmPushDispatcherTest {
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final FcmTokenService fcmTokenService = mock(FcmTokenService.class);
+    private final StubFcmClient fcmClient = new StubFcmClient();
+    private final Map<UUID, List<String>> tokens = new HashMap<>();
+
+    private FcmPushDispatcher dispatcher;
+
+    @AfterEach
+    void stop() {
+        if (dispatcher != null) {
+            dispatcher.stop();
+        }
+    }
+
+    @Test
+    void sendsInBatchesOfAtMost500WithOneTokenLookupPerBatch() {
+        dispatcher = dispatcher(4);
+        List<UUID> users = new ArrayList<>();
+        for (int i = 0; i < 1200; i++) {
+            users.add(user("token-" + i));
+        }
+        // تُجمع قبل بدء الـ worker حتى تكون الدفعات ممتلئة
+        users.forEach(userId -> dispatcher.enqueue(notification(userId, "chat-1", "مرحبا")));
+        dispatcher.start();
+
+        awaitCount("sent", 1200);
+        assertThat(fcmClient.batches).extracting(List::size).containsExactly(500, 500, 200);
+        verify(fcmTokenService, times(3)).getActiveTokens(anyCollection());
+    }
+
+    @Test
+    void notificationsForSameChatAreCoalesced() {
+        dispatcher = dispatcher(4);
+        UUID userId = user("token-a");
+        dispatcher.enqueue(notification(userId, "chat-1", "الأولى"));
+        dispatcher.enqueue(notification(userId, "chat-1", "الثانية"));
+        dispatcher.enqueue(notification(userId, "chat-2", "محادثة أخرى"));
+        dispatcher.start();
+
+        awaitCount("sent", 2);
+        assertThat(fcmClient.sentTokens).containsExactly("token-a", "token-a");
+        assertThat(count("coalesced")).isEqualTo(1);
+    }
+
+    @Test
+    void notificationsWithoutCollapseKeyAreAllDelivered() {
+        dispatcher = dispatcher(4);
+        UUID userId = user("token-a");
+        dispatcher.enqueue(notification(userId, null, "الأولى"));
+        dispatcher.enqueue(notification(userId, null, "الثانية"));
+        dispatcher.start();
+
+        awaitCount("sent", 2);
+        assertThat(count("enqueued")).isEqualTo(2);
+        assertThat(count("coalesced")).isZero();
+    }
+
+    @Test
+    void invalidTokensAreDeactivatedInOneCall() {
+        dispatcher = dispatcher(4);
+        UUID userId = user("token-ok", "token-gone", "token-bad");
+        fcmClient.script("token-gone", MessagingErrorCode.UNREGISTERED);
+        fcmClient.script("token-bad", MessagingErrorCode.INVALID_ARGUMENT);
+        dispatcher.start();
+        dispatcher.enqueue(notification(userId, "chat-1", "مرحبا"));
+
+        // العداد يزيد قبل استدعاء markTokensAsInvalid، لذا ننتظر الاستدعاء نفسه
+        verify(fcmTokenService, timeout(5000)).markTokensAsInvalid(Set.of("token-gone", "token-bad"));
+        assertThat(count("invalid_token")).isEqualTo(2);
+        assertThat(count("sent")).isEqualTo(1);
+        assertThat(count("retried")).isZero();
+    }
+
+    @Test
+    void retryableErrorsAreRetriedUntilTheySucceed() {
+        dispatcher = dispatcher(4);
+        UUID userId = user("token-flaky");
+        fcmClient.script("token-flaky", MessagingErrorCode.UNAVAILABLE, MessagingErrorCode.QUOTA_EXCEEDED);
+        dispatcher.start();
+        dispatcher.enqueue(notification(userId, "chat-1", "مرحبا"));
+
+        awaitCount("sent", 1);
+        assertThat(fcmClient.sentTokens).containsExactly("token-flaky", "token-flaky", "token-flaky");
+        assertThat(count("retried")).isEqualTo(2);
+        assertThat(count("failed")).isZero();
+    }
+
+    @Test
+    void givesUpAfterMaxAttemptsAndRetriesWholeBatchOnTransportError() {
+        dispatcher = dispatcher(3);
+        UUID down = user("token-down");
+        fcmClient.script("token-down", MessagingErrorCode.INTERNAL, MessagingErrorCode.INTERNAL,
+                MessagingErrorCode.INTERNAL, MessagingErrorCode.INTERNAL);
+        fcmClient.failNextCalls = 1;
+        UUID other = user("token-other");
+        dispatcher.enqueue(notification(down, "chat-1", "مرحبا"));
+        dispatcher.enqueue(notification(other, "chat-1", "مرحبا"));
+        dispatcher.start();
+
+        awaitCount("failed", 1);
+        awaitCount("sent", 1);
+        // المحاولة الأولى فشلت كدفعة كاملة، ثم token-down حتى الحد (3 محاولات)
+        assertThat(fcmClient.sentTokens.stream().filter("token-down"::equals)).hasSize(3);
+        assertThat(fcmClient.sentTokens.stream().filter("token-other"::equals)).hasSize(2);
+    }
+
+    // ==================== Helpers ====================
+
+    private FcmPushDispatcher dispatcher(int maxAttempts) {
+        when(fcmTokenService.getActiveTokens(anyCollection())).thenAnswer(invocation -> {
+            Map<UUID, List<String>> result = new HashMap<>();
+            for (Object userId : invocation.getArgument(0, Collection.class)) {
+                result.put((UUID) userId, tokens.getOrDefault(userId, List.of()));
+            }
+            return result;
+        });
+        return new FcmPushDispatcher(fcmClient, fcmTokenService, meterRegistry, 10_000, 20, maxAttempts, 10);
+    }
+
+    private UUID user(String... userTokens) {
+        UUID userId = UUID.randomUUID();
+        tokens.put(userId, List.of(userTokens));
+        return userId;
+    }
+
+    private static PushNotification notification(UUID userId, String collapseKey, String body) {
+        return new PushNotification(userId, collapseKey, "رسالة جديدة", body, Map.of("type", "chat"));
+    }
+
+    private double count(String result) {
+        return meterRegistry.counter("fcm.push", "result", result).count();
+    }
+
+    private void awaitCount(String result, int expected) {
+        await(() -> count(result) >= expected);
+        assertThat(count(result)).isEqualTo(expected);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            if (System.currentTimeMillis() > deadline) {
+                throw new AssertionError("condition not met within 5s");
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AssertionError(e);
+            }
+        }
+    }
+
+    /**
+     * يرد بالنجاح ما لم يكن للتوكن أخطاء مبرمجة (تُستهلك بالترتيب، خطأ لكل محاولة)
+     */
+    private static class StubFcmClient implements FcmClient {
+
+        final List<List<String>> batches = new CopyOnWriteArrayList<>();
+        final List<String> sentTokens = new CopyOnWriteArrayList<>();
+        final Map<String, Deque<MessagingErrorCode>> errors = new ConcurrentHashMap<>();
+        volatile int failNextCalls;
+
+        void script(String token, MessagingErrorCode... codes) {
+            errors.put(token, new ArrayDeque<>(List.of(codes)));
+        }
+
+        @Override
+        public List<SendResult> sendEach(List<Message> messages) throws FirebaseMessagingException {
+            List<String> batch = new ArrayList<>();
+            for (Message message : messages) {
+                batch.add((String) ReflectionTestUtils.getField(message, "token"));
+            }
+            batches.add(batch);
+            sentTokens.addAll(batch);
+
+            if (failNextCalls > 0) {
+                failNextCalls--;
+                throw new IllegalStateException("connection reset");
+            }
+
+            List<SendResult> results = new ArrayList<>();
+            for (String token : batch) {
+                Deque<MessagingErrorCode> scripted = errors.get(token);
+                MessagingErrorCode code = scripted != null ? scripted.poll() : null;
+                results.add(code != null ? SendResult.failed(code) : SendResult.ok("msg-" + token));
+            }
+            return results;
+        }
+    }
+}
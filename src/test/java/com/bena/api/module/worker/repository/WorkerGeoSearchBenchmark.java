@@ -0,0 +1,139 @@
+package com.bena.api.module.worker.repository;
+
+import com.bena.api.module.worker.service.GeoGrid;
+import com.bena.api.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * مقارنة البحث عن العمال القريبين على مليون عامل: مسح Haversine لكل الجدول مقابل خلايا geo_cell (V98).
+ * ليس ضمن mvn test (الاسم لا ينتهي بـ Test)، يُشغل يدوياً مع Docker:
+ * mvn test -Dtest=WorkerGeoSearchBenchmark -Dbench.workers.rows=1000000
+ * الاستعلامات المكانية هنا نفس استعلامات WorkerRepository (صفحة 20 + count).
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class WorkerGeoSearchBenchmark {
+
+    private static final int ROWS = Integer.getInteger("bench.workers.rows", 1_000_000);
+    private static final int ITERATIONS = Integer.getInteger("bench.workers.iterations", 20);
+    private static final int LOAD_CHUNK = 100_000;
+    private static final int PAGE_SIZE = 20;
+
+    // بغداد
+    private static final double LATITUDE = 33.3152;
+    private static final double LONGITUDE = 44.3661;
+
+    private static final String FULL_SCAN_SQL = "SELECT w.id " + WorkerRepository.VISIBLE_FROM +
+            "AND w.latitude IS NOT NULL AND " + WorkerRepository.DISTANCE_KM + " <= :distanceKm " +
+            "ORDER BY " + WorkerRepository.DISTANCE_KM + " ASC, w.id ASC LIMIT " + PAGE_SIZE;
+    private static final String FULL_SCAN_COUNT_SQL = "SELECT COUNT(*) " + WorkerRepository.VISIBLE_FROM +
+            "AND w.latitude IS NOT NULL AND " + WorkerRepository.DISTANCE_KM + " <= :distanceKm";
+    private static final String GEO_PAGE_SQL = WorkerRepository.SEARCH_NEAR_SQL + " LIMIT " + PAGE_SIZE;
+
+    private static NamedParameterJdbcTemplate jdbc;
+
+    @BeforeAll
+    static void load() {
+        jdbc = new NamedParameterJdbcTemplate(PostgresTestSupport.dataSource());
+
+        // العراق تقريباً: عرض 29..37، طول 39..48. عامل من كل 20 غير نشط، ومستخدم من كل 10 لم يكمل ملفه
+        String insert = "WITH u AS (" +
+                "INSERT INTO users (email, password_hash, full_name, profile_completed) " +
+                "SELECT :prefix || '-' || g || '@bench.local', 'x', 'worker ' || g, g % 10 <> 0 " +
+                "FROM generate_series(:from, :to) g RETURNING id) " +
+                "INSERT INTO workers (name, category, user_id, is_active, average_rating, latitude, longitude) " +
+                "SELECT 'bench worker', (ARRAY['MASON','PLUMBER','ELECTRICIAN','PAINTER'])[1 + floor(random() * 4)::int], " +
+                "id, random() > 0.05, random() * 5, 29 + random() * 8, 39 + random() * 9 FROM u";
+        String prefix = UUID.randomUUID().toString();
+
+        long started = System.nanoTime();
+        for (int chunk = 1; chunk <= ROWS; chunk += LOAD_CHUNK) {
+            jdbc.update(insert, Map.of("prefix", prefix, "from", chunk, "to", Math.min(ROWS, chunk + LOAD_CHUNK - 1)));
+        }
+        jdbc.getJdbcTemplate().execute("VACUUM ANALYZE workers");
+        jdbc.getJdbcTemplate().execute("VACUUM ANALYZE users");
+        System.out.printf("Loaded %,d workers in %,d ms%n", ROWS, (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @Test
+    void compareFullScanWithGeoCells() {
+        List<String> report = new ArrayList<>();
+        report.add(String.format("%-8s %12s %12s %12s %12s", "radius", "scan p50", "scan p95", "geo p50", "geo p95"));
+
+        for (double distanceKm : List.of(2.0, 10.0, 50.0)) {
+            Map<String, Object> params = params(distanceKm);
+
+            long[] scan = measure(() -> {
+                jdbc.queryForList(FULL_SCAN_SQL, params, Long.class);
+                return jdbc.queryForObject(FULL_SCAN_COUNT_SQL, params, Long.class);
+            });
+            long[] geo = measure(() -> {
+                jdbc.query(GEO_PAGE_SQL, params, (rs, i) -> rs.getLong("id"));
+                return jdbc.queryForObject(WorkerRepository.SEARCH_NEAR_COUNT_SQL, params, Long.class);
+            });
+            report.add(String.format("%-8s %9.1f ms %9.1f ms %9.1f ms %9.1f ms", distanceKm + " km",
+                    scan[0] / 1000.0, scan[1] / 1000.0, geo[0] / 1000.0, geo[1] / 1000.0));
+
+            // نفس النتائج وبنفس الترتيب
+            List<Long> expected = jdbc.queryForList(FULL_SCAN_SQL, params, Long.class);
+            assertThat(jdbc.query(GEO_PAGE_SQL, params, (rs, i) -> rs.getLong("id"))).isEqualTo(expected);
+            assertThat(jdbc.queryForObject(WorkerRepository.SEARCH_NEAR_COUNT_SQL, params, Long.class))
+                    .isEqualTo(jdbc.queryForObject(FULL_SCAN_COUNT_SQL, params, Long.class));
+        }
+        report.forEach(System.out::println);
+
+        String plan = String.join("\n", jdbc.queryForList("EXPLAIN " + GEO_PAGE_SQL, params(10.0), String.class));
+        System.out.println(plan);
+        assertThat(plan).contains("idx_workers_geo_cell_active");
+    }
+
+    // ==================== Helpers ====================
+
+    private static Map<String, Object> params(double distanceKm) {
+        GeoGrid.BoundingBox box = GeoGrid.boundingBox(LATITUDE, LONGITUDE, distanceKm);
+        List<Integer> cells = GeoGrid.coveringCells(box);
+        Map<String, Object> params = new HashMap<>();
+        for (String name : List.of("name", "category", "city", "area", "minRating", "maxPricePerMeter",
+                "maxPricePerDay", "featuredOnly", "worksAtNight", "maxCompletionDays", "sortKey")) {
+            params.put(name, null);
+        }
+        params.put("sortDesc", false);
+        params.put("latitude", LATITUDE);
+        params.put("longitude", LONGITUDE);
+        params.put("distanceKm", distanceKm);
+        params.put("minLat", box.minLat());
+        params.put("maxLat", box.maxLat());
+        params.put("minLon", box.minLon());
+        params.put("maxLon", box.maxLon());
+        params.put("useCells", !cells.isEmpty());
+        params.put("cells", cells.isEmpty() ? List.of(-1) : cells);
+        return params;
+    }
+
+    // {p50, p95} بالمايكروثانية بعد الإحماء
+    private static long[] measure(Supplier<Long> search) {
+        for (int i = 0; i < 3; i++) {
+            search.get();
+        }
+        long[] samples = new long[ITERATIONS];
+        for (int i = 0; i < ITERATIONS; i++) {
+            long started = System.nanoTime();
+            search.get();
+            samples[i] = (System.nanoTime() - started) / 1_000;
+        }
+        Arrays.sort(samples);
+        return new long[]{samples[ITERATIONS / 2], samples[Math.min(ITERATIONS - 1, ITERATIONS * 95 / 100)]};
+    }
+}
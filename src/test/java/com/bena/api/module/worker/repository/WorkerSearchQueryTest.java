@@ -0,0 +1,152 @@
+package com.bena.api.module.worker.repository;
+
+import com.bena.api.module.worker.service.GeoGrid;
+import com.bena.api.support.PostgresTestSupport;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * استعلامات البحث المتقدم في WorkerRepository مقابل PostgreSQL حقيقي: ترتيب العميل، والترتيب الثابت
+ * (المسافة ثم المعرف، أو المعرف) عند غيابه حتى لا تتكرر النتائج بين الصفحات.
+ * كل اختبار يبحث باسم فريد (فلتر name) وفي موقع خاص به، فلا يرى عمال الاختبارات الأخرى.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class WorkerSearchQueryTest {
+
+    // 0.01 درجة طول عند خط الاستواء ≈ 1.11 كم
+    private static final double STEP = 0.01;
+
+    private static NamedParameterJdbcTemplate jdbc;
+
+    private final String prefix = "ws-" + UUID.randomUUID().toString().substring(0, 8);
+    private final double latitude = 0.5;
+    private final double longitude = 100 + Math.abs(prefix.hashCode() % 500) / 10.0;
+
+    @BeforeAll
+    static void setUpDatabase() {
+        jdbc = new NamedParameterJdbcTemplate(PostgresTestSupport.dataSource());
+    }
+
+    @Test
+    void nearbyWithoutSortIsOrderedByDistanceThenId() {
+        long far = worker(3, 4.0, null);
+        long nearA = worker(1, 2.0, null);
+        long nearB = worker(1, 5.0, null);
+        long middle = worker(2, 3.0, null);
+
+        assertThat(near(null, false, 0, 10)).containsExactly(nearA, nearB, middle, far);
+    }
+
+    @Test
+    void nearbyHonorsTheClientSortThenDistance() {
+        long farBest = worker(3, 5.0, null);
+        long nearGood = worker(1, 4.0, null);
+        long middleGood = worker(2, 4.0, null);
+        long nearWorst = worker(1, 1.0, null);
+
+        assertThat(near("averageRating", true, 0, 10)).containsExactly(farBest, nearGood, middleGood, nearWorst);
+        assertThat(near("distance", true, 0, 10)).containsExactly(farBest, middleGood, nearGood, nearWorst);
+    }
+
+    @Test
+    void searchWithoutSortPagesInIdOrderWithoutOverlap() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            ids.add(worker(i, 4.0, null));
+        }
+
+        List<Long> pages = new ArrayList<>(search(null, false, 0, 2));
+        pages.addAll(search(null, false, 2, 2));
+        pages.addAll(search(null, false, 4, 2));
+
+        assertThat(pages).containsExactlyElementsOf(ids);
+    }
+
+    @Test
+    void missingValuesSortLastInBothDirections() {
+        long cheap = worker(1, 4.0, "50000");
+        long unknown = worker(2, 4.0, null);
+        long expensive = worker(3, 4.0, "90000");
+
+        assertThat(search("pricePerDay", false, 0, 10)).containsExactly(cheap, expensive, unknown);
+        assertThat(search("pricePerDay", true, 0, 10)).containsExactly(expensive, cheap, unknown);
+    }
+
+    @Test
+    void countQueriesMatchTheFilters() {
+        worker(1, 4.0, null);
+        worker(2, 4.0, null);
+        // خارج نصف القطر
+        worker(40, 4.0, null);
+
+        assertThat(jdbc.queryForObject(WorkerRepository.SEARCH_COUNT_SQL, params(null, false), Long.class)).isEqualTo(3);
+        assertThat(jdbc.queryForObject(WorkerRepository.SEARCH_NEAR_COUNT_SQL, nearParams(null, false), Long.class)).isEqualTo(2);
+    }
+
+    // ==================== Helpers ====================
+
+    private long worker(int steps, double rating, String pricePerDay) {
+        UUID userId = jdbc.getJdbcTemplate().queryForObject(
+                "INSERT INTO users (email, password_hash, full_name, profile_completed) VALUES (?, 'x', 'worker', TRUE) RETURNING id",
+                UUID.class, prefix + "-" + UUID.randomUUID() + "@test.local");
+        return jdbc.getJdbcTemplate().queryForObject(
+                "INSERT INTO workers (name, category, user_id, is_active, average_rating, price_per_day, latitude, longitude) " +
+                        "VALUES (?, 'MASON', ?, TRUE, ?, ?, ?, ?) RETURNING id",
+                Long.class, prefix + " worker", userId, rating, pricePerDay != null ? new BigDecimal(pricePerDay) : null,
+                latitude, longitude + steps * STEP);
+    }
+
+    private List<Long> search(String sortKey, boolean sortDesc, int offset, int limit) {
+        Map<String, Object> params = params(sortKey, sortDesc);
+        params.put("offset", offset);
+        params.put("limit", limit);
+        return jdbc.query(WorkerRepository.SEARCH_SQL + " LIMIT :limit OFFSET :offset", params, (rs, i) -> rs.getLong("id"));
+    }
+
+    private List<Long> near(String sortKey, boolean sortDesc, int offset, int limit) {
+        Map<String, Object> params = nearParams(sortKey, sortDesc);
+        params.put("offset", offset);
+        params.put("limit", limit);
+        return jdbc.query(WorkerRepository.SEARCH_NEAR_SQL + " LIMIT :limit OFFSET :offset", params, (rs, i) -> rs.getLong("id"));
+    }
+
+    private Map<String, Object> params(String sortKey, boolean sortDesc) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("name", prefix);
+        for (String name : List.of("category", "city", "area", "minRating", "maxPricePerMeter", "maxPricePerDay",
+                "featuredOnly", "worksAtNight", "maxCompletionDays")) {
+            params.put(name, null);
+        }
+        params.put("sortKey", sortKey);
+        params.put("sortDesc", sortDesc);
+        return params;
+    }
+
+    private Map<String, Object> nearParams(String sortKey, boolean sortDesc) {
+        double distanceKm = 10;
+        GeoGrid.BoundingBox box = GeoGrid.boundingBox(latitude, longitude, distanceKm);
+        List<Integer> cells = GeoGrid.coveringCells(box);
+        Map<String, Object> params = params(sortKey, sortDesc);
+        params.put("latitude", latitude);
+        params.put("longitude", longitude);
+        params.put("distanceKm", distanceKm);
+        params.put("minLat", box.minLat());
+        params.put("maxLat", box.maxLat());
+        params.put("minLon", box.minLon());
+        params.put("maxLon", box.maxLon());
+        params.put("useCells", !cells.isEmpty());
+        params.put("cells", cells.isEmpty() ? List.of(-1) : cells);
+        return params;
+    }
+}
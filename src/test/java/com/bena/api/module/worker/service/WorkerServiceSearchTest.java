@@ -0,0 +1,74 @@
+package com.bena.api.module.worker.service;
+
+import com.bena.api.common.service.FileStorageService;
+import com.bena.api.common.service.ImageDerivativeService;
+import com.bena.api.common.service.UploadSessionService;
+import com.bena.api.module.worker.repository.WorkerMediaRepository;
+import com.bena.api.module.worker.repository.WorkerRepository;
+import com.bena.api.module.worker.repository.WorkerReviewRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * تحويل sort العميل إلى sortKey في البحث المتقدم: الحقول المعروفة فقط، و distance في البحث المكاني فقط،
+ * والـ Pageable يصل للاستعلام بدون Sort.
+ */
+class WorkerServiceSearchTest {
+
+    private final WorkerRepository workerRepository = mock(WorkerRepository.class);
+    private final WorkerService service = new WorkerService(workerRepository, mock(WorkerMediaRepository.class),
+            mock(WorkerReviewRepository.class), mock(FileStorageService.class), mock(ImageDerivativeService.class),
+            mock(UploadSessionService.class));
+
+    @Test
+    void knownSortIsPassedAsSortKeyWithAnUnsortedPage() {
+        when(workerRepository.searchVisibleWorkers(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), anyBoolean(), any())).thenReturn(Page.empty());
+
+        search(null, PageRequest.of(2, 20, Sort.by(Sort.Order.asc("name"), Sort.Order.desc("averageRating"))));
+
+        verify(workerRepository).searchVisibleWorkers(isNull(), isNull(), isNull(), isNull(), isNull(), isNull(), isNull(),
+                isNull(), isNull(), isNull(), eq("averageRating"), eq(true), eq(PageRequest.of(2, 20)));
+    }
+
+    @Test
+    void distanceIsOnlyASortKeyForNearbySearch() {
+        when(workerRepository.searchVisibleWorkers(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                any(), anyBoolean(), any())).thenReturn(Page.empty());
+        when(workerRepository.searchVisibleWorkersNear(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyBoolean(),
+                anyList(), any(), anyBoolean(), any())).thenReturn(Page.empty());
+        Pageable byDistance = PageRequest.of(0, 20, Sort.by(Sort.Direction.DESC, "distance"));
+
+        search(null, byDistance);
+        search(10.0, byDistance);
+
+        verify(workerRepository).searchVisibleWorkers(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                isNull(), eq(false), any());
+        verify(workerRepository).searchVisibleWorkersNear(any(), any(), any(), any(), any(), any(), any(), any(), any(), any(),
+                anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyDouble(), anyBoolean(),
+                anyList(), eq("distance"), eq(true), eq(PageRequest.of(0, 20)));
+    }
+
+    private void search(Double distanceKm, Pageable pageable) {
+        Double latitude = distanceKm != null ? 33.3 : null;
+        Double longitude = distanceKm != null ? 44.4 : null;
+        Page<?> page = service.advancedSearch(null, null, null, null, null, null, null, null, null, null,
+                latitude, longitude, distanceKm, pageable);
+        assertThat(page).isEmpty();
+    }
+}
@@ -0,0 +1,54 @@
+package com.bena.api.support;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * بيانات محادثات للاختبارات على PostgresTestSupport: مستخدمون وعمال ومحادثة لكل زوج (مستخدم، عامل).
+ * كل استدعاء يستخدم بادئة عشوائية حتى لا تتعارض البيانات بين الاختبارات على نفس القاعدة.
+ */
+public final class ChatTestData {
+
+    public record Conversation(long id, UUID userId, long workerId, UUID workerUserId) {
+    }
+
+    private ChatTestData() {
+    }
+
+    public static UUID createUser(JdbcTemplate jdbc, String name) {
+        return jdbc.queryForObject(
+                "INSERT INTO users (email, password_hash, full_name) VALUES (?, 'x', ?) RETURNING id",
+                UUID.class, name + "-" + UUID.randomUUID() + "@test.local", name);
+    }
+
+    public static Conversation createConversation(JdbcTemplate jdbc) {
+        UUID userId = createUser(jdbc, "user");
+        UUID workerUserId = createUser(jdbc, "worker");
+        Long workerId = jdbc.queryForObject(
+                "INSERT INTO workers (name, category, user_id) VALUES ('worker', 'TEST', ?) RETURNING id",
+                Long.class, workerUserId);
+        Long id = jdbc.queryForObject(
+                "INSERT INTO conversations (user_id, worker_id) VALUES (?, ?) RETURNING id",
+                Long.class, userId, workerId);
+        return new Conversation(id, userId, workerId, workerUserId);
+    }
+
+    /**
+     * users × workers محادثة بين users مستخدم و workers عامل، مُرجعة بالترتيب
+     */
+    public static List<Long> createConversations(JdbcTemplate jdbc, int users, int workers) {
+        String prefix = UUID.randomUUID().toString();
+        jdbc.update("INSERT INTO users (email, password_hash, full_name) " +
+                "SELECT ? || '-' || g || '@test.local', 'x', 'user ' || g FROM generate_series(1, ?) g", prefix, users);
+        jdbc.update("INSERT INTO workers (name, category) " +
+                "SELECT ? || '-' || g, 'TEST' FROM generate_series(1, ?) g", prefix, workers);
+        jdbc.update("INSERT INTO conversations (user_id, worker_id) " +
+                "SELECT u.id, w.id FROM users u CROSS JOIN workers w " +
+                "WHERE u.email LIKE ? || '-%' AND w.name LIKE ? || '-%'", prefix, prefix);
+        return jdbc.queryForList(
+                "SELECT c.id FROM conversations c JOIN users u ON u.id = c.user_id " +
+                        "WHERE u.email LIKE ? || '-%' ORDER BY c.id", Long.class, prefix);
+    }
+}
@@ -0,0 +1,44 @@
+package com.bena.api.support;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.flywaydb.core.internal.database.postgresql.PostgreSQLConfigurationExtension;
+import org.postgresql.ds.PGSimpleDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+
+import javax.sql.DataSource;
+
+/**
+ * PostgreSQL واحد لكل الاختبارات التي تحتاج قاعدة حقيقية، مع كل ترحيلات Flyway.
+ * الاختبارات التي تستخدمه تُعلَّم بـ @Testcontainers(disabledWithoutDocker = true).
+ */
+public final class PostgresTestSupport {
+
+    private static PostgreSQLContainer<?> container;
+    private static DataSource dataSource;
+
+    private PostgresTestSupport() {
+    }
+
+    public static synchronized DataSource dataSource() {
+        if (dataSource == null) {
+            container = new PostgreSQLContainer<>("postgres:16-alpine");
+            container.start();
+
+            PGSimpleDataSource pg = new PGSimpleDataSource();
+            pg.setUrl(container.getJdbcUrl());
+            pg.setUser(container.getUsername());
+            pg.setPassword(container.getPassword());
+
+            FluentConfiguration flyway = Flyway.configure()
+                    .dataSource(pg)
+                    .locations("classpath:db/migration")
+                    .outOfOrder(true);
+            // نفس إعداد FlywayPermanentConfig: بدونه يعلق CREATE INDEX CONCURRENTLY
+            flyway.getPluginRegister().getPlugin(PostgreSQLConfigurationExtension.class).setTransactionalLock(false);
+            flyway.load().migrate();
+            dataSource = pg;
+        }
+        return dataSource;
+    }
+}